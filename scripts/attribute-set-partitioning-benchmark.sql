@@ -0,0 +1,76 @@
+-- Compare the maintenance cost of attribute_set stored in one table and hash partitioned by set id,
+-- at 10M attribute rows. Run against a scratch database, not a live one:
+--   psql -h 127.0.0.1 -U dbuser -d policy_db -f scripts/attribute-set-partitioning-benchmark.sql
+-- Everything is created in the partition_bench schema, which is dropped at the end.
+\timing on
+
+DROP SCHEMA IF EXISTS partition_bench CASCADE;
+CREATE SCHEMA partition_bench;
+SET search_path = partition_bench;
+
+CREATE TABLE set_plain (
+  namespace text NOT NULL,
+  name text NOT NULL,
+  properties jsonb,
+  set_id uuid NOT NULL,
+  conflicts uuid[]);
+
+CREATE TABLE set_hashed (LIKE set_plain) PARTITION BY HASH (set_id);
+CREATE TABLE set_hashed_p00 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 0);
+CREATE TABLE set_hashed_p01 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 1);
+CREATE TABLE set_hashed_p02 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 2);
+CREATE TABLE set_hashed_p03 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 3);
+CREATE TABLE set_hashed_p04 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 4);
+CREATE TABLE set_hashed_p05 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 5);
+CREATE TABLE set_hashed_p06 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 6);
+CREATE TABLE set_hashed_p07 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 7);
+CREATE TABLE set_hashed_p08 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 8);
+CREATE TABLE set_hashed_p09 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 9);
+CREATE TABLE set_hashed_p10 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 10);
+CREATE TABLE set_hashed_p11 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 11);
+CREATE TABLE set_hashed_p12 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 12);
+CREATE TABLE set_hashed_p13 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 13);
+CREATE TABLE set_hashed_p14 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 14);
+CREATE TABLE set_hashed_p15 PARTITION OF set_hashed FOR VALUES WITH (MODULUS 16, REMAINDER 15);
+
+-- 2.5M sets of four policies each
+INSERT INTO set_plain (namespace, name, properties, set_id, conflicts)
+SELECT 'terra',
+       (ARRAY['region-constraint', 'group-constraint', 'data-tracking', 'protected-data'])[p],
+       jsonb_build_array(jsonb_build_object('key', 'value', 'value', 'v' || (s % 1000))),
+       md5(s::text)::uuid,
+       '{}'
+FROM generate_series(1, 2500000) s, generate_series(1, 4) p;
+INSERT INTO set_hashed SELECT * FROM set_plain;
+
+CREATE INDEX set_plain_id_index ON set_plain (set_id);
+CREATE INDEX set_hashed_id_index ON set_hashed (set_id);
+VACUUM ANALYZE set_plain;
+VACUUM ANALYZE set_hashed;
+
+SELECT 'plain' AS layout,
+       pg_size_pretty(pg_relation_size('set_plain')) AS heap,
+       pg_size_pretty(pg_relation_size('set_plain_id_index')) AS index,
+       pg_size_pretty(pg_relation_size('set_plain_id_index')) AS largest_index
+UNION ALL
+SELECT 'hashed',
+       pg_size_pretty(sum(pg_relation_size(inhrelid))),
+       pg_size_pretty(sum(pg_indexes_size(inhrelid))),
+       pg_size_pretty(max(pg_indexes_size(inhrelid)))
+FROM pg_inherits WHERE inhparent = 'set_hashed'::regclass;
+
+-- Release 5% of the sets, as PAO updates do, then vacuum the dead rows away
+DELETE FROM set_plain WHERE set_id IN (SELECT md5(s::text)::uuid FROM generate_series(1, 2500000, 20) s);
+DELETE FROM set_hashed WHERE set_id IN (SELECT md5(s::text)::uuid FROM generate_series(1, 2500000, 20) s);
+VACUUM set_plain;
+VACUUM set_hashed;
+
+-- Autovacuum processes one partition at a time
+DELETE FROM set_hashed WHERE set_id IN (SELECT md5(s::text)::uuid FROM generate_series(2, 2500000, 20) s);
+VACUUM set_hashed_p00;
+
+-- A getAttributeSets lookup reads one partition per set id
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM set_hashed WHERE set_id IN (md5('3')::uuid, md5('4')::uuid);
+
+DROP SCHEMA partition_bench CASCADE;
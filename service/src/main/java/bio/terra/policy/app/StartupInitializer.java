@@ -2,6 +2,11 @@ package bio.terra.policy.app;
 
 import bio.terra.common.migrate.LiquibaseMigrator;
 import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.service.changefeed.ChangeFeedService;
+import bio.terra.policy.service.propagation.PropagationWorker;
+import bio.terra.policy.service.reevaluation.ConsistencyChecker;
+import bio.terra.policy.service.reevaluation.ReevaluationWorker;
+import bio.terra.policy.service.region.OntologyReloader;
 import org.springframework.context.ApplicationContext;
 
 public final class StartupInitializer {
@@ -19,5 +24,14 @@ public final class StartupInitializer {
     } else if (tpsDatabaseConfiguration.isUpgradeOnStart()) {
       migrateService.upgrade(CHANGELOG_PATH, tpsDatabaseConfiguration.getDataSource());
     }
+
+    // A configured ontology file replaces the built-in one before the service takes requests
+    applicationContext.getBean(OntologyReloader.class).start();
+
+    // Background workers need the database, so they start once it is migrated
+    applicationContext.getBean(PropagationWorker.class).start();
+    applicationContext.getBean(ReevaluationWorker.class).start();
+    applicationContext.getBean(ConsistencyChecker.class).start();
+    applicationContext.getBean(ChangeFeedService.class).start();
   }
 }
@@ -0,0 +1,56 @@
+package bio.terra.policy.app.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/** Configuration of admission control for API requests */
+@Configuration
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "policy.admission")
+public class AdmissionConfiguration {
+  /** If true, API requests are admitted through the read and write bulkheads */
+  private boolean enabled = true;
+
+  /** Share of the database connection pool that requests which walk the graph may hold */
+  private double writePoolShare = 0.5;
+
+  /** How long a read waits for a permit before it is turned away */
+  private Duration readWait = Duration.ofSeconds(1);
+
+  /** How long a write waits for a permit before it is turned away */
+  private Duration writeWait = Duration.ofSeconds(5);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public double getWritePoolShare() {
+    return writePoolShare;
+  }
+
+  public void setWritePoolShare(double writePoolShare) {
+    this.writePoolShare = writePoolShare;
+  }
+
+  public Duration getReadWait() {
+    return readWait;
+  }
+
+  public void setReadWait(Duration readWait) {
+    this.readWait = readWait;
+  }
+
+  public Duration getWriteWait() {
+    return writeWait;
+  }
+
+  public void setWriteWait(Duration writeWait) {
+    this.writeWait = writeWait;
+  }
+}
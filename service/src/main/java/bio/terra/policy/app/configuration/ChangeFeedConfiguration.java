@@ -0,0 +1,59 @@
+package bio.terra.policy.app.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/** Configuration of the PAO change feed */
+@Configuration
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "policy.change-feed")
+public class ChangeFeedConfiguration {
+  /** How often to check for new changes while clients are waiting for them */
+  private Duration pollInterval = Duration.ofSeconds(1);
+
+  /**
+   * Maximum number of clients waiting for changes at once. Beyond that, a read that finds no
+   * changes returns without waiting.
+   */
+  private int maxWaiters = 100;
+
+  /** How long changes are kept in the feed */
+  private Duration retention = Duration.ofDays(7);
+
+  /** How often to delete changes older than the retention */
+  private Duration pruneInterval = Duration.ofHours(1);
+
+  public Duration getPollInterval() {
+    return pollInterval;
+  }
+
+  public void setPollInterval(Duration pollInterval) {
+    this.pollInterval = pollInterval;
+  }
+
+  public int getMaxWaiters() {
+    return maxWaiters;
+  }
+
+  public void setMaxWaiters(int maxWaiters) {
+    this.maxWaiters = maxWaiters;
+  }
+
+  public Duration getRetention() {
+    return retention;
+  }
+
+  public void setRetention(Duration retention) {
+    this.retention = retention;
+  }
+
+  public Duration getPruneInterval() {
+    return pruneInterval;
+  }
+
+  public void setPruneInterval(Duration pruneInterval) {
+    this.pruneInterval = pruneInterval;
+  }
+}
@@ -0,0 +1,89 @@
+package bio.terra.policy.app.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/** Configuration of the background check of stored effective attributes */
+@Configuration
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "policy.consistency-check")
+public class ConsistencyCheckConfiguration {
+  /** If true, this instance checks the graph over and over in the background */
+  private boolean enabled = false;
+
+  /** How long to wait after one check finishes before starting the next */
+  private Duration interval = Duration.ofHours(1);
+
+  /** Number of PAOs checked per second, across all threads */
+  private double paosPerSecond = 200;
+
+  /** Number of threads checking PAOs */
+  private int threads = 2;
+
+  /** Number of PAOs read per query when loading the graph */
+  private int readPageSize = 10000;
+
+  /** Number of PAOs checked per task */
+  private int batchSize = 100;
+
+  /** Maximum number of PAO ids listed in a report for each kind of problem */
+  private int maxReportedIds = 100;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Duration getInterval() {
+    return interval;
+  }
+
+  public void setInterval(Duration interval) {
+    this.interval = interval;
+  }
+
+  public double getPaosPerSecond() {
+    return paosPerSecond;
+  }
+
+  public void setPaosPerSecond(double paosPerSecond) {
+    this.paosPerSecond = paosPerSecond;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public int getReadPageSize() {
+    return readPageSize;
+  }
+
+  public void setReadPageSize(int readPageSize) {
+    this.readPageSize = readPageSize;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public int getMaxReportedIds() {
+    return maxReportedIds;
+  }
+
+  public void setMaxReportedIds(int maxReportedIds) {
+    this.maxReportedIds = maxReportedIds;
+  }
+}
@@ -0,0 +1,22 @@
+package bio.terra.policy.app.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/** Configuration of impact analysis of proposed PAO changes */
+@Configuration
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "policy.impact")
+public class ImpactConfiguration {
+  /** Most dependents one analysis examines; past this the analysis is reported incomplete */
+  private int maxDependents = 100000;
+
+  public int getMaxDependents() {
+    return maxDependents;
+  }
+
+  public void setMaxDependents(int maxDependents) {
+    this.maxDependents = maxDependents;
+  }
+}
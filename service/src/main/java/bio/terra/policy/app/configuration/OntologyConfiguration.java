@@ -0,0 +1,48 @@
+package bio.terra.policy.app.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/** Configuration of reloading the location ontology while the service runs */
+@Configuration
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "policy.ontology")
+public class OntologyConfiguration {
+  /**
+   * Path of a locations file that replaces the built-in locations.yml and is reloaded when it
+   * changes. When it is not set, the built-in ontology is used and never reloaded.
+   */
+  private String file;
+
+  /** How often to check the file for changes */
+  private Duration reloadInterval = Duration.ofMinutes(1);
+
+  /** Queue a full re-evaluation of effective attributes when a reload changes the ontology */
+  private boolean reevaluateOnChange = false;
+
+  public String getFile() {
+    return file;
+  }
+
+  public void setFile(String file) {
+    this.file = file;
+  }
+
+  public Duration getReloadInterval() {
+    return reloadInterval;
+  }
+
+  public void setReloadInterval(Duration reloadInterval) {
+    this.reloadInterval = reloadInterval;
+  }
+
+  public boolean isReevaluateOnChange() {
+    return reevaluateOnChange;
+  }
+
+  public void setReevaluateOnChange(boolean reevaluateOnChange) {
+    this.reevaluateOnChange = reevaluateOnChange;
+  }
+}
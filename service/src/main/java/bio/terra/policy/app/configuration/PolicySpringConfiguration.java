@@ -2,6 +2,7 @@ package bio.terra.policy.app.configuration;
 
 import bio.terra.policy.app.StartupInitializer;
 import bio.terra.policy.generated.model.ApiVersionProperties;
+import bio.terra.policy.service.region.RegionService;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.SerializableString;
 import com.fasterxml.jackson.core.io.CharacterEscapes;
@@ -40,6 +41,12 @@ public class PolicySpringConfiguration {
     return objectMapper;
   }
 
+  // The region constraint policy uses the same instance outside of Spring
+  @Bean
+  public RegionService regionService() {
+    return RegionService.getInstance();
+  }
+
   // This is a "magic bean": It supplies a method that Spring calls after the application is setup,
   // but before the port is opened for business. That lets us do database migration and stairway
   // initialization on a system that is otherwise fully configured. The rule of thumb is that all
@@ -0,0 +1,67 @@
+package bio.terra.policy.app.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/** Configuration of the workers that drain the asynchronous propagation job queue */
+@Configuration
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "policy.propagation")
+public class PropagationConfiguration {
+  /** If true, this instance runs a worker that processes propagation jobs */
+  private boolean workerEnabled = true;
+
+  /** Maximum number of jobs a worker claims at a time */
+  private int batchSize = 20;
+
+  /** How long an idle worker waits before checking the queue again */
+  private Duration pollInterval = Duration.ofSeconds(2);
+
+  /** How long a worker owns a claimed job before other workers may reclaim it */
+  private Duration leaseTimeout = Duration.ofMinutes(10);
+
+  /** Number of attempts before a job is marked as failed */
+  private int maxAttempts = 5;
+
+  public boolean isWorkerEnabled() {
+    return workerEnabled;
+  }
+
+  public void setWorkerEnabled(boolean workerEnabled) {
+    this.workerEnabled = workerEnabled;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public Duration getPollInterval() {
+    return pollInterval;
+  }
+
+  public void setPollInterval(Duration pollInterval) {
+    this.pollInterval = pollInterval;
+  }
+
+  public Duration getLeaseTimeout() {
+    return leaseTimeout;
+  }
+
+  public void setLeaseTimeout(Duration leaseTimeout) {
+    this.leaseTimeout = leaseTimeout;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public void setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+  }
+}
@@ -0,0 +1,89 @@
+package bio.terra.policy.app.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/** Configuration of full-graph re-evaluation of effective attributes */
+@Configuration
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "policy.reevaluation")
+public class ReevaluationConfiguration {
+  /** If true, this instance runs a worker that processes re-evaluation jobs */
+  private boolean workerEnabled = true;
+
+  /** Number of threads evaluating the PAOs of a layer */
+  private int threads = 4;
+
+  /** Number of PAOs read per query when loading the graph */
+  private int readPageSize = 10000;
+
+  /** Number of PAOs evaluated and written per transaction */
+  private int writeBatchSize = 500;
+
+  /** How long an idle worker waits before checking for a job again */
+  private Duration pollInterval = Duration.ofSeconds(30);
+
+  /** How long a worker owns a job after its last checkpoint before other workers may resume it */
+  private Duration leaseTimeout = Duration.ofMinutes(10);
+
+  /** Number of attempts before a job is marked as failed */
+  private int maxAttempts = 3;
+
+  public boolean isWorkerEnabled() {
+    return workerEnabled;
+  }
+
+  public void setWorkerEnabled(boolean workerEnabled) {
+    this.workerEnabled = workerEnabled;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public int getReadPageSize() {
+    return readPageSize;
+  }
+
+  public void setReadPageSize(int readPageSize) {
+    this.readPageSize = readPageSize;
+  }
+
+  public int getWriteBatchSize() {
+    return writeBatchSize;
+  }
+
+  public void setWriteBatchSize(int writeBatchSize) {
+    this.writeBatchSize = writeBatchSize;
+  }
+
+  public Duration getPollInterval() {
+    return pollInterval;
+  }
+
+  public void setPollInterval(Duration pollInterval) {
+    this.pollInterval = pollInterval;
+  }
+
+  public Duration getLeaseTimeout() {
+    return leaseTimeout;
+  }
+
+  public void setLeaseTimeout(Duration leaseTimeout) {
+    this.leaseTimeout = leaseTimeout;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public void setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+  }
+}
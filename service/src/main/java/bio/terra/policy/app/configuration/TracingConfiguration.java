@@ -0,0 +1,34 @@
+package bio.terra.policy.app.configuration;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/** Configuration of the trace spans emitted by the service */
+@Configuration
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "policy.tracing")
+public class TracingConfiguration {
+  /** Walks that load more PAOs than this get a span event */
+  private int walkNodeThreshold = 500;
+
+  /** Walks that take longer than this get a span event */
+  private Duration walkDurationThreshold = Duration.ofSeconds(2);
+
+  public int getWalkNodeThreshold() {
+    return walkNodeThreshold;
+  }
+
+  public void setWalkNodeThreshold(int walkNodeThreshold) {
+    this.walkNodeThreshold = walkNodeThreshold;
+  }
+
+  public Duration getWalkDurationThreshold() {
+    return walkDurationThreshold;
+  }
+
+  public void setWalkDurationThreshold(Duration walkDurationThreshold) {
+    this.walkDurationThreshold = walkDurationThreshold;
+  }
+}
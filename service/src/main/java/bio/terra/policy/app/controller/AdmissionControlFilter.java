@@ -0,0 +1,137 @@
+package bio.terra.policy.app.controller;
+
+import bio.terra.policy.app.configuration.AdmissionConfiguration;
+import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.common.MetricsUtils;
+import bio.terra.policy.generated.model.ApiErrorReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Admission control for API requests. Requests that walk the graph to change PAOs hold database
+ * connections for the length of the walk, so a burst of them can take every connection and leave
+ * cheap reads waiting. Each request takes a permit from one of two bulkheads before it runs:
+ *
+ * <ul>
+ *   <li>writes get a share of the connection pool, so the rest of the pool is always left to reads
+ *   <li>reads get as many permits as there are connections; they are short, so they can also use
+ *       connections the writes are not holding
+ * </ul>
+ *
+ * A request that cannot get a permit within its wait is turned away with 503 and a Retry-After
+ * header, rather than queueing without bound. That matters most with virtual threads, where the web
+ * tier itself no longer limits how many requests run at once.
+ */
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+  private static final Logger logger = LoggerFactory.getLogger(AdmissionControlFilter.class);
+  private static final String API_PREFIX = "/api/";
+  // POST requests that only read
+  private static final Set<String> READ_POSTS =
+      Set.of(
+          "/api/policy/v1alpha1/pao/list",
+          "/api/policy/v1alpha1/region/evaluate",
+          "/api/policy/v1alpha1/location/list-valid");
+  // POST requests on a PAO that only read, by the last element of their path
+  private static final String READ_POST_PAO_SUFFIX = "/impact";
+  // Change feed reads wait for changes without holding a connection; the feed bounds its waiters
+  private static final String CHANGE_FEED_PATH = "/api/policy/v1alpha1/pao/changes";
+
+  private final AdmissionConfiguration admissionConfiguration;
+  private final ObjectMapper objectMapper;
+  private final Semaphore readPermits;
+  private final Semaphore writePermits;
+
+  @Autowired
+  public AdmissionControlFilter(
+      AdmissionConfiguration admissionConfiguration,
+      TpsDatabaseConfiguration tpsDatabaseConfiguration,
+      ObjectMapper objectMapper) {
+    this.admissionConfiguration = admissionConfiguration;
+    this.objectMapper = objectMapper;
+    int poolSize = tpsDatabaseConfiguration.getPoolMaxTotal();
+    int writes =
+        Math.max(1, (int) Math.ceil(poolSize * admissionConfiguration.getWritePoolShare()));
+    this.readPermits = new Semaphore(Math.max(1, poolSize), true);
+    this.writePermits = new Semaphore(writes, true);
+    logger.info("Admission control: {} read permits, {} write permits", poolSize, writes);
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    String uri = request.getRequestURI();
+    return !admissionConfiguration.isEnabled()
+        || !uri.startsWith(API_PREFIX)
+        || uri.equals(CHANGE_FEED_PATH);
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    boolean write = isWrite(request);
+    Semaphore permits = write ? writePermits : readPermits;
+    Duration wait =
+        write ? admissionConfiguration.getWriteWait() : admissionConfiguration.getReadWait();
+    String bulkhead = write ? "write" : "read";
+
+    boolean admitted;
+    try {
+      admitted = permits.tryAcquire(wait.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      admitted = false;
+    }
+    if (!admitted) {
+      MetricsUtils.incrementAdmissionRejected(bulkhead);
+      reject(response, bulkhead, wait);
+      return;
+    }
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      permits.release();
+    }
+  }
+
+  private static boolean isWrite(HttpServletRequest request) {
+    String method = request.getMethod();
+    if (HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)) {
+      return false;
+    }
+    String uri = request.getRequestURI();
+    return !(HttpMethod.POST.matches(method)
+        && (READ_POSTS.contains(uri) || uri.endsWith(READ_POST_PAO_SUFFIX)));
+  }
+
+  private void reject(HttpServletResponse response, String bulkhead, Duration wait)
+      throws IOException {
+    ApiErrorReport errorReport =
+        new ApiErrorReport()
+            .message(String.format("Too many %s requests in progress; try again later", bulkhead))
+            .statusCode(HttpStatus.SERVICE_UNAVAILABLE.value())
+            .causes(List.of());
+    response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, wait.toSeconds())));
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    objectMapper.writeValue(response.getOutputStream(), errorReport);
+  }
+}
@@ -4,21 +4,43 @@ import bio.terra.policy.common.exception.InvalidInputException;
 import bio.terra.policy.common.model.PolicyInput;
 import bio.terra.policy.common.model.PolicyInputs;
 import bio.terra.policy.common.model.PolicyName;
+import bio.terra.policy.generated.model.ApiTpsComponent;
+import bio.terra.policy.generated.model.ApiTpsConsistencyReport;
 import bio.terra.policy.generated.model.ApiTpsLocation;
+import bio.terra.policy.generated.model.ApiTpsObjectType;
+import bio.terra.policy.generated.model.ApiTpsPaoChange;
+import bio.terra.policy.generated.model.ApiTpsPaoChangeFeed;
 import bio.terra.policy.generated.model.ApiTpsPaoConflict;
 import bio.terra.policy.generated.model.ApiTpsPaoDescription;
 import bio.terra.policy.generated.model.ApiTpsPaoGetResult;
+import bio.terra.policy.generated.model.ApiTpsPaoImpact;
+import bio.terra.policy.generated.model.ApiTpsPaoImpactResult;
 import bio.terra.policy.generated.model.ApiTpsPaoUpdateResult;
+import bio.terra.policy.generated.model.ApiTpsPolicyExplainSource;
+import bio.terra.policy.generated.model.ApiTpsPolicyExplanation;
 import bio.terra.policy.generated.model.ApiTpsPolicyInput;
 import bio.terra.policy.generated.model.ApiTpsPolicyInputs;
 import bio.terra.policy.generated.model.ApiTpsPolicyPair;
+import bio.terra.policy.generated.model.ApiTpsPropagationJob;
+import bio.terra.policy.generated.model.ApiTpsReevaluationJob;
 import bio.terra.policy.generated.model.ApiTpsRegions;
+import bio.terra.policy.service.changefeed.model.PaoChangePage;
+import bio.terra.policy.service.pao.graph.model.ExplainGraphNode;
+import bio.terra.policy.service.pao.graph.model.ImpactAnalysis;
 import bio.terra.policy.service.pao.graph.model.PolicyConflict;
 import bio.terra.policy.service.pao.model.Pao;
+import bio.terra.policy.service.pao.model.PaoComponent;
+import bio.terra.policy.service.pao.model.PaoObjectType;
 import bio.terra.policy.service.policy.model.PolicyUpdateResult;
+import bio.terra.policy.service.propagation.model.PropagationJob;
+import bio.terra.policy.service.reevaluation.model.ConsistencyReport;
+import bio.terra.policy.service.reevaluation.model.ReevaluationJob;
+import bio.terra.policy.service.reevaluation.model.ReevaluationProgress;
 import bio.terra.policy.service.region.model.Location;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import javax.annotation.Nullable;
@@ -39,7 +61,35 @@ public class ConversionUtils {
       apiInput.getAdditionalData().forEach(item -> data.put(item.getKey(), item.getValue()));
     }
 
-    return new PolicyInput(new PolicyName(apiInput.getNamespace(), apiInput.getName()), data);
+    // Request input is not interned; the name is interned if and when it is stored
+    return new PolicyInput(PolicyName.forInput(apiInput.getNamespace(), apiInput.getName()), data);
+  }
+
+  static PaoComponent componentFromApi(String apiComponent) {
+    ApiTpsComponent component = ApiTpsComponent.fromValue(apiComponent);
+    if (component == null) {
+      throw new InvalidInputException("Invalid component: " + apiComponent);
+    }
+    return PaoComponent.fromApi(component);
+  }
+
+  static PaoObjectType objectTypeFromApi(String apiObjectType) {
+    ApiTpsObjectType objectType = ApiTpsObjectType.fromValue(apiObjectType);
+    if (objectType == null) {
+      throw new InvalidInputException("Invalid object type: " + apiObjectType);
+    }
+    return PaoObjectType.fromApi(objectType);
+  }
+
+  static @Nullable Instant instantFromApi(String parameterName, @Nullable String apiInstant) {
+    if (apiInstant == null) {
+      return null;
+    }
+    try {
+      return Instant.parse(apiInstant);
+    } catch (DateTimeParseException e) {
+      throw new InvalidInputException("Invalid " + parameterName + ": " + apiInstant);
+    }
   }
 
   static ApiTpsPolicyInput policyInputToApi(PolicyInput input) {
@@ -98,6 +148,24 @@ public class ConversionUtils {
         .lastUpdatedDate(pao.getLastUpdated().toString());
   }
 
+  static ApiTpsPolicyExplainSource explainSourceToApi(Pao pao) {
+    return new ApiTpsPolicyExplainSource()
+        .component(pao.getComponent().toApi())
+        .objectType(pao.getObjectType().toApi())
+        .objectId(pao.getObjectId())
+        .deleted(pao.getDeleted())
+        .createdDate(pao.getCreated().toString())
+        .lastUpdatedDate(pao.getLastUpdated().toString());
+  }
+
+  static ApiTpsPolicyExplanation explanationToApi(ExplainGraphNode node) {
+    return new ApiTpsPolicyExplanation()
+        .objectId(node.getObjectId())
+        .policyInput(policyInputToApi(node.getPolicyInput()))
+        .policyExplanations(
+            node.getSources().stream().map(ConversionUtils::explanationToApi).toList());
+  }
+
   static ApiTpsLocation regionToApi(Location location) {
     ApiTpsLocation apiLocation =
         new ApiTpsLocation().name(location.getName()).description(location.getDescription());
@@ -120,21 +188,102 @@ public class ConversionUtils {
     ApiTpsPaoUpdateResult apiResult =
         new ApiTpsPaoUpdateResult()
             .updateApplied(result.updateApplied())
-            .resultingPao(paoToApi(result.computedPao()));
+            .resultingPao(paoToApi(result.computedPao()))
+            .propagationJobId(result.propagationJobId());
 
     for (PolicyConflict conflict : result.conflicts()) {
-      var apiConflict =
-          new ApiTpsPaoConflict()
-              .namespace(conflict.policyName().getNamespace())
-              .name(conflict.policyName().getName())
-              .targetPao(paoToApiPaoDescription(conflict.pao()))
-              .conflictPao(paoToApiPaoDescription(conflict.conflictPao()));
-      apiResult.addConflictsItem(apiConflict);
+      apiResult.addConflictsItem(conflictToApi(conflict));
     }
 
     return apiResult;
   }
 
+  static ApiTpsPaoImpactResult impactAnalysisToApi(ImpactAnalysis analysis) {
+    return new ApiTpsPaoImpactResult()
+        .dependentCount(analysis.dependentCount())
+        .complete(analysis.complete())
+        .impacted(
+            analysis.impacted().stream()
+                .map(
+                    impacted ->
+                        new ApiTpsPaoImpact()
+                            .pao(paoToApiPaoDescription(impacted.pao()))
+                            .conflicts(
+                                impacted.conflicts().stream()
+                                    .map(ConversionUtils::conflictToApi)
+                                    .toList()))
+                .toList());
+  }
+
+  static ApiTpsPaoChangeFeed changePageToApi(PaoChangePage page) {
+    return new ApiTpsPaoChangeFeed()
+        .changes(
+            page.changes().stream()
+                .map(
+                    change ->
+                        new ApiTpsPaoChange()
+                            .position(change.position().toString())
+                            .objectId(change.objectId())
+                            .component(change.component().toApi())
+                            .objectType(change.objectType().toApi())
+                            .changeType(change.changeType().toApi())
+                            .version(change.version())
+                            .changed(change.changed().toString()))
+                .toList())
+        .position((page.position() == null) ? null : page.position().toString());
+  }
+
+  static ApiTpsPropagationJob propagationJobToApi(PropagationJob job) {
+    return new ApiTpsPropagationJob()
+        .jobId(job.jobId())
+        .objectId(job.objectId())
+        .status(job.status().toApi())
+        .attempts(job.attempts())
+        .conflicts(job.conflicts().stream().map(ConversionUtils::conflictToApi).toList())
+        .errorMessage(job.errorMessage())
+        .createdDate(job.created().toString())
+        .lastUpdatedDate(job.lastUpdated().toString());
+  }
+
+  static ApiTpsReevaluationJob reevaluationJobToApi(ReevaluationJob job) {
+    ReevaluationProgress progress = job.progress();
+    return new ApiTpsReevaluationJob()
+        .jobId(job.jobId())
+        .ontologyVersion(job.ontologyVersion())
+        .status(job.status().toApi())
+        .attempts(job.attempts())
+        .layerCount(progress.layerCount())
+        .completedLayers(progress.completedLayers())
+        .evaluatedCount(progress.evaluated())
+        .changedCount(progress.changed())
+        .conflictCount(progress.conflicts())
+        .skippedCount(progress.skipped())
+        .errorMessage(job.errorMessage())
+        .createdDate(job.created().toString())
+        .lastUpdatedDate(job.lastUpdated().toString());
+  }
+
+  static ApiTpsConsistencyReport consistencyReportToApi(ConsistencyReport report) {
+    return new ApiTpsConsistencyReport()
+        .startedDate(report.started().toString())
+        .finishedDate(report.finished().toString())
+        .checkedCount(report.checked())
+        .mismatchCount(report.mismatchCount())
+        .cycleCount(report.cycleCount())
+        .danglingCount(report.danglingCount())
+        .mismatches(report.mismatches())
+        .cycles(report.cycles())
+        .dangling(report.dangling());
+  }
+
+  static ApiTpsPaoConflict conflictToApi(PolicyConflict conflict) {
+    return new ApiTpsPaoConflict()
+        .namespace(conflict.policyName().getNamespace())
+        .name(conflict.policyName().getName())
+        .targetPao(paoToApiPaoDescription(conflict.pao()))
+        .conflictPao(paoToApiPaoDescription(conflict.conflictPao()));
+  }
+
   static ApiTpsPaoDescription paoToApiPaoDescription(Pao pao) {
     return new ApiTpsPaoDescription()
         .objectId(pao.getObjectId())
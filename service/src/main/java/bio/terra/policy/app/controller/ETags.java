@@ -0,0 +1,53 @@
+package bio.terra.policy.app.controller;
+
+import javax.annotation.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Entity tags for conditional reads. The tags are strong: they are built from PAO versions, which
+ * change on every write, so equal tags mean identical responses.
+ */
+class ETags {
+  private ETags() {}
+
+  static String of(String stamp) {
+    return "\"" + stamp + "\"";
+  }
+
+  /**
+   * Test an If-None-Match header against the current entity tag. Per RFC 9110, If-None-Match uses
+   * weak comparison, so a W/ prefix on a client tag is ignored.
+   *
+   * @param ifNoneMatch header value; may be null
+   * @param etag current entity tag, quoted
+   * @return true if the client copy is current
+   */
+  static boolean matches(@Nullable String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.equals("*")) {
+        return true;
+      }
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static <T> ResponseEntity<T> notModified(String etag) {
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).header(HttpHeaders.ETAG, etag).build();
+  }
+
+  static <T> ResponseEntity<T> ok(T body, String etag) {
+    return ResponseEntity.ok().header(HttpHeaders.ETAG, etag).body(body);
+  }
+}
@@ -0,0 +1,251 @@
+package bio.terra.policy.app.controller;
+
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.generated.model.ApiTpsComponent;
+import bio.terra.policy.generated.model.ApiTpsObjectType;
+import bio.terra.policy.generated.model.ApiTpsPaoExplainResult;
+import bio.terra.policy.generated.model.ApiTpsPaoGetResult;
+import bio.terra.policy.generated.model.ApiTpsPolicyExplainSource;
+import bio.terra.policy.generated.model.ApiTpsPolicyExplanation;
+import bio.terra.policy.generated.model.ApiTpsPolicyInputs;
+import bio.terra.policy.service.pao.graph.model.ExplainGraph;
+import bio.terra.policy.service.pao.graph.model.ExplainGraphNode;
+import bio.terra.policy.service.pao.model.Pao;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * Response bodies for the explain and list PAO endpoints. Those responses can be large, and
+ * converting to the generated API model first means holding another full copy of the result (for
+ * explain, the sources and the explanation tree) until it is serialized. These classes satisfy the
+ * types of the generated interface, but their serializers write the service objects straight to the
+ * JsonGenerator.
+ *
+ * <p>The JSON matches what Jackson writes for the generated models with our object mapper; in
+ * particular, null fields are omitted, per the NON_ABSENT inclusion in PolicySpringConfiguration.
+ * The getters convert on demand. That keeps the objects usable in process, and keeps the JSON right
+ * if the serializer is chosen from the declared type rather than the runtime class: Spring does
+ * that for container bodies when it can resolve the element type, and the generated bean serializer
+ * reads through the getters.
+ */
+class StreamingResponses {
+  private StreamingResponses() {}
+
+  /** Explain result that serializes directly from the explain graph */
+  @JsonSerialize(using = ExplainResultSerializer.class)
+  static class ExplainResult extends ApiTpsPaoExplainResult {
+    private final ExplainGraph graph;
+
+    ExplainResult(UUID objectId, @Nullable Integer depth, ExplainGraph graph) {
+      this.graph = graph;
+      setObjectId(objectId);
+      setDepth(depth);
+    }
+
+    @Override
+    public List<ApiTpsPolicyExplainSource> getExplainObjects() {
+      return graph.explainPaos().stream().map(ConversionUtils::explainSourceToApi).toList();
+    }
+
+    @Override
+    public List<ApiTpsPolicyExplanation> getExplanation() {
+      return graph.explainGraph().stream().map(ConversionUtils::explanationToApi).toList();
+    }
+  }
+
+  /** List element that serializes directly from a Pao */
+  @JsonSerialize(using = PaoResultSerializer.class)
+  static class PaoResult extends ApiTpsPaoGetResult {
+    private final Pao pao;
+
+    PaoResult(Pao pao) {
+      this.pao = pao;
+    }
+
+    @Override
+    public UUID getObjectId() {
+      return pao.getObjectId();
+    }
+
+    @Override
+    public ApiTpsComponent getComponent() {
+      return pao.getComponent().toApi();
+    }
+
+    @Override
+    public ApiTpsObjectType getObjectType() {
+      return pao.getObjectType().toApi();
+    }
+
+    @Override
+    public ApiTpsPolicyInputs getAttributes() {
+      return ConversionUtils.policyInputsToApi(pao.getAttributes());
+    }
+
+    @Override
+    public ApiTpsPolicyInputs getEffectiveAttributes() {
+      return ConversionUtils.policyInputsToApi(pao.getEffectiveAttributes());
+    }
+
+    @Override
+    public Boolean isDeleted() {
+      return pao.getDeleted();
+    }
+
+    @Override
+    public List<UUID> getSourcesObjectIds() {
+      return pao.getSourceObjectIds().stream().toList();
+    }
+
+    @Override
+    public String getCreatedDate() {
+      return pao.getCreated().toString();
+    }
+
+    @Override
+    public String getLastUpdatedDate() {
+      return pao.getLastUpdated().toString();
+    }
+  }
+
+  /**
+   * @param paos PAOs to return
+   * @return a view of the list; elements are wrapped as they are serialized
+   */
+  static List<ApiTpsPaoGetResult> paoList(List<Pao> paos) {
+    return Lists.transform(paos, PaoResult::new);
+  }
+
+  static class ExplainResultSerializer extends StdSerializer<ExplainResult> {
+    ExplainResultSerializer() {
+      super(ExplainResult.class);
+    }
+
+    @Override
+    public void serialize(ExplainResult value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      gen.writeStartObject();
+      if (value.getDepth() != null) {
+        gen.writeNumberField("depth", value.getDepth());
+      }
+      writeUuidField(gen, "objectId", value.getObjectId());
+
+      gen.writeArrayFieldStart("explainObjects");
+      for (Pao pao : value.graph.explainPaos()) {
+        gen.writeStartObject();
+        writeUuidField(gen, "objectId", pao.getObjectId());
+        gen.writeStringField("component", pao.getComponent().toApi().toString());
+        gen.writeStringField("objectType", pao.getObjectType().toApi().toString());
+        gen.writeBooleanField("deleted", pao.getDeleted());
+        gen.writeStringField("createdDate", pao.getCreated().toString());
+        gen.writeStringField("lastUpdatedDate", pao.getLastUpdated().toString());
+        gen.writeEndObject();
+      }
+      gen.writeEndArray();
+
+      gen.writeArrayFieldStart("explanation");
+      for (ExplainGraphNode node : value.graph.explainGraph()) {
+        writeExplanation(gen, node);
+      }
+      gen.writeEndArray();
+      gen.writeEndObject();
+    }
+
+    private static void writeExplanation(JsonGenerator gen, ExplainGraphNode node)
+        throws IOException {
+      gen.writeStartObject();
+      writeUuidField(gen, "objectId", node.getObjectId());
+      gen.writeFieldName("policyInput");
+      writePolicyInput(gen, node.getPolicyInput());
+      gen.writeArrayFieldStart("policyExplanations");
+      for (ExplainGraphNode source : node.getSources()) {
+        writeExplanation(gen, source);
+      }
+      gen.writeEndArray();
+      gen.writeEndObject();
+    }
+  }
+
+  static class PaoResultSerializer extends StdSerializer<PaoResult> {
+    PaoResultSerializer() {
+      super(PaoResult.class);
+    }
+
+    @Override
+    public void serialize(PaoResult value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      Pao pao = value.pao;
+      gen.writeStartObject();
+      writeUuidField(gen, "objectId", pao.getObjectId());
+      gen.writeStringField("component", pao.getComponent().toApi().toString());
+      gen.writeStringField("objectType", pao.getObjectType().toApi().toString());
+      gen.writeFieldName("attributes");
+      writePolicyInputs(gen, pao.getAttributes());
+      gen.writeFieldName("effectiveAttributes");
+      writePolicyInputs(gen, pao.getEffectiveAttributes());
+      gen.writeBooleanField("deleted", pao.getDeleted());
+      gen.writeArrayFieldStart("sourcesObjectIds");
+      for (UUID sourceId : pao.getSourceObjectIds()) {
+        gen.writeString(sourceId.toString());
+      }
+      gen.writeEndArray();
+      gen.writeStringField("createdDate", pao.getCreated().toString());
+      gen.writeStringField("lastUpdatedDate", pao.getLastUpdated().toString());
+      gen.writeEndObject();
+    }
+  }
+
+  // Same shape as ConversionUtils.policyInputsToApi
+  private static void writePolicyInputs(JsonGenerator gen, @Nullable PolicyInputs inputs)
+      throws IOException {
+    gen.writeStartObject();
+    // old policies could have been created with a null list.
+    if (inputs != null) {
+      gen.writeArrayFieldStart("inputs");
+      for (PolicyInput input : inputs.getInputs().values()) {
+        writePolicyInput(gen, input);
+      }
+      gen.writeEndArray();
+    }
+    gen.writeEndObject();
+  }
+
+  // Same shape as ConversionUtils.policyInputToApi
+  private static void writePolicyInput(JsonGenerator gen, PolicyInput input) throws IOException {
+    gen.writeStartObject();
+    gen.writeStringField("namespace", input.getPolicyName().getNamespace());
+    gen.writeStringField("name", input.getPolicyName().getName());
+    gen.writeArrayFieldStart("additionalData");
+    for (Map.Entry<String, String> entry : input.getAdditionalData().entries()) {
+      gen.writeStartObject();
+      writeStringField(gen, "key", entry.getKey());
+      writeStringField(gen, "value", entry.getValue());
+      gen.writeEndObject();
+    }
+    gen.writeEndArray();
+    gen.writeEndObject();
+  }
+
+  private static void writeUuidField(JsonGenerator gen, String name, @Nullable UUID value)
+      throws IOException {
+    if (value != null) {
+      gen.writeStringField(name, value.toString());
+    }
+  }
+
+  private static void writeStringField(JsonGenerator gen, String name, @Nullable String value)
+      throws IOException {
+    if (value != null) {
+      gen.writeStringField(name, value);
+    }
+  }
+}
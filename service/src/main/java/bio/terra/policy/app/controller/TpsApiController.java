@@ -2,34 +2,61 @@ package bio.terra.policy.app.controller;
 
 import bio.terra.common.exception.ConflictException;
 import bio.terra.policy.common.MetricsUtils;
+import bio.terra.policy.common.exception.PolicyObjectNotFoundException;
 import bio.terra.policy.common.model.PolicyInputs;
 import bio.terra.policy.generated.api.TpsApi;
+import bio.terra.policy.generated.model.ApiTpsConsistencyReport;
 import bio.terra.policy.generated.model.ApiTpsLocation;
+import bio.terra.policy.generated.model.ApiTpsPaoChangeFeed;
 import bio.terra.policy.generated.model.ApiTpsPaoCreateRequest;
 import bio.terra.policy.generated.model.ApiTpsPaoExplainResult;
 import bio.terra.policy.generated.model.ApiTpsPaoGetResult;
+import bio.terra.policy.generated.model.ApiTpsPaoImpactRequest;
+import bio.terra.policy.generated.model.ApiTpsPaoImpactResult;
+import bio.terra.policy.generated.model.ApiTpsPaoListResult;
+import bio.terra.policy.generated.model.ApiTpsPaoQueryResult;
 import bio.terra.policy.generated.model.ApiTpsPaoReplaceRequest;
 import bio.terra.policy.generated.model.ApiTpsPaoSourceRequest;
 import bio.terra.policy.generated.model.ApiTpsPaoUpdateRequest;
 import bio.terra.policy.generated.model.ApiTpsPaoUpdateResult;
-import bio.terra.policy.generated.model.ApiTpsPolicyExplainSource;
-import bio.terra.policy.generated.model.ApiTpsPolicyExplanation;
+import bio.terra.policy.generated.model.ApiTpsPlatformRegions;
 import bio.terra.policy.generated.model.ApiTpsPolicyInputs;
+import bio.terra.policy.generated.model.ApiTpsPropagationJob;
+import bio.terra.policy.generated.model.ApiTpsReevaluationJob;
+import bio.terra.policy.generated.model.ApiTpsRegionEvaluateRequest;
+import bio.terra.policy.generated.model.ApiTpsRegionEvaluateResult;
+import bio.terra.policy.generated.model.ApiTpsRegionEvaluation;
 import bio.terra.policy.generated.model.ApiTpsRegions;
+import bio.terra.policy.service.changefeed.ChangeFeedService;
+import bio.terra.policy.service.changefeed.model.PaoChangePage;
 import bio.terra.policy.service.pao.PaoService;
 import bio.terra.policy.service.pao.graph.model.ExplainGraph;
-import bio.terra.policy.service.pao.graph.model.ExplainGraphNode;
+import bio.terra.policy.service.pao.graph.model.ImpactAnalysis;
 import bio.terra.policy.service.pao.model.Pao;
 import bio.terra.policy.service.pao.model.PaoComponent;
+import bio.terra.policy.service.pao.model.PaoListFilter;
+import bio.terra.policy.service.pao.model.PaoListResult;
 import bio.terra.policy.service.pao.model.PaoObjectType;
+import bio.terra.policy.service.pao.model.PaoQueryResult;
 import bio.terra.policy.service.pao.model.PaoUpdateMode;
 import bio.terra.policy.service.policy.model.PolicyUpdateResult;
+import bio.terra.policy.service.propagation.PropagationService;
+import bio.terra.policy.service.propagation.model.PropagationJob;
+import bio.terra.policy.service.reevaluation.ConsistencyChecker;
+import bio.terra.policy.service.reevaluation.ReevaluationService;
+import bio.terra.policy.service.reevaluation.model.ConsistencyReport;
+import bio.terra.policy.service.reevaluation.model.ReevaluationJob;
 import bio.terra.policy.service.region.RegionService;
+import bio.terra.policy.service.region.model.AllowedRegions;
 import bio.terra.policy.service.region.model.Location;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -37,13 +64,48 @@ import org.springframework.stereotype.Controller;
 /** Main TPS controller */
 @Controller
 public class TpsApiController implements TpsApi {
+  private static final int DEFAULT_QUERY_LIMIT = 100;
+
   private final PaoService paoService;
+  private final ChangeFeedService changeFeedService;
+  private final PropagationService propagationService;
+  private final ReevaluationService reevaluationService;
+  private final ConsistencyChecker consistencyChecker;
   private final RegionService regionService;
+  private final HttpServletRequest request;
 
   @Autowired
-  public TpsApiController(PaoService paoService, RegionService regionService) {
+  public TpsApiController(
+      PaoService paoService,
+      ChangeFeedService changeFeedService,
+      PropagationService propagationService,
+      ReevaluationService reevaluationService,
+      ConsistencyChecker consistencyChecker,
+      RegionService regionService,
+      HttpServletRequest request) {
     this.paoService = paoService;
+    this.changeFeedService = changeFeedService;
+    this.propagationService = propagationService;
+    this.reevaluationService = reevaluationService;
+    this.consistencyChecker = consistencyChecker;
     this.regionService = regionService;
+    this.request = request;
+  }
+
+  // -- Administration --
+  @Override
+  public ResponseEntity<ApiTpsConsistencyReport> getConsistencyReport() {
+    ConsistencyReport report = consistencyChecker.getLastReport();
+    if (report == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(ConversionUtils.consistencyReportToApi(report), HttpStatus.OK);
+  }
+
+  @Override
+  public ResponseEntity<ApiTpsReevaluationJob> startReevaluation() {
+    ReevaluationJob job = reevaluationService.startJob();
+    return new ResponseEntity<>(ConversionUtils.reevaluationJobToApi(job), HttpStatus.ACCEPTED);
   }
 
   // -- Policy Attribute Objects --
@@ -66,44 +128,26 @@ public class TpsApiController implements TpsApi {
 
   @Override
   public ResponseEntity<ApiTpsPaoExplainResult> explainPao(UUID objectId, Integer depth) {
-    // Build the explain graph
-    ExplainGraph graph = paoService.explainPao(objectId, depth);
-
-    // Convert the sources to API form
-    List<ApiTpsPolicyExplainSource> explainSources =
-        graph.explainPaos().stream()
-            .map(
-                ep ->
-                    new ApiTpsPolicyExplainSource()
-                        .component(ep.getComponent().toApi())
-                        .objectType(ep.getObjectType().toApi())
-                        .objectId(ep.getObjectId())
-                        .deleted(ep.getDeleted())
-                        .createdDate(ep.getCreated().toString())
-                        .lastUpdatedDate(ep.getLastUpdated().toString()))
-            .toList();
-
-    // Convert the explanations to API form
-    List<ApiTpsPolicyExplanation> explanations =
-        graph.explainGraph().stream().map(this::convertExplanation).toList();
-
-    var result =
-        new ApiTpsPaoExplainResult()
-            .depth(depth)
-            .objectId(objectId)
-            .explainObjects(explainSources)
-            .explanation(explanations);
+    // Take the tag before walking, so a concurrent change can only leave the tag older than the
+    // body; the next conditional request then misses rather than keeping a stale copy.
+    int explainDepth = (depth == null) ? 0 : depth;
+    String explainVersion = paoService.getExplainVersion(objectId, explainDepth);
+    if (explainVersion == null) {
+      throw new PolicyObjectNotFoundException("Policy object not found: " + objectId);
+    }
+    String etag = ETags.of(explainVersion);
+    if (ETags.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+      MetricsUtils.incrementPaoNotModified();
+      return ETags.notModified(etag);
+    }
 
-    MetricsUtils.incrementPaoExplain();
+    // Build the explain graph. The response is serialized straight from the graph.
+    ExplainGraph graph = paoService.explainPao(objectId, explainDepth);
+    var result = new StreamingResponses.ExplainResult(objectId, depth, graph);
 
-    return new ResponseEntity<>(result, HttpStatus.OK);
-  }
+    MetricsUtils.incrementPaoExplain();
 
-  private ApiTpsPolicyExplanation convertExplanation(ExplainGraphNode node) {
-    return new ApiTpsPolicyExplanation()
-        .objectId(node.getObjectId())
-        .policyInput(ConversionUtils.policyInputToApi(node.getPolicyInput()))
-        .policyExplanations(node.getSources().stream().map(this::convertExplanation).toList());
+    return ETags.ok(result, etag);
   }
 
   @Override
@@ -111,10 +155,31 @@ public class TpsApiController implements TpsApi {
     if (includeDeleted == null) {
       includeDeleted = false;
     }
+    // Answer a conditional request from the version alone
+    String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      Long version = paoService.getPaoVersion(objectId, includeDeleted);
+      if (version != null && ETags.matches(ifNoneMatch, paoEtag(version))) {
+        MetricsUtils.incrementPaoNotModified();
+        return ETags.notModified(paoEtag(version));
+      }
+    }
     Pao pao = paoService.getPao(objectId, includeDeleted);
     ApiTpsPaoGetResult result = ConversionUtils.paoToApi(pao);
     MetricsUtils.incrementPaoGet();
-    return new ResponseEntity<>(result, HttpStatus.OK);
+    return ETags.ok(result, paoEtag(pao.getVersion()));
+  }
+
+  @Override
+  public ResponseEntity<ApiTpsPropagationJob> getPropagationJob(UUID jobId) {
+    PropagationJob job = propagationService.getJob(jobId);
+    return new ResponseEntity<>(ConversionUtils.propagationJobToApi(job), HttpStatus.OK);
+  }
+
+  @Override
+  public ResponseEntity<ApiTpsReevaluationJob> getReevaluationJob(UUID jobId) {
+    ReevaluationJob job = reevaluationService.getJob(jobId);
+    return new ResponseEntity<>(ConversionUtils.reevaluationJobToApi(job), HttpStatus.OK);
   }
 
   @Override
@@ -153,8 +218,66 @@ public class TpsApiController implements TpsApi {
   @Override
   public ResponseEntity<List<ApiTpsPaoGetResult>> listPaos(List<UUID> objectIds) {
     return new ResponseEntity<>(
-        paoService.listPaos(objectIds).stream().map(ConversionUtils::paoToApi).toList(),
-        HttpStatus.OK);
+        StreamingResponses.paoList(paoService.listPaos(objectIds)), HttpStatus.OK);
+  }
+
+  @Override
+  public ResponseEntity<ApiTpsPaoListResult> enumeratePaos(
+      String component,
+      String objectType,
+      Boolean includeDeleted,
+      String updatedAfter,
+      String updatedBefore,
+      Integer limit,
+      String pageToken) {
+    var filter =
+        new PaoListFilter(
+            ConversionUtils.componentFromApi(component),
+            ConversionUtils.objectTypeFromApi(objectType),
+            (includeDeleted != null) && includeDeleted,
+            ConversionUtils.instantFromApi("updatedAfter", updatedAfter),
+            ConversionUtils.instantFromApi("updatedBefore", updatedBefore));
+    PaoListResult page =
+        paoService.listPaos(filter, pageToken, (limit == null) ? DEFAULT_QUERY_LIMIT : limit);
+    ApiTpsPaoListResult result =
+        new ApiTpsPaoListResult()
+            .paos(StreamingResponses.paoList(page.paos()))
+            .nextPageToken(page.nextPageToken());
+    return new ResponseEntity<>(result, HttpStatus.OK);
+  }
+
+  @Override
+  public ResponseEntity<ApiTpsPaoChangeFeed> getPaoChanges(
+      String position, Integer limit, Integer wait) {
+    PaoChangePage page =
+        changeFeedService.getChanges(
+            position,
+            (limit == null) ? DEFAULT_QUERY_LIMIT : limit,
+            Duration.ofSeconds((wait == null) ? 0 : wait));
+    return new ResponseEntity<>(ConversionUtils.changePageToApi(page), HttpStatus.OK);
+  }
+
+  @Override
+  public ResponseEntity<ApiTpsPaoQueryResult> queryPaos(
+      String namespace,
+      String name,
+      String key,
+      String value,
+      Boolean effective,
+      Integer limit,
+      String pageToken) {
+    PaoQueryResult page =
+        paoService.queryPaos(
+            namespace,
+            name,
+            key,
+            value,
+            (effective == null) || effective,
+            pageToken,
+            (limit == null) ? DEFAULT_QUERY_LIMIT : limit);
+    ApiTpsPaoQueryResult result =
+        new ApiTpsPaoQueryResult().objectIds(page.objectIds()).nextPageToken(page.nextPageToken());
+    return new ResponseEntity<>(result, HttpStatus.OK);
   }
 
   @Override
@@ -167,14 +290,49 @@ public class TpsApiController implements TpsApi {
     return new ResponseEntity<>(response, HttpStatus.OK);
   }
 
+  @Override
+  public ResponseEntity<ApiTpsRegionEvaluateResult> evaluateRegions(
+      ApiTpsRegionEvaluateRequest body) {
+    List<String> platforms =
+        body.getCandidates().stream().map(ApiTpsPlatformRegions::getPlatform).distinct().toList();
+    Map<UUID, Map<String, AllowedRegions>> allowedRegions =
+        paoService.getAllowedRegions(body.getObjectIds(), platforms);
+
+    List<UUID> missingIds =
+        body.getObjectIds().stream().filter(id -> !allowedRegions.containsKey(id)).toList();
+    if (!missingIds.isEmpty()) {
+      throw new PolicyObjectNotFoundException("Policy objects not found: " + missingIds);
+    }
+
+    ApiTpsRegionEvaluateResult result = new ApiTpsRegionEvaluateResult();
+    for (UUID objectId : body.getObjectIds()) {
+      for (ApiTpsPlatformRegions candidates : body.getCandidates()) {
+        AllowedRegions allowed = allowedRegions.get(objectId).get(candidates.getPlatform());
+        result.addResultsItem(
+            new ApiTpsRegionEvaluation()
+                .objectId(objectId)
+                .platform(candidates.getPlatform())
+                .allowed(candidates.getRegions().stream().map(allowed::allows).toList()));
+      }
+    }
+    return new ResponseEntity<>(result, HttpStatus.OK);
+  }
+
   @Override
   public ResponseEntity<ApiTpsRegions> listValidRegions(UUID objectId, String platform) {
-    Pao pao = paoService.getPao(objectId);
-    var locations =
-        regionService.getPolicyInputLocationsForPlatform(pao.getEffectiveAttributes(), platform);
+    // Answer a conditional request from the version alone
+    String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      Long version = paoService.getPaoVersion(objectId, false);
+      if (version != null && ETags.matches(ifNoneMatch, regionsEtag(version))) {
+        MetricsUtils.incrementPaoNotModified();
+        return ETags.notModified(regionsEtag(version));
+      }
+    }
+    AllowedRegions allowedRegions = paoService.getAllowedRegions(objectId, platform);
     ApiTpsRegions response = new ApiTpsRegions();
-    response.addAll(locations.stream().map(Location::getCloudRegion).toList());
-    return new ResponseEntity<>(response, HttpStatus.OK);
+    response.addAll(allowedRegions.regions());
+    return ETags.ok(response, regionsEtag(allowedRegions.paoVersion()));
   }
 
   @Override
@@ -195,7 +353,8 @@ public class TpsApiController implements TpsApi {
         paoService.replacePao(
             objectId,
             ConversionUtils.policyInputsFromApi(body.getNewAttributes()),
-            PaoUpdateMode.fromApi(body.getUpdateMode()));
+            PaoUpdateMode.fromApi(body.getUpdateMode()),
+            Boolean.TRUE.equals(body.isAsyncPropagation()));
 
     ApiTpsPaoUpdateResult apiResult = ConversionUtils.updateResultToApi(result);
     return new ResponseEntity<>(apiResult, HttpStatus.OK);
@@ -209,22 +368,40 @@ public class TpsApiController implements TpsApi {
             objectId,
             ConversionUtils.policyInputsFromApi(body.getAddAttributes()),
             ConversionUtils.policyInputsFromApi(body.getRemoveAttributes()),
-            PaoUpdateMode.fromApi(body.getUpdateMode()));
+            PaoUpdateMode.fromApi(body.getUpdateMode()),
+            Boolean.TRUE.equals(body.isAsyncPropagation()));
     ApiTpsPaoUpdateResult apiResult = ConversionUtils.updateResultToApi(result);
     return new ResponseEntity<>(apiResult, HttpStatus.OK);
   }
 
+  @Override
+  public ResponseEntity<ApiTpsPaoImpactResult> analyzePaoImpact(
+      UUID objectId, ApiTpsPaoImpactRequest body, Integer limit) {
+    ImpactAnalysis analysis =
+        paoService.analyzeImpact(
+            objectId,
+            ConversionUtils.policyInputsFromApi(body.getAddAttributes()),
+            ConversionUtils.policyInputsFromApi(body.getRemoveAttributes()),
+            limit);
+    return new ResponseEntity<>(ConversionUtils.impactAnalysisToApi(analysis), HttpStatus.OK);
+  }
+
+  private static String paoEtag(long version) {
+    return ETags.of(Long.toString(version));
+  }
+
+  // The valid regions also depend on the location ontology
+  private String regionsEtag(long version) {
+    return ETags.of(version + "-" + regionService.getOntologyVersion());
+  }
+
   @Override
   public ResponseEntity<Void> validateRegionAllowed(UUID objectId, String region, String platform) {
-    Pao pao = paoService.getPao(objectId);
-    if (!regionService.isCloudRegionAllowedByPao(pao, region, platform)) {
+    AllowedRegions allowedRegions = paoService.getAllowedRegions(objectId, platform);
+    if (!allowedRegions.allows(region)) {
       throw new ConflictException(
           String.format("Region '%s' is not allowed per the effective region constraint.", region),
-          regionService
-              .getPolicyInputLocationsForPlatform(pao.getEffectiveAttributes(), platform)
-              .stream()
-              .map(Location::getCloudRegion)
-              .toList());
+          allowedRegions.regions());
     }
 
     return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -19,4 +19,97 @@ public class MetricsUtils {
   public static void incrementPaoGet() {
     Metrics.globalRegistry.counter(String.format("%s.pao.get.count", SERVICE_NAME)).increment();
   }
+
+  /** Emit a metric for a conditional read answered with 304 Not Modified. */
+  public static void incrementPaoNotModified() {
+    Metrics.globalRegistry
+        .counter(String.format("%s.pao.notmodified.count", SERVICE_NAME))
+        .increment();
+  }
+
+  /** Emit a metric for an update that reused a cached graph walk. */
+  public static void incrementWalkCacheHit() {
+    Metrics.globalRegistry
+        .counter(String.format("%s.pao.walkcache.hit.count", SERVICE_NAME))
+        .increment();
+  }
+
+  /** Emit a metric for an update that had to walk the graph. */
+  public static void incrementWalkCacheMiss() {
+    Metrics.globalRegistry
+        .counter(String.format("%s.pao.walkcache.miss.count", SERVICE_NAME))
+        .increment();
+  }
+
+  /** Emit a metric for a read that shared the result of a concurrent read of the same object. */
+  public static void incrementCoalescedRead(String operation) {
+    Metrics.globalRegistry
+        .counter(String.format("%s.pao.coalesced.count", SERVICE_NAME), "operation", operation)
+        .increment();
+  }
+
+  /** Emit metrics for a batch of PAOs evaluated by a full-graph re-evaluation. */
+  public static void incrementReevaluation(long evaluated, long changed) {
+    Metrics.globalRegistry
+        .counter(String.format("%s.reevaluation.evaluated.count", SERVICE_NAME))
+        .increment(evaluated);
+    Metrics.globalRegistry
+        .counter(String.format("%s.reevaluation.changed.count", SERVICE_NAME))
+        .increment(changed);
+  }
+
+  /** Emit a metric for a topological layer completed by a full-graph re-evaluation. */
+  public static void incrementReevaluationLayer() {
+    Metrics.globalRegistry
+        .counter(String.format("%s.reevaluation.layer.count", SERVICE_NAME))
+        .increment();
+  }
+
+  /** Emit metrics for a batch of PAOs checked by the consistency check. */
+  public static void incrementConsistencyCheck(long checked, long mismatches) {
+    Metrics.globalRegistry
+        .counter(String.format("%s.consistency.checked.count", SERVICE_NAME))
+        .increment(checked);
+    Metrics.globalRegistry
+        .counter(String.format("%s.consistency.mismatch.count", SERVICE_NAME))
+        .increment(mismatches);
+  }
+
+  /** Emit metrics for the graph problems found by one consistency check. */
+  public static void incrementConsistencyProblems(long cycles, long dangling) {
+    Metrics.globalRegistry
+        .counter(String.format("%s.consistency.cycle.count", SERVICE_NAME))
+        .increment(cycles);
+    Metrics.globalRegistry
+        .counter(String.format("%s.consistency.dangling.count", SERVICE_NAME))
+        .increment(dangling);
+  }
+
+  /** Emit a metric for a request turned away because its bulkhead was full. */
+  public static void incrementAdmissionRejected(String bulkhead) {
+    Metrics.globalRegistry
+        .counter(String.format("%s.admission.rejected.count", SERVICE_NAME), "bulkhead", bulkhead)
+        .increment();
+  }
+
+  /** Emit a metric for a check of the ontology file; outcome is unchanged, reloaded, or failed. */
+  public static void incrementOntologyReload(String outcome) {
+    Metrics.globalRegistry
+        .counter(String.format("%s.ontology.reload.count", SERVICE_NAME), "outcome", outcome)
+        .increment();
+  }
+
+  /** Emit a metric for a read of the change feed; outcome is changes or empty. */
+  public static void incrementChangeFeedRead(String outcome) {
+    Metrics.globalRegistry
+        .counter(String.format("%s.changefeed.read.count", SERVICE_NAME), "outcome", outcome)
+        .increment();
+  }
+
+  /** Emit a metric for changes deleted from the change feed after their retention. */
+  public static void incrementChangeFeedPruned(long deleted) {
+    Metrics.globalRegistry
+        .counter(String.format("%s.changefeed.pruned.count", SERVICE_NAME))
+        .increment(deleted);
+  }
 }
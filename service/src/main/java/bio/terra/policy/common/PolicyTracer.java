@@ -0,0 +1,104 @@
+package bio.terra.policy.common;
+
+import bio.terra.policy.app.configuration.TracingConfiguration;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import java.time.Duration;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Custom trace spans for the parts of a request the HTTP span cannot see into: graph walks and the
+ * queries they make. Spans are made current while their body runs, so a walk span holds the spans
+ * of the queries it makes. Without a configured OpenTelemetry SDK every span is a no-op.
+ */
+@Component
+public class PolicyTracer {
+  private static final String INSTRUMENTATION_NAME = "bio.terra.policy";
+  private static final AttributeKey<Long> ROW_COUNT = AttributeKey.longKey("tps.db.row_count");
+  private static final AttributeKey<Long> WALK_NODES = AttributeKey.longKey("tps.walk.nodes");
+  private static final AttributeKey<Long> WALK_EVALUATIONS =
+      AttributeKey.longKey("tps.walk.evaluations");
+  private static final AttributeKey<Long> WALK_EVALUATION_MS =
+      AttributeKey.longKey("tps.walk.evaluation_ms");
+  private static final AttributeKey<Long> WALK_MS = AttributeKey.longKey("tps.walk.duration_ms");
+
+  private final Tracer tracer;
+  private final TracingConfiguration tracingConfiguration;
+
+  @Autowired
+  public PolicyTracer(
+      ObjectProvider<OpenTelemetry> openTelemetry, TracingConfiguration tracingConfiguration) {
+    this.tracer = openTelemetry.getIfAvailable(OpenTelemetry::noop).getTracer(INSTRUMENTATION_NAME);
+    this.tracingConfiguration = tracingConfiguration;
+  }
+
+  /** Run the body in a new span. */
+  public <T> T inSpan(String name, Supplier<T> body) {
+    Span span = tracer.spanBuilder(name).startSpan();
+    try (Scope ignored = span.makeCurrent()) {
+      return body.get();
+    } catch (RuntimeException e) {
+      span.recordException(e);
+      span.setStatus(StatusCode.ERROR);
+      throw e;
+    } finally {
+      span.end();
+    }
+  }
+
+  /**
+   * Run a query in a new span, and record the number of rows it read or wrote.
+   *
+   * @param name span name; by convention the DAO class and method
+   * @param query the query
+   * @param rowCount how to count the rows of the query's result
+   */
+  public <T> T query(String name, Supplier<T> query, ToIntFunction<T> rowCount) {
+    return inSpan(
+        name,
+        () -> {
+          T result = query.get();
+          Span.current().setAttribute(ROW_COUNT, rowCount.applyAsInt(result));
+          return result;
+        });
+  }
+
+  /**
+   * Record the size and cost of a walk on the current span. Walks over the configured node count or
+   * duration also get an event, so they stand out in a trace.
+   *
+   * @param nodes PAOs loaded by the walk
+   * @param evaluations effective attribute evaluations made by the walk
+   * @param evaluationTime time spent evaluating, as opposed to reading the graph
+   * @param walkTime time the whole walk took
+   */
+  public void recordWalk(int nodes, int evaluations, Duration evaluationTime, Duration walkTime) {
+    Attributes attributes =
+        Attributes.of(
+            WALK_NODES,
+            (long) nodes,
+            WALK_EVALUATIONS,
+            (long) evaluations,
+            WALK_EVALUATION_MS,
+            evaluationTime.toMillis(),
+            WALK_MS,
+            walkTime.toMillis());
+    Span span = Span.current();
+    span.setAllAttributes(attributes);
+    if (nodes > tracingConfiguration.getWalkNodeThreshold()) {
+      span.addEvent("tps.walk.large", attributes);
+    }
+    if (walkTime.compareTo(tracingConfiguration.getWalkDurationThreshold()) > 0) {
+      span.addEvent("tps.walk.slow", attributes);
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package bio.terra.policy.common.exception;
+
+import bio.terra.common.exception.ErrorReportException;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+
+/** The change feed no longer holds the position a client asked to read from. */
+public class ChangeFeedPositionExpiredException extends ErrorReportException {
+  public ChangeFeedPositionExpiredException(String message) {
+    super(message, List.of(), HttpStatus.GONE);
+  }
+}
@@ -7,4 +7,8 @@ public class InternalTpsErrorException extends InternalServerErrorException {
   public InternalTpsErrorException(String message) {
     super(message);
   }
+
+  public InternalTpsErrorException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
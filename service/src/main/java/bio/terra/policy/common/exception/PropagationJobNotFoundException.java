@@ -0,0 +1,9 @@
+package bio.terra.policy.common.exception;
+
+import bio.terra.common.exception.NotFoundException;
+
+public class PropagationJobNotFoundException extends NotFoundException {
+  public PropagationJobNotFoundException(String message) {
+    super(message);
+  }
+}
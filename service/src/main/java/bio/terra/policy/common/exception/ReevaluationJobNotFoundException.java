@@ -0,0 +1,9 @@
+package bio.terra.policy.common.exception;
+
+import bio.terra.common.exception.NotFoundException;
+
+public class ReevaluationJobNotFoundException extends NotFoundException {
+  public ReevaluationJobNotFoundException(String message) {
+    super(message);
+  }
+}
@@ -4,12 +4,12 @@ public class Constants {
   public static final String TERRA_NAMESPACE = "terra";
 
   public static final PolicyName GROUP_CONSTRAINT_POLICY_NAME =
-      new PolicyName(TERRA_NAMESPACE, "group-constraint");
+      PolicyName.of(TERRA_NAMESPACE, "group-constraint");
   public static final PolicyName REGION_CONSTRAINT_POLICY_NAME =
-      new PolicyName(TERRA_NAMESPACE, "region-constraint");
+      PolicyName.of(TERRA_NAMESPACE, "region-constraint");
   public static final PolicyName PROTECTED_DATA_POLICY_NAME =
-      new PolicyName(TERRA_NAMESPACE, "protected-data");
+      PolicyName.of(TERRA_NAMESPACE, "protected-data");
 
   public static final PolicyName DATA_TRACKING_POLICY_NAME =
-      new PolicyName(TERRA_NAMESPACE, "data-tracking");
+      PolicyName.of(TERRA_NAMESPACE, "data-tracking");
 }
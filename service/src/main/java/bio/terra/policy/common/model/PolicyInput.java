@@ -1,32 +1,41 @@
 package bio.terra.policy.common.model;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.UUID;
 
+/**
+ * A policy input: the policy name plus its additional data and the ids of the PAOs it is in
+ * conflict with. PolicyInput is an immutable value. The constructor takes its own copy of the data
+ * and conflicts, unless they are already immutable, so inputs can be shared by reference between
+ * attribute sets and graph nodes rather than duplicated.
+ */
 public class PolicyInput {
   private final PolicyName policyName;
-  private final Multimap<String, String> additionalData;
-  private final Set<UUID> conflicts;
+  private final ListMultimap<String, String> additionalData;
+  private final ImmutableSet<UUID> conflicts;
 
   public PolicyInput(
       PolicyName policyName, Multimap<String, String> additionalData, Set<UUID> conflicts) {
     this.policyName = policyName;
-    this.additionalData = additionalData;
-    this.conflicts = conflicts;
+    this.additionalData = immutableData(additionalData);
+    this.conflicts = ImmutableSet.copyOf(conflicts);
   }
 
   public PolicyInput(PolicyName policyName, Multimap<String, String> additionalData) {
-    this(policyName, additionalData, new HashSet<>());
+    this(policyName, additionalData, ImmutableSet.of());
   }
 
   public PolicyInput(String namespace, String name, Multimap<String, String> additionalData) {
-    this(new PolicyName(namespace, name), additionalData, new HashSet<>());
+    this(PolicyName.of(namespace, name), additionalData, ImmutableSet.of());
   }
 
   // Handy constructor for the non-multimap uses
@@ -35,7 +44,7 @@ public class PolicyInput {
     // Convert the map to a multimap
     Multimap<String, String> mm = ArrayListMultimap.create();
     additionalData.forEach(mm::put);
-    return new PolicyInput(new PolicyName(namespace, name), mm, new HashSet<>());
+    return new PolicyInput(PolicyName.of(namespace, name), mm, ImmutableSet.of());
   }
 
   public PolicyName getPolicyName() {
@@ -54,19 +63,40 @@ public class PolicyInput {
     return additionalData.get(key);
   }
 
+  /**
+   * @return the additional data; not modifiable
+   */
   public Multimap<String, String> getAdditionalData() {
     return additionalData;
   }
 
+  /**
+   * @return the conflicting PAO ids; not modifiable
+   */
   public Set<UUID> getConflicts() {
     return conflicts;
   }
 
-  public PolicyInput duplicate() {
-    PolicyName dupPolicyName = new PolicyName(policyName.getNamespace(), policyName.getName());
-    Multimap<String, String> dupAdditionalData = ArrayListMultimap.create(additionalData);
-    Set<UUID> dupConflicts = new HashSet<>(conflicts);
-    return new PolicyInput(dupPolicyName, dupAdditionalData, dupConflicts);
+  /**
+   * @param newConflicts conflicts for the new input
+   * @return an input with the same name and data, sharing the data, and the given conflicts
+   */
+  public PolicyInput withConflicts(Set<UUID> newConflicts) {
+    return new PolicyInput(policyName, additionalData, newConflicts);
+  }
+
+  // Additional data from the API may hold null keys or values, which the Guava immutable
+  // collections reject; that data gets an unmodifiable copy instead.
+  private static ListMultimap<String, String> immutableData(Multimap<String, String> data) {
+    if (data instanceof ImmutableListMultimap<String, String> immutable) {
+      return immutable;
+    }
+    for (Map.Entry<String, String> entry : data.entries()) {
+      if (entry.getKey() == null || entry.getValue() == null) {
+        return Multimaps.unmodifiableListMultimap(ArrayListMultimap.create(data));
+      }
+    }
+    return ImmutableListMultimap.copyOf(data);
   }
 
   @Override
@@ -1,5 +1,6 @@
 package bio.terra.policy.common.model;
 
+import com.google.common.collect.ImmutableMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,30 +10,37 @@ import javax.annotation.Nullable;
 
 /**
  * PolicyInputs provides a map of inputs. The key is composed as input.namespace + ":" + input.name.
+ *
+ * <p>PolicyInputs is immutable, and so are the PolicyInput objects it holds, so sets can share
+ * inputs by reference. Changes are made with a {@link Builder}, which copies the inputs only when
+ * it is first modified.
  */
 public class PolicyInputs {
-  private final Map<String, PolicyInput> inputs;
+  private static final PolicyInputs EMPTY = new PolicyInputs(ImmutableMap.of());
+
+  private final ImmutableMap<String, PolicyInput> inputs;
 
   public PolicyInputs(Map<String, PolicyInput> inputs) {
-    this.inputs = inputs;
+    this.inputs = ImmutableMap.copyOf(inputs);
   }
 
-  public PolicyInputs(PolicyInputs source) {
-    this.inputs = new HashMap<>();
-
-    Map<String, PolicyInput> sourceInputs = source.getInputs();
+  public PolicyInputs() {
+    this.inputs = ImmutableMap.of();
+  }
 
-    for (String key : sourceInputs.keySet()) {
-      addInput(sourceInputs.get(key).duplicate());
-    }
+  public static PolicyInputs empty() {
+    return EMPTY;
   }
 
-  public PolicyInputs() {
-    this.inputs = new HashMap<>();
+  public static Builder builder() {
+    return new Builder(EMPTY);
   }
 
-  public void addInput(PolicyInput input) {
-    inputs.put(input.getKey(), input);
+  /**
+   * @return a builder starting from these inputs
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
   }
 
   /**
@@ -49,20 +57,57 @@ public class PolicyInputs {
     return inputs.get(name.getKey());
   }
 
+  /**
+   * @return the inputs by key; not modifiable
+   */
   public Map<String, PolicyInput> getInputs() {
     return inputs;
   }
 
-  public void removeInput(PolicyInput removeInput) {
-    inputs.remove(removeInput.getKey());
-  }
-
   public static PolicyInputs fromDb(List<PolicyInput> inputList) {
-    PolicyInputs inputs = new PolicyInputs();
+    Builder builder = builder();
     for (PolicyInput input : inputList) {
-      inputs.addInput(input);
+      builder.addInput(input);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Copy-on-write builder. Until the first change it refers to the source inputs; building an
+   * unchanged builder returns the source.
+   */
+  public static class Builder {
+    private final PolicyInputs source;
+    private Map<String, PolicyInput> inputs;
+
+    private Builder(PolicyInputs source) {
+      this.source = source;
+    }
+
+    public Builder addInput(PolicyInput input) {
+      mutableInputs().put(input.getKey(), input);
+      return this;
+    }
+
+    public Builder removeInput(PolicyInput removeInput) {
+      mutableInputs().remove(removeInput.getKey());
+      return this;
+    }
+
+    public @Nullable PolicyInput lookupPolicy(PolicyInput input) {
+      return (inputs == null) ? source.lookupPolicy(input) : inputs.get(input.getKey());
+    }
+
+    public PolicyInputs build() {
+      return (inputs == null) ? source : new PolicyInputs(inputs);
+    }
+
+    private Map<String, PolicyInput> mutableInputs() {
+      if (inputs == null) {
+        inputs = new HashMap<>(source.inputs);
+      }
+      return inputs;
     }
-    return inputs;
   }
 
   @Override
@@ -1,18 +1,112 @@
 package bio.terra.policy.common.model;
 
-import java.util.Objects;
+import bio.terra.policy.common.exception.InvalidInputException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
 
+/**
+ * Name of a policy: namespace plus name. Names that are stored or registered are interned: each
+ * distinct namespace and name pair is assigned a small, dense integer id the first time it is
+ * interned, and the composed key is computed once. Use {@link #of} to get the canonical instance;
+ * names built with the constructor carry the same id and key.
+ *
+ * <p>The intern table is never pruned, so its size is the number of distinct policy names that have
+ * been registered, stored in an attribute set, or read from one. Names from request input are not
+ * interned until they are stored: {@link #forInput} returns the interned name if there is one, and
+ * otherwise a name that is not interned, with no id. Equality and hashing are by key, with a
+ * comparison of ids when both names are interned.
+ */
 public class PolicyName {
+  private static final Map<String, Map<String, PolicyName>> internTable = new ConcurrentHashMap<>();
+  private static final AtomicInteger nextId = new AtomicInteger();
+
+  // Id of a name that is not interned
+  private static final int NO_ID = -1;
+
   private final String namespace;
   private final String name;
+  private final String key;
+  private final int id;
 
   public PolicyName(String namespace, String name) {
+    this(of(namespace, name));
+  }
+
+  private PolicyName(PolicyName interned) {
+    this.namespace = interned.namespace;
+    this.name = interned.name;
+    this.key = interned.key;
+    this.id = interned.id;
+  }
+
+  private PolicyName(String namespace, String name, int id) {
     this.namespace = namespace;
     this.name = name;
+    this.key = composeKey(namespace, name);
+    this.id = id;
+  }
+
+  /**
+   * Get the interned policy name. Looking up a name that has been seen before does not allocate.
+   *
+   * @param namespace policy namespace
+   * @param name policy name
+   * @return the canonical PolicyName instance
+   */
+  public static PolicyName of(String namespace, String name) {
+    if (namespace == null || name == null) {
+      throw new InvalidInputException("Policy namespace and name must be specified");
+    }
+    Map<String, PolicyName> names = internTable.get(namespace);
+    if (names == null) {
+      names = internTable.computeIfAbsent(namespace, ns -> new ConcurrentHashMap<>());
+    }
+    PolicyName policyName = names.get(name);
+    if (policyName != null) {
+      return policyName;
+    }
+    return names.computeIfAbsent(name, n -> new PolicyName(namespace, n, nextId.getAndIncrement()));
+  }
+
+  /**
+   * Get a policy name for transient input, such as a request body, without growing the intern
+   * table.
+   *
+   * @param namespace policy namespace
+   * @param name policy name
+   * @return the canonical PolicyName instance if the name is interned, otherwise a name that is not
+   */
+  public static PolicyName forInput(String namespace, String name) {
+    PolicyName interned = find(namespace, name);
+    return (interned == null) ? new PolicyName(namespace, name, NO_ID) : interned;
+  }
+
+  /**
+   * Look up an interned policy name without interning it.
+   *
+   * @param namespace policy namespace
+   * @param name policy name
+   * @return the canonical PolicyName instance, or null if the name has never been interned
+   */
+  public static @Nullable PolicyName find(String namespace, String name) {
+    if (namespace == null || name == null) {
+      throw new InvalidInputException("Policy namespace and name must be specified");
+    }
+    Map<String, PolicyName> names = internTable.get(namespace);
+    return (names == null) ? null : names.get(name);
+  }
+
+  /**
+   * @return one more than the largest id assigned so far; ids are in [0, idLimit())
+   */
+  public static int idLimit() {
+    return nextId.get();
   }
 
   public String getKey() {
-    return composeKey(namespace, name);
+    return key;
   }
 
   public String getNamespace() {
@@ -23,13 +117,27 @@ public class PolicyName {
     return name;
   }
 
+  /**
+   * @return true if this name is interned, so has an id
+   */
+  public boolean isInterned() {
+    return id != NO_ID;
+  }
+
+  /**
+   * @return dense id of this name, suitable as an array index; -1 if the name is not interned
+   */
+  public int getId() {
+    return id;
+  }
+
   public static String composeKey(String namespace, String name) {
     return namespace + ":" + name;
   }
 
   @Override
   public String toString() {
-    return getKey();
+    return key;
   }
 
   @Override
@@ -37,11 +145,14 @@ public class PolicyName {
     if (this == o) return true;
     if (!(o instanceof PolicyName)) return false;
     PolicyName that = (PolicyName) o;
-    return Objects.equals(namespace, that.namespace) && Objects.equals(name, that.name);
+    if (isInterned() && that.isInterned()) {
+      return id == that.id;
+    }
+    return key.equals(that.key);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(namespace, name);
+    return key.hashCode();
   }
 }
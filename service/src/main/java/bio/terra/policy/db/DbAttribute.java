@@ -1,6 +1,7 @@
 package bio.terra.policy.db;
 
 import bio.terra.policy.common.model.PolicyInput;
+import java.util.UUID;
 
 /** Record to hold one attribute of an attribute set and its set id */
-public record DbAttribute(String setId, PolicyInput policyInput) {}
+public record DbAttribute(UUID setId, PolicyInput policyInput) {}
@@ -0,0 +1,60 @@
+package bio.terra.policy.db;
+
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.common.model.PolicyInputs;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Content address of an attribute set. The set id is a hash of exactly what is stored for the set,
+ * so equal inputs map to the same set id and their rows can be shared.
+ *
+ * <p>The hash covers the rows of the set in key order; the order of the inputs in the map does not
+ * matter, since the set is unordered in the database. Within a row it covers the namespace, the
+ * name, the additional data as serialized to the properties column, and the conflicts in sorted
+ * order. Strings are length-prefixed so that no two different sets have the same encoding.
+ *
+ * <p>The id is the first 128 bits of the SHA-256, marked as an RFC 9562 version 8 UUID. Set ids
+ * created before content addressing are random version 4 UUIDs, so the two never collide.
+ */
+public final class DbAttributeSetHash {
+  private DbAttributeSetHash() {}
+
+  public static UUID setIdOf(PolicyInputs inputs) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    List<PolicyInput> rows =
+        inputs.getInputs().values().stream()
+            .sorted(Comparator.comparing(PolicyInput::getKey))
+            .toList();
+    hasher.putInt(rows.size());
+    for (PolicyInput input : rows) {
+      putString(hasher, input.getPolicyName().getNamespace());
+      putString(hasher, input.getPolicyName().getName());
+      putString(hasher, DbAdditionalData.toDb(input.getAdditionalData()));
+      List<UUID> conflicts = input.getConflicts().stream().sorted().toList();
+      hasher.putInt(conflicts.size());
+      for (UUID conflict : conflicts) {
+        hasher.putLong(conflict.getMostSignificantBits());
+        hasher.putLong(conflict.getLeastSignificantBits());
+      }
+    }
+
+    ByteBuffer hash = ByteBuffer.wrap(hasher.hash().asBytes());
+    long msb = hash.getLong();
+    long lsb = hash.getLong();
+    msb = (msb & ~0xF000L) | 0x8000L;
+    lsb = (lsb & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    return new UUID(msb, lsb);
+  }
+
+  private static void putString(Hasher hasher, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    hasher.putInt(bytes.length);
+    hasher.putBytes(bytes);
+  }
+}
@@ -0,0 +1,22 @@
+package bio.terra.policy.db;
+
+import bio.terra.policy.common.model.PolicyInputs;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * New effective attributes for a PAO, computed from the PAO and its sources as read at some
+ * versions.
+ *
+ * @param objectId id of the PAO
+ * @param version version of the PAO the attributes were computed from
+ * @param sourceVersions version of each source the attributes were computed from
+ * @param effectiveSetId effective set id of the PAO at that version
+ * @param effectiveAttributes new effective attributes
+ */
+public record DbEffectiveUpdate(
+    UUID objectId,
+    long version,
+    Map<UUID, Long> sourceVersions,
+    UUID effectiveSetId,
+    PolicyInputs effectiveAttributes) {}
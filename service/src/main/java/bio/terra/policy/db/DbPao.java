@@ -11,9 +11,10 @@ public record DbPao(
     UUID objectId,
     PaoComponent component,
     PaoObjectType objectType,
-    Set<String> sources,
-    String attributeSetId,
-    String effectiveSetId,
+    Set<UUID> sources,
+    UUID attributeSetId,
+    UUID effectiveSetId,
     boolean deleted,
     Instant created,
-    Instant lastUpdated) {}
+    Instant lastUpdated,
+    long version) {}
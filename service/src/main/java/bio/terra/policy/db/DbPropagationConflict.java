@@ -0,0 +1,10 @@
+package bio.terra.policy.db;
+
+import java.util.UUID;
+
+/**
+ * Conflict found while propagating a change; stored as JSON in the propagation_job table. The PAOs
+ * are stored by id and looked up when the job is read.
+ */
+public record DbPropagationConflict(
+    UUID objectId, UUID conflictObjectId, String namespace, String name) {}
@@ -0,0 +1,18 @@
+package bio.terra.policy.db;
+
+import bio.terra.policy.service.propagation.model.PropagationJobStatus;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/** Record to hold a propagation job when processing in the PropagationJobDao */
+public record DbPropagationJob(
+    UUID jobId,
+    UUID objectId,
+    PropagationJobStatus status,
+    int attempts,
+    List<DbPropagationConflict> conflicts,
+    @Nullable String errorMessage,
+    Instant created,
+    Instant lastUpdated) {}
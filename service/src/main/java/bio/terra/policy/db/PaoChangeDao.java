@@ -0,0 +1,174 @@
+package bio.terra.policy.db;
+
+import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.common.PolicyTracer;
+import bio.terra.policy.service.changefeed.model.PaoChange;
+import bio.terra.policy.service.changefeed.model.PaoChangePosition;
+import bio.terra.policy.service.changefeed.model.PaoChangeType;
+import bio.terra.policy.service.pao.model.PaoComponent;
+import bio.terra.policy.service.pao.model.PaoObjectType;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * The pao_change_log table is an append-only feed of PAO changes. A change is logged in the same
+ * transaction that makes it, so the feed holds exactly the committed changes.
+ *
+ * <p>Sequence numbers are taken when a change is logged, not when it commits, so a reader that
+ * tailed the log by sequence number could pass over a change whose transaction commits after a
+ * later-numbered one. Instead the feed is ordered by the writing transaction's id and then the
+ * sequence number, and only holds changes of transactions older than the oldest transaction still
+ * running. Every one of those has finished, so no change can later appear before the end of the
+ * feed. A long-running write transaction holds the feed back until it ends.
+ */
+@Component
+public class PaoChangeDao {
+  private static final String CHANGE_COLUMNS =
+      "txid::text AS txid, seq, object_id, component, object_type, change_type, version, changed";
+
+  // Transactions with an id below this have all finished
+  private static final String FINISHED_TXIDS = "txid < pg_snapshot_xmin(pg_current_snapshot())";
+
+  private static final RowMapper<PaoChange> PAO_CHANGE_ROW_MAPPER =
+      (rs, rowNum) ->
+          new PaoChange(
+              new PaoChangePosition(Long.parseLong(rs.getString("txid")), rs.getLong("seq")),
+              rs.getObject("object_id", UUID.class),
+              PaoComponent.fromDb(rs.getString("component")),
+              PaoObjectType.fromDb(rs.getString("object_type")),
+              PaoChangeType.fromDb(rs.getString("change_type")),
+              rs.getLong("version"),
+              rs.getTimestamp("changed").toInstant());
+
+  private final NamedParameterJdbcTemplate tpsJdbcTemplate;
+  private final PolicyTracer tracer;
+
+  @Autowired
+  public PaoChangeDao(TpsDatabaseConfiguration tpsDatabaseConfiguration, PolicyTracer tracer) {
+    this.tpsJdbcTemplate = new NamedParameterJdbcTemplate(tpsDatabaseConfiguration.getDataSource());
+    this.tracer = tracer;
+  }
+
+  /**
+   * Log a change to PAOs, with their current version. This method is intentionally without a
+   * transaction annotation. It must run in the transaction that makes the change, after the change.
+   *
+   * @param objectIds changed PAOs
+   * @param changeType what happened to them
+   */
+  public void logChanges(Collection<UUID> objectIds, PaoChangeType changeType) {
+    if (objectIds.isEmpty()) {
+      return;
+    }
+    final String sql =
+        """
+        INSERT INTO pao_change_log (object_id, component, object_type, change_type, version)
+        SELECT object_id, component, object_type, :change_type, version
+        FROM policy_object
+        WHERE object_id IN (:object_id_list)
+        ORDER BY object_id
+        """;
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("object_id_list", objectIds)
+            .addValue("change_type", changeType.getDbChangeType());
+    tpsJdbcTemplate.update(sql, params);
+  }
+
+  /**
+   * Read changes from the feed.
+   *
+   * @param after if not null, only return changes after this position
+   * @param limit maximum number of changes to return
+   * @return changes in feed order
+   */
+  public List<PaoChange> getChanges(@Nullable PaoChangePosition after, int limit) {
+    String afterFilter =
+        (after == null) ? "" : "AND (txid, seq) > (:after_txid::text::xid8, :after_seq)";
+    final String sql =
+        """
+        SELECT %s FROM pao_change_log
+        WHERE %s %s
+        ORDER BY txid, seq
+        LIMIT :limit
+        """
+            .formatted(CHANGE_COLUMNS, FINISHED_TXIDS, afterFilter);
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("after_txid", (after == null) ? null : Long.toString(after.txid()))
+            .addValue("after_seq", (after == null) ? null : after.seq())
+            .addValue("limit", limit);
+    return tracer.query(
+        "PaoChangeDao.getChanges",
+        () -> tpsJdbcTemplate.query(sql, params, PAO_CHANGE_ROW_MAPPER),
+        List::size);
+  }
+
+  /**
+   * Get the position of the last change in the feed.
+   *
+   * @return position of the last change, or null if the feed is empty
+   */
+  public @Nullable PaoChangePosition getLastPosition() {
+    final String sql =
+        """
+        SELECT txid::text AS txid, seq FROM pao_change_log
+        WHERE %s
+        ORDER BY txid DESC, seq DESC
+        LIMIT 1
+        """
+            .formatted(FINISHED_TXIDS);
+    List<PaoChangePosition> positions =
+        tpsJdbcTemplate.query(
+            sql,
+            (rs, rowNum) ->
+                new PaoChangePosition(Long.parseLong(rs.getString("txid")), rs.getLong("seq")));
+    return positions.isEmpty() ? null : positions.get(0);
+  }
+
+  /** True if the change at a position is still in the log. */
+  public boolean hasChange(PaoChangePosition position) {
+    final String sql =
+        "SELECT EXISTS (SELECT 1 FROM pao_change_log WHERE seq = :seq AND txid::text = :txid)";
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("seq", position.seq())
+            .addValue("txid", Long.toString(position.txid()));
+    return Boolean.TRUE.equals(tpsJdbcTemplate.queryForObject(sql, params, Boolean.class));
+  }
+
+  /**
+   * Delete a batch of changes logged before a time, oldest first. The last change in the feed is
+   * always kept, so a client that has read to the end of an idle feed can still continue from it.
+   *
+   * @param cutoff delete changes logged before this time
+   * @param batchSize maximum number of changes to delete
+   * @return number of changes deleted
+   */
+  public int deleteChangesBefore(Instant cutoff, int batchSize) {
+    final String sql =
+        """
+        DELETE FROM pao_change_log WHERE seq IN (
+          SELECT seq FROM pao_change_log
+          WHERE changed < :cutoff
+            AND (txid, seq) < (SELECT txid, seq FROM pao_change_log ORDER BY txid DESC, seq DESC LIMIT 1)
+          ORDER BY seq
+          LIMIT :batch_size)
+        """;
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("cutoff", cutoff.atOffset(ZoneOffset.UTC))
+            .addValue("batch_size", batchSize);
+    return tracer.query(
+        "PaoChangeDao.deleteChangesBefore", () -> tpsJdbcTemplate.update(sql, params), n -> n);
+  }
+}
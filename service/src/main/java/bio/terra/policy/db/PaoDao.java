@@ -3,34 +3,47 @@ package bio.terra.policy.db;
 import bio.terra.common.db.ReadTransaction;
 import bio.terra.common.db.WriteTransaction;
 import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.common.PolicyTracer;
 import bio.terra.policy.common.exception.PolicyObjectNotFoundException;
 import bio.terra.policy.common.model.PolicyInput;
 import bio.terra.policy.common.model.PolicyInputs;
 import bio.terra.policy.common.model.PolicyName;
 import bio.terra.policy.db.exception.DuplicateObjectException;
+import bio.terra.policy.db.exception.PaoVersionConflictException;
+import bio.terra.policy.service.changefeed.model.PaoChangeType;
 import bio.terra.policy.service.pao.graph.model.GraphNode;
 import bio.terra.policy.service.pao.model.Pao;
 import bio.terra.policy.service.pao.model.PaoComponent;
+import bio.terra.policy.service.pao.model.PaoListFilter;
 import bio.terra.policy.service.pao.model.PaoObjectType;
+import bio.terra.policy.service.region.RegionOntology;
+import bio.terra.policy.service.region.RegionService;
+import bio.terra.policy.service.region.model.AllowedRegions;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -43,63 +56,73 @@ public class PaoDao {
     return sqlTimestamp.toInstant();
   }
 
+  private static Set<UUID> uuidSet(ResultSet rs, String column) throws SQLException {
+    UUID[] uuids = (UUID[]) rs.getArray(column).getArray();
+    return new HashSet<>(Arrays.asList(uuids));
+  }
+
   private static final RowMapper<DbPao> DB_PAO_ROW_MAPPER =
       (rs, rowNum) -> {
-        String[] sourcesArray = (String[]) rs.getArray("sources").getArray();
-        Set<String> sources = new HashSet<>(Arrays.asList(sourcesArray));
         return new DbPao(
-            UUID.fromString(rs.getString("object_id")),
+            rs.getObject("object_id", UUID.class),
             PaoComponent.fromDb(rs.getString("component")),
             PaoObjectType.fromDb(rs.getString("object_type")),
-            sources,
-            rs.getString("attribute_set_id"),
-            rs.getString("effective_set_id"),
+            uuidSet(rs, "sources"),
+            rs.getObject("attribute_set_id", UUID.class),
+            rs.getObject("effective_set_id", UUID.class),
             rs.getBoolean("deleted"),
             instantFromTimestamp(rs.getTimestamp("created")),
-            instantFromTimestamp(rs.getTimestamp("last_updated")));
+            instantFromTimestamp(rs.getTimestamp("last_updated")),
+            rs.getLong("version"));
       };
 
   private static final RowMapper<DbAttribute> DB_ATTRIBUTE_SET_ROW_MAPPER =
       (rs, rowNum) -> {
-        String[] conflictsArray = (String[]) rs.getArray("conflicts").getArray();
-        Set<UUID> conflicts =
-            Arrays.stream(conflictsArray).map(UUID::fromString).collect(Collectors.toSet());
-
         return new DbAttribute(
-            rs.getString("set_id"),
+            rs.getObject("set_id", UUID.class),
             new PolicyInput(
-                new PolicyName(rs.getString("namespace"), rs.getString("name")),
+                PolicyName.of(rs.getString("namespace"), rs.getString("name")),
                 DbAdditionalData.fromDb(rs.getString("properties")),
-                conflicts));
+                uuidSet(rs, "conflicts")));
       };
 
+  // A read of regions races with updates that release the effective sets it read
+  private static final int ALLOWED_REGIONS_READ_ATTEMPTS = 3;
+
   private final Logger logger = LoggerFactory.getLogger(PaoDao.class);
   private final NamedParameterJdbcTemplate tpsJdbcTemplate;
+  private final RegionService regionService;
+  private final PaoChangeDao paoChangeDao;
+  private final PolicyTracer tracer;
 
   @Autowired
-  public PaoDao(TpsDatabaseConfiguration tpsDatabaseConfiguration) {
+  public PaoDao(
+      TpsDatabaseConfiguration tpsDatabaseConfiguration,
+      RegionService regionService,
+      PaoChangeDao paoChangeDao,
+      PolicyTracer tracer) {
     this.tpsJdbcTemplate = new NamedParameterJdbcTemplate(tpsDatabaseConfiguration.getDataSource());
+    this.regionService = regionService;
+    this.paoChangeDao = paoChangeDao;
+    this.tracer = tracer;
   }
 
   @WriteTransaction
   public void createPao(
       UUID objectId, PaoComponent component, PaoObjectType objectType, PolicyInputs inputs) {
 
-    // Store the attribute set twice: once as the object's set and once as its effective set.
-    // We could optimize this case, but the logic is cleaner if we treat them distinctly from the
-    // outset.
-    String attributeSetId = UUID.randomUUID().toString();
-    String effectiveSetId = UUID.randomUUID().toString();
-    createAttributeSet(attributeSetId, inputs);
-    createAttributeSet(effectiveSetId, inputs);
+    // The object's set and its effective set start out the same, so they are one shared set
+    // referenced twice.
+    UUID attributeSetId = acquireAttributeSet(inputs);
+    UUID effectiveSetId = acquireAttributeSet(inputs);
 
     createDbPao(
         objectId,
         component.getDbComponent(),
         objectType.getDbObjectType(),
-        "",
         attributeSetId,
         effectiveSetId);
+    paoChangeDao.logChanges(List.of(objectId), PaoChangeType.CREATED);
   }
 
   /**
@@ -107,26 +130,319 @@ public class PaoDao {
    *
    * @param objectId The PAO to flag
    */
+  @WriteTransaction
   public void markPaoDeleted(UUID objectId) {
     final String sql =
-        "UPDATE policy_object SET deleted=true, last_updated=CURRENT_TIMESTAMP WHERE object_id=:object_id";
-    MapSqlParameterSource params =
-        new MapSqlParameterSource().addValue("object_id", objectId.toString());
+        "UPDATE policy_object SET deleted=true, last_updated=CURRENT_TIMESTAMP, version=version+1 WHERE object_id=:object_id";
+    MapSqlParameterSource params = new MapSqlParameterSource().addValue("object_id", objectId);
     tpsJdbcTemplate.update(sql, params);
+    paoChangeDao.logChanges(List.of(objectId), PaoChangeType.DELETED);
   }
 
   @ReadTransaction
   public Pao getPao(UUID objectId, boolean includeDeleted) {
     DbPao dbPao = getDbPao(objectId, includeDeleted);
-    Map<String, PolicyInputs> attributeSetMap =
+    Map<UUID, PolicyInputs> attributeSetMap =
         getAttributeSets(List.of(dbPao.attributeSetId(), dbPao.effectiveSetId()));
     return Pao.fromDb(dbPao, attributeSetMap);
   }
 
+  /**
+   * Get the cloud regions of a platform allowed by the effective attributes of a PAO. The regions
+   * are materialized per attribute set when the set is created, so this is normally one indexed
+   * read. Sets stored before that, or with a mask from an older location ontology, are computed
+   * here and stored for the next read.
+   *
+   * <p>This is not transactional: a concurrent update can only give us the regions of an older
+   * version, and the version is returned with them. If the update releases the effective set before
+   * its content is read, the PAO is read again.
+   *
+   * @param objectId UUID of the Policy Attribute Object
+   * @param platform cloud platform
+   * @return allowed regions and the PAO version they were read from
+   */
+  public AllowedRegions getAllowedRegions(UUID objectId, String platform) {
+    Map<String, AllowedRegions> regions =
+        getAllowedRegions(List.of(objectId), List.of(platform)).get(objectId);
+    if (regions == null) {
+      throw new PolicyObjectNotFoundException("Policy object not found: " + objectId);
+    }
+    return regions.get(platform);
+  }
+
+  /**
+   * Batch form of {@link #getAllowedRegions(UUID, String)}: one query for every object and
+   * platform. Objects that share an effective set share its regions, so any regions that have to be
+   * computed are computed once per set.
+   *
+   * @param objectIds UUIDs of Policy Attribute Objects
+   * @param platforms cloud platforms
+   * @return map of object id to map of platform to allowed regions; PAOs that do not exist are
+   *     omitted
+   * @throws PaoVersionConflictException if effective sets keep being released as they are read
+   */
+  public Map<UUID, Map<String, AllowedRegions>> getAllowedRegions(
+      Collection<UUID> objectIds, Collection<String> platforms) {
+    if (objectIds.isEmpty() || platforms.isEmpty()) {
+      return new HashMap<>();
+    }
+    for (int attempt = 1; ; attempt++) {
+      Map<UUID, Map<String, AllowedRegions>> result = tryGetAllowedRegions(objectIds, platforms);
+      if (result != null) {
+        return result;
+      }
+      if (attempt == ALLOWED_REGIONS_READ_ATTEMPTS) {
+        throw new PaoVersionConflictException(
+            "Effective attribute sets were released by concurrent updates while reading regions");
+      }
+      logger.info("Effective attribute set released while reading regions; reading again");
+    }
+  }
+
+  /**
+   * One attempt of {@link #getAllowedRegions(Collection, Collection)}.
+   *
+   * @return the allowed regions, or null if an effective set was released between reading the PAO
+   *     and reading the set
+   */
+  private @Nullable Map<UUID, Map<String, AllowedRegions>> tryGetAllowedRegions(
+      Collection<UUID> objectIds, Collection<String> platforms) {
+    final String sql =
+        """
+        SELECT P.object_id, P.version, P.effective_set_id,
+               R.platform, R.constrained, R.regions, R.ontology_version
+        FROM policy_object P
+        LEFT JOIN attribute_set_region R
+          ON R.set_id = P.effective_set_id AND R.platform IN (:platforms)
+        WHERE P.object_id IN (:object_ids) AND (P.deleted is null or not P.deleted)
+        """;
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("object_ids", new HashSet<>(objectIds))
+            .addValue("platforms", new HashSet<>(platforms));
+
+    // Masks are only meaningful with the ontology that encoded them, so one is used throughout
+    RegionOntology ontology = regionService.getCurrentOntology();
+    Map<UUID, Long> versions = new HashMap<>();
+    Map<UUID, UUID> effectiveSetIds = new HashMap<>();
+    Map<UUID, Map<String, DbSetRegions>> setRegions = new HashMap<>();
+    tracer.query(
+        "PaoDao.getAllowedRegions",
+        () ->
+            tpsJdbcTemplate.query(
+                sql,
+                params,
+                (rs, rowNum) -> {
+                  UUID objectId = rs.getObject("object_id", UUID.class);
+                  UUID setId = rs.getObject("effective_set_id", UUID.class);
+                  versions.put(objectId, rs.getLong("version"));
+                  effectiveSetIds.put(objectId, setId);
+                  if (ontology.getOntologyVersion().equals(rs.getString("ontology_version"))) {
+                    setRegions
+                        .computeIfAbsent(setId, id -> new HashMap<>())
+                        .put(
+                            rs.getString("platform"),
+                            new DbSetRegions(rs.getBoolean("constrained"), rs.getBytes("regions")));
+                  }
+                  return objectId;
+                }),
+        List::size);
+
+    if (!computeMissingSetRegions(
+        ontology, new HashSet<>(effectiveSetIds.values()), platforms, setRegions)) {
+      return null;
+    }
+
+    Map<UUID, Map<String, AllowedRegions>> result = new HashMap<>();
+    for (Map.Entry<UUID, UUID> entry : effectiveSetIds.entrySet()) {
+      Map<String, AllowedRegions> byPlatform = new HashMap<>();
+      for (String platform : platforms) {
+        DbSetRegions regions = setRegions.get(entry.getValue()).get(platform);
+        byPlatform.put(
+            platform,
+            new AllowedRegions(
+                versions.get(entry.getKey()),
+                regions.constrained(),
+                ontology.getRegionsFromMask(platform, regions.mask())));
+      }
+      result.put(entry.getKey(), byPlatform);
+    }
+    return result;
+  }
+
+  /**
+   * Fill in the regions of the sets that have none stored for some platform, reading all of those
+   * sets with one query. The computed regions are stored for the next read.
+   *
+   * @return false if a set was released before it was read, so it has no content to compute from
+   */
+  private boolean computeMissingSetRegions(
+      RegionOntology ontology,
+      Set<UUID> setIds,
+      Collection<String> platforms,
+      Map<UUID, Map<String, DbSetRegions>> setRegions) {
+    List<UUID> missingSetIds =
+        setIds.stream()
+            .filter(
+                setId -> !setRegions.getOrDefault(setId, Map.of()).keySet().containsAll(platforms))
+            .toList();
+    if (missingSetIds.isEmpty()) {
+      return true;
+    }
+
+    Map<UUID, PolicyInputs> attributeSets = getReferencedAttributeSets(missingSetIds);
+    if (!attributeSets.keySet().containsAll(missingSetIds)) {
+      // A released set reads as empty, which must not be taken for an unconstrained one
+      return false;
+    }
+    for (UUID setId : missingSetIds) {
+      PolicyInputs inputs = attributeSets.get(setId);
+      boolean constrained = ontology.hasRegionConstraint(inputs);
+      Map<String, DbSetRegions> regions = setRegions.computeIfAbsent(setId, id -> new HashMap<>());
+      for (String platform : platforms) {
+        if (regions.containsKey(platform)) {
+          continue;
+        }
+        byte[] mask = ontology.getAllowedRegionMask(inputs, platform);
+        regions.put(platform, new DbSetRegions(constrained, mask));
+        if (ontology.getPlatforms().contains(platform)) {
+          try {
+            upsertAttributeSetRegion(ontology, setId, platform, constrained, mask);
+          } catch (DataIntegrityViolationException e) {
+            // The set was released after it was read. Its regions are still those of the PAO
+            // version read, but there is no set left to store them for.
+            logger.info("Attribute set {} released before its regions were stored", setId);
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  private record DbSetRegions(boolean constrained, byte[] mask) {}
+
+  /**
+   * Find the objects whose attributes hold a policy, using the policy index of the attribute sets.
+   * Results are ordered by object id, so a page is continued from the last id of the previous one.
+   *
+   * @param policyName policy to look for
+   * @param key if not null, an additional data key the policy must hold
+   * @param value if not null, the value the key must hold; requires a key
+   * @param effective true to query the effective attributes, false for the attributes set directly
+   * @param afterObjectId if not null, only return object ids after this one
+   * @param limit maximum number of ids to return
+   * @return matching object ids of PAOs that are not deleted
+   */
+  public List<UUID> queryPaoIds(
+      PolicyName policyName,
+      @Nullable String key,
+      @Nullable String value,
+      boolean effective,
+      @Nullable UUID afterObjectId,
+      int limit) {
+    String setColumn = effective ? "effective_set_id" : "attribute_set_id";
+    String dataFilter;
+    if (key == null) {
+      dataFilter = "data_key IS NULL";
+    } else if (value == null) {
+      dataFilter = "data_key = :data_key";
+    } else {
+      dataFilter = "data_key = :data_key AND data_value = :data_value";
+    }
+    String pageFilter = (afterObjectId == null) ? "" : "AND P.object_id > :after_object_id";
+    final String sql =
+        """
+        SELECT P.object_id FROM policy_object P
+        WHERE P.%s IN (
+            SELECT set_id FROM attribute_set_policy
+            WHERE namespace = :namespace AND name = :name AND %s)
+          AND (P.deleted is null or not P.deleted) %s
+        ORDER BY P.object_id
+        LIMIT :limit
+        """
+            .formatted(setColumn, dataFilter, pageFilter);
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("namespace", policyName.getNamespace())
+            .addValue("name", policyName.getName())
+            .addValue("data_key", key)
+            .addValue("data_value", value)
+            .addValue("after_object_id", afterObjectId)
+            .addValue("limit", limit);
+    return tracer.query(
+        "PaoDao.queryPaoIds",
+        () ->
+            tpsJdbcTemplate.query(
+                sql, params, (rs, rowNum) -> rs.getObject("object_id", UUID.class)),
+        List::size);
+  }
+
+  /**
+   * List the PAOs of a component and object type in order of last update, then object id. A page is
+   * continued from the last update time and object id of the last PAO of the previous one, so each
+   * page is a range scan of policy_object_listing_index; PAOs updated while a listing is in
+   * progress move to its end.
+   *
+   * @param filter which PAOs to list
+   * @param afterLastUpdated if not null, only return PAOs after this update time and afterObjectId
+   * @param afterObjectId object id of the last PAO of the previous page; required with
+   *     afterLastUpdated
+   * @param limit maximum number of PAOs to return
+   * @return matching PAOs, with their attribute sets
+   */
+  public List<Pao> listPaos(
+      PaoListFilter filter,
+      @Nullable Instant afterLastUpdated,
+      @Nullable UUID afterObjectId,
+      int limit) {
+    StringBuilder filters = new StringBuilder();
+    if (!filter.includeDeleted()) {
+      filters.append(" AND (deleted is null or not deleted)");
+    }
+    if (filter.updatedAfter() != null) {
+      filters.append(" AND last_updated >= :updated_after");
+    }
+    if (filter.updatedBefore() != null) {
+      filters.append(" AND last_updated < :updated_before");
+    }
+    if (afterLastUpdated != null) {
+      filters.append(" AND (last_updated, object_id) > (:after_last_updated, :after_object_id)");
+    }
+    final String sql =
+        """
+        SELECT object_id, component, object_type, attribute_set_id, effective_set_id, sources, deleted, created, last_updated, version
+        FROM policy_object
+        WHERE component = :component AND object_type = :object_type%s
+        ORDER BY last_updated, object_id
+        LIMIT :limit
+        """
+            .formatted(filters);
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("component", filter.component().getDbComponent())
+            .addValue("object_type", filter.objectType().getDbObjectType())
+            .addValue("updated_after", timestampOf(filter.updatedAfter()))
+            .addValue("updated_before", timestampOf(filter.updatedBefore()))
+            .addValue("after_last_updated", timestampOf(afterLastUpdated))
+            .addValue("after_object_id", afterObjectId)
+            .addValue("limit", limit);
+    List<DbPao> dbPaos =
+        tracer.query(
+            "PaoDao.listPaos",
+            () -> tpsJdbcTemplate.query(sql, params, DB_PAO_ROW_MAPPER),
+            List::size);
+    return toPaos(dbPaos);
+  }
+
+  private static @Nullable OffsetDateTime timestampOf(@Nullable Instant instant) {
+    return (instant == null) ? null : instant.atOffset(ZoneOffset.UTC);
+  }
+
   // -- Graph Walk Methods --
-  // These methods are intentionally without transaction annotations. They are used by the policy
-  // update process. That process may do multiple reads of the database followed by a big update.
-  // The transaction is managed outside of the DAO.
+  // The read methods are intentionally without transaction annotations. They are used by the policy
+  // update process. That process may do multiple reads of the database followed by a short update
+  // transaction. Consistency is provided by checking the version of every PAO the walk read when
+  // the results are written back in updatePaos.
 
   /**
    * Given a list of PAO ids, return PAOs
@@ -135,21 +451,25 @@ public class PaoDao {
    * @return List of Pao objects
    */
   public List<Pao> getPaos(List<UUID> objectIdList) {
-    List<Pao> paoList = new ArrayList<>();
     if (objectIdList.isEmpty()) {
       // Nothing to do
-      return paoList;
+      return new ArrayList<>();
     }
 
-    List<DbPao> dbPaoList = getDbPaos(objectIdList);
-    List<String> setIdList = new ArrayList<>();
+    return toPaos(getDbPaos(objectIdList));
+  }
+
+  /** Read the attribute sets of PAOs and build the PAOs, in the same order. */
+  private List<Pao> toPaos(List<DbPao> dbPaoList) {
+    List<Pao> paoList = new ArrayList<>();
+    List<UUID> setIdList = new ArrayList<>();
     for (DbPao dbPao : dbPaoList) {
       setIdList.add(dbPao.attributeSetId());
       setIdList.add(dbPao.effectiveSetId());
     }
 
     // Gather all of the attribute sets
-    Map<String, PolicyInputs> attributeSetMap = getAttributeSets(setIdList);
+    Map<UUID, PolicyInputs> attributeSetMap = getAttributeSets(setIdList);
 
     for (DbPao dbPao : dbPaoList) {
       paoList.add(Pao.fromDb(dbPao, attributeSetMap));
@@ -158,6 +478,95 @@ public class PaoDao {
     return paoList;
   }
 
+  /**
+   * Given a list of PAO ids, return their current versions. PAOs that do not exist are omitted.
+   *
+   * @param objectIds UUIDs of Policy Attribute Objects
+   * @return map of object id to version
+   */
+  public Map<UUID, Long> getPaoVersions(Collection<UUID> objectIds) {
+    Map<UUID, Long> versions = new HashMap<>();
+    if (objectIds.isEmpty()) {
+      return versions;
+    }
+    final String sql =
+        "SELECT object_id, version FROM policy_object WHERE object_id IN (:object_id_list)";
+
+    MapSqlParameterSource params =
+        new MapSqlParameterSource().addValue("object_id_list", objectIds);
+
+    return tracer.query(
+        "PaoDao.getPaoVersions",
+        () -> {
+          tpsJdbcTemplate.query(
+              sql,
+              params,
+              rs -> {
+                versions.put(rs.getObject("object_id", UUID.class), rs.getLong("version"));
+              });
+          return versions;
+        },
+        Map::size);
+  }
+
+  /**
+   * Get the version of a PAO without reading its attribute sets. This is the cheap check behind
+   * conditional requests.
+   *
+   * @param objectId UUID of the Policy Attribute Object
+   * @param includeDeleted true to return the version of a deleted PAO
+   * @return the version, or null if there is no such PAO
+   */
+  public @Nullable Long getPaoVersion(UUID objectId, boolean includeDeleted) {
+    String sql = "SELECT version FROM policy_object WHERE object_id = :object_id";
+    if (!includeDeleted) {
+      sql += " AND (deleted is null or not deleted)";
+    }
+
+    MapSqlParameterSource params = new MapSqlParameterSource().addValue("object_id", objectId);
+
+    List<Long> versions = tpsJdbcTemplate.query(sql, params, (rs, rowNum) -> rs.getLong("version"));
+    return versions.isEmpty() ? null : versions.get(0);
+  }
+
+  /**
+   * Get the versions of a PAO and its sources, recursively, without reading any attribute sets.
+   * That covers every PAO an explain of the object can read.
+   *
+   * @param objectId UUID of the Policy Attribute Object
+   * @param depth levels of sources to follow; 0 means no limit
+   * @return map of object id to version; empty if there is no such PAO
+   */
+  public Map<UUID, Long> getSourceClosureVersions(UUID objectId, int depth) {
+    final String sql =
+        """
+        WITH RECURSIVE closure AS (
+          SELECT object_id, sources, version, 0 AS depth FROM policy_object WHERE object_id = :object_id
+          UNION
+          SELECT P.object_id, P.sources, P.version, C.depth + 1
+          FROM policy_object P INNER JOIN closure C ON P.object_id = ANY(C.sources)
+          WHERE :depth = 0 OR C.depth < :depth)
+        SELECT DISTINCT object_id, version FROM closure
+        """;
+
+    MapSqlParameterSource params =
+        new MapSqlParameterSource().addValue("object_id", objectId).addValue("depth", depth);
+
+    Map<UUID, Long> versions = new HashMap<>();
+    return tracer.query(
+        "PaoDao.getSourceClosureVersions",
+        () -> {
+          tpsJdbcTemplate.query(
+              sql,
+              params,
+              rs -> {
+                versions.put(rs.getObject("object_id", UUID.class), rs.getLong("version"));
+              });
+          return versions;
+        },
+        Map::size);
+  }
+
   /**
    * Given a source id, find the immediate dependents and return their ids
    *
@@ -167,12 +576,15 @@ public class PaoDao {
   public Set<UUID> getDependentIds(UUID sourceId) {
     final String sql = "SELECT object_id FROM policy_object WHERE :source_id = ANY(sources)";
 
-    MapSqlParameterSource params =
-        new MapSqlParameterSource().addValue("source_id", sourceId.toString());
+    MapSqlParameterSource params = new MapSqlParameterSource().addValue("source_id", sourceId);
 
-    return new HashSet<>(
-        tpsJdbcTemplate.query(
-            sql, params, (rs, rowNum) -> UUID.fromString(rs.getString("object_id"))));
+    return tracer.query(
+        "PaoDao.getDependentIds",
+        () ->
+            new HashSet<>(
+                tpsJdbcTemplate.query(
+                    sql, params, (rs, rowNum) -> rs.getObject("object_id", UUID.class))),
+        Set::size);
   }
 
   /**
@@ -200,12 +612,15 @@ public class PaoDao {
         SELECT * FROM dependents;
         """;
 
-    MapSqlParameterSource params =
-        new MapSqlParameterSource().addValue("source_id", sourceId.toString());
+    MapSqlParameterSource params = new MapSqlParameterSource().addValue("source_id", sourceId);
 
-    return new HashSet<>(
-        tpsJdbcTemplate.query(
-            sql, params, (rs, rowNum) -> UUID.fromString(rs.getString("object_id"))));
+    return tracer.query(
+        "PaoDao.getAllDependentIds",
+        () ->
+            new HashSet<>(
+                tpsJdbcTemplate.query(
+                    sql, params, (rs, rowNum) -> rs.getObject("object_id", UUID.class))),
+        Set::size);
   }
 
   /**
@@ -213,19 +628,154 @@ public class PaoDao {
    * they hold the initial version of the Pao and the computed version of the Pao, so we can update
    * only what changed.
    *
-   * @param changeList list of modified paos in graph nodes
+   * <p>The walk that built the graph nodes ran outside of this transaction. Before writing, we lock
+   * every Pao the walk read and verify that its version has not changed. If any has, the computed
+   * results may be stale, so we throw and let the caller redo the walk.
+   *
+   * @param graphNodes all graph nodes from the walk; only the modified ones are written
+   * @throws PaoVersionConflictException if any Pao was changed since the walk read it
    */
-  public void updatePaos(List<GraphNode> changeList) {
-    changeList.forEach(this::updatePao);
+  @WriteTransaction
+  public void updatePaos(List<GraphNode> graphNodes) {
+    List<GraphNode> modified = graphNodes.stream().filter(GraphNode::isModified).toList();
+    tracer.query(
+        "PaoDao.updatePaos",
+        () -> {
+          checkPaoVersions(graphNodes);
+          List<UUID> updated = new ArrayList<>();
+          for (GraphNode node : modified) {
+            if (updatePao(node)) {
+              updated.add(node.getPao().getObjectId());
+            }
+          }
+          paoChangeDao.logChanges(updated, PaoChangeType.UPDATED);
+          return modified;
+        },
+        List::size);
+  }
+
+  private void checkPaoVersions(List<GraphNode> graphNodes) {
+    if (graphNodes.isEmpty()) {
+      return;
+    }
+    // Lock the rows in a stable order to avoid deadlocks with concurrent updaters
+    final String sql =
+        """
+        SELECT object_id, version FROM policy_object
+        WHERE object_id IN (:object_id_list)
+        ORDER BY object_id
+        FOR UPDATE
+        """;
+
+    List<UUID> idList = graphNodes.stream().map(node -> node.getPao().getObjectId()).toList();
+    MapSqlParameterSource params = new MapSqlParameterSource().addValue("object_id_list", idList);
+
+    Map<UUID, Long> dbVersions = new HashMap<>();
+    tpsJdbcTemplate.query(
+        sql,
+        params,
+        rs -> {
+          dbVersions.put(rs.getObject("object_id", UUID.class), rs.getLong("version"));
+        });
+
+    for (GraphNode node : graphNodes) {
+      Pao pao = node.getPao();
+      Long dbVersion = dbVersions.get(pao.getObjectId());
+      if (dbVersion == null || dbVersion != pao.getVersion()) {
+        throw new PaoVersionConflictException(
+            String.format(
+                "Policy object %s was changed by another update; expected version %d, found %s",
+                pao.getObjectId(), pao.getVersion(), dbVersion));
+      }
+    }
   }
 
   /**
-   * Update one Pao if attribute set changed: rewrite attribute set if effective set changed:
-   * rewrite effective set if sources list changed, update the policy object with new sources array
+   * Replace the effective attributes of a batch of PAOs. Each update is applied only if the PAO and
+   * each of its sources still have the versions it was computed from; others are left alone, since
+   * whatever changed them also recomputes their effective attributes. The sources are locked along
+   * with the PAOs, so none of them can change before the batch commits. Applied updates increment
+   * the version.
+   *
+   * @param updates new effective attributes, with the versions they were computed from
+   * @return ids of the PAOs updated
+   */
+  @WriteTransaction
+  public List<UUID> updateEffectiveAttributes(List<DbEffectiveUpdate> updates) {
+    if (updates.isEmpty()) {
+      return List.of();
+    }
+    // Lock the rows in the same order as checkPaoVersions, so a batch cannot deadlock with a walk
+    // write-back or another batch
+    final String lockSql =
+        """
+        SELECT object_id, version FROM policy_object
+        WHERE object_id IN (:object_id_list)
+        ORDER BY object_id
+        FOR UPDATE
+        """;
+    Set<UUID> lockIds = new HashSet<>();
+    for (DbEffectiveUpdate update : updates) {
+      lockIds.add(update.objectId());
+      lockIds.addAll(update.sourceVersions().keySet());
+    }
+    MapSqlParameterSource lockParams =
+        new MapSqlParameterSource().addValue("object_id_list", new ArrayList<>(lockIds));
+    Map<UUID, Long> versions = new HashMap<>();
+    tpsJdbcTemplate.query(
+        lockSql,
+        lockParams,
+        rs -> {
+          versions.put(rs.getObject("object_id", UUID.class), rs.getLong("version"));
+        });
+
+    final String sql =
+        """
+        UPDATE policy_object
+        SET effective_set_id = :effective_set_id, last_updated = CURRENT_TIMESTAMP,
+            version = version + 1
+        WHERE object_id = :object_id
+        """;
+    List<UUID> updated = new ArrayList<>();
+    List<MapSqlParameterSource> rows = new ArrayList<>();
+    for (DbEffectiveUpdate update : updates) {
+      if (!hasVersion(versions, update.objectId(), update.version())
+          || !update.sourceVersions().entrySet().stream()
+              .allMatch(source -> hasVersion(versions, source.getKey(), source.getValue()))) {
+        continue;
+      }
+      UUID effectiveSetId =
+          replaceAttributeSet(update.effectiveSetId(), update.effectiveAttributes());
+      updated.add(update.objectId());
+      rows.add(
+          new MapSqlParameterSource()
+              .addValue("object_id", update.objectId())
+              .addValue("effective_set_id", effectiveSetId));
+    }
+    if (!rows.isEmpty()) {
+      tracer.query(
+          "PaoDao.updateEffectiveAttributes",
+          () -> tpsJdbcTemplate.batchUpdate(sql, rows.toArray(new MapSqlParameterSource[0])),
+          counts -> counts.length);
+      paoChangeDao.logChanges(updated, PaoChangeType.UPDATED);
+    }
+    return updated;
+  }
+
+  private static boolean hasVersion(Map<UUID, Long> versions, UUID objectId, long version) {
+    Long dbVersion = versions.get(objectId);
+    return dbVersion != null && dbVersion == version;
+  }
+
+  /**
+   * Update one Pao. If the attribute set or effective set changed, point the Pao at the set with
+   * the new content, creating it only if no other Pao shares it. If the sources list changed,
+   * update the sources array.
    *
    * @param change graph node that has the initial and newly computed Paos
+   * @return true if the Pao row was updated
    */
-  private void updatePao(GraphNode change) {
+  private boolean updatePao(GraphNode change) {
     // The graph node holds the changes we need to make to the PAO sources and attribute sets
     Pao pao = change.getPao();
     PolicyInputs attributes = change.getPolicyAttributes();
@@ -233,7 +783,7 @@ public class PaoDao {
 
     // Get the dbPao and the attribute sets from the db for comparison
     DbPao dbPao = getDbPao(pao.getObjectId(), true);
-    Map<String, PolicyInputs> attributeSetMap =
+    Map<UUID, PolicyInputs> attributeSetMap =
         getAttributeSets(List.of(dbPao.attributeSetId(), dbPao.effectiveSetId()));
     PolicyInputs dbAttributes = attributeSetMap.get(dbPao.attributeSetId());
     PolicyInputs dbEffectiveAttributes = attributeSetMap.get(dbPao.effectiveSetId());
@@ -243,70 +793,80 @@ public class PaoDao {
     boolean recordUpdated = false;
 
     // Update attributes if changed
+    UUID attributeSetId = dbPao.attributeSetId();
     if (!attributes.equals(dbAttributes)) {
-      String attributeSetId = dbPao.attributeSetId();
-      deleteAttributeSet(attributeSetId);
-      createAttributeSet(attributeSetId, attributes);
+      attributeSetId = replaceAttributeSet(attributeSetId, attributes);
       recordUpdated = true;
     }
 
     // Update effective attributes if changed
+    UUID effectiveSetId = dbPao.effectiveSetId();
     if (!effectiveAttributes.equals(dbEffectiveAttributes)) {
-      String effectiveSetId = dbPao.effectiveSetId();
-      deleteAttributeSet(effectiveSetId);
-      createAttributeSet(effectiveSetId, effectiveAttributes);
+      effectiveSetId = replaceAttributeSet(effectiveSetId, effectiveAttributes);
       recordUpdated = true;
     }
 
     // Update sources if changed
-    Set<UUID> dbSources =
-        dbPao.sources().stream().map(UUID::fromString).collect(Collectors.toSet());
-    if (!dbSources.equals(pao.getSourceObjectIds())) {
+    Set<UUID> dbSources = dbPao.sources();
+    boolean sourcesChanged = !dbSources.equals(pao.getSourceObjectIds());
+
+    if (recordUpdated || sourcesChanged) {
       final String sql =
           """
-        UPDATE policy_object
-        SET last_updated = CURRENT_TIMESTAMP, sources = string_to_array(:sources, ',') WHERE object_id = :object_id;
-        """;
-
-      String sourcesSqlArray = makeCsvFromUuidSet(pao.getSourceObjectIds());
+          UPDATE policy_object
+          SET last_updated = CURRENT_TIMESTAMP, version = version + 1, sources = :sources,
+              attribute_set_id = :attribute_set_id, effective_set_id = :effective_set_id
+          WHERE object_id = :object_id
+          """;
 
       MapSqlParameterSource params =
           new MapSqlParameterSource()
-              .addValue("object_id", pao.getObjectId().toString())
-              .addValue("sources", sourcesSqlArray);
+              .addValue("object_id", pao.getObjectId())
+              .addValue("sources", uuidArray(pao.getSourceObjectIds()))
+              .addValue("attribute_set_id", attributeSetId)
+              .addValue("effective_set_id", effectiveSetId);
 
       tpsJdbcTemplate.update(sql, params);
       logger.info(
-          "Update sources array for pao object id {}, sources {}",
-          pao.getObjectId().toString(),
-          sourcesSqlArray);
-
-      // We recorded the last updated, so no need to do it again
-      recordUpdated = false;
+          "Updated pao object id {}, sources {}, attribute set {}, effective set {}",
+          pao.getObjectId(),
+          pao.getSourceObjectIds(),
+          attributeSetId,
+          effectiveSetId);
     }
 
-    // Record last updated if there were any unrecorded updates
-    if (recordUpdated) {
-      final String sqlUpdated =
-          "UPDATE policy_object SET last_updated = CURRENT_TIMESTAMP WHERE object_id = :object_id";
-      MapSqlParameterSource params =
-          new MapSqlParameterSource().addValue("object_id", pao.getObjectId().toString());
+    if (sourcesChanged) {
+      // A new source gains a dependent. Bump its version so that a concurrent walk that read the
+      // source before this link - and so did not see this dependent - cannot write back its
+      // results.
+      Set<UUID> addedSources = new HashSet<>(pao.getSourceObjectIds());
+      addedSources.removeAll(dbSources);
+      bumpPaoVersions(addedSources);
+    }
+    return recordUpdated || sourcesChanged;
+  }
 
-      tpsJdbcTemplate.update(sqlUpdated, params);
-      logger.info("Updated last update pao object id {}", pao.getObjectId().toString());
+  private void bumpPaoVersions(Set<UUID> objectIds) {
+    if (objectIds.isEmpty()) {
+      return;
     }
+    final String sql =
+        "UPDATE policy_object SET version = version + 1 WHERE object_id IN (:object_id_list)";
+    MapSqlParameterSource params =
+        new MapSqlParameterSource().addValue("object_id_list", objectIds);
+    tpsJdbcTemplate.update(sql, params);
   }
 
   private void removeDbPao(DbPao dbPao) {
     try {
-      // Delete associated attribute set(s)
-      deleteAttributeSet(dbPao.attributeSetId());
-      deleteAttributeSet(dbPao.effectiveSetId());
+      // Release associated attribute set(s)
+      releaseAttributeSet(dbPao.attributeSetId());
+      releaseAttributeSet(dbPao.effectiveSetId());
 
       // Delete the policy object
       final String sql = "DELETE FROM policy_object WHERE object_id=:object_id";
       MapSqlParameterSource params =
-          new MapSqlParameterSource().addValue("object_id", dbPao.objectId().toString());
+          new MapSqlParameterSource().addValue("object_id", dbPao.objectId());
       tpsJdbcTemplate.update(sql, params);
     } catch (PolicyObjectNotFoundException e) {
       // Delete throws no error on not found
@@ -314,56 +874,177 @@ public class PaoDao {
   }
 
   /**
-   * The JdbcTemplate doesn't have a nice way to pass arrays into and out of Postgres. Since we use
-   * UUIDs, we know there are no commas, so we can build the CSV and use the Postgres
-   * string_to_array builtin to set the array value.
+   * Bind a set of UUIDs as a Postgres uuid[] value. The driver sends the UUIDs in binary, so there
+   * is no text conversion on either side.
    *
    * @param uuidSet input set of UUIDs
-   * @return csv of strings
+   * @return array parameter value
+   */
+  private static SqlArrayValue uuidArray(Set<UUID> uuidSet) {
+    return new SqlArrayValue("uuid", uuidSet.toArray());
+  }
+
+  /**
+   * Take a reference to the attribute set with the given content. Sets are addressed by a hash of
+   * their content, so the rows are written only if no Pao already refers to an identical set.
+   *
+   * @param inputs content of the set
+   * @return id of the set
+   */
+  private UUID acquireAttributeSet(PolicyInputs inputs) {
+    UUID setId = DbAttributeSetHash.setIdOf(inputs);
+    final String sql =
+        """
+        INSERT INTO attribute_set_ref(set_id, ref_count) VALUES(:set_id, 1)
+        ON CONFLICT (set_id) DO UPDATE SET ref_count = attribute_set_ref.ref_count + 1
+        RETURNING ref_count
+        """;
+    MapSqlParameterSource params = new MapSqlParameterSource().addValue("set_id", setId);
+    Integer refCount = tpsJdbcTemplate.queryForObject(sql, params, Integer.class);
+    if (refCount != null && refCount == 1) {
+      createAttributeSet(setId, inputs);
+      createAttributeSetRegions(setId, inputs);
+      createAttributeSetPolicies(setId, inputs);
+    }
+    return setId;
+  }
+
+  /**
+   * Drop a reference to an attribute set, deleting the set when the last reference is gone.
+   *
+   * @param setId id of the set
    */
-  private String makeCsvFromUuidSet(Set<UUID> uuidSet) {
-    return String.join(",", uuidSet.stream().map(UUID::toString).toList());
+  private void releaseAttributeSet(UUID setId) {
+    final String sql =
+        """
+        UPDATE attribute_set_ref SET ref_count = ref_count - 1 WHERE set_id = :set_id
+        RETURNING ref_count
+        """;
+    MapSqlParameterSource params = new MapSqlParameterSource().addValue("set_id", setId);
+    List<Integer> refCounts =
+        tpsJdbcTemplate.query(sql, params, (rs, rowNum) -> rs.getInt("ref_count"));
+    if (refCounts.isEmpty() || refCounts.get(0) <= 0) {
+      deleteAttributeSet(setId);
+      tpsJdbcTemplate.update("DELETE FROM attribute_set_ref WHERE set_id = :set_id", params);
+    }
   }
 
-  private void createAttributeSet(String setId, PolicyInputs inputs) {
+  /**
+   * Move a reference from one attribute set to the set with the given content. The new reference is
+   * taken first, so when the content is unchanged the shared rows are left in place.
+   *
+   * @param oldSetId id of the set currently referenced
+   * @param inputs new content
+   * @return id of the set now referenced
+   */
+  private UUID replaceAttributeSet(UUID oldSetId, PolicyInputs inputs) {
+    UUID setId = acquireAttributeSet(inputs);
+    releaseAttributeSet(oldSetId);
+    return setId;
+  }
+
+  private void createAttributeSet(UUID setId, PolicyInputs inputs) {
     final String setsql =
         """
         INSERT INTO attribute_set(set_id, namespace, name, properties, conflicts)
-        VALUES(:set_id, :namespace, :name, cast(:properties AS jsonb), string_to_array(:conflicts,','))
+        VALUES(:set_id, :namespace, :name, cast(:properties AS jsonb), :conflicts)
         """;
 
     for (PolicyInput input : inputs.getInputs().values()) {
-      String conflictCsv = makeCsvFromUuidSet(input.getConflicts());
+      // Stored names are interned; a name from request input is not until it is stored here
+      PolicyName.of(input.getPolicyName().getNamespace(), input.getPolicyName().getName());
       MapSqlParameterSource setparams =
           new MapSqlParameterSource()
               .addValue("set_id", setId)
               .addValue("namespace", input.getPolicyName().getNamespace())
               .addValue("name", input.getPolicyName().getName())
               .addValue("properties", DbAdditionalData.toDb(input.getAdditionalData()))
-              .addValue("conflicts", conflictCsv);
+              .addValue("conflicts", uuidArray(input.getConflicts()));
       tpsJdbcTemplate.update(setsql, setparams);
       logger.info(
           "Inserted record for pao set id {}, policy {}, conflicts {}",
           setId,
           input.getPolicyName(),
-          conflictCsv);
+          input.getConflicts());
     }
   }
 
+  /** Materialize the allowed regions of every platform for a new attribute set. */
+  private void createAttributeSetRegions(UUID setId, PolicyInputs inputs) {
+    RegionOntology ontology = regionService.getCurrentOntology();
+    boolean constrained = ontology.hasRegionConstraint(inputs);
+    for (String platform : ontology.getPlatforms()) {
+      upsertAttributeSetRegion(
+          ontology, setId, platform, constrained, ontology.getAllowedRegionMask(inputs, platform));
+    }
+  }
+
+  /**
+   * Index the policies of a new attribute set: one row per policy, plus one row per distinct
+   * additional data pair of the policy.
+   */
+  private void createAttributeSetPolicies(UUID setId, PolicyInputs inputs) {
+    final String sql =
+        """
+        INSERT INTO attribute_set_policy(set_id, namespace, name, data_key, data_value)
+        VALUES(:set_id, :namespace, :name, :data_key, :data_value)
+        """;
+    List<MapSqlParameterSource> rows = new ArrayList<>();
+    for (PolicyInput input : inputs.getInputs().values()) {
+      Set<Map.Entry<String, String>> pairs = new HashSet<>(input.getAdditionalData().entries());
+      rows.add(policyIndexRow(setId, input.getPolicyName(), null, null));
+      for (Map.Entry<String, String> pair : pairs) {
+        rows.add(policyIndexRow(setId, input.getPolicyName(), pair.getKey(), pair.getValue()));
+      }
+    }
+    if (!rows.isEmpty()) {
+      tpsJdbcTemplate.batchUpdate(sql, rows.toArray(new MapSqlParameterSource[0]));
+    }
+  }
+
+  private static MapSqlParameterSource policyIndexRow(
+      UUID setId, PolicyName policyName, @Nullable String key, @Nullable String value) {
+    return new MapSqlParameterSource()
+        .addValue("set_id", setId)
+        .addValue("namespace", policyName.getNamespace())
+        .addValue("name", policyName.getName())
+        .addValue("data_key", key)
+        .addValue("data_value", value);
+  }
+
+  private void upsertAttributeSetRegion(
+      RegionOntology ontology, UUID setId, String platform, boolean constrained, byte[] regions) {
+    final String sql =
+        """
+        INSERT INTO attribute_set_region(set_id, platform, constrained, regions, ontology_version)
+        VALUES(:set_id, :platform, :constrained, :regions, :ontology_version)
+        ON CONFLICT (set_id, platform) DO UPDATE
+        SET constrained = EXCLUDED.constrained, regions = EXCLUDED.regions,
+            ontology_version = EXCLUDED.ontology_version
+        """;
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("set_id", setId)
+            .addValue("platform", platform)
+            .addValue("constrained", constrained)
+            .addValue("regions", regions)
+            .addValue("ontology_version", ontology.getOntologyVersion());
+    tpsJdbcTemplate.update(sql, params);
+  }
+
   private void createDbPao(
       UUID objectId,
       String component,
       String objectType,
-      String sources,
-      String attributeSetId,
-      String effectiveSetId) {
+      UUID attributeSetId,
+      UUID effectiveSetId) {
     final String sql =
         """
         INSERT INTO policy_object
           (object_id, component, object_type, sources, attribute_set_id, effective_set_id,
            created, last_updated)
         VALUES
-          (:object_id, :component, :object_type, string_to_array(:sources, ','), :attribute_set_id, :effective_set_id,
+          (:object_id, :component, :object_type, '{}', :attribute_set_id, :effective_set_id,
            CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
         """;
 
@@ -372,7 +1053,6 @@ public class PaoDao {
             .addValue("object_id", objectId)
             .addValue("component", component)
             .addValue("object_type", objectType)
-            .addValue("sources", sources)
             .addValue("attribute_set_id", attributeSetId)
             .addValue("effective_set_id", effectiveSetId);
 
@@ -385,7 +1065,7 @@ public class PaoDao {
     }
   }
 
-  private void deleteAttributeSet(String setId) {
+  private void deleteAttributeSet(UUID setId) {
     final String sql = "DELETE FROM attribute_set WHERE set_id = :set_id";
     final var params = new MapSqlParameterSource().addValue("set_id", setId);
     tpsJdbcTemplate.update(sql, params);
@@ -394,7 +1074,7 @@ public class PaoDao {
   public DbPao getDbPao(UUID objectId, boolean includeDeleted) {
     String sql =
         """
-        SELECT object_id, component, object_type, attribute_set_id, effective_set_id, sources, deleted, created, last_updated
+        SELECT object_id, component, object_type, attribute_set_id, effective_set_id, sources, deleted, created, last_updated, version
         FROM policy_object WHERE object_id = :object_id
         """;
 
@@ -402,20 +1082,83 @@ public class PaoDao {
       sql += " AND (deleted is null or not deleted)";
     }
 
-    MapSqlParameterSource params =
-        new MapSqlParameterSource().addValue("object_id", objectId.toString());
+    MapSqlParameterSource params = new MapSqlParameterSource().addValue("object_id", objectId);
 
-    List<DbPao> dbPao = tpsJdbcTemplate.query(sql, params, DB_PAO_ROW_MAPPER);
+    String query = sql;
+    List<DbPao> dbPao =
+        tracer.query(
+            "PaoDao.getDbPao",
+            () -> tpsJdbcTemplate.query(query, params, DB_PAO_ROW_MAPPER),
+            List::size);
     if (dbPao.isEmpty()) {
       throw new PolicyObjectNotFoundException("Policy object not found: " + objectId);
     }
     return dbPao.get(0);
   }
 
-  private List<DbPao> getDbPaos(List<UUID> objectIdList) {
+  /**
+   * Read PAOs in object id order, including deleted ones, a page at a time. This is how a full
+   * graph is loaded without holding one long query open.
+   *
+   * @param afterObjectId if not null, only return PAOs after this one
+   * @param limit maximum number of PAOs to return
+   * @return PAOs in object id order
+   */
+  public List<DbPao> getDbPaoPage(@Nullable UUID afterObjectId, int limit) {
+    String pageFilter = (afterObjectId == null) ? "" : "WHERE object_id > :after_object_id";
+    final String sql =
+        """
+        SELECT object_id, component, object_type, attribute_set_id, effective_set_id, sources, deleted, created, last_updated, version
+        FROM policy_object %s
+        ORDER BY object_id
+        LIMIT :limit
+        """
+            .formatted(pageFilter);
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("after_object_id", afterObjectId)
+            .addValue("limit", limit);
+    return tracer.query(
+        "PaoDao.getDbPaoPage",
+        () -> tpsJdbcTemplate.query(sql, params, DB_PAO_ROW_MAPPER),
+        List::size);
+  }
+
+  /**
+   * Read the PAOs, including deleted ones, that have any of the given PAOs as a source. This is one
+   * level of dependents for a whole set of PAOs in one query.
+   *
+   * @param sourceIds sources to hunt for
+   * @return the dependent PAOs
+   */
+  public List<DbPao> getDependentDbPaos(Collection<UUID> sourceIds) {
+    if (sourceIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+    final String sql =
+        """
+        SELECT object_id, component, object_type, attribute_set_id, effective_set_id, sources, deleted, created, last_updated, version
+        FROM policy_object
+        WHERE sources && :source_ids
+        """;
+    MapSqlParameterSource params =
+        new MapSqlParameterSource().addValue("source_ids", uuidArray(new HashSet<>(sourceIds)));
+    return tracer.query(
+        "PaoDao.getDependentDbPaos",
+        () -> tpsJdbcTemplate.query(sql, params, DB_PAO_ROW_MAPPER),
+        List::size);
+  }
+
+  /**
+   * Read PAOs, including deleted ones, without their attribute sets.
+   *
+   * @param objectIdList UUIDs of Policy Attribute Objects
+   * @return the PAOs that exist
+   */
+  public List<DbPao> getDbPaos(Collection<UUID> objectIdList) {
     final String sql =
         """
-        SELECT object_id, component, object_type, attribute_set_id, effective_set_id, sources, deleted, created, last_updated
+        SELECT object_id, component, object_type, attribute_set_id, effective_set_id, sources, deleted, created, last_updated, version
         FROM policy_object
         WHERE object_id IN (:object_id_list)
         """;
@@ -423,12 +1166,13 @@ public class PaoDao {
     if (objectIdList.isEmpty()) {
       return new ArrayList<>();
     }
-    List<String> stringIdList = objectIdList.stream().map(UUID::toString).toList();
-
     MapSqlParameterSource params =
-        new MapSqlParameterSource().addValue("object_id_list", stringIdList);
+        new MapSqlParameterSource().addValue("object_id_list", objectIdList);
 
-    return tpsJdbcTemplate.query(sql, params, DB_PAO_ROW_MAPPER);
+    return tracer.query(
+        "PaoDao.getDbPaos",
+        () -> tpsJdbcTemplate.query(sql, params, DB_PAO_ROW_MAPPER),
+        List::size);
   }
 
   /**
@@ -437,7 +1181,7 @@ public class PaoDao {
    * @param setIdList list of set ids
    * @return map of set id to attribute set
    */
-  private Map<String, PolicyInputs> getAttributeSets(List<String> setIdList) {
+  public Map<UUID, PolicyInputs> getAttributeSets(Collection<UUID> setIdList) {
     final String sql =
         """
         SELECT set_id, namespace, name, properties, conflicts
@@ -445,7 +1189,7 @@ public class PaoDao {
         WHERE set_id IN (:set_id_list)
         """;
 
-    var attributeSets = new HashMap<String, PolicyInputs>();
+    var attributeSets = new HashMap<UUID, PolicyInputs>();
     if (setIdList.isEmpty()) {
       // Nothing to do - skip the query
       return attributeSets;
@@ -455,21 +1199,70 @@ public class PaoDao {
     var params = new MapSqlParameterSource().addValue("set_id_list", uniqueSetIds);
 
     List<DbAttribute> attributeList =
-        tpsJdbcTemplate.query(sql, params, DB_ATTRIBUTE_SET_ROW_MAPPER);
+        tracer.query(
+            "PaoDao.getAttributeSets",
+            () -> tpsJdbcTemplate.query(sql, params, DB_ATTRIBUTE_SET_ROW_MAPPER),
+            List::size);
 
     // Initialize the attributeSets with all input set ids and an empty PolicyInputs.
     // That is a valid return and covers the case where attribute sets are empty,
     // so do not have any rows in the attribute set table.
-    for (String id : uniqueSetIds) {
-      attributeSets.put(id, new PolicyInputs());
+    for (UUID id : uniqueSetIds) {
+      attributeSets.put(id, PolicyInputs.empty());
     }
 
     // For attribute rows we have, find their attribute set and add the policy
+    Map<UUID, PolicyInputs.Builder> builders = new HashMap<>();
     for (DbAttribute attribute : attributeList) {
-      PolicyInputs policyInputs = attributeSets.get(attribute.setId());
-      policyInputs.addInput(attribute.policyInput());
+      builders
+          .computeIfAbsent(attribute.setId(), id -> PolicyInputs.builder())
+          .addInput(attribute.policyInput());
     }
+    builders.forEach((id, builder) -> attributeSets.put(id, builder.build()));
+
+    return attributeSets;
+  }
+
+  /**
+   * Build the attribute sets that are still referenced from a list of set ids. {@link
+   * #getAttributeSets} cannot tell a released set from an empty one, since neither has rows. Here
+   * the reference count row tells them apart, and it is read in the same statement as the set rows,
+   * so the two are consistent.
+   *
+   * @param setIds set ids
+   * @return map of set id to attribute set; released sets are omitted
+   */
+  private Map<UUID, PolicyInputs> getReferencedAttributeSets(Collection<UUID> setIds) {
+    // The set id condition in the join lets the set read prune the attribute_set partitions
+    final String sql =
+        """
+        SELECT R.set_id AS ref_set_id, S.set_id, S.namespace, S.name, S.properties, S.conflicts
+        FROM attribute_set_ref R
+        LEFT JOIN attribute_set S ON S.set_id = R.set_id AND S.set_id IN (:set_id_list)
+        WHERE R.set_id IN (:set_id_list)
+        """;
+    var params = new MapSqlParameterSource().addValue("set_id_list", new HashSet<>(setIds));
+
+    Map<UUID, PolicyInputs.Builder> builders = new HashMap<>();
+    tracer.query(
+        "PaoDao.getReferencedAttributeSets",
+        () ->
+            tpsJdbcTemplate.query(
+                sql,
+                params,
+                (rs, rowNum) -> {
+                  PolicyInputs.Builder builder =
+                      builders.computeIfAbsent(
+                          rs.getObject("ref_set_id", UUID.class), id -> PolicyInputs.builder());
+                  if (rs.getObject("set_id") != null) {
+                    builder.addInput(DB_ATTRIBUTE_SET_ROW_MAPPER.mapRow(rs, rowNum).policyInput());
+                  }
+                  return rowNum;
+                }),
+        List::size);
 
+    Map<UUID, PolicyInputs> attributeSets = new HashMap<>();
+    builders.forEach((id, builder) -> attributeSets.put(id, builder.build()));
     return attributeSets;
   }
 }
@@ -0,0 +1,223 @@
+package bio.terra.policy.db;
+
+import bio.terra.common.db.ReadTransaction;
+import bio.terra.common.db.WriteTransaction;
+import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.common.exception.PropagationJobNotFoundException;
+import bio.terra.policy.service.propagation.model.PropagationJobStatus;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * The propagation_job table is a durable work queue. A job is queued in the same transaction that
+ * commits the PAO change it propagates. Workers claim batches of jobs with SKIP LOCKED, so several
+ * TPS instances can drain the queue without blocking each other.
+ */
+@Component
+public class PropagationJobDao {
+  private static final String JOB_COLUMNS =
+      "job_id, object_id, status, attempts, conflicts, error_message, created, last_updated";
+
+  private static final RowMapper<DbPropagationJob> DB_PROPAGATION_JOB_ROW_MAPPER =
+      (rs, rowNum) -> {
+        String conflictsJson = rs.getString("conflicts");
+        List<DbPropagationConflict> conflicts =
+            (conflictsJson == null)
+                ? new ArrayList<>()
+                : Arrays.asList(DbSerDes.fromJson(conflictsJson, DbPropagationConflict[].class));
+
+        return new DbPropagationJob(
+            UUID.fromString(rs.getString("job_id")),
+            UUID.fromString(rs.getString("object_id")),
+            PropagationJobStatus.fromDb(rs.getString("status")),
+            rs.getInt("attempts"),
+            conflicts,
+            rs.getString("error_message"),
+            rs.getTimestamp("created").toInstant(),
+            rs.getTimestamp("last_updated").toInstant());
+      };
+
+  private final Logger logger = LoggerFactory.getLogger(PropagationJobDao.class);
+  private final NamedParameterJdbcTemplate tpsJdbcTemplate;
+
+  @Autowired
+  public PropagationJobDao(TpsDatabaseConfiguration tpsDatabaseConfiguration) {
+    this.tpsJdbcTemplate = new NamedParameterJdbcTemplate(tpsDatabaseConfiguration.getDataSource());
+  }
+
+  /**
+   * Queue a propagation job. This method is intentionally without a transaction annotation. It must
+   * run in the transaction that commits the change being propagated.
+   *
+   * @param objectId the PAO whose change is to be propagated
+   * @return id of the new job
+   */
+  public UUID createJob(UUID objectId) {
+    final String sql =
+        """
+        INSERT INTO propagation_job (job_id, object_id, status, created, last_updated)
+        VALUES (:job_id, :object_id, :status, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        """;
+
+    UUID jobId = UUID.randomUUID();
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("job_id", jobId.toString())
+            .addValue("object_id", objectId.toString())
+            .addValue("status", PropagationJobStatus.QUEUED.getDbStatus());
+    tpsJdbcTemplate.update(sql, params);
+    logger.info("Queued propagation job {} for pao {}", jobId, objectId);
+    return jobId;
+  }
+
+  @ReadTransaction
+  public DbPropagationJob getJob(UUID jobId) {
+    final String sql = "SELECT " + JOB_COLUMNS + " FROM propagation_job WHERE job_id = :job_id";
+    MapSqlParameterSource params = new MapSqlParameterSource().addValue("job_id", jobId.toString());
+
+    List<DbPropagationJob> jobs = tpsJdbcTemplate.query(sql, params, DB_PROPAGATION_JOB_ROW_MAPPER);
+    if (jobs.isEmpty()) {
+      throw new PropagationJobNotFoundException("Propagation job not found: " + jobId);
+    }
+    return jobs.get(0);
+  }
+
+  /**
+   * Claim a batch of jobs for processing, oldest first. Besides queued jobs, we reclaim jobs that
+   * have been running longer than the lease timeout; their worker is presumed dead. Claiming a job
+   * counts as an attempt, so an expired job that has used up its attempts is marked as failed
+   * instead of being reclaimed. Otherwise a job that kills its worker would be retried forever.
+   *
+   * @param batchSize maximum number of jobs to claim
+   * @param leaseTimeout how long a running job is owned by its worker after its last renewal
+   * @param maxAttempts number of attempts before a job is marked as failed
+   * @return claimed jobs; empty if there is nothing to do
+   */
+  @WriteTransaction
+  public List<DbPropagationJob> claimJobs(int batchSize, Duration leaseTimeout, int maxAttempts) {
+    final String failSql =
+        """
+        UPDATE propagation_job
+        SET status = :failed, error_message = :error_message, last_updated = CURRENT_TIMESTAMP
+        WHERE job_id IN (
+          SELECT job_id FROM propagation_job
+          WHERE status = :running AND attempts >= :max_attempts
+            AND last_updated < CURRENT_TIMESTAMP - make_interval(secs => :lease_seconds)
+          FOR UPDATE SKIP LOCKED)
+        """;
+
+    final String claimSql =
+        """
+        UPDATE propagation_job
+        SET status = :running, attempts = attempts + 1, last_updated = CURRENT_TIMESTAMP
+        WHERE job_id IN (
+          SELECT job_id FROM propagation_job
+          WHERE status = :queued
+            OR (status = :running AND attempts < :max_attempts
+              AND last_updated < CURRENT_TIMESTAMP - make_interval(secs => :lease_seconds))
+          ORDER BY created
+          LIMIT :batch_size
+          FOR UPDATE SKIP LOCKED)
+        RETURNING
+        """
+            + JOB_COLUMNS;
+
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("running", PropagationJobStatus.RUNNING.getDbStatus())
+            .addValue("queued", PropagationJobStatus.QUEUED.getDbStatus())
+            .addValue("failed", PropagationJobStatus.FAILED.getDbStatus())
+            .addValue("error_message", "Lease expired on the last attempt")
+            .addValue("lease_seconds", leaseTimeout.toSeconds())
+            .addValue("max_attempts", maxAttempts)
+            .addValue("batch_size", batchSize);
+
+    int failed = tpsJdbcTemplate.update(failSql, params);
+    if (failed > 0) {
+      logger.warn("Failed {} propagation jobs whose lease expired on the last attempt", failed);
+    }
+    return tpsJdbcTemplate.query(claimSql, params, DB_PROPAGATION_JOB_ROW_MAPPER);
+  }
+
+  /**
+   * Renew the lease of a running job.
+   *
+   * @param job the job as claimed
+   * @return false if another worker has claimed the job since
+   */
+  @WriteTransaction
+  public boolean renewLease(DbPropagationJob job) {
+    final String sql =
+        """
+        UPDATE propagation_job SET last_updated = CURRENT_TIMESTAMP
+        WHERE job_id = :job_id AND attempts = :attempts AND status = :running
+        """;
+    return tpsJdbcTemplate.update(sql, claimParams(job)) == 1;
+  }
+
+  /**
+   * Record the successful end of a job. Like the other updates of a claimed job, this is skipped if
+   * another worker has claimed the job since.
+   */
+  @WriteTransaction
+  public void completeJob(DbPropagationJob job, List<DbPropagationConflict> conflicts) {
+    updateJob(job, PropagationJobStatus.SUCCEEDED, DbSerDes.toJson(conflicts), null);
+  }
+
+  /**
+   * Record a failed attempt. The job is either put back on the queue for another attempt or marked
+   * as failed for good.
+   *
+   * @param job the job as claimed
+   * @param retry true to queue the job again
+   * @param errorMessage why the attempt failed
+   */
+  @WriteTransaction
+  public void failJobAttempt(DbPropagationJob job, boolean retry, String errorMessage) {
+    PropagationJobStatus status = retry ? PropagationJobStatus.QUEUED : PropagationJobStatus.FAILED;
+    updateJob(job, status, null, errorMessage);
+  }
+
+  private void updateJob(
+      DbPropagationJob job,
+      PropagationJobStatus status,
+      @Nullable String conflictsJson,
+      @Nullable String errorMessage) {
+    final String sql =
+        """
+        UPDATE propagation_job
+        SET status = :status, conflicts = cast(:conflicts AS jsonb), error_message = :error_message,
+            last_updated = CURRENT_TIMESTAMP
+        WHERE job_id = :job_id AND attempts = :attempts AND status = :running
+        """;
+
+    MapSqlParameterSource params =
+        claimParams(job)
+            .addValue("status", status.getDbStatus())
+            .addValue("conflicts", conflictsJson)
+            .addValue("error_message", errorMessage);
+    if (tpsJdbcTemplate.update(sql, params) == 1) {
+      logger.info("Propagation job {} is now {}", job.jobId(), status);
+    } else {
+      logger.warn("Propagation job {} was claimed by another worker", job.jobId());
+    }
+  }
+
+  private static MapSqlParameterSource claimParams(DbPropagationJob job) {
+    return new MapSqlParameterSource()
+        .addValue("job_id", job.jobId().toString())
+        .addValue("attempts", job.attempts())
+        .addValue("running", PropagationJobStatus.RUNNING.getDbStatus());
+  }
+}
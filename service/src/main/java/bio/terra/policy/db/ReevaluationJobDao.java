@@ -0,0 +1,253 @@
+package bio.terra.policy.db;
+
+import bio.terra.common.db.ReadTransaction;
+import bio.terra.common.db.WriteTransaction;
+import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.common.exception.ReevaluationJobNotFoundException;
+import bio.terra.policy.service.propagation.model.PropagationJobStatus;
+import bio.terra.policy.service.reevaluation.model.ReevaluationJob;
+import bio.terra.policy.service.reevaluation.model.ReevaluationProgress;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * The reevaluation_job table queues full-graph re-evaluations and holds their checkpoints. A worker
+ * claims a job by incrementing its attempts, and only writes the job while the attempts still match
+ * its claim, so a worker whose lease has been taken over stops at its next checkpoint.
+ */
+@Component
+public class ReevaluationJobDao {
+  private static final String JOB_COLUMNS =
+      """
+      job_id, ontology_version, status, attempts, layer_count, completed_layers, evaluated_count, changed_count,
+      conflict_count, skipped_count, error_message, created, last_updated
+      """;
+
+  private static final RowMapper<ReevaluationJob> REEVALUATION_JOB_ROW_MAPPER =
+      (rs, rowNum) ->
+          new ReevaluationJob(
+              rs.getObject("job_id", UUID.class),
+              rs.getString("ontology_version"),
+              PropagationJobStatus.fromDb(rs.getString("status")),
+              rs.getInt("attempts"),
+              new ReevaluationProgress(
+                  rs.getObject("layer_count", Integer.class),
+                  rs.getInt("completed_layers"),
+                  rs.getLong("evaluated_count"),
+                  rs.getLong("changed_count"),
+                  rs.getLong("conflict_count"),
+                  rs.getLong("skipped_count")),
+              rs.getString("error_message"),
+              rs.getTimestamp("created").toInstant(),
+              rs.getTimestamp("last_updated").toInstant());
+
+  private final Logger logger = LoggerFactory.getLogger(ReevaluationJobDao.class);
+  private final NamedParameterJdbcTemplate tpsJdbcTemplate;
+
+  @Autowired
+  public ReevaluationJobDao(TpsDatabaseConfiguration tpsDatabaseConfiguration) {
+    this.tpsJdbcTemplate = new NamedParameterJdbcTemplate(tpsDatabaseConfiguration.getDataSource());
+  }
+
+  /**
+   * Queue a job. There is at most one job per ontology version, so every instance that reloads the
+   * same ontology gets the same job.
+   *
+   * @param ontologyVersion ontology the job is for; null for a job any worker may run
+   * @return id of the new job, or of the existing job for the ontology version
+   */
+  @WriteTransaction
+  public UUID createJob(@Nullable String ontologyVersion) {
+    final String sql =
+        """
+        INSERT INTO reevaluation_job (job_id, ontology_version, status, created, last_updated)
+        VALUES (:job_id, :ontology_version, :status, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        ON CONFLICT (ontology_version) DO NOTHING
+        """;
+
+    UUID jobId = UUID.randomUUID();
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("job_id", jobId)
+            .addValue("ontology_version", ontologyVersion)
+            .addValue("status", PropagationJobStatus.QUEUED.getDbStatus());
+    if (tpsJdbcTemplate.update(sql, params) == 0) {
+      final String existingSql =
+          "SELECT job_id FROM reevaluation_job WHERE ontology_version = :ontology_version";
+      UUID existingJobId = tpsJdbcTemplate.queryForObject(existingSql, params, UUID.class);
+      logger.info(
+          "Reevaluation job {} is already queued for ontology {}", existingJobId, ontologyVersion);
+      return existingJobId;
+    }
+    logger.info("Queued reevaluation job {} for ontology {}", jobId, ontologyVersion);
+    return jobId;
+  }
+
+  @ReadTransaction
+  public ReevaluationJob getJob(UUID jobId) {
+    final String sql = "SELECT " + JOB_COLUMNS + " FROM reevaluation_job WHERE job_id = :job_id";
+    MapSqlParameterSource params = new MapSqlParameterSource().addValue("job_id", jobId);
+
+    List<ReevaluationJob> jobs = tpsJdbcTemplate.query(sql, params, REEVALUATION_JOB_ROW_MAPPER);
+    if (jobs.isEmpty()) {
+      throw new ReevaluationJobNotFoundException("Reevaluation job not found: " + jobId);
+    }
+    return jobs.get(0);
+  }
+
+  /**
+   * Claim the oldest job that is queued, or running without a checkpoint within the lease timeout.
+   * A reclaimed job resumes from its last checkpoint. Claiming a job counts as an attempt, so an
+   * expired job that has used up its attempts is marked as failed instead of being reclaimed. A job
+   * for an ontology version is only claimed by a worker that has loaded that version; it stays
+   * queued for the others.
+   *
+   * @param leaseTimeout how long a running job is owned by its worker after each checkpoint
+   * @param maxAttempts number of attempts before a job is marked as failed
+   * @param ontologyVersion ontology version the worker has loaded
+   * @return the claimed job, or null if there is nothing to do
+   */
+  @WriteTransaction
+  public @Nullable ReevaluationJob claimJob(
+      Duration leaseTimeout, int maxAttempts, String ontologyVersion) {
+    final String failSql =
+        """
+        UPDATE reevaluation_job
+        SET status = :failed, error_message = :error_message, last_updated = CURRENT_TIMESTAMP
+        WHERE job_id IN (
+          SELECT job_id FROM reevaluation_job
+          WHERE status = :running AND attempts >= :max_attempts
+            AND last_updated < CURRENT_TIMESTAMP - make_interval(secs => :lease_seconds)
+          FOR UPDATE SKIP LOCKED)
+        """;
+
+    final String claimSql =
+        """
+        UPDATE reevaluation_job
+        SET status = :running, attempts = attempts + 1, last_updated = CURRENT_TIMESTAMP
+        WHERE job_id IN (
+          SELECT job_id FROM reevaluation_job
+          WHERE (ontology_version IS NULL OR ontology_version = :ontology_version)
+            AND (status = :queued
+              OR (status = :running AND attempts < :max_attempts
+                AND last_updated < CURRENT_TIMESTAMP - make_interval(secs => :lease_seconds)))
+          ORDER BY created
+          LIMIT 1
+          FOR UPDATE SKIP LOCKED)
+        RETURNING
+        """
+            + JOB_COLUMNS;
+
+    MapSqlParameterSource params =
+        new MapSqlParameterSource()
+            .addValue("running", PropagationJobStatus.RUNNING.getDbStatus())
+            .addValue("queued", PropagationJobStatus.QUEUED.getDbStatus())
+            .addValue("failed", PropagationJobStatus.FAILED.getDbStatus())
+            .addValue("error_message", "Lease expired on the last attempt")
+            .addValue("lease_seconds", leaseTimeout.toSeconds())
+            .addValue("max_attempts", maxAttempts)
+            .addValue("ontology_version", ontologyVersion);
+
+    int failed = tpsJdbcTemplate.update(failSql, params);
+    if (failed > 0) {
+      logger.warn("Failed {} reevaluation jobs whose lease expired on the last attempt", failed);
+    }
+    List<ReevaluationJob> jobs =
+        tpsJdbcTemplate.query(claimSql, params, REEVALUATION_JOB_ROW_MAPPER);
+    return jobs.isEmpty() ? null : jobs.get(0);
+  }
+
+  /**
+   * Record the progress of a running job and renew its lease.
+   *
+   * @param job the job as claimed
+   * @param progress progress to record
+   * @return false if another worker has claimed the job since
+   */
+  @WriteTransaction
+  public boolean checkpoint(ReevaluationJob job, ReevaluationProgress progress) {
+    final String sql =
+        """
+        UPDATE reevaluation_job
+        SET layer_count = :layer_count, completed_layers = :completed_layers,
+            evaluated_count = :evaluated_count, changed_count = :changed_count,
+            conflict_count = :conflict_count, skipped_count = :skipped_count,
+            last_updated = CURRENT_TIMESTAMP
+        WHERE job_id = :job_id AND attempts = :attempts AND status = :running
+        """;
+
+    MapSqlParameterSource params =
+        claimParams(job)
+            .addValue("layer_count", progress.layerCount())
+            .addValue("completed_layers", progress.completedLayers())
+            .addValue("evaluated_count", progress.evaluated())
+            .addValue("changed_count", progress.changed())
+            .addValue("conflict_count", progress.conflicts())
+            .addValue("skipped_count", progress.skipped());
+    return tpsJdbcTemplate.update(sql, params) == 1;
+  }
+
+  /**
+   * Renew the lease of a running job without recording progress.
+   *
+   * @return false if another worker has claimed the job since
+   */
+  @WriteTransaction
+  public boolean renewLease(ReevaluationJob job) {
+    final String sql =
+        """
+        UPDATE reevaluation_job SET last_updated = CURRENT_TIMESTAMP
+        WHERE job_id = :job_id AND attempts = :attempts AND status = :running
+        """;
+    return tpsJdbcTemplate.update(sql, claimParams(job)) == 1;
+  }
+
+  @WriteTransaction
+  public void completeJob(ReevaluationJob job) {
+    updateJob(job, PropagationJobStatus.SUCCEEDED, null);
+  }
+
+  /**
+   * Record a failed attempt. The job is either put back on the queue, to resume from its last
+   * checkpoint, or marked as failed for good.
+   */
+  @WriteTransaction
+  public void failJobAttempt(ReevaluationJob job, boolean retry, String errorMessage) {
+    PropagationJobStatus status = retry ? PropagationJobStatus.QUEUED : PropagationJobStatus.FAILED;
+    updateJob(job, status, errorMessage);
+  }
+
+  private void updateJob(
+      ReevaluationJob job, PropagationJobStatus status, @Nullable String errorMessage) {
+    final String sql =
+        """
+        UPDATE reevaluation_job
+        SET status = :status, error_message = :error_message, last_updated = CURRENT_TIMESTAMP
+        WHERE job_id = :job_id AND attempts = :attempts AND status = :running
+        """;
+
+    MapSqlParameterSource params =
+        claimParams(job)
+            .addValue("status", status.getDbStatus())
+            .addValue("error_message", errorMessage);
+    if (tpsJdbcTemplate.update(sql, params) == 1) {
+      logger.info("Reevaluation job {} is now {}", job.jobId(), status);
+    }
+  }
+
+  private static MapSqlParameterSource claimParams(ReevaluationJob job) {
+    return new MapSqlParameterSource()
+        .addValue("job_id", job.jobId())
+        .addValue("attempts", job.attempts())
+        .addValue("running", PropagationJobStatus.RUNNING.getDbStatus());
+  }
+}
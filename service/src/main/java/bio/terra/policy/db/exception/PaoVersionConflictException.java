@@ -0,0 +1,13 @@
+package bio.terra.policy.db.exception;
+
+import bio.terra.common.exception.ConflictException;
+
+/**
+ * Thrown when a PAO read during a graph walk was changed by another update before the walk results
+ * were written back. The update can be retried.
+ */
+public class PaoVersionConflictException extends ConflictException {
+  public PaoVersionConflictException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,206 @@
+package bio.terra.policy.service.changefeed;
+
+import bio.terra.policy.app.configuration.ChangeFeedConfiguration;
+import bio.terra.policy.common.MetricsUtils;
+import bio.terra.policy.common.exception.ChangeFeedPositionExpiredException;
+import bio.terra.policy.db.PaoChangeDao;
+import bio.terra.policy.service.changefeed.model.PaoChange;
+import bio.terra.policy.service.changefeed.model.PaoChangePage;
+import bio.terra.policy.service.changefeed.model.PaoChangePosition;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads of the PAO change feed, so that clients can keep their own copies of PAOs in step without
+ * polling each object. A read may wait for changes: a long poll. Waiting clients do not each query
+ * the database; one background poller per instance watches the end of the feed and wakes them when
+ * it moves. No database connection is held while a client waits.
+ *
+ * <p>The same background thread deletes changes older than the configured retention. A client whose
+ * position has been deleted gets {@link ChangeFeedPositionExpiredException}, and must re-read the
+ * PAOs it follows before it continues from the end of the feed.
+ */
+@Component
+public class ChangeFeedService {
+  private static final Logger logger = LoggerFactory.getLogger(ChangeFeedService.class);
+  private static final int PRUNE_BATCH_SIZE = 10000;
+
+  private final ChangeFeedConfiguration changeFeedConfiguration;
+  private final PaoChangeDao paoChangeDao;
+
+  // Waiting clients wait for the poller to see the end of the feed move
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition feedAdvanced = lock.newCondition();
+  private long advances; // guarded by lock
+  private int waiters; // guarded by lock
+  private @Nullable PaoChangePosition lastPosition; // used only by the poller thread
+  private ScheduledExecutorService executor;
+
+  @Autowired
+  public ChangeFeedService(
+      ChangeFeedConfiguration changeFeedConfiguration, PaoChangeDao paoChangeDao) {
+    this.changeFeedConfiguration = changeFeedConfiguration;
+    this.paoChangeDao = paoChangeDao;
+  }
+
+  /** Start the poller that wakes waiting clients, and the pruning of old changes. */
+  public synchronized void start() {
+    if (executor != null) {
+      return;
+    }
+    executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "tps-change-feed");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long pollMillis = changeFeedConfiguration.getPollInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    long pruneMillis = changeFeedConfiguration.getPruneInterval().toMillis();
+    executor.scheduleWithFixedDelay(this::prune, 0, pruneMillis, TimeUnit.MILLISECONDS);
+    logger.info(
+        "Started the change feed poller every {} ms, keeping changes for {}",
+        pollMillis,
+        changeFeedConfiguration.getRetention());
+  }
+
+  @PreDestroy
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Read changes from the feed. If there are none, wait up to the given time for some.
+   *
+   * @param position position of the last change read, or null to read from the start of the feed
+   * @param limit maximum number of changes to return
+   * @param wait how long to wait for changes if there are none
+   * @return changes and the position to read on from
+   * @throws ChangeFeedPositionExpiredException if the change at the position has been deleted
+   */
+  public PaoChangePage getChanges(@Nullable String position, int limit, Duration wait) {
+    PaoChangePosition after = (position == null) ? null : PaoChangePosition.parse(position);
+    if (after != null && !paoChangeDao.hasChange(after)) {
+      throw new ChangeFeedPositionExpiredException(
+          "Change feed position "
+              + position
+              + " is older than the feed retention; re-read the objects and continue from the end"
+              + " of the feed");
+    }
+
+    long deadline = System.nanoTime() + wait.toNanos();
+    while (true) {
+      long observedAdvances = getAdvances();
+      List<PaoChange> changes = paoChangeDao.getChanges(after, limit);
+      if (!changes.isEmpty()) {
+        MetricsUtils.incrementChangeFeedRead("changes");
+        return new PaoChangePage(changes, changes.get(changes.size() - 1).position());
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0 || !awaitAdvance(observedAdvances, remaining)) {
+        MetricsUtils.incrementChangeFeedRead("empty");
+        return new PaoChangePage(List.of(), after);
+      }
+    }
+  }
+
+  private long getAdvances() {
+    lock.lock();
+    try {
+      return advances;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Wait for the poller to see the end of the feed move.
+   *
+   * @return true if it moved; false on timeout, or if too many clients are already waiting
+   */
+  private boolean awaitAdvance(long observedAdvances, long timeoutNanos) {
+    lock.lock();
+    try {
+      if (waiters >= changeFeedConfiguration.getMaxWaiters()) {
+        return false;
+      }
+      waiters++;
+      try {
+        long remaining = timeoutNanos;
+        while (advances == observedAdvances && remaining > 0) {
+          remaining = feedAdvanced.awaitNanos(remaining);
+        }
+        return advances != observedAdvances;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      } finally {
+        waiters--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void poll() {
+    // Do not let an exception cancel the scheduled polls
+    try {
+      lock.lock();
+      try {
+        if (waiters == 0) {
+          return;
+        }
+      } finally {
+        lock.unlock();
+      }
+      PaoChangePosition position = paoChangeDao.getLastPosition();
+      if (!Objects.equals(position, lastPosition)) {
+        lastPosition = position;
+        lock.lock();
+        try {
+          advances++;
+          feedAdvanced.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    } catch (RuntimeException e) {
+      logger.error("Change feed poll failed", e);
+    }
+  }
+
+  private void prune() {
+    try {
+      Instant cutoff = Instant.now().minus(changeFeedConfiguration.getRetention());
+      long deleted = 0;
+      int batch;
+      do {
+        batch = paoChangeDao.deleteChangesBefore(cutoff, PRUNE_BATCH_SIZE);
+        deleted += batch;
+      } while (batch == PRUNE_BATCH_SIZE);
+      if (deleted > 0) {
+        logger.info("Deleted {} changes logged before {} from the change feed", deleted, cutoff);
+        MetricsUtils.incrementChangeFeedPruned(deleted);
+      }
+    } catch (RuntimeException e) {
+      logger.error("Change feed pruning failed", e);
+    }
+  }
+}
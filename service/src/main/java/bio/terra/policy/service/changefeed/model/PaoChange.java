@@ -0,0 +1,26 @@
+package bio.terra.policy.service.changefeed.model;
+
+import bio.terra.policy.service.pao.model.PaoComponent;
+import bio.terra.policy.service.pao.model.PaoObjectType;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One change in the change feed.
+ *
+ * @param position position of the change in the feed
+ * @param objectId changed PAO
+ * @param component component of the PAO
+ * @param objectType object type of the PAO
+ * @param changeType what happened to the PAO
+ * @param version version of the PAO after the change
+ * @param changed time of the change
+ */
+public record PaoChange(
+    PaoChangePosition position,
+    UUID objectId,
+    PaoComponent component,
+    PaoObjectType objectType,
+    PaoChangeType changeType,
+    long version,
+    Instant changed) {}
@@ -0,0 +1,13 @@
+package bio.terra.policy.service.changefeed.model;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * One read of the change feed.
+ *
+ * @param changes changes in feed order
+ * @param position position to read on from: that of the last change, or if there are none, the
+ *     position that was read from; null if the feed has been read from its start and is empty
+ */
+public record PaoChangePage(List<PaoChange> changes, @Nullable PaoChangePosition position) {}
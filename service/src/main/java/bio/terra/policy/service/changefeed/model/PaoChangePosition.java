@@ -0,0 +1,28 @@
+package bio.terra.policy.service.changefeed.model;
+
+import bio.terra.policy.common.exception.InvalidInputException;
+
+/**
+ * Position of a change in the change feed. The feed is ordered by the id of the transaction that
+ * wrote a change, then by its sequence number. Clients see the position as an opaque string.
+ *
+ * @param txid id of the transaction that wrote the change
+ * @param seq sequence number of the change
+ */
+public record PaoChangePosition(long txid, long seq) {
+  private static final String SEPARATOR = "_";
+
+  public static PaoChangePosition parse(String position) {
+    String[] parts = position.split(SEPARATOR, 2);
+    try {
+      return new PaoChangePosition(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+      throw new InvalidInputException("Invalid change feed position: " + position);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return txid + SEPARATOR + seq;
+  }
+}
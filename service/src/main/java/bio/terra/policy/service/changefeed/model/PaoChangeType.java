@@ -0,0 +1,39 @@
+package bio.terra.policy.service.changefeed.model;
+
+import bio.terra.policy.common.exception.InternalTpsErrorException;
+import bio.terra.policy.generated.model.ApiTpsPaoChangeType;
+import org.apache.commons.lang3.StringUtils;
+
+public enum PaoChangeType {
+  CREATED("created", ApiTpsPaoChangeType.CREATED),
+  UPDATED("updated", ApiTpsPaoChangeType.UPDATED),
+  DELETED("deleted", ApiTpsPaoChangeType.DELETED);
+
+  /** Change type string used in the database */
+  private final String dbChangeType;
+
+  /** Change type enum used in the API */
+  private final ApiTpsPaoChangeType apiChangeType;
+
+  PaoChangeType(String dbChangeType, ApiTpsPaoChangeType apiChangeType) {
+    this.dbChangeType = dbChangeType;
+    this.apiChangeType = apiChangeType;
+  }
+
+  public String getDbChangeType() {
+    return dbChangeType;
+  }
+
+  public ApiTpsPaoChangeType toApi() {
+    return apiChangeType;
+  }
+
+  public static PaoChangeType fromDb(String dbChangeType) {
+    for (PaoChangeType changeType : PaoChangeType.values()) {
+      if (StringUtils.equals(dbChangeType, changeType.getDbChangeType())) {
+        return changeType;
+      }
+    }
+    throw new InternalTpsErrorException("Invalid change type from database");
+  }
+}
@@ -1,28 +1,44 @@
 package bio.terra.policy.service.pao;
 
 import bio.terra.common.db.ReadTransaction;
-import bio.terra.common.db.WriteTransaction;
+import bio.terra.policy.app.configuration.ImpactConfiguration;
+import bio.terra.policy.common.PolicyTracer;
 import bio.terra.policy.common.exception.DirectConflictException;
 import bio.terra.policy.common.exception.IllegalCycleException;
 import bio.terra.policy.common.exception.InternalTpsErrorException;
 import bio.terra.policy.common.exception.InvalidInputException;
 import bio.terra.policy.common.model.PolicyInput;
 import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.common.model.PolicyName;
 import bio.terra.policy.db.PaoDao;
 import bio.terra.policy.service.pao.graph.ExplainWalker;
+import bio.terra.policy.service.pao.graph.ImpactWalker;
 import bio.terra.policy.service.pao.graph.Walker;
 import bio.terra.policy.service.pao.graph.model.ExplainGraph;
+import bio.terra.policy.service.pao.graph.model.ImpactAnalysis;
 import bio.terra.policy.service.pao.graph.model.PolicyConflict;
 import bio.terra.policy.service.pao.model.Pao;
 import bio.terra.policy.service.pao.model.PaoComponent;
+import bio.terra.policy.service.pao.model.PaoListFilter;
+import bio.terra.policy.service.pao.model.PaoListResult;
 import bio.terra.policy.service.pao.model.PaoObjectType;
+import bio.terra.policy.service.pao.model.PaoQueryResult;
 import bio.terra.policy.service.pao.model.PaoUpdateMode;
 import bio.terra.policy.service.policy.PolicyMutator;
 import bio.terra.policy.service.policy.model.PolicyUpdateResult;
+import bio.terra.policy.service.propagation.PropagationService;
+import bio.terra.policy.service.region.model.AllowedRegions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,16 +48,39 @@ import org.springframework.stereotype.Component;
  * The PAO Service does all processing of the Policy Attribute Objects. Those are the the objects
  * that represent policies on objects in other components of Terra. It manages the graph (DAG) of
  * objects that depend on the policies of other objects.
+ *
+ * <p>Updates walk the graph without holding a database transaction. The results are written in a
+ * short transaction that checks the versions of all PAOs the walk read. If another update got there
+ * first, the whole update - reads, walk, and write - is retried with a bounded, jittered backoff;
+ * see {@link RetryOnVersionConflict}.
  */
 @Component
 public class PaoService {
   private static final Logger logger = LoggerFactory.getLogger(PaoService.class);
 
+  // Separates the update time from the object id in a listing page token
+  private static final String LIST_PAGE_TOKEN_SEPARATOR = "_";
+
   private final PaoDao paoDao;
+  private final PropagationService propagationService;
+  private final WalkCache walkCache;
+  private final PolicyTracer tracer;
+  private final ImpactConfiguration impactConfiguration;
+  private final SingleFlight<PaoKey, Pao> paoLoads = new SingleFlight<>("get");
+  private final SingleFlight<ExplainKey, ExplainGraph> explainLoads = new SingleFlight<>("explain");
 
   @Autowired
-  public PaoService(PaoDao paoDao) {
+  public PaoService(
+      PaoDao paoDao,
+      PropagationService propagationService,
+      WalkCache walkCache,
+      PolicyTracer tracer,
+      ImpactConfiguration impactConfiguration) {
     this.paoDao = paoDao;
+    this.propagationService = propagationService;
+    this.walkCache = walkCache;
+    this.tracer = tracer;
+    this.impactConfiguration = impactConfiguration;
   }
 
   /**
@@ -72,20 +111,158 @@ public class PaoService {
 
   /**
    * Explain the source of each policy input in the effective attribute set of the object.
+   * Concurrent requests for the same object and depth share one walk.
    *
    * @param objectId UUID of the object
    * @param depth depth to traverse
    */
   public ExplainGraph explainPao(UUID objectId, int depth) {
     logger.info("Explain PAO id {} to depth {}", objectId, depth);
-    ExplainWalker walker = new ExplainWalker(paoDao, objectId, depth);
-    return walker.getExplainGraph();
+    return explainLoads.load(
+        new ExplainKey(objectId, depth),
+        () -> new ExplainWalker(paoDao, objectId, depth).getExplainGraph());
+  }
+
+  /**
+   * Get the version of a PAO without reading its attributes.
+   *
+   * @return the version, or null if there is no such PAO
+   */
+  public @Nullable Long getPaoVersion(UUID objectId, boolean includeDeleted) {
+    return paoDao.getPaoVersion(objectId, includeDeleted);
+  }
+
+  /**
+   * Get a stamp of every PAO an explain of the object to the given depth would read, without
+   * reading their attributes. The stamp changes whenever the explain result can change.
+   *
+   * @return the stamp, or null if there is no such PAO
+   */
+  public @Nullable String getExplainVersion(UUID objectId, int depth) {
+    Map<UUID, Long> versions = paoDao.getSourceClosureVersions(objectId, depth);
+    if (versions.isEmpty()) {
+      return null;
+    }
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (Map.Entry<UUID, Long> entry : new TreeMap<>(versions).entrySet()) {
+      hasher
+          .putLong(entry.getKey().getMostSignificantBits())
+          .putLong(entry.getKey().getLeastSignificantBits())
+          .putLong(entry.getValue());
+    }
+    return hasher.hash().toString();
   }
 
+  /**
+   * Get the cloud regions of a platform allowed by the effective attributes of a PAO, without
+   * loading the PAO.
+   */
+  public AllowedRegions getAllowedRegions(UUID objectId, String platform) {
+    return paoDao.getAllowedRegions(objectId, platform);
+  }
+
+  /**
+   * Batch form of {@link #getAllowedRegions(UUID, String)}.
+   *
+   * @return map of object id to map of platform to allowed regions; PAOs that do not exist are
+   *     omitted
+   */
+  public Map<UUID, Map<String, AllowedRegions>> getAllowedRegions(
+      List<UUID> objectIds, List<String> platforms) {
+    return paoDao.getAllowedRegions(objectIds, platforms);
+  }
+
+  /**
+   * Find the PAOs whose attributes hold a policy, a page at a time. The page token is the last
+   * object id of the previous page.
+   *
+   * <p>The policy name comes from the request, so it is looked up rather than interned: a name that
+   * has never been interned is held by no attribute set, and the query is skipped.
+   *
+   * @param namespace namespace of the policy to look for
+   * @param name name of the policy to look for
+   * @param key if not null, an additional data key the policy must hold
+   * @param value if not null, the value the key must hold; requires a key
+   * @param effective true to query the effective attributes, false for the attributes set directly
+   * @param pageToken next page token of the previous page, or null for the first page
+   * @param limit maximum number of ids to return
+   */
+  public PaoQueryResult queryPaos(
+      String namespace,
+      String name,
+      @Nullable String key,
+      @Nullable String value,
+      boolean effective,
+      @Nullable String pageToken,
+      int limit) {
+    if (key == null && value != null) {
+      throw new InvalidInputException("A policy data value requires a key");
+    }
+    UUID afterObjectId = null;
+    if (pageToken != null) {
+      try {
+        afterObjectId = UUID.fromString(pageToken);
+      } catch (IllegalArgumentException e) {
+        throw new InvalidInputException("Invalid page token: " + pageToken);
+      }
+    }
+
+    PolicyName policyName = PolicyName.find(namespace, name);
+    if (policyName == null) {
+      return new PaoQueryResult(List.of(), null);
+    }
+
+    // Read one extra id to learn whether there is another page
+    List<UUID> objectIds =
+        paoDao.queryPaoIds(policyName, key, value, effective, afterObjectId, limit + 1);
+    if (objectIds.size() <= limit) {
+      return new PaoQueryResult(objectIds, null);
+    }
+    List<UUID> page = objectIds.subList(0, limit);
+    return new PaoQueryResult(page, page.get(limit - 1).toString());
+  }
+
+  /**
+   * List the PAOs of a component and object type, a page at a time, in order of last update. The
+   * page token is the last update time and object id of the last PAO of the previous page.
+   *
+   * @param filter which PAOs to list
+   * @param pageToken next page token of the previous page, or null for the first page
+   * @param limit maximum number of PAOs to return
+   */
+  @ReadTransaction
+  public PaoListResult listPaos(PaoListFilter filter, @Nullable String pageToken, int limit) {
+    Instant afterLastUpdated = null;
+    UUID afterObjectId = null;
+    if (pageToken != null) {
+      String[] parts = pageToken.split(LIST_PAGE_TOKEN_SEPARATOR, 2);
+      try {
+        afterLastUpdated = Instant.parse(parts[0]);
+        afterObjectId = UUID.fromString(parts[1]);
+      } catch (DateTimeParseException | IllegalArgumentException | IndexOutOfBoundsException e) {
+        throw new InvalidInputException("Invalid page token: " + pageToken);
+      }
+    }
+
+    // Read one extra PAO to learn whether there is another page
+    List<Pao> paos = paoDao.listPaos(filter, afterLastUpdated, afterObjectId, limit + 1);
+    if (paos.size() <= limit) {
+      return new PaoListResult(paos, null);
+    }
+    List<Pao> page = paos.subList(0, limit);
+    Pao last = page.get(limit - 1);
+    return new PaoListResult(
+        page, last.getLastUpdated() + LIST_PAGE_TOKEN_SEPARATOR + last.getObjectId());
+  }
+
+  /**
+   * Get a PAO. Concurrent requests for the same PAO share one load, so the result may be shared
+   * with other callers and must not be modified.
+   */
   public Pao getPao(UUID objectId, boolean includeDeleted) {
     logger.info("Get PAO id {}", objectId);
-
-    return paoDao.getPao(objectId, includeDeleted);
+    return paoLoads.load(
+        new PaoKey(objectId, includeDeleted), () -> paoDao.getPao(objectId, includeDeleted));
   }
 
   public Pao getPao(UUID objectId) {
@@ -105,7 +282,7 @@ public class PaoService {
    * @param sourceObjectId id of the source object
    * @param updateMode link mode: fail on conflict or dry_run
    */
-  @WriteTransaction
+  @RetryOnVersionConflict
   public PolicyUpdateResult linkSourcePao(
       UUID objectId, UUID sourceObjectId, PaoUpdateMode updateMode) {
     if (updateMode == PaoUpdateMode.ENFORCE_CONFLICTS) {
@@ -124,7 +301,8 @@ public class PaoService {
 
     // Make sure adding this link to the target will not create a cycle;
     // that is, source cannot be one of our descendants.
-    Set<UUID> allDescendents = paoDao.getAllDependentIds(objectId);
+    Set<UUID> allDescendents =
+        tracer.inSpan("PaoService.checkCycle", () -> paoDao.getAllDependentIds(objectId));
     if (allDescendents.contains(sourceObjectId)) {
       throw new IllegalCycleException(
           String.format(
@@ -132,8 +310,9 @@ public class PaoService {
               sourceObjectId, objectId));
     }
 
-    // Evaluate the change, calculating new effective attribute sets and finding conflicts
-    Walker walker = new Walker(paoDao, targetPao, sourceObjectId);
+    // Evaluate the change, calculating new effective attribute sets and finding conflicts.
+    // A preceding DRY_RUN of the same link may have left the walk in the cache.
+    Walker walker = walkCache.walk(targetPao, sourceObjectId, updateMode);
     List<PolicyConflict> conflicts = walker.getNewConflicts();
 
     // If the mode is FAIL_ON_CONFLICT and there are no conflicts, apply the changes
@@ -142,7 +321,7 @@ public class PaoService {
       walker.applyChanges();
     }
 
-    return new PolicyUpdateResult(targetPao, conflicts, updateApplied);
+    return new PolicyUpdateResult(walker.getTargetPao(), conflicts, updateApplied);
   }
 
   /**
@@ -154,7 +333,7 @@ public class PaoService {
    * @param updateMode DRY_RUN or FAIL_ON_CONFLICT
    * @return result of the merge - destination PAO and any policy conflicts
    */
-  @WriteTransaction
+  @RetryOnVersionConflict
   public PolicyUpdateResult mergeFromPao(
       UUID sourceObjectId, UUID destinationObjectId, PaoUpdateMode updateMode) {
     if (updateMode == PaoUpdateMode.ENFORCE_CONFLICTS) {
@@ -183,7 +362,9 @@ public class PaoService {
     destinationPao.getSourceObjectIds().addAll(sourcePao.getSourceObjectIds());
 
     // Step 3: do the walk computing the new effective attributes for the destination
-    Walker walker = new Walker(paoDao, destinationPao, destinationObjectId);
+    Walker walker =
+        Walker.traced(
+            tracer, "Walker.merge", () -> new Walker(paoDao, destinationPao, destinationObjectId));
     conflicts = walker.getNewConflicts();
 
     // If the mode is FAIL_ON_CONFLICT and there are no conflicts, apply the changes
@@ -202,17 +383,36 @@ public class PaoService {
    * @param replacementAttributes policy inputs to overwrite
    * @param updateMode how to handle applying the changes
    */
-  @WriteTransaction
+  @RetryOnVersionConflict
   public PolicyUpdateResult replacePao(
       UUID targetPaoId, PolicyInputs replacementAttributes, PaoUpdateMode updateMode) {
+    return replacePao(targetPaoId, replacementAttributes, updateMode, false);
+  }
+
+  /**
+   * Update the attributes of a Pao and propagate changes, optionally in the background.
+   *
+   * @param targetPaoId the object to update
+   * @param replacementAttributes policy inputs to overwrite
+   * @param updateMode how to handle applying the changes
+   * @param asyncPropagation true to commit the target and queue propagation to its dependents
+   */
+  @RetryOnVersionConflict
+  public PolicyUpdateResult replacePao(
+      UUID targetPaoId,
+      PolicyInputs replacementAttributes,
+      PaoUpdateMode updateMode,
+      boolean asyncPropagation) {
     logger.info(
-        "ReplacePao: target {} attributes {} updateMode {}",
+        "ReplacePao: target {} attributes {} updateMode {} async {}",
         targetPaoId,
         replacementAttributes,
-        updateMode);
+        updateMode,
+        asyncPropagation);
+    validateAsyncPropagation(updateMode, asyncPropagation);
     validatePolicyInputs(replacementAttributes);
     Pao targetPao = paoDao.getPao(targetPaoId, false);
-    return updateAttributesWorker(replacementAttributes, targetPao, updateMode);
+    return updateAttributesWorker(replacementAttributes, targetPao, updateMode, asyncPropagation);
   }
 
   /**
@@ -223,21 +423,82 @@ public class PaoService {
    * @param removeAttributes policy inputs to remove
    * @param updateMode how to handle applying the changes
    */
-  @WriteTransaction
+  @RetryOnVersionConflict
   public PolicyUpdateResult updatePao(
       UUID targetPaoId,
       PolicyInputs addAttributes,
       PolicyInputs removeAttributes,
       PaoUpdateMode updateMode) {
+    return updatePao(targetPaoId, addAttributes, removeAttributes, updateMode, false);
+  }
+
+  /**
+   * Update the attributes of a Pao and propagate changes, optionally in the background.
+   *
+   * @param targetPaoId the object to update
+   * @param addAttributes policy inputs to add
+   * @param removeAttributes policy inputs to remove
+   * @param updateMode how to handle applying the changes
+   * @param asyncPropagation true to commit the target and queue propagation to its dependents
+   */
+  @RetryOnVersionConflict
+  public PolicyUpdateResult updatePao(
+      UUID targetPaoId,
+      PolicyInputs addAttributes,
+      PolicyInputs removeAttributes,
+      PaoUpdateMode updateMode,
+      boolean asyncPropagation) {
     logger.info(
-        "UpdatePao: target {} adds {} removes {} updateMode {}",
+        "UpdatePao: target {} adds {} removes {} updateMode {} async {}",
         targetPaoId,
         addAttributes,
         removeAttributes,
-        updateMode);
+        updateMode,
+        asyncPropagation);
+    validateAsyncPropagation(updateMode, asyncPropagation);
 
     Pao targetPao = paoDao.getPao(targetPaoId, false);
-    PolicyInputs attributesToUpdate = new PolicyInputs(targetPao.getAttributes());
+    PolicyInputs newAttributes = applyAttributeChanges(targetPao, addAttributes, removeAttributes);
+    return updateAttributesWorker(newAttributes, targetPao, updateMode, asyncPropagation);
+  }
+
+  /**
+   * Predict the effect of an update of the attributes of a Pao on its dependents, without walking
+   * the whole graph the way a DRY_RUN update does. The analysis reads a consistent snapshot.
+   *
+   * @param targetPaoId the object to update
+   * @param addAttributes policy inputs to add
+   * @param removeAttributes policy inputs to remove
+   * @param limit maximum number of impacted dependents to report
+   */
+  @ReadTransaction
+  public ImpactAnalysis analyzeImpact(
+      UUID targetPaoId, PolicyInputs addAttributes, PolicyInputs removeAttributes, int limit) {
+    logger.info(
+        "AnalyzeImpact: target {} adds {} removes {} limit {}",
+        targetPaoId,
+        addAttributes,
+        removeAttributes,
+        limit);
+    Pao targetPao = paoDao.getPao(targetPaoId, false);
+    targetPao.setAttributes(applyAttributeChanges(targetPao, addAttributes, removeAttributes));
+    Pao proposedPao = targetPao;
+    return tracer.inSpan(
+        "ImpactWalker.analyze",
+        () ->
+            new ImpactWalker(paoDao, proposedPao, limit, impactConfiguration.getMaxDependents())
+                .getAnalysis());
+  }
+
+  /**
+   * Compute the attributes of a Pao after removing and then adding policy inputs.
+   *
+   * @throws InvalidInputException if an added policy input is invalid
+   * @throws DirectConflictException if an added policy input conflicts with the Pao's own
+   */
+  private PolicyInputs applyAttributeChanges(
+      Pao targetPao, PolicyInputs addAttributes, PolicyInputs removeAttributes) {
+    PolicyInputs.Builder attributesToUpdate = targetPao.getAttributes().toBuilder();
 
     // We do the removes first, so we don't remove newly added things
     for (PolicyInput removePolicy : removeAttributes.getInputs().values()) {
@@ -272,18 +533,31 @@ public class PaoService {
       }
     }
 
-    return updateAttributesWorker(attributesToUpdate, targetPao, updateMode);
+    return attributesToUpdate.build();
   }
 
   // Common code to update new attributes to a targetPao
   // Used by both updatePao and replacePao
   private PolicyUpdateResult updateAttributesWorker(
-      PolicyInputs newAttributes, Pao targetPao, PaoUpdateMode updateMode) {
+      PolicyInputs newAttributes,
+      Pao targetPao,
+      PaoUpdateMode updateMode,
+      boolean asyncPropagation) {
     // Set the target PAO attributes to the newly computed attributes
     targetPao.setAttributes(newAttributes);
-
-    // Evaluate the change, calculating new effective attribute sets and finding conflicts
-    Walker walker = new Walker(paoDao, targetPao, targetPao.getObjectId());
+    Pao proposedPao = targetPao;
+
+    // Evaluate the change, calculating new effective attribute sets and finding conflicts.
+    // With async propagation, we only evaluate the target here. Otherwise, a preceding DRY_RUN
+    // of the same change may have left the walk in the cache.
+    Walker walker =
+        asyncPropagation
+            ? Walker.traced(
+                tracer,
+                "Walker.target",
+                () -> new Walker(paoDao, proposedPao, proposedPao.getObjectId(), false))
+            : walkCache.walk(targetPao, targetPao.getObjectId(), updateMode);
+    targetPao = walker.getTargetPao();
     List<PolicyConflict> conflicts = walker.getNewConflicts();
 
     if (updateMode == PaoUpdateMode.DRY_RUN
@@ -305,10 +579,24 @@ public class PaoService {
       }
     }
 
+    if (asyncPropagation) {
+      UUID jobId = propagationService.applyAndQueue(walker, targetPao.getObjectId());
+      return new PolicyUpdateResult(targetPao, conflicts, true, jobId);
+    }
+
     walker.applyChanges();
     return new PolicyUpdateResult(targetPao, conflicts, true);
   }
 
+  // Async propagation commits the target before its dependents are evaluated. That matches the
+  // semantics of ENFORCE_CONFLICTS; the other modes need the full walk before deciding to apply.
+  private void validateAsyncPropagation(PaoUpdateMode updateMode, boolean asyncPropagation) {
+    if (asyncPropagation && updateMode != PaoUpdateMode.ENFORCE_CONFLICTS) {
+      throw new InvalidInputException(
+          "Asynchronous propagation is only allowed with the ENFORCE_CONFLICT update mode");
+    }
+  }
+
   /**
    * This method does the first step of clone: merging the source attributes into the destination
    * attributes. There are never conflicts on the attribute set of objects - only on the effective
@@ -322,7 +610,7 @@ public class PaoService {
    */
   private List<PolicyConflict> mergeAttributes(Pao sourcePao, Pao destinationPao) {
     List<PolicyConflict> conflicts = new ArrayList<>();
-    PolicyInputs policyInputs = destinationPao.getAttributes();
+    PolicyInputs.Builder policyInputs = destinationPao.getAttributes().toBuilder();
 
     for (PolicyInput input : sourcePao.getAttributes().getInputs().values()) {
       PolicyInput destinationMatchedPolicy = policyInputs.lookupPolicy(input);
@@ -336,6 +624,7 @@ public class PaoService {
       }
     }
 
+    destinationPao.setAttributes(policyInputs.build());
     return conflicts;
   }
 
@@ -347,4 +636,8 @@ public class PaoService {
       }
     }
   }
+
+  private record PaoKey(UUID objectId, boolean includeDeleted) {}
+
+  private record ExplainKey(UUID objectId, int depth) {}
 }
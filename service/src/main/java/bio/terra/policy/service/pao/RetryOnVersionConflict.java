@@ -0,0 +1,27 @@
+package bio.terra.policy.service.pao;
+
+import bio.terra.policy.db.exception.PaoVersionConflictException;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+/**
+ * Retry a PAO update that lost an optimistic concurrency race, with a bounded, jittered backoff: up
+ * to 5 attempts, waiting from 50 ms doubling to at most 1 s.
+ *
+ * <p>The retry is applied by the Spring proxy, so it only wraps the method a caller invokes on the
+ * bean. A call from one method of the bean to another is not retried again. Each public overload
+ * that callers can invoke is annotated, and only the overload invoked retries.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Retryable(
+    retryFor = PaoVersionConflictException.class,
+    maxAttempts = 5,
+    backoff = @Backoff(delay = 50, maxDelay = 1000, multiplier = 2, random = true))
+public @interface RetryOnVersionConflict {}
@@ -0,0 +1,73 @@
+package bio.terra.policy.service.pao;
+
+import bio.terra.policy.common.MetricsUtils;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key. The first caller for a key runs the load on its own
+ * thread; callers that arrive while that load is in flight wait for it and share its result or its
+ * exception. Once the load finishes the key is forgotten, so the next caller starts a fresh load.
+ * Nothing is kept beyond the load itself: a longer-lived cache can sit in front of or behind this
+ * without either knowing about the other.
+ *
+ * <p>A caller that joins a load sees the state as of when that load started, which is at most one
+ * load earlier than its own request. That is no weaker than what it would get from a load of its
+ * own that raced with the same write. Shared results must not be modified by the callers.
+ *
+ * @param <K> key type; must define equality
+ * @param <V> result type
+ */
+class SingleFlight<K, V> {
+  private final String operation;
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * @param operation name of the operation, used to tag the coalesced request metric
+   */
+  SingleFlight(String operation) {
+    this.operation = operation;
+  }
+
+  V load(K key, Supplier<V> loader) {
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+    if (existing != null) {
+      MetricsUtils.incrementCoalescedRead(operation);
+      return join(existing);
+    }
+
+    try {
+      V result = loader.get();
+      inFlight.remove(key, flight);
+      flight.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      inFlight.remove(key, flight);
+      flight.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  int inFlightCount() {
+    return inFlight.size();
+  }
+
+  /** Wait for another caller's load, rethrowing its exception as-is. */
+  private static <V> V join(CompletableFuture<V> flight) {
+    try {
+      return flight.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package bio.terra.policy.service.pao;
+
+import bio.terra.policy.common.MetricsUtils;
+import bio.terra.policy.common.PolicyTracer;
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.db.PaoDao;
+import bio.terra.policy.service.pao.graph.Walker;
+import bio.terra.policy.service.pao.model.Pao;
+import bio.terra.policy.service.pao.model.PaoUpdateMode;
+import bio.terra.policy.service.region.RegionService;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of graph walks made by DRY_RUN updates. Clients typically make the same DRY_RUN request
+ * several times while a user edits, and then repeat it with FAIL_ON_CONFLICT. Rather than walking
+ * the graph each time, we keep the walker keyed by the proposed state of the target PAO.
+ *
+ * <p>A cached walk is only used if every PAO it read still has the version the walk saw. Every
+ * write to a PAO, including linking a new dependent to it, increments its version, so an unchanged
+ * set of versions means the walk would produce the same result. A walk that is used to apply a
+ * change is removed from the cache; the apply itself re-checks the versions under lock.
+ *
+ * <p>Walks also depend on the location ontology, through the region constraint combiner, so the key
+ * holds the ontology generation. A reload of the ontology makes every cached walk miss.
+ *
+ * <p>A walker holds every PAO it read, so walks vary in size by orders of magnitude. The cache is
+ * bounded by the total number of PAOs it holds rather than by the number of walks, and a walk too
+ * large to be worth keeping is not cached at all.
+ */
+@Component
+public class WalkCache {
+  private static final long MAX_CACHED_NODES = 200_000;
+  // Guava divides the weight bound among the cache segments, so a walk this large may still not
+  // fit in its segment; it would then be evicted right away
+  private static final int MAX_WALK_NODES = 10_000;
+  private static final Duration EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+
+  private final PaoDao paoDao;
+  private final PolicyTracer tracer;
+  private final RegionService regionService;
+  private final Cache<WalkKey, Walker> cache;
+
+  @Autowired
+  public WalkCache(PaoDao paoDao, PolicyTracer tracer, RegionService regionService) {
+    this.paoDao = paoDao;
+    this.tracer = tracer;
+    this.regionService = regionService;
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(MAX_CACHED_NODES)
+            .weigher((WalkKey key, Walker walker) -> walker.getNodeCount())
+            .expireAfterWrite(EXPIRE_AFTER_WRITE)
+            .build();
+  }
+
+  /**
+   * Get the walk for a proposed change, from the cache if we have a current one.
+   *
+   * @param proposedPao target Pao with the proposed modification
+   * @param changedPaoId object id of the change; see {@link Walker}
+   * @param updateMode DRY_RUN walks are cached; walks for other modes consume the cached entry
+   * @return walker holding the computed changes
+   */
+  public Walker walk(Pao proposedPao, UUID changedPaoId, PaoUpdateMode updateMode) {
+    WalkKey key = WalkKey.of(proposedPao, changedPaoId, regionService.getOntologyGeneration());
+    Walker cached =
+        (updateMode == PaoUpdateMode.DRY_RUN) ? cache.getIfPresent(key) : cache.asMap().remove(key);
+
+    if (cached != null && isCurrent(cached)) {
+      MetricsUtils.incrementWalkCacheHit();
+      return cached;
+    }
+    MetricsUtils.incrementWalkCacheMiss();
+
+    Walker walker =
+        Walker.traced(tracer, "Walker.walk", () -> new Walker(paoDao, proposedPao, changedPaoId));
+    if (updateMode == PaoUpdateMode.DRY_RUN && walker.getNodeCount() <= MAX_WALK_NODES) {
+      cache.put(key, walker);
+    }
+    return walker;
+  }
+
+  @VisibleForTesting
+  void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  private boolean isCurrent(Walker walker) {
+    Map<UUID, Long> readVersions = walker.getReadVersions();
+    return readVersions.equals(paoDao.getPaoVersions(readVersions.keySet()));
+  }
+
+  /**
+   * The cache key is the complete proposed state of the target: its attributes and its sources,
+   * plus the id of the change and the ontology generation. The attribute set is rendered in a
+   * canonical form, since the policy input classes do not define equality.
+   */
+  record WalkKey(
+      UUID objectId,
+      UUID changedPaoId,
+      long ontologyGeneration,
+      String attributes,
+      List<UUID> sourceIds) {
+    static WalkKey of(Pao proposedPao, UUID changedPaoId, long ontologyGeneration) {
+      return new WalkKey(
+          proposedPao.getObjectId(),
+          changedPaoId,
+          ontologyGeneration,
+          canonicalAttributes(proposedPao.getAttributes()),
+          proposedPao.getSourceObjectIds().stream().sorted().toList());
+    }
+
+    private static String canonicalAttributes(PolicyInputs attributes) {
+      StringJoiner joiner = new StringJoiner(";");
+      for (PolicyInput input : new TreeMap<>(attributes.getInputs()).values()) {
+        joiner.add(
+            input.getKey()
+                + input.getAdditionalData().entries()
+                + input.getConflicts().stream().sorted().toList());
+      }
+      return joiner.toString();
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package bio.terra.policy.service.pao.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Topological layers of the PAO graph, computed with Kahn's algorithm. Layer 0 holds the PAOs
+ * without sources; every other PAO is in the layer after its deepest source. The effective
+ * attributes of a PAO depend only on PAOs in earlier layers, so the PAOs of one layer can be
+ * evaluated in any order, or in parallel.
+ *
+ * <p>Sources that are not in the graph are ignored. PAOs on a cycle, and PAOs that depend on one,
+ * never get a layer; they are returned as unreachable.
+ *
+ * @param layers PAO ids by layer
+ * @param unreachable PAOs that are on or behind a cycle
+ */
+public record GraphLayers(List<List<UUID>> layers, Set<UUID> unreachable) {
+
+  /**
+   * @param sourcesById the sources of every PAO in the graph
+   */
+  public static GraphLayers of(Map<UUID, ? extends Collection<UUID>> sourcesById) {
+    Map<UUID, Integer> inDegree = new HashMap<>();
+    Map<UUID, List<UUID>> dependentsById = new HashMap<>();
+    List<UUID> firstLayer = new ArrayList<>();
+    sourcesById.forEach(
+        (objectId, sources) -> {
+          int degree = 0;
+          for (UUID sourceId : sources) {
+            if (sourcesById.containsKey(sourceId)) {
+              dependentsById.computeIfAbsent(sourceId, id -> new ArrayList<>()).add(objectId);
+              degree++;
+            }
+          }
+          if (degree == 0) {
+            firstLayer.add(objectId);
+          } else {
+            inDegree.put(objectId, degree);
+          }
+        });
+
+    List<List<UUID>> layers = new ArrayList<>();
+    List<UUID> layer = firstLayer;
+    while (!layer.isEmpty()) {
+      layers.add(layer);
+      List<UUID> nextLayer = new ArrayList<>();
+      for (UUID objectId : layer) {
+        for (UUID dependentId : dependentsById.getOrDefault(objectId, List.of())) {
+          if (inDegree.merge(dependentId, -1, Integer::sum) == 0) {
+            inDegree.remove(dependentId);
+            nextLayer.add(dependentId);
+          }
+        }
+      }
+      layer = nextLayer;
+    }
+    return new GraphLayers(layers, new HashSet<>(inDegree.keySet()));
+  }
+}
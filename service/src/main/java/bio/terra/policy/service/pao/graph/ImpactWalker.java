@@ -0,0 +1,245 @@
+package bio.terra.policy.service.pao.graph;
+
+import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.db.DbAttributeSetHash;
+import bio.terra.policy.db.DbPao;
+import bio.terra.policy.db.PaoDao;
+import bio.terra.policy.service.pao.graph.model.AttributeEvaluator;
+import bio.terra.policy.service.pao.graph.model.GraphAttribute;
+import bio.terra.policy.service.pao.graph.model.GraphAttributeSet;
+import bio.terra.policy.service.pao.graph.model.ImpactAnalysis;
+import bio.terra.policy.service.pao.graph.model.ImpactedPao;
+import bio.terra.policy.service.pao.graph.model.PolicyConflict;
+import bio.terra.policy.service.pao.model.Pao;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * Predict which dependents of a PAO a change to its attributes would affect, without making the
+ * change. Unlike {@link Walker}, which loads every dependent with its attributes and walks it
+ * depth-first, this walker reads only ids, sources, and set ids, a level of the graph per query:
+ *
+ * <ol>
+ *   <li>evaluate the target; if its effective attributes do not change, nothing else does
+ *   <li>find its dependents, one breadth-first level per query, up to a cap
+ *   <li>evaluate the dependents in topological order, skipping any whose sources are all unchanged
+ * </ol>
+ *
+ * Attribute sets are read by set id, once per walk. Dependents that share a policy share its sets,
+ * so a wide fan-out reads few of them. The evaluation stops once it has found its limit of impacted
+ * dependents.
+ *
+ * <p>The walker never writes. Run it in a read transaction for a consistent snapshot. If the cap on
+ * dependents is reached, dependents past the cap are not evaluated. A dependent that also reaches
+ * the target by a path through them may be evaluated with a stale source.
+ */
+public class ImpactWalker {
+  private static final int DEPENDENT_QUERY_BATCH = 1000;
+
+  private final PaoDao paoDao;
+  private final int limit;
+  private final int maxDependents;
+  // Rows of the PAOs the walk has read: the target, its dependents, and their sources
+  private final Map<UUID, DbPao> rows = new HashMap<>();
+  // Identities of those PAOs, for conflict reports; they hold no attributes
+  private final Map<UUID, Pao> paos = new HashMap<>();
+  private final Map<UUID, PolicyInputs> setContents = new HashMap<>();
+  // Computed effective attributes of the PAOs the change would modify
+  private final Map<UUID, GraphAttributeSet> changedSets = new HashMap<>();
+  private final AttributeEvaluator.Scratch scratch = new AttributeEvaluator.Scratch();
+  private final ImpactAnalysis analysis;
+
+  /**
+   * Constructing the walker performs the analysis.
+   *
+   * @param paoDao reference to the DAO so we can read policies
+   * @param proposedPao target PAO with the proposed change to its attributes
+   * @param limit maximum number of impacted dependents to report
+   * @param maxDependents maximum number of dependents to examine
+   */
+  public ImpactWalker(PaoDao paoDao, Pao proposedPao, int limit, int maxDependents) {
+    this.paoDao = paoDao;
+    this.limit = limit;
+    this.maxDependents = maxDependents;
+    this.analysis = analyze(proposedPao);
+  }
+
+  public ImpactAnalysis getAnalysis() {
+    return analysis;
+  }
+
+  private ImpactAnalysis analyze(Pao proposedPao) {
+    UUID targetId = proposedPao.getObjectId();
+    DbPao targetRow = paoDao.getDbPao(targetId, false);
+    rows.put(targetId, targetRow);
+    paos.put(targetId, proposedPao);
+    loadInputs(List.of(targetId));
+    EvaluatedPao target = evaluate(targetId, proposedPao.getAttributes(), targetId);
+    if (!target.changed()) {
+      return new ImpactAnalysis(0, List.of(), true);
+    }
+    changedSets.put(targetId, target.effective());
+
+    Set<UUID> dependents = new HashSet<>();
+    boolean complete = findDependents(targetId, dependents);
+
+    // The target is the root of the change; its own sources are not part of it
+    Map<UUID, Collection<UUID>> sourcesById = new HashMap<>();
+    sourcesById.put(targetId, List.of());
+    dependents.forEach(id -> sourcesById.put(id, rows.get(id).sources()));
+    List<List<UUID>> layers = GraphLayers.of(sourcesById).layers();
+
+    List<ImpactedPao> impacted = new ArrayList<>();
+    for (List<UUID> layer : layers.subList(1, layers.size())) {
+      // Only dependents with a changed source can change
+      List<UUID> candidates =
+          layer.stream()
+              .filter(id -> rows.get(id).sources().stream().anyMatch(changedSets::containsKey))
+              .toList();
+      loadInputs(candidates);
+      for (UUID objectId : candidates) {
+        DbPao row = rows.get(objectId);
+        UUID changedSourceId =
+            row.sources().stream().filter(changedSets::containsKey).findFirst().orElseThrow();
+        EvaluatedPao dependent =
+            evaluate(objectId, setContents.get(row.attributeSetId()), changedSourceId);
+        if (!dependent.changed()) {
+          continue;
+        }
+        changedSets.put(objectId, dependent.effective());
+        if (!row.deleted()) {
+          if (impacted.size() == limit) {
+            return new ImpactAnalysis(dependents.size(), impacted, false);
+          }
+          impacted.add(new ImpactedPao(paos.get(objectId), dependent.conflicts()));
+        }
+      }
+    }
+    return new ImpactAnalysis(dependents.size(), impacted, complete);
+  }
+
+  /**
+   * Find the dependents of the target, direct and indirect, a level per query.
+   *
+   * @return false if there are more than maxDependents and the search stopped
+   */
+  private boolean findDependents(UUID targetId, Set<UUID> dependents) {
+    Set<UUID> level = Set.of(targetId);
+    while (!level.isEmpty()) {
+      Set<UUID> nextLevel = new HashSet<>();
+      for (List<UUID> batch : Lists.partition(new ArrayList<>(level), DEPENDENT_QUERY_BATCH)) {
+        for (DbPao row : paoDao.getDependentDbPaos(batch)) {
+          UUID objectId = row.objectId();
+          if (objectId.equals(targetId) || dependents.contains(objectId)) {
+            continue;
+          }
+          if (dependents.size() == maxDependents) {
+            return false;
+          }
+          dependents.add(objectId);
+          addRow(row);
+          nextLevel.add(objectId);
+        }
+      }
+      level = nextLevel;
+    }
+    return true;
+  }
+
+  /**
+   * Read what evaluating some PAOs needs and the walk does not have yet: the rows of their sources,
+   * their own and stored effective sets, and the stored effective sets of their unchanged sources.
+   */
+  private void loadInputs(List<UUID> objectIds) {
+    Set<UUID> missingRows = new HashSet<>();
+    for (UUID objectId : objectIds) {
+      for (UUID sourceId : rows.get(objectId).sources()) {
+        if (!rows.containsKey(sourceId)) {
+          missingRows.add(sourceId);
+        }
+      }
+    }
+    paoDao.getDbPaos(missingRows).forEach(this::addRow);
+
+    Set<UUID> missingSets = new HashSet<>();
+    for (UUID objectId : objectIds) {
+      DbPao row = rows.get(objectId);
+      missingSets.add(row.attributeSetId());
+      missingSets.add(row.effectiveSetId());
+      for (UUID sourceId : row.sources()) {
+        DbPao source = rows.get(sourceId);
+        if (source != null && !changedSets.containsKey(sourceId)) {
+          missingSets.add(source.effectiveSetId());
+        }
+      }
+    }
+    missingSets.removeAll(setContents.keySet());
+    setContents.putAll(paoDao.getAttributeSets(missingSets));
+  }
+
+  private void addRow(DbPao row) {
+    rows.put(row.objectId(), row);
+    paos.putIfAbsent(
+        row.objectId(),
+        new Pao.Builder()
+            .setObjectId(row.objectId())
+            .setComponent(row.component())
+            .setObjectType(row.objectType())
+            .setDeleted(row.deleted())
+            .setVersion(row.version())
+            .build());
+  }
+
+  /** Evaluate a PAO from its attributes and the current or computed attributes of its sources. */
+  private EvaluatedPao evaluate(UUID objectId, PolicyInputs attributes, UUID changedPaoId) {
+    Pao pao = paos.get(objectId);
+    DbPao row = rows.get(objectId);
+    AttributeEvaluator evaluator = new AttributeEvaluator(pao, scratch);
+    evaluator.addAttributeSet(new GraphAttributeSet(pao, attributes));
+    for (UUID sourceId : row.sources()) {
+      GraphAttributeSet sourceSet = sourceEffectiveSet(sourceId);
+      if (sourceSet != null) {
+        evaluator.addAttributeSet(sourceSet);
+      }
+    }
+    GraphAttributeSet effective = evaluator.evaluate(changedPaoId);
+
+    List<PolicyConflict> conflicts = new ArrayList<>();
+    for (GraphAttribute attribute : effective.getAttributes()) {
+      for (UUID conflictId : attribute.getNewConflicts()) {
+        conflicts.add(
+            new PolicyConflict(
+                attribute.getContainingPao(),
+                paos.get(conflictId),
+                attribute.getPolicyInput().getPolicyName()));
+      }
+    }
+    boolean changed =
+        !conflicts.isEmpty()
+            || !DbAttributeSetHash.setIdOf(effective.makeAttributeSet())
+                .equals(DbAttributeSetHash.setIdOf(setContents.get(row.effectiveSetId())));
+    return new EvaluatedPao(effective, conflicts, changed);
+  }
+
+  private @Nullable GraphAttributeSet sourceEffectiveSet(UUID sourceId) {
+    GraphAttributeSet changed = changedSets.get(sourceId);
+    if (changed != null) {
+      return changed;
+    }
+    DbPao source = rows.get(sourceId);
+    return (source == null)
+        ? null
+        : new GraphAttributeSet(paos.get(sourceId), setContents.get(source.effectiveSetId()));
+  }
+
+  private record EvaluatedPao(
+      GraphAttributeSet effective, List<PolicyConflict> conflicts, boolean changed) {}
+}
@@ -1,5 +1,6 @@
 package bio.terra.policy.service.pao.graph;
 
+import bio.terra.policy.common.PolicyTracer;
 import bio.terra.policy.common.exception.InternalTpsErrorException;
 import bio.terra.policy.db.PaoDao;
 import bio.terra.policy.service.pao.graph.model.AttributeEvaluator;
@@ -8,12 +9,14 @@ import bio.terra.policy.service.pao.graph.model.GraphAttributeSet;
 import bio.terra.policy.service.pao.graph.model.GraphNode;
 import bio.terra.policy.service.pao.graph.model.PolicyConflict;
 import bio.terra.policy.service.pao.model.Pao;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
  * We make a Walker class each time we need to perform a graph walk. It encapsulates the entire
@@ -23,6 +26,13 @@ public class Walker {
   private final PaoDao paoDao;
   private final Map<UUID, GraphNode> paoMap;
   private final List<PolicyConflict> newConflicts;
+  private final boolean walkDependents;
+  // Shared by the evaluators of this walk; nodes are evaluated one at a time
+  private final AttributeEvaluator.Scratch evaluatorScratch = new AttributeEvaluator.Scratch();
+  private boolean propagationDeferred;
+  private Pao targetPao;
+  private int evaluationCount;
+  private long evaluationNanos;
 
   /**
    * Constructing the Walker object performs the graph walk. That computes new effective policies
@@ -35,28 +45,118 @@ public class Walker {
    *     be the id of the new source Pao. TODO: is this the best way to express the change?
    */
   public Walker(PaoDao paoDao, Pao pao, UUID changedPaoId) {
-    this.paoDao = paoDao;
-    this.paoMap = new HashMap<>();
-    this.newConflicts = new ArrayList<>();
+    this(paoDao, pao, changedPaoId, true);
+  }
+
+  /**
+   * Constructor that can stop the walk at the target Pao. That computes the new effective policies
+   * of the target only; the change to its dependents is left for {@link #propagateFrom}.
+   *
+   * @param paoDao reference to the DAO so we can read and possibly update policies
+   * @param pao with proposed modification
+   * @param changedPaoId object id of the change; see the other constructor
+   * @param walkDependents true to walk the whole dependent graph; false to stop at the target
+   */
+  public Walker(PaoDao paoDao, Pao pao, UUID changedPaoId, boolean walkDependents) {
+    this(paoDao, walkDependents);
 
     GraphNode targetNode = new GraphNode(pao, true);
+    targetPao = pao;
     paoMap.put(pao.getObjectId(), targetNode);
     walkNode(targetNode, changedPaoId);
     // Fill in the resulting effective attributes, so they can be returned in the update response
     targetNode.getPao().setEffectiveAttributes(targetNode.getEffectivePolicyAttributes());
   }
 
-  /** Apply the changes computed by the walker */
+  private Walker(PaoDao paoDao, boolean walkDependents) {
+    this.paoDao = paoDao;
+    this.paoMap = new HashMap<>();
+    this.newConflicts = new ArrayList<>();
+    this.walkDependents = walkDependents;
+  }
+
+  /**
+   * Walk the dependents of a Pao whose change has already been committed. This is the second half
+   * of an update made with walkDependents false.
+   *
+   * @param paoDao reference to the DAO so we can read and possibly update policies
+   * @param sourcePao the changed Pao, as stored in the database
+   * @return walker holding the computed changes to the dependents
+   */
+  public static Walker propagateFrom(PaoDao paoDao, Pao sourcePao) {
+    Walker walker = new Walker(paoDao, true);
+    GraphNode sourceNode = new GraphNode(sourcePao, false);
+    walker.targetPao = sourcePao;
+    walker.paoMap.put(sourcePao.getObjectId(), sourceNode);
+    walker.walkDependentsOf(sourceNode);
+    return walker;
+  }
+
+  /**
+   * Run a walk in a trace span that records how many PAOs it loaded and how its time was split
+   * between reading the graph and evaluating attributes.
+   *
+   * @param tracer tracer to make the span with
+   * @param spanName name of the span
+   * @param walk constructs the walker, which performs the walk
+   * @return the walker
+   */
+  public static Walker traced(PolicyTracer tracer, String spanName, Supplier<Walker> walk) {
+    return tracer.inSpan(
+        spanName,
+        () -> {
+          long start = System.nanoTime();
+          Walker walker = walk.get();
+          tracer.recordWalk(
+              walker.paoMap.size(),
+              walker.evaluationCount,
+              Duration.ofNanos(walker.evaluationNanos),
+              Duration.ofNanos(System.nanoTime() - start));
+          return walker;
+        });
+  }
+
+  /**
+   * Apply the changes computed by the walker. The DAO writes the modified nodes, but checks the
+   * versions of every node we read, so all of them are passed along.
+   *
+   * @throws bio.terra.policy.db.exception.PaoVersionConflictException if any Pao in the walk was
+   *     changed concurrently
+   */
   public void applyChanges() {
-    // Collect all of the changed graph nodes
-    List<GraphNode> changeList = new ArrayList<>();
-    for (GraphNode node : paoMap.values()) {
-      if (node.isModified()) {
-        changeList.add(node);
-      }
-    }
-    // Ask the DAO to update them
-    paoDao.updatePaos(changeList);
+    paoDao.updatePaos(new ArrayList<>(paoMap.values()));
+  }
+
+  /**
+   * @return true if the walk stopped at a changed target Pao whose dependents still need to be
+   *     walked
+   */
+  public boolean isPropagationDeferred() {
+    return propagationDeferred;
+  }
+
+  /**
+   * @return the Pao the walk started from, with its computed effective attributes
+   */
+  public Pao getTargetPao() {
+    return targetPao;
+  }
+
+  /**
+   * @return the version of each Pao read by the walk. If none of them has changed, the results of
+   *     the walk still hold.
+   */
+  public Map<UUID, Long> getReadVersions() {
+    Map<UUID, Long> versions = new HashMap<>();
+    paoMap.forEach((id, node) -> versions.put(id, node.getPao().getVersion()));
+    return versions;
+  }
+
+  /**
+   * @return number of Paos the walk read and holds
+   */
+  public int getNodeCount() {
+    return paoMap.size();
   }
 
   /**
@@ -79,13 +179,16 @@ public class Walker {
     makeSourcesList(inputNode);
 
     // Construct the evaluation structure for computing the effective of this node
-    AttributeEvaluator evaluator = new AttributeEvaluator(inputNode.getPao());
+    long evaluationStart = System.nanoTime();
+    AttributeEvaluator evaluator = new AttributeEvaluator(inputNode.getPao(), evaluatorScratch);
     evaluator.addAttributeSet(inputNode.getObjectAttributeSet());
     for (GraphNode source : inputNode.getSources()) {
       evaluator.addAttributeSet(source.getEffectiveAttributeSet());
     }
     GraphAttributeSet newEffectiveAttributes = evaluator.evaluate(changedPaoId);
     List<PolicyConflict> conflicts = gatherNewConflicts(newEffectiveAttributes);
+    evaluationCount++;
+    evaluationNanos += System.nanoTime() - evaluationStart;
 
     // If there is no change to the input effective attribute set and there are no new
     // conflicts, then we stop recursing. We won't cause a change to our dependents.
@@ -101,12 +204,22 @@ public class Walker {
     inputNode.setModified(true);
     newConflicts.addAll(conflicts);
 
-    // Recursively walk our dependents. We know that these dependents will
-    // refer to this changed node in recalculating their effective attribute set.
-    // When we recurse, this Pao is the one that changed
-    makeDependentsList(inputNode);
-    for (GraphNode dependent : inputNode.getDependents()) {
-      walkNode(dependent, inputNode.getPao().getObjectId());
+    if (!walkDependents) {
+      // Only the target is walked; its dependents, if any, are left to a later propagation.
+      makeDependentsList(inputNode);
+      propagationDeferred = !inputNode.getDependents().isEmpty();
+      return;
+    }
+    walkDependentsOf(inputNode);
+  }
+
+  // Recursively walk our dependents. We know that these dependents will
+  // refer to this changed node in recalculating their effective attribute set.
+  // When we recurse, this Pao is the one that changed
+  private void walkDependentsOf(GraphNode changedNode) {
+    makeDependentsList(changedNode);
+    for (GraphNode dependent : changedNode.getDependents()) {
+      walkNode(dependent, changedNode.getPao().getObjectId());
     }
   }
 
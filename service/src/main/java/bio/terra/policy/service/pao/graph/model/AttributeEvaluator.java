@@ -25,10 +25,26 @@ public class AttributeEvaluator {
   private static final Logger logger = LoggerFactory.getLogger(AttributeEvaluator.class);
   private final Map<String, List<GraphAttribute>> inputs;
   private final Pao containingPao; // The PAO we are evaluating
+  private final Scratch scratch;
 
   public AttributeEvaluator(Pao containingPao) {
+    this(containingPao, new Scratch());
+  }
+
+  public AttributeEvaluator(Pao containingPao, Scratch scratch) {
     this.inputs = new HashMap<>();
     this.containingPao = containingPao;
+    this.scratch = scratch;
+  }
+
+  /**
+   * Buffers used while evaluating a policy. An evaluation leaves them empty, so a walker, which
+   * evaluates one node at a time, can share one Scratch across all of its evaluators. Not thread
+   * safe.
+   */
+  public static class Scratch {
+    private final List<GraphAttribute> existingConflicts = new ArrayList<>();
+    private final List<GraphAttribute> deferred = new ArrayList<>();
   }
 
   public void addAttributeSet(GraphAttributeSet attributeSet) {
@@ -52,53 +68,37 @@ public class AttributeEvaluator {
     //  - does it have existing conflicts
     //  - does it have new conflicts
     //
-    // We processd in order:
+    // We process in order, keeping the list order within each class:
     // 1. unchanged, no existing conflicts, no new conflicts
     // 2. unchanged, existing conflicts, no new conflicts
-    // 3. unchanged, new conflicts (both existing cases are done)
-    // 4. changed items
+    // 3. changed items and items with new conflicts
     //
-    // We remove items from the list as they are combined in, so we don't have to filter
-    // them out.
+    // We make one pass over the list. Class 1 is combined as we go; classes 2 and 3 are held in
+    // the scratch buffers and combined after the pass.
 
     GraphAttribute newAttribute = null;
+    List<GraphAttribute> existingConflicts = scratch.existingConflicts;
+    List<GraphAttribute> deferred = scratch.deferred;
 
-    // Combo 1: unchanged, no existing conflicts, no new conflicts
-    List<GraphAttribute> remainingList1 = new ArrayList<>();
     for (GraphAttribute attribute : attributeList) {
-      if (attribute.isChanged(changedPaoId)
-          || attribute.hasNewConflict()
-          || attribute.hasExistingConflict()) {
-        remainingList1.add(attribute);
-      } else {
-        newAttribute = combineAttribute(newAttribute, attribute);
-      }
-    }
-
-    // Combo 2: unchanged, existing conflicts, no new conflicts
-    List<GraphAttribute> remainingList2 = new ArrayList<>();
-    for (GraphAttribute attribute : remainingList1) {
       if (attribute.isChanged(changedPaoId) || attribute.hasNewConflict()) {
-        remainingList2.add(attribute);
+        deferred.add(attribute);
+      } else if (attribute.hasExistingConflict()) {
+        existingConflicts.add(attribute);
       } else {
         newAttribute = combineAttribute(newAttribute, attribute);
       }
     }
 
-    // Combo 3: unchanged, new conflicts
-    List<GraphAttribute> remainingList3 = new ArrayList<>();
-    for (GraphAttribute attribute : remainingList2) {
-      if (attribute.isChanged(changedPaoId) || attribute.hasNewConflict()) {
-        remainingList3.add(attribute);
-      } else {
-        newAttribute = combineAttribute(newAttribute, attribute);
-      }
+    for (GraphAttribute attribute : existingConflicts) {
+      newAttribute = combineAttribute(newAttribute, attribute);
     }
-
-    for (GraphAttribute attribute : remainingList3) {
+    for (GraphAttribute attribute : deferred) {
       newAttribute = combineAttribute(newAttribute, attribute);
     }
 
+    existingConflicts.clear();
+    deferred.clear();
     return newAttribute;
   }
 
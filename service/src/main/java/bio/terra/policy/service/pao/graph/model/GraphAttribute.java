@@ -14,7 +14,8 @@ public class GraphAttribute {
 
   public GraphAttribute(Pao containingPao, PolicyInput policyInput) {
     this.containingPao = containingPao;
-    this.policyInput = policyInput.duplicate();
+    // PolicyInput is immutable, so the attribute can share it
+    this.policyInput = policyInput;
     reFoundConflicts = new HashSet<>();
     newConflicts = new HashSet<>();
   }
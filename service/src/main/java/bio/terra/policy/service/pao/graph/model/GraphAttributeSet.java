@@ -40,18 +40,13 @@ public class GraphAttributeSet {
    * @return new attribute set
    */
   public PolicyInputs makeAttributeSet() {
-    var inputs = new PolicyInputs();
+    var inputs = PolicyInputs.builder();
     for (GraphAttribute attribute : getAttributes()) {
       Set<UUID> combinedConflicts = new HashSet<>(attribute.getReFoundConflicts());
       combinedConflicts.addAll(attribute.getNewConflicts());
-      var input =
-          new PolicyInput(
-              attribute.getPolicyInput().getPolicyName(),
-              attribute.getPolicyInput().getAdditionalData(),
-              combinedConflicts);
-      inputs.addInput(input);
+      inputs.addInput(attribute.getPolicyInput().withConflicts(combinedConflicts));
     }
-    return inputs;
+    return inputs.build();
   }
 
   @Override
@@ -0,0 +1,13 @@
+package bio.terra.policy.service.pao.graph.model;
+
+import java.util.List;
+
+/**
+ * The predicted effect of a change to a PAO on its dependents.
+ *
+ * @param dependentCount number of dependents of the PAO, direct and indirect, that were examined
+ * @param impacted dependents whose effective attributes would change, in topological order
+ * @param complete false if the analysis stopped early, at its limit or at the cap on dependents;
+ *     the impacted list then holds only part of the impact
+ */
+public record ImpactAnalysis(int dependentCount, List<ImpactedPao> impacted, boolean complete) {}
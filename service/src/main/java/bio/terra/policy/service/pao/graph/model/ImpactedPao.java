@@ -0,0 +1,12 @@
+package bio.terra.policy.service.pao.graph.model;
+
+import bio.terra.policy.service.pao.model.Pao;
+import java.util.List;
+
+/**
+ * A dependent whose effective attributes a change would modify.
+ *
+ * @param pao the dependent; it identifies the PAO but holds no attributes
+ * @param conflicts the new policy conflicts the change would cause in the dependent
+ */
+public record ImpactedPao(Pao pao, List<PolicyConflict> conflicts) {}
@@ -8,7 +8,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 public class Pao {
   private final UUID objectId;
@@ -20,6 +19,7 @@ public class Pao {
   private boolean deleted;
   private Instant created;
   private Instant lastUpdated;
+  private final long version;
 
   public Pao(
       UUID objectId,
@@ -30,7 +30,8 @@ public class Pao {
       Set<UUID> sourceObjectIds,
       boolean deleted,
       Instant created,
-      Instant lastUpdated) {
+      Instant lastUpdated,
+      long version) {
     this.objectId = objectId;
     this.component = component;
     this.objectType = objectType;
@@ -40,6 +41,7 @@ public class Pao {
     this.deleted = deleted;
     this.created = created;
     this.lastUpdated = lastUpdated;
+    this.version = version;
   }
 
   public UUID getObjectId() {
@@ -90,6 +92,14 @@ public class Pao {
     return lastUpdated;
   }
 
+  /**
+   * The version of the PAO when it was read from the database. Updates of the PAO are only applied
+   * if the version in the database still matches.
+   */
+  public long getVersion() {
+    return version;
+  }
+
   public String toShortString() {
     return String.format("%s:%s (%s)", component, objectType, objectId);
   }
@@ -106,21 +116,22 @@ public class Pao {
         .add("deleted=" + deleted)
         .add("created=" + created)
         .add("lastUpdated=" + lastUpdated)
+        .add("version=" + version)
         .toString();
   }
 
-  public static Pao fromDb(DbPao dbPao, Map<String, PolicyInputs> attributeSetMap) {
+  public static Pao fromDb(DbPao dbPao, Map<UUID, PolicyInputs> attributeSetMap) {
     return new Pao.Builder()
         .setObjectId(dbPao.objectId())
         .setComponent(dbPao.component())
         .setObjectType(dbPao.objectType())
-        .setSourceObjectIds(
-            dbPao.sources().stream().map(UUID::fromString).collect(Collectors.toSet()))
+        .setSourceObjectIds(new HashSet<>(dbPao.sources()))
         .setAttributes(attributeSetMap.get(dbPao.attributeSetId()))
         .setEffectiveAttributes(attributeSetMap.get(dbPao.effectiveSetId()))
         .setDeleted(dbPao.deleted())
         .setCreated(dbPao.created())
         .setLastUpdated(dbPao.lastUpdated())
+        .setVersion(dbPao.version())
         .build();
   }
 
@@ -134,6 +145,7 @@ public class Pao {
     private boolean deleted;
     private Instant created;
     private Instant lastUpdated;
+    private long version;
 
     public Builder setObjectId(UUID objectId) {
       this.objectId = objectId;
@@ -180,6 +192,11 @@ public class Pao {
       return this;
     }
 
+    public Builder setVersion(long version) {
+      this.version = version;
+      return this;
+    }
+
     public Pao build() {
       if (sourceObjectIds == null) {
         sourceObjectIds = new HashSet<>();
@@ -193,7 +210,8 @@ public class Pao {
           sourceObjectIds,
           deleted,
           created,
-          lastUpdated);
+          lastUpdated,
+          version);
     }
   }
 }
@@ -0,0 +1,20 @@
+package bio.terra.policy.service.pao.model;
+
+import java.time.Instant;
+import javax.annotation.Nullable;
+
+/**
+ * Which PAOs to list.
+ *
+ * @param component component of the PAOs
+ * @param objectType object type of the PAOs
+ * @param includeDeleted true to list deleted PAOs as well
+ * @param updatedAfter if not null, only PAOs last updated at or after this time
+ * @param updatedBefore if not null, only PAOs last updated before this time
+ */
+public record PaoListFilter(
+    PaoComponent component,
+    PaoObjectType objectType,
+    boolean includeDeleted,
+    @Nullable Instant updatedAfter,
+    @Nullable Instant updatedBefore) {}
@@ -0,0 +1,12 @@
+package bio.terra.policy.service.pao.model;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * One page of a PAO listing.
+ *
+ * @param paos PAOs in order of last update, then object id
+ * @param nextPageToken token for the next page, or null if this is the last page
+ */
+public record PaoListResult(List<Pao> paos, @Nullable String nextPageToken) {}
@@ -0,0 +1,13 @@
+package bio.terra.policy.service.pao.model;
+
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * One page of the ids of PAOs that hold a policy.
+ *
+ * @param objectIds matching object ids, in order
+ * @param nextPageToken token for the next page, or null if this is the last page
+ */
+public record PaoQueryResult(List<UUID> objectIds, @Nullable String nextPageToken) {}
@@ -21,19 +21,13 @@ public enum KnownPolicy {
   }
 
   /**
-   * Given a policy name, see if it is a known policy. If so, return its PolicyBase. Otherwise,
-   * return null.
+   * Given a policy name, see if it is a registered policy. If so, return its PolicyBase. Otherwise,
+   * return empty. Registered policies include those added through {@link PolicyProvider}.
    *
    * @param policyName name of the policy we are looking for
-   * @return a policy object or null ifn ot a known policy
+   * @return a policy object or empty if not a registered policy
    */
   public static Optional<PolicyBase> findPolicyBaseByName(PolicyName policyName) {
-    for (KnownPolicy policyCombiner : values()) {
-      if (policyCombiner.getPolicy().getPolicyName().equals(policyName)) {
-        return Optional.of(policyCombiner.getPolicy());
-      }
-    }
-
-    return Optional.empty();
+    return PolicyRegistry.findRegisteredPolicy(policyName);
   }
 }
@@ -4,19 +4,14 @@ import static bio.terra.policy.common.model.Constants.TERRA_NAMESPACE;
 
 import bio.terra.policy.common.exception.InternalTpsErrorException;
 import bio.terra.policy.common.model.PolicyInput;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang3.StringUtils;
 
 /**
  * Static methods for mutating policies. In general, these methods locate the correct policy object
- * for doing the mutation and then call the method on that object. Known objects are found in
- * KnownPolicy enumeration. Unknown policies use the PolicyUnknown. Since mutators are specific to a
- * policy name, we keep the unknown mutators in a static map and reuse them.
+ * for doing the mutation and then call the method on that object. Policy objects are found in the
+ * {@link PolicyRegistry}; unknown policies use the PolicyUnknown.
  */
 public class PolicyMutator {
-  private static final Map<String, PolicyBase> unknownPolicyMap = new ConcurrentHashMap<>();
 
   /**
    * Combine two policy inputs. Return null if the inputs are in conflict.
@@ -56,17 +51,6 @@ public class PolicyMutator {
   }
 
   private static PolicyBase findPolicy(PolicyInput policyInput) {
-    Optional<PolicyBase> policyOptional =
-        KnownPolicy.findPolicyBaseByName(policyInput.getPolicyName());
-    return policyOptional.orElse(findOrCreateUnknownPolicy(policyInput));
-  }
-
-  private static PolicyBase findOrCreateUnknownPolicy(PolicyInput dependent) {
-    PolicyBase policy = unknownPolicyMap.get(dependent.getPolicyNameKey());
-    if (policy == null) {
-      policy = new PolicyUnknown(dependent.getPolicyName());
-      unknownPolicyMap.put(dependent.getKey(), policy);
-    }
-    return policy;
+    return PolicyRegistry.getPolicy(policyInput.getPolicyName());
   }
 }
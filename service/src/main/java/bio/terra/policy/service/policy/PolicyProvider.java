@@ -0,0 +1,17 @@
+package bio.terra.policy.service.policy;
+
+import java.util.Collection;
+
+/**
+ * Service provider interface for adding policy types without editing {@link KnownPolicy}. An
+ * implementation is registered by naming it in
+ * META-INF/services/bio.terra.policy.service.policy.PolicyProvider on the classpath, and must have
+ * a public no-argument constructor. The policies it provides are loaded once, when {@link
+ * PolicyRegistry} is first used.
+ */
+public interface PolicyProvider {
+  /**
+   * @return the policies to register; names must not collide with any other registered policy
+   */
+  Collection<PolicyBase> getPolicies();
+}
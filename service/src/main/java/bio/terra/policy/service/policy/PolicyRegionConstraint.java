@@ -14,7 +14,7 @@ import java.util.Set;
 public class PolicyRegionConstraint extends PolicyBase {
   private static final String DATA_KEY = "region-name";
 
-  private static final RegionService regionService = new RegionService();
+  private static final RegionService regionService = RegionService.getInstance();
 
   @Override
   public PolicyName getPolicyName() {
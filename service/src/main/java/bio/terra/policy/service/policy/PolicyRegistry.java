@@ -0,0 +1,90 @@
+package bio.terra.policy.service.policy;
+
+import bio.terra.policy.common.exception.InternalTpsErrorException;
+import bio.terra.policy.common.model.PolicyName;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * Registry of policy implementations. The registered policies are the {@link KnownPolicy} values
+ * plus any supplied through {@link PolicyProvider}. They are collected once into an array indexed
+ * by the interned id of the policy name, so dispatch is an array load rather than a scan of the
+ * enum.
+ *
+ * <p>Any other policy name is handled by a {@link PolicyUnknown}. Those are kept for interned
+ * names, whose number is that of the stored names. A name from request input that is not interned
+ * gets a new handler each time, so that input cannot grow the registry.
+ */
+public class PolicyRegistry {
+  // Indexed by PolicyName.getId(); null for names that are not registered
+  private static final PolicyBase[] registeredPolicies = loadPolicies();
+  private static final Map<PolicyName, PolicyBase> unknownPolicies = new ConcurrentHashMap<>();
+
+  private PolicyRegistry() {}
+
+  /**
+   * Find the policy implementation for a policy name
+   *
+   * @param policyName name of the policy
+   * @return the registered policy, or the unknown policy handler for the name
+   */
+  public static PolicyBase getPolicy(PolicyName policyName) {
+    PolicyBase policy = findRegistered(policyName);
+    if (policy != null) {
+      return policy;
+    }
+    if (!policyName.isInterned()) {
+      return new PolicyUnknown(policyName);
+    }
+    return unknownPolicies.computeIfAbsent(policyName, PolicyUnknown::new);
+  }
+
+  /**
+   * Find a registered policy implementation
+   *
+   * @param policyName name of the policy
+   * @return the policy, or empty if the name is not registered
+   */
+  public static Optional<PolicyBase> findRegisteredPolicy(PolicyName policyName) {
+    return Optional.ofNullable(findRegistered(policyName));
+  }
+
+  private static @Nullable PolicyBase findRegistered(PolicyName policyName) {
+    // Registered names are all interned, so a name that is not interned is not registered
+    int id = policyName.getId();
+    return (id >= 0 && id < registeredPolicies.length) ? registeredPolicies[id] : null;
+  }
+
+  private static PolicyBase[] loadPolicies() {
+    Map<PolicyName, PolicyBase> policies = new HashMap<>();
+    for (KnownPolicy knownPolicy : KnownPolicy.values()) {
+      register(policies, knownPolicy.getPolicy());
+    }
+    for (PolicyProvider provider : ServiceLoader.load(PolicyProvider.class)) {
+      for (PolicyBase policy : provider.getPolicies()) {
+        register(policies, policy);
+      }
+    }
+    PolicyBase[] byId = new PolicyBase[PolicyName.idLimit()];
+    for (PolicyBase policy : policies.values()) {
+      byId[policy.getPolicyName().getId()] = policy;
+    }
+    return byId;
+  }
+
+  private static void register(Map<PolicyName, PolicyBase> policies, PolicyBase policy) {
+    PolicyBase existing = policies.putIfAbsent(policy.getPolicyName(), policy);
+    if (existing != null) {
+      throw new InternalTpsErrorException(
+          "Policy %s is registered by both %s and %s"
+              .formatted(
+                  policy.getPolicyName(),
+                  existing.getClass().getName(),
+                  policy.getClass().getName()));
+    }
+  }
+}
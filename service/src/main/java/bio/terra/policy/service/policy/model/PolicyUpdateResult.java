@@ -3,6 +3,21 @@ package bio.terra.policy.service.policy.model;
 import bio.terra.policy.service.pao.graph.model.PolicyConflict;
 import bio.terra.policy.service.pao.model.Pao;
 import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nullable;
 
+/**
+ * Result of a policy update. The propagationJobId is set when the update was applied with
+ * asynchronous propagation and its dependents still need to be updated.
+ */
 public record PolicyUpdateResult(
-    Pao computedPao, List<PolicyConflict> conflicts, boolean updateApplied) {}
+    Pao computedPao,
+    List<PolicyConflict> conflicts,
+    boolean updateApplied,
+    @Nullable UUID propagationJobId) {
+
+  public PolicyUpdateResult(
+      Pao computedPao, List<PolicyConflict> conflicts, boolean updateApplied) {
+    this(computedPao, conflicts, updateApplied, null);
+  }
+}
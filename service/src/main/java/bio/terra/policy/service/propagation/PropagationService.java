@@ -0,0 +1,135 @@
+package bio.terra.policy.service.propagation;
+
+import bio.terra.common.db.WriteTransaction;
+import bio.terra.policy.common.PolicyTracer;
+import bio.terra.policy.common.model.PolicyName;
+import bio.terra.policy.db.DbPropagationConflict;
+import bio.terra.policy.db.DbPropagationJob;
+import bio.terra.policy.db.PaoDao;
+import bio.terra.policy.db.PropagationJobDao;
+import bio.terra.policy.service.pao.RetryOnVersionConflict;
+import bio.terra.policy.service.pao.graph.Walker;
+import bio.terra.policy.service.pao.graph.model.PolicyConflict;
+import bio.terra.policy.service.pao.model.Pao;
+import bio.terra.policy.service.propagation.model.PropagationJob;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Asynchronous propagation splits a policy update in two. The request walks and commits only the
+ * target PAO, and queues a job in the same transaction. A {@link PropagationWorker} later walks the
+ * dependents of the committed target and applies the results. Since the target is committed before
+ * its dependents are evaluated, this is only allowed with ENFORCE_CONFLICTS semantics.
+ */
+@Component
+public class PropagationService {
+  private static final Logger logger = LoggerFactory.getLogger(PropagationService.class);
+
+  private final PaoDao paoDao;
+  private final PropagationJobDao propagationJobDao;
+  private final PolicyTracer tracer;
+
+  @Autowired
+  public PropagationService(
+      PaoDao paoDao, PropagationJobDao propagationJobDao, PolicyTracer tracer) {
+    this.paoDao = paoDao;
+    this.propagationJobDao = propagationJobDao;
+    this.tracer = tracer;
+  }
+
+  /**
+   * Apply the changes of a walk that stopped at the target and, if the target change needs to be
+   * propagated, queue the propagation job. Both happen in one transaction, so a committed change is
+   * never left without its job.
+   *
+   * @param walker walker constructed with walkDependents false
+   * @param objectId the target of the walk
+   * @return id of the queued job; null if there is nothing to propagate
+   */
+  @WriteTransaction
+  public @Nullable UUID applyAndQueue(Walker walker, UUID objectId) {
+    walker.applyChanges();
+    if (!walker.isPropagationDeferred()) {
+      return null;
+    }
+    return propagationJobDao.createJob(objectId);
+  }
+
+  /**
+   * Walk the dependents of a committed PAO and apply the results, enforcing any conflicts.
+   *
+   * @param objectId the PAO whose change is propagated
+   * @return conflicts enforced on the dependents
+   */
+  @RetryOnVersionConflict
+  public List<PolicyConflict> propagate(UUID objectId) {
+    logger.info("Propagate change of PAO id {} to its dependents", objectId);
+    // The source may have been deleted since the job was queued. Its policies still apply.
+    Pao sourcePao = paoDao.getPao(objectId, true);
+    Walker walker =
+        Walker.traced(tracer, "Walker.propagate", () -> Walker.propagateFrom(paoDao, sourcePao));
+    walker.applyChanges();
+    return walker.getNewConflicts();
+  }
+
+  public void completeJobs(List<DbPropagationJob> jobs, List<PolicyConflict> conflicts) {
+    List<DbPropagationConflict> dbConflicts =
+        conflicts.stream()
+            .map(
+                c ->
+                    new DbPropagationConflict(
+                        c.pao().getObjectId(),
+                        c.conflictPao().getObjectId(),
+                        c.policyName().getNamespace(),
+                        c.policyName().getName()))
+            .toList();
+    for (DbPropagationJob job : jobs) {
+      propagationJobDao.completeJob(job, dbConflicts);
+    }
+  }
+
+  public PropagationJob getJob(UUID jobId) {
+    DbPropagationJob dbJob = propagationJobDao.getJob(jobId);
+
+    // Look up the PAOs referenced by the conflicts
+    Set<UUID> conflictPaoIds = new HashSet<>();
+    for (DbPropagationConflict conflict : dbJob.conflicts()) {
+      conflictPaoIds.add(conflict.objectId());
+      conflictPaoIds.add(conflict.conflictObjectId());
+    }
+    Map<UUID, Pao> paoMap =
+        paoDao.getPaos(new ArrayList<>(conflictPaoIds)).stream()
+            .collect(Collectors.toMap(Pao::getObjectId, Function.identity()));
+
+    List<PolicyConflict> conflicts =
+        dbJob.conflicts().stream()
+            .map(
+                c ->
+                    new PolicyConflict(
+                        paoMap.get(c.objectId()),
+                        paoMap.get(c.conflictObjectId()),
+                        PolicyName.of(c.namespace(), c.name())))
+            .toList();
+
+    return new PropagationJob(
+        dbJob.jobId(),
+        dbJob.objectId(),
+        dbJob.status(),
+        dbJob.attempts(),
+        conflicts,
+        dbJob.errorMessage(),
+        dbJob.created(),
+        dbJob.lastUpdated());
+  }
+}
@@ -0,0 +1,169 @@
+package bio.terra.policy.service.propagation;
+
+import bio.terra.policy.app.configuration.PropagationConfiguration;
+import bio.terra.policy.db.DbPropagationJob;
+import bio.terra.policy.db.PropagationJobDao;
+import bio.terra.policy.service.pao.graph.model.PolicyConflict;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Background worker that drains the propagation job queue. It claims a batch of jobs, runs them,
+ * and keeps going until the queue is empty; then it polls. Every TPS instance can run a worker.
+ * While a batch runs, a second thread renews the leases of its unfinished jobs, so a long walk does
+ * not let another worker reclaim them.
+ */
+@Component
+public class PropagationWorker {
+  private static final Logger logger = LoggerFactory.getLogger(PropagationWorker.class);
+
+  private final PropagationConfiguration propagationConfiguration;
+  private final PropagationJobDao propagationJobDao;
+  private final PropagationService propagationService;
+  private ScheduledExecutorService executor;
+
+  @Autowired
+  public PropagationWorker(
+      PropagationConfiguration propagationConfiguration,
+      PropagationJobDao propagationJobDao,
+      PropagationService propagationService) {
+    this.propagationConfiguration = propagationConfiguration;
+    this.propagationJobDao = propagationJobDao;
+    this.propagationService = propagationService;
+  }
+
+  /** Start polling the queue. Called once the database is ready. */
+  public synchronized void start() {
+    if (!propagationConfiguration.isWorkerEnabled() || executor != null) {
+      return;
+    }
+    long pollMillis = propagationConfiguration.getPollInterval().toMillis();
+    // One thread drains the queue, the other renews the leases of the batch being drained
+    executor =
+        Executors.newScheduledThreadPool(
+            2,
+            runnable -> {
+              Thread thread = new Thread(runnable, "tps-propagation-worker");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.scheduleWithFixedDelay(
+        this::drainQueue, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    logger.info("Started propagation worker polling every {} ms", pollMillis);
+  }
+
+  @PreDestroy
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  private void drainQueue() {
+    try {
+      while (processBatch() > 0) {
+        // Keep claiming batches until the queue is empty
+      }
+    } catch (Exception e) {
+      // Do not let an exception cancel the scheduled polling
+      logger.error("Propagation worker failed to process the queue", e);
+    }
+  }
+
+  /**
+   * Claim and run one batch of jobs.
+   *
+   * @return number of jobs claimed
+   */
+  public int processBatch() {
+    List<DbPropagationJob> jobs =
+        propagationJobDao.claimJobs(
+            propagationConfiguration.getBatchSize(),
+            propagationConfiguration.getLeaseTimeout(),
+            propagationConfiguration.getMaxAttempts());
+    if (jobs.isEmpty()) {
+      return 0;
+    }
+
+    // Jobs queued for the same PAO are all satisfied by one walk of its current state
+    Map<UUID, List<DbPropagationJob>> jobsByObject =
+        jobs.stream()
+            .collect(
+                Collectors.groupingBy(
+                    DbPropagationJob::objectId, LinkedHashMap::new, Collectors.toList()));
+    Set<DbPropagationJob> unfinished = ConcurrentHashMap.newKeySet();
+    unfinished.addAll(jobs);
+    ScheduledFuture<?> leaseRenewal = scheduleLeaseRenewal(unfinished);
+    try {
+      jobsByObject.forEach((objectId, objectJobs) -> runJobs(objectId, objectJobs, unfinished));
+    } finally {
+      if (leaseRenewal != null) {
+        leaseRenewal.cancel(false);
+      }
+    }
+    return jobs.size();
+  }
+
+  /**
+   * Renew the leases of the unfinished jobs of a batch at a third of the lease timeout, so a
+   * renewal can be late or fail once without losing the jobs. There is no renewal if the worker is
+   * not started; processBatch is then only called directly.
+   */
+  private synchronized @Nullable ScheduledFuture<?> scheduleLeaseRenewal(
+      Set<DbPropagationJob> unfinished) {
+    if (executor == null) {
+      return null;
+    }
+    long renewMillis = propagationConfiguration.getLeaseTimeout().toMillis() / 3;
+    return executor.scheduleWithFixedDelay(
+        () -> renewLeases(unfinished), renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void renewLeases(Set<DbPropagationJob> unfinished) {
+    try {
+      for (DbPropagationJob job : unfinished) {
+        if (!propagationJobDao.renewLease(job) && unfinished.remove(job)) {
+          logger.warn("Propagation job {} was claimed by another worker", job.jobId());
+        }
+      }
+    } catch (Exception e) {
+      // Do not let an exception cancel the renewal; the next one may succeed
+      logger.warn("Failed to renew the propagation job leases", e);
+    }
+  }
+
+  private void runJobs(
+      UUID objectId, List<DbPropagationJob> jobs, Set<DbPropagationJob> unfinished) {
+    List<PolicyConflict> conflicts;
+    try {
+      conflicts = propagationService.propagate(objectId);
+    } catch (Exception e) {
+      jobs.forEach(unfinished::remove);
+      logger.warn("Propagation of PAO id {} failed", objectId, e);
+      for (DbPropagationJob job : jobs) {
+        boolean retry = job.attempts() < propagationConfiguration.getMaxAttempts();
+        propagationJobDao.failJobAttempt(job, retry, e.getMessage());
+      }
+      return;
+    }
+    // Stop renewing first, so a renewal does not mistake the completed jobs for lost ones
+    jobs.forEach(unfinished::remove);
+    propagationService.completeJobs(jobs, conflicts);
+  }
+}
@@ -0,0 +1,18 @@
+package bio.terra.policy.service.propagation.model;
+
+import bio.terra.policy.service.pao.graph.model.PolicyConflict;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/** State of an asynchronous propagation of a PAO change to its dependents */
+public record PropagationJob(
+    UUID jobId,
+    UUID objectId,
+    PropagationJobStatus status,
+    int attempts,
+    List<PolicyConflict> conflicts,
+    @Nullable String errorMessage,
+    Instant created,
+    Instant lastUpdated) {}
@@ -0,0 +1,40 @@
+package bio.terra.policy.service.propagation.model;
+
+import bio.terra.policy.common.exception.InternalTpsErrorException;
+import bio.terra.policy.generated.model.ApiTpsPropagationJobStatus;
+import org.apache.commons.lang3.StringUtils;
+
+public enum PropagationJobStatus {
+  QUEUED("queued", ApiTpsPropagationJobStatus.QUEUED),
+  RUNNING("running", ApiTpsPropagationJobStatus.RUNNING),
+  SUCCEEDED("succeeded", ApiTpsPropagationJobStatus.SUCCEEDED),
+  FAILED("failed", ApiTpsPropagationJobStatus.FAILED);
+
+  /** Status string used in the database */
+  private final String dbStatus;
+
+  /** Status enum used in the API */
+  private final ApiTpsPropagationJobStatus apiStatus;
+
+  PropagationJobStatus(String dbStatus, ApiTpsPropagationJobStatus apiStatus) {
+    this.dbStatus = dbStatus;
+    this.apiStatus = apiStatus;
+  }
+
+  public String getDbStatus() {
+    return dbStatus;
+  }
+
+  public ApiTpsPropagationJobStatus toApi() {
+    return apiStatus;
+  }
+
+  public static PropagationJobStatus fromDb(String dbStatus) {
+    for (PropagationJobStatus status : PropagationJobStatus.values()) {
+      if (StringUtils.equals(dbStatus, status.getDbStatus())) {
+        return status;
+      }
+    }
+    throw new InternalTpsErrorException("Invalid propagation job status from database");
+  }
+}
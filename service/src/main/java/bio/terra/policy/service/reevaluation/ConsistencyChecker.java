@@ -0,0 +1,257 @@
+package bio.terra.policy.service.reevaluation;
+
+import bio.terra.policy.app.configuration.ConsistencyCheckConfiguration;
+import bio.terra.policy.common.MetricsUtils;
+import bio.terra.policy.common.exception.InternalTpsErrorException;
+import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.db.DbAttributeSetHash;
+import bio.terra.policy.db.PaoDao;
+import bio.terra.policy.service.pao.graph.GraphLayers;
+import bio.terra.policy.service.pao.graph.model.AttributeEvaluator;
+import bio.terra.policy.service.reevaluation.GraphSnapshot.GraphRow;
+import bio.terra.policy.service.reevaluation.model.ConsistencyReport;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Background check that every PAO's stored effective attributes are the combination of its own
+ * attributes and its sources' stored effective attributes. It reads a {@link GraphSnapshot} and
+ * checks the PAOs layer by layer in topological order on a small thread pool. It never writes;
+ * repairs are the job of {@link ReevaluationService}.
+ *
+ * <p>A rate limit on PAOs checked per second keeps the load on the database steady, so the check
+ * can run continuously next to request traffic. Since the snapshot is read over time, a PAO that
+ * changes during the check can look mismatched; each mismatch is confirmed by re-reading the
+ * versions of the PAO and its sources, and dropped if any of them moved.
+ */
+@Component
+public class ConsistencyChecker {
+  private static final Logger logger = LoggerFactory.getLogger(ConsistencyChecker.class);
+
+  private final ConsistencyCheckConfiguration consistencyCheckConfiguration;
+  private final PaoDao paoDao;
+  private final RateLimiter rateLimiter;
+  private volatile @Nullable ConsistencyReport lastReport;
+  private ScheduledExecutorService executor;
+
+  @Autowired
+  public ConsistencyChecker(
+      ConsistencyCheckConfiguration consistencyCheckConfiguration, PaoDao paoDao) {
+    this.consistencyCheckConfiguration = consistencyCheckConfiguration;
+    this.paoDao = paoDao;
+    this.rateLimiter = RateLimiter.create(consistencyCheckConfiguration.getPaosPerSecond());
+  }
+
+  /** Start checking in the background. Called once the database is ready. */
+  public synchronized void start() {
+    if (!consistencyCheckConfiguration.isEnabled() || executor != null) {
+      return;
+    }
+    long intervalMillis = consistencyCheckConfiguration.getInterval().toMillis();
+    executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "tps-consistency-check");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.scheduleWithFixedDelay(
+        this::checkInBackground, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    logger.info("Started consistency check every {} ms", intervalMillis);
+  }
+
+  @PreDestroy
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /** The report of the most recent check, or null if no check has finished. */
+  public @Nullable ConsistencyReport getLastReport() {
+    return lastReport;
+  }
+
+  private void checkInBackground() {
+    try {
+      check();
+    } catch (Exception e) {
+      // Do not let an exception cancel the scheduled checks
+      logger.error("Consistency check failed", e);
+    }
+  }
+
+  /** Check the whole graph once, at the configured rate. */
+  public ConsistencyReport check() {
+    Instant started = Instant.now();
+    GraphSnapshot graph =
+        GraphSnapshot.load(paoDao, consistencyCheckConfiguration.getReadPageSize());
+    GraphLayers graphLayers = graph.layers();
+    Set<UUID> dangling = graph.danglingSources();
+
+    Check check = new Check(graph);
+    ExecutorService pool =
+        Executors.newFixedThreadPool(
+            consistencyCheckConfiguration.getThreads(),
+            runnable -> {
+              Thread thread = new Thread(runnable, "tps-consistency-check-pool");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long checked = 0;
+    try {
+      // The checks are independent, so the layers are queued together and only read in order
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (List<UUID> layer : graphLayers.layers()) {
+        for (List<UUID> batch :
+            Lists.partition(layer, consistencyCheckConfiguration.getBatchSize())) {
+          futures.add(pool.submit(() -> check.checkBatch(batch)));
+        }
+      }
+      for (Future<Integer> future : futures) {
+        checked += getResult(future);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    ConsistencyReport report =
+        new ConsistencyReport(
+            started,
+            Instant.now(),
+            checked,
+            check.mismatches.size(),
+            graphLayers.unreachable().size(),
+            dangling.size(),
+            sample(check.mismatches),
+            sample(graphLayers.unreachable()),
+            sample(dangling));
+    MetricsUtils.incrementConsistencyProblems(report.cycleCount(), report.danglingCount());
+    if (report.isConsistent()) {
+      logger.info("Consistency check: {} PAOs checked, no problems", checked);
+    } else {
+      logger.error(
+          "Consistency check: {} PAOs checked; {} mismatched {}; {} on or behind a cycle {}; {}"
+              + " with dangling sources {}",
+          checked,
+          report.mismatchCount(),
+          report.mismatches(),
+          report.cycleCount(),
+          report.cycles(),
+          report.danglingCount(),
+          report.dangling());
+    }
+    lastReport = report;
+    return report;
+  }
+
+  private List<UUID> sample(Set<UUID> objectIds) {
+    return objectIds.stream()
+        .sorted()
+        .limit(consistencyCheckConfiguration.getMaxReportedIds())
+        .toList();
+  }
+
+  private static int getResult(Future<Integer> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InternalTpsErrorException("Consistency check interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new InternalTpsErrorException("Consistency check failed", e.getCause());
+    }
+  }
+
+  /** State shared by the batches of one check. */
+  private class Check {
+    private final GraphSnapshot graph;
+    private final Map<UUID, PolicyInputs> setContents = new ConcurrentHashMap<>();
+    // Content hash of each stored set; sets written before content addressing have random ids
+    private final Map<UUID, UUID> contentIds = new ConcurrentHashMap<>();
+    private final Set<UUID> mismatches = ConcurrentHashMap.newKeySet();
+
+    Check(GraphSnapshot graph) {
+      this.graph = graph;
+    }
+
+    int checkBatch(List<UUID> batch) {
+      rateLimiter.acquire(batch.size());
+      Set<UUID> needed = graph.setIdsFor(batch, this::storedSetId);
+      batch.forEach(objectId -> needed.add(storedSetId(objectId)));
+      needed.removeAll(setContents.keySet());
+      setContents.putAll(paoDao.getAttributeSets(needed));
+
+      AttributeEvaluator.Scratch scratch = new AttributeEvaluator.Scratch();
+      List<UUID> suspects = new ArrayList<>();
+      for (UUID objectId : batch) {
+        PolicyInputs expected = graph.evaluate(objectId, this::storedSetId, setContents, scratch);
+        UUID storedContentId =
+            contentIds.computeIfAbsent(
+                storedSetId(objectId), setId -> DbAttributeSetHash.setIdOf(setContents.get(setId)));
+        if (!DbAttributeSetHash.setIdOf(expected).equals(storedContentId)) {
+          suspects.add(objectId);
+        }
+      }
+      List<UUID> confirmed = confirm(suspects);
+      mismatches.addAll(confirmed);
+      MetricsUtils.incrementConsistencyCheck(batch.size(), confirmed.size());
+      return batch.size();
+    }
+
+    private UUID storedSetId(UUID objectId) {
+      return graph.row(objectId).effectiveSetId();
+    }
+
+    /** Keep the suspects whose PAO and sources are still at the versions the check read. */
+    private List<UUID> confirm(List<UUID> suspects) {
+      if (suspects.isEmpty()) {
+        return suspects;
+      }
+      Set<UUID> readIds = new HashSet<>(suspects);
+      for (UUID objectId : suspects) {
+        readIds.addAll(List.of(graph.row(objectId).sources()));
+      }
+      Map<UUID, Long> versions = paoDao.getPaoVersions(readIds);
+      return suspects.stream().filter(objectId -> unchanged(objectId, versions)).toList();
+    }
+
+    private boolean unchanged(UUID objectId, Map<UUID, Long> versions) {
+      GraphRow row = graph.row(objectId);
+      if (!Long.valueOf(row.version()).equals(versions.get(objectId))) {
+        return false;
+      }
+      for (UUID sourceId : row.sources()) {
+        GraphRow source = graph.row(sourceId);
+        if (source != null && !Long.valueOf(source.version()).equals(versions.get(sourceId))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package bio.terra.policy.service.reevaluation;
+
+import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.db.DbPao;
+import bio.terra.policy.db.PaoDao;
+import bio.terra.policy.service.pao.graph.GraphLayers;
+import bio.terra.policy.service.pao.graph.model.AttributeEvaluator;
+import bio.terra.policy.service.pao.graph.model.GraphAttributeSet;
+import bio.terra.policy.service.pao.model.Pao;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * The whole PAO graph as read at one time: ids, sources, versions, and set ids, but no attributes.
+ * It is read in pages ordered by object id, so reading it holds no long-running query. Deleted PAOs
+ * are included; their policies still apply to their dependents.
+ */
+class GraphSnapshot {
+  private final Map<UUID, GraphRow> rows;
+
+  private GraphSnapshot(Map<UUID, GraphRow> rows) {
+    this.rows = rows;
+  }
+
+  static GraphSnapshot load(PaoDao paoDao, int pageSize) {
+    Map<UUID, GraphRow> rows = new HashMap<>();
+    UUID afterObjectId = null;
+    while (true) {
+      List<DbPao> page = paoDao.getDbPaoPage(afterObjectId, pageSize);
+      for (DbPao dbPao : page) {
+        rows.put(
+            dbPao.objectId(),
+            new GraphRow(
+                dbPao.version(),
+                dbPao.sources().toArray(new UUID[0]),
+                dbPao.attributeSetId(),
+                dbPao.effectiveSetId()));
+      }
+      if (page.size() < pageSize) {
+        return new GraphSnapshot(rows);
+      }
+      afterObjectId = page.get(page.size() - 1).objectId();
+    }
+  }
+
+  int size() {
+    return rows.size();
+  }
+
+  GraphRow row(UUID objectId) {
+    return rows.get(objectId);
+  }
+
+  GraphLayers layers() {
+    Map<UUID, List<UUID>> sourcesById = new HashMap<>();
+    rows.forEach((objectId, row) -> sourcesById.put(objectId, Arrays.asList(row.sources())));
+    return GraphLayers.of(sourcesById);
+  }
+
+  /** PAOs that list a source that is not in the graph. */
+  Set<UUID> danglingSources() {
+    Set<UUID> dangling = new HashSet<>();
+    rows.forEach(
+        (objectId, row) -> {
+          for (UUID sourceId : row.sources()) {
+            if (!rows.containsKey(sourceId)) {
+              dangling.add(objectId);
+            }
+          }
+        });
+    return dangling;
+  }
+
+  /**
+   * The ids of the sets needed to evaluate some PAOs: their own sets and the effective sets of
+   * their sources.
+   */
+  Set<UUID> setIdsFor(Collection<UUID> objectIds, Function<UUID, UUID> effectiveSetIdOf) {
+    Set<UUID> setIds = new HashSet<>();
+    for (UUID objectId : objectIds) {
+      GraphRow row = rows.get(objectId);
+      setIds.add(row.attributeSetId());
+      for (UUID sourceId : row.sources()) {
+        if (rows.containsKey(sourceId)) {
+          setIds.add(effectiveSetIdOf.apply(sourceId));
+        }
+      }
+    }
+    return setIds;
+  }
+
+  /**
+   * Compute the effective attributes of a PAO from its own attributes and the effective attributes
+   * of its sources. Sources that are not in the graph are ignored.
+   *
+   * @param objectId PAO to evaluate
+   * @param effectiveSetIdOf effective set id to use for each source
+   * @param setContents contents of every set named by {@link #setIdsFor}
+   * @param scratch evaluator scratch space, reused across calls on one thread
+   */
+  PolicyInputs evaluate(
+      UUID objectId,
+      Function<UUID, UUID> effectiveSetIdOf,
+      Map<UUID, PolicyInputs> setContents,
+      AttributeEvaluator.Scratch scratch) {
+    GraphRow row = rows.get(objectId);
+    Pao pao = makePao(objectId, row);
+    AttributeEvaluator evaluator = new AttributeEvaluator(pao, scratch);
+    evaluator.addAttributeSet(new GraphAttributeSet(pao, setContents.get(row.attributeSetId())));
+    for (UUID sourceId : row.sources()) {
+      GraphRow source = rows.get(sourceId);
+      if (source != null) {
+        evaluator.addAttributeSet(
+            new GraphAttributeSet(
+                makePao(sourceId, source), setContents.get(effectiveSetIdOf.apply(sourceId))));
+      }
+    }
+    // Nothing is being changed, so no source is evaluated as the changed one
+    return evaluator.evaluate(null).makeAttributeSet();
+  }
+
+  /** The evaluator only needs the identity of the PAOs it combines attributes from. */
+  private static Pao makePao(UUID objectId, GraphRow row) {
+    return new Pao.Builder().setObjectId(objectId).setVersion(row.version()).build();
+  }
+
+  /** What the snapshot keeps of each PAO. */
+  record GraphRow(long version, UUID[] sources, UUID attributeSetId, UUID effectiveSetId) {}
+}
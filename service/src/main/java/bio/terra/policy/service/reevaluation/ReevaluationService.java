@@ -0,0 +1,296 @@
+package bio.terra.policy.service.reevaluation;
+
+import bio.terra.policy.app.configuration.ReevaluationConfiguration;
+import bio.terra.policy.common.MetricsUtils;
+import bio.terra.policy.common.exception.InternalTpsErrorException;
+import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.db.DbAttributeSetHash;
+import bio.terra.policy.db.DbEffectiveUpdate;
+import bio.terra.policy.db.PaoDao;
+import bio.terra.policy.db.ReevaluationJobDao;
+import bio.terra.policy.service.pao.graph.GraphLayers;
+import bio.terra.policy.service.pao.graph.model.AttributeEvaluator;
+import bio.terra.policy.service.reevaluation.GraphSnapshot.GraphRow;
+import bio.terra.policy.service.reevaluation.model.ReevaluationJob;
+import bio.terra.policy.service.reevaluation.model.ReevaluationProgress;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Full-graph re-evaluation recomputes the effective attributes of every PAO from scratch. It is for
+ * changes that make stored effective attributes wrong without touching any PAO, such as a change to
+ * the policy combiners or to locations.yml.
+ *
+ * <p>A job loads a {@link GraphSnapshot} of the whole graph, without attributes, and splits it into
+ * topological layers with {@link GraphLayers}. Each layer is evaluated in parallel batches; a batch
+ * reads the attribute sets it needs, evaluates its PAOs with {@link AttributeEvaluator}, and writes
+ * the PAOs whose effective set changed in one transaction. Since sets are content-addressed, a PAO
+ * is unchanged exactly when the id of its new effective set is the id it already has. After each
+ * layer the job checkpoints, so a job that is interrupted resumes at the layer it was on.
+ *
+ * <p>Attribute set contents are kept by set id for the length of the job. Sets are shared by
+ * content, so that is far fewer sets than PAOs.
+ */
+@Component
+public class ReevaluationService {
+  private static final Logger logger = LoggerFactory.getLogger(ReevaluationService.class);
+
+  private final ReevaluationConfiguration reevaluationConfiguration;
+  private final PaoDao paoDao;
+  private final ReevaluationJobDao reevaluationJobDao;
+
+  @Autowired
+  public ReevaluationService(
+      ReevaluationConfiguration reevaluationConfiguration,
+      PaoDao paoDao,
+      ReevaluationJobDao reevaluationJobDao) {
+    this.reevaluationConfiguration = reevaluationConfiguration;
+    this.paoDao = paoDao;
+    this.reevaluationJobDao = reevaluationJobDao;
+  }
+
+  /** Queue a re-evaluation of the whole graph. */
+  public ReevaluationJob startJob() {
+    UUID jobId = reevaluationJobDao.createJob(null);
+    return reevaluationJobDao.getJob(jobId);
+  }
+
+  /**
+   * Queue a re-evaluation of the whole graph under a new ontology, unless one is already queued.
+   * Only workers that have loaded the ontology run it.
+   *
+   * @param ontologyVersion version of the new ontology
+   * @return the job for the ontology version, new or existing
+   */
+  public ReevaluationJob startOntologyJob(String ontologyVersion) {
+    UUID jobId = reevaluationJobDao.createJob(ontologyVersion);
+    return reevaluationJobDao.getJob(jobId);
+  }
+
+  public ReevaluationJob getJob(UUID jobId) {
+    return reevaluationJobDao.getJob(jobId);
+  }
+
+  /**
+   * Run a claimed job from its last checkpoint to the end, unless another worker claims it first.
+   *
+   * @param job the job as claimed
+   * @return true if the job completed; false if its claim was lost
+   */
+  public boolean runJob(ReevaluationJob job) {
+    GraphSnapshot graph = GraphSnapshot.load(paoDao, reevaluationConfiguration.getReadPageSize());
+    GraphLayers graphLayers = graph.layers();
+    List<List<UUID>> layers = graphLayers.layers();
+    if (!graphLayers.unreachable().isEmpty()) {
+      logger.error(
+          "Reevaluation job {}: {} PAOs are on or behind a cycle and are skipped",
+          job.jobId(),
+          graphLayers.unreachable().size());
+    }
+
+    // A resumed job picks up the counts of its committed layers
+    ReevaluationProgress checkpoint = job.progress();
+    ReevaluationProgress progress =
+        (checkpoint.completedLayers() == 0)
+            ? ReevaluationProgress.start(layers.size())
+                .plusSkipped(graphLayers.unreachable().size())
+            : new ReevaluationProgress(
+                layers.size(),
+                checkpoint.completedLayers(),
+                checkpoint.evaluated(),
+                checkpoint.changed(),
+                checkpoint.conflicts(),
+                checkpoint.skipped());
+    logger.info(
+        "Reevaluation job {}: {} PAOs in {} layers, starting at layer {}",
+        job.jobId(),
+        graph.size(),
+        layers.size(),
+        progress.completedLayers());
+    if (!reevaluationJobDao.checkpoint(job, progress)) {
+      return false;
+    }
+
+    Evaluation evaluation = new Evaluation(job, graph);
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            reevaluationConfiguration.getThreads(),
+            runnable -> {
+              Thread thread = new Thread(runnable, "tps-reevaluation");
+              thread.setDaemon(true);
+              return thread;
+            });
+    try {
+      for (int layer = progress.completedLayers(); layer < layers.size(); layer++) {
+        List<Future<BatchResult>> futures = new ArrayList<>();
+        for (List<UUID> batch :
+            Lists.partition(layers.get(layer), reevaluationConfiguration.getWriteBatchSize())) {
+          futures.add(executor.submit(() -> evaluation.evaluateBatch(batch)));
+        }
+        BatchResult layerResult = BatchResult.EMPTY;
+        for (Future<BatchResult> future : futures) {
+          layerResult = layerResult.plus(getResult(future));
+        }
+        if (evaluation.claimLost.get()) {
+          return false;
+        }
+
+        progress =
+            progress.plusLayer(
+                layerResult.evaluated(),
+                layerResult.changed(),
+                layerResult.conflicts(),
+                layerResult.skipped());
+        MetricsUtils.incrementReevaluationLayer();
+        if (!reevaluationJobDao.checkpoint(job, progress)) {
+          return false;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    logger.info(
+        "Reevaluation job {} done: {} evaluated, {} changed, {} with conflicts, {} skipped",
+        job.jobId(),
+        progress.evaluated(),
+        progress.changed(),
+        progress.conflicts(),
+        progress.skipped());
+    return true;
+  }
+
+  private static BatchResult getResult(Future<BatchResult> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InternalTpsErrorException("Reevaluation interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new InternalTpsErrorException("Reevaluation failed", e.getCause());
+    }
+  }
+
+  private record BatchResult(long evaluated, long changed, long conflicts, long skipped) {
+    static final BatchResult EMPTY = new BatchResult(0, 0, 0, 0);
+
+    BatchResult plus(BatchResult other) {
+      return new BatchResult(
+          evaluated + other.evaluated,
+          changed + other.changed,
+          conflicts + other.conflicts,
+          skipped + other.skipped);
+    }
+  }
+
+  /** State shared by the batches of one run of a job. */
+  private class Evaluation {
+    private final ReevaluationJob job;
+    private final GraphSnapshot graph;
+    // Effective set ids computed so far; PAOs not yet evaluated keep their stored set
+    private final Map<UUID, UUID> computedSetIds = new ConcurrentHashMap<>();
+    private final Map<UUID, PolicyInputs> setContents = new ConcurrentHashMap<>();
+    // Versions of the PAOs this run has written; their dependents expect these versions
+    private final Map<UUID, Long> writtenVersions = new ConcurrentHashMap<>();
+    private final AtomicBoolean claimLost = new AtomicBoolean();
+
+    Evaluation(ReevaluationJob job, GraphSnapshot graph) {
+      this.job = job;
+      this.graph = graph;
+    }
+
+    BatchResult evaluateBatch(List<UUID> batch) {
+      if (claimLost.get()) {
+        return BatchResult.EMPTY;
+      }
+      loadSetContents(batch);
+
+      AttributeEvaluator.Scratch scratch = new AttributeEvaluator.Scratch();
+      List<DbEffectiveUpdate> updates = new ArrayList<>();
+      long conflicts = 0;
+      for (UUID objectId : batch) {
+        GraphRow row = graph.row(objectId);
+        PolicyInputs effective =
+            graph.evaluate(objectId, this::effectiveSetId, setContents, scratch);
+        UUID setId = DbAttributeSetHash.setIdOf(effective);
+        setContents.putIfAbsent(setId, effective);
+        computedSetIds.put(objectId, setId);
+
+        if (!setId.equals(row.effectiveSetId())) {
+          updates.add(
+              new DbEffectiveUpdate(
+                  objectId, row.version(), sourceVersions(row), row.effectiveSetId(), effective));
+          if (hasConflicts(effective)) {
+            conflicts++;
+          }
+        }
+      }
+
+      List<UUID> written = paoDao.updateEffectiveAttributes(updates);
+      for (UUID objectId : written) {
+        writtenVersions.put(objectId, graph.row(objectId).version() + 1);
+      }
+      // A skipped PAO keeps its stored set, so its dependents are evaluated from what is stored
+      Set<UUID> skipped = new HashSet<>();
+      updates.forEach(update -> skipped.add(update.objectId()));
+      written.forEach(skipped::remove);
+      skipped.forEach(computedSetIds::remove);
+      MetricsUtils.incrementReevaluation(batch.size(), written.size());
+      if (!reevaluationJobDao.renewLease(job)) {
+        logger.warn("Reevaluation job {} was claimed by another worker", job.jobId());
+        claimLost.set(true);
+      }
+      return new BatchResult(batch.size(), written.size(), conflicts, skipped.size());
+    }
+
+    /**
+     * The versions of its sources a PAO is evaluated from: the snapshot version, or the version
+     * this job wrote. Sources that are not in the graph are not evaluated from.
+     */
+    private Map<UUID, Long> sourceVersions(GraphRow row) {
+      Map<UUID, Long> versions = new HashMap<>();
+      for (UUID sourceId : row.sources()) {
+        GraphRow source = graph.row(sourceId);
+        if (source != null) {
+          versions.put(sourceId, writtenVersions.getOrDefault(sourceId, source.version()));
+        }
+      }
+      return versions;
+    }
+
+    private UUID effectiveSetId(UUID objectId) {
+      UUID computed = computedSetIds.get(objectId);
+      return (computed != null) ? computed : graph.row(objectId).effectiveSetId();
+    }
+
+    /** Read the sets a batch needs that no earlier batch has read or computed. */
+    private void loadSetContents(List<UUID> batch) {
+      Set<UUID> missing = graph.setIdsFor(batch, this::effectiveSetId);
+      missing.removeAll(setContents.keySet());
+      setContents.putAll(paoDao.getAttributeSets(missing));
+    }
+  }
+
+  private static boolean hasConflicts(PolicyInputs inputs) {
+    return inputs.getInputs().values().stream().anyMatch(input -> !input.getConflicts().isEmpty());
+  }
+}
@@ -0,0 +1,105 @@
+package bio.terra.policy.service.reevaluation;
+
+import bio.terra.policy.app.configuration.ReevaluationConfiguration;
+import bio.terra.policy.db.ReevaluationJobDao;
+import bio.terra.policy.service.reevaluation.model.ReevaluationJob;
+import bio.terra.policy.service.region.RegionService;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Background worker that runs full-graph re-evaluation jobs, one at a time. It also resumes jobs
+ * whose worker stopped checkpointing, so a job survives the instance running it. A job queued for
+ * an ontology version waits for a worker whose instance has loaded that version.
+ */
+@Component
+public class ReevaluationWorker {
+  private static final Logger logger = LoggerFactory.getLogger(ReevaluationWorker.class);
+
+  private final ReevaluationConfiguration reevaluationConfiguration;
+  private final ReevaluationJobDao reevaluationJobDao;
+  private final ReevaluationService reevaluationService;
+  private final RegionService regionService;
+  private ScheduledExecutorService executor;
+
+  @Autowired
+  public ReevaluationWorker(
+      ReevaluationConfiguration reevaluationConfiguration,
+      ReevaluationJobDao reevaluationJobDao,
+      ReevaluationService reevaluationService,
+      RegionService regionService) {
+    this.reevaluationConfiguration = reevaluationConfiguration;
+    this.reevaluationJobDao = reevaluationJobDao;
+    this.reevaluationService = reevaluationService;
+    this.regionService = regionService;
+  }
+
+  /** Start polling for jobs. Called once the database is ready. */
+  public synchronized void start() {
+    if (!reevaluationConfiguration.isWorkerEnabled() || executor != null) {
+      return;
+    }
+    long pollMillis = reevaluationConfiguration.getPollInterval().toMillis();
+    executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "tps-reevaluation-worker");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.scheduleWithFixedDelay(
+        this::drainQueue, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    logger.info("Started reevaluation worker polling every {} ms", pollMillis);
+  }
+
+  @PreDestroy
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  private void drainQueue() {
+    try {
+      while (processJob()) {
+        // Keep claiming jobs until there are none
+      }
+    } catch (Exception e) {
+      // Do not let an exception cancel the scheduled polling
+      logger.error("Reevaluation worker failed to process the queue", e);
+    }
+  }
+
+  /**
+   * Claim and run one job.
+   *
+   * @return true if a job was claimed
+   */
+  public boolean processJob() {
+    ReevaluationJob job =
+        reevaluationJobDao.claimJob(
+            reevaluationConfiguration.getLeaseTimeout(),
+            reevaluationConfiguration.getMaxAttempts(),
+            regionService.getOntologyVersion());
+    if (job == null) {
+      return false;
+    }
+    try {
+      if (reevaluationService.runJob(job)) {
+        reevaluationJobDao.completeJob(job);
+      }
+    } catch (Exception e) {
+      logger.warn("Reevaluation job {} failed", job.jobId(), e);
+      boolean retry = job.attempts() < reevaluationConfiguration.getMaxAttempts();
+      reevaluationJobDao.failJobAttempt(job, retry, e.getMessage());
+    }
+    return true;
+  }
+}
@@ -0,0 +1,36 @@
+package bio.terra.policy.service.reevaluation.model;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of one check of the stored effective attributes of every PAO. The id lists hold a bounded
+ * sample of the PAOs counted.
+ *
+ * @param started when the check started
+ * @param finished when the check finished
+ * @param checked PAOs whose effective attributes were checked
+ * @param mismatchCount PAOs whose stored effective attributes are not the combination of their own
+ *     attributes and their sources' effective attributes
+ * @param cycleCount PAOs that are on or behind a cycle, and so were not checked
+ * @param danglingCount PAOs that list a source that does not exist
+ * @param mismatches sample of the mismatched PAOs
+ * @param cycles sample of the PAOs on or behind a cycle
+ * @param dangling sample of the PAOs with a dangling source
+ */
+public record ConsistencyReport(
+    Instant started,
+    Instant finished,
+    long checked,
+    long mismatchCount,
+    long cycleCount,
+    long danglingCount,
+    List<UUID> mismatches,
+    List<UUID> cycles,
+    List<UUID> dangling) {
+
+  public boolean isConsistent() {
+    return mismatchCount == 0 && cycleCount == 0 && danglingCount == 0;
+  }
+}
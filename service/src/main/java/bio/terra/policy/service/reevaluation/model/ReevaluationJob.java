@@ -0,0 +1,21 @@
+package bio.terra.policy.service.reevaluation.model;
+
+import bio.terra.policy.service.propagation.model.PropagationJobStatus;
+import java.time.Instant;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * State of a full-graph re-evaluation of effective attributes. Jobs go through the same states as
+ * propagation jobs. A job queued by an ontology reload names the ontology version it is for; a job
+ * started by an admin does not.
+ */
+public record ReevaluationJob(
+    UUID jobId,
+    @Nullable String ontologyVersion,
+    PropagationJobStatus status,
+    int attempts,
+    ReevaluationProgress progress,
+    @Nullable String errorMessage,
+    Instant created,
+    Instant lastUpdated) {}
@@ -0,0 +1,43 @@
+package bio.terra.policy.service.reevaluation.model;
+
+import javax.annotation.Nullable;
+
+/**
+ * Progress of a full-graph re-evaluation, as of its last checkpoint.
+ *
+ * @param layerCount number of topological layers of the graph; null until the graph is loaded
+ * @param completedLayers layers whose changes are committed
+ * @param evaluated PAOs evaluated
+ * @param changed PAOs whose effective attributes were rewritten
+ * @param conflicts rewritten PAOs whose new effective attributes hold conflicts
+ * @param skipped PAOs left alone, because they are on a cycle or were changed concurrently
+ */
+public record ReevaluationProgress(
+    @Nullable Integer layerCount,
+    int completedLayers,
+    long evaluated,
+    long changed,
+    long conflicts,
+    long skipped) {
+
+  public static ReevaluationProgress start(int layerCount) {
+    return new ReevaluationProgress(layerCount, 0, 0, 0, 0, 0);
+  }
+
+  /** Progress after one more committed layer with the given counts. */
+  public ReevaluationProgress plusLayer(
+      long evaluated, long changed, long conflicts, long skipped) {
+    return new ReevaluationProgress(
+        layerCount,
+        completedLayers + 1,
+        this.evaluated + evaluated,
+        this.changed + changed,
+        this.conflicts + conflicts,
+        this.skipped + skipped);
+  }
+
+  public ReevaluationProgress plusSkipped(long skipped) {
+    return new ReevaluationProgress(
+        layerCount, completedLayers, evaluated, changed, conflicts, this.skipped + skipped);
+  }
+}
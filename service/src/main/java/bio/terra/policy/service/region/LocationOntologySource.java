@@ -0,0 +1,73 @@
+package bio.terra.policy.service.region;
+
+import bio.terra.policy.service.region.model.Location;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.Constructor;
+
+/**
+ * The location ontology as loaded from locations.yml, with the version that identifies the file it
+ * was loaded from.
+ */
+record LocationOntologySource(Location root, String ontologyVersion, int size) {
+  private static final Logger logger = LoggerFactory.getLogger(LocationOntologySource.class);
+  private static final String YAML_RESOURCE = "static/locations.yml";
+
+  static LocationOntologySource load() {
+    long startNanos = System.nanoTime();
+    byte[] yamlBytes = readResource(YAML_RESOURCE);
+    LocationOntologySource source = fromYaml(yamlBytes, ontologyVersionOf(yamlBytes));
+    logger.info(
+        "Loaded {} locations from {} in {} us",
+        source.size(),
+        YAML_RESOURCE,
+        (System.nanoTime() - startNanos) / 1000);
+    return source;
+  }
+
+  static LocationOntologySource fromYaml(byte[] yamlBytes, String ontologyVersion) {
+    Yaml locationYaml = new Yaml(new Constructor(Location.class, new LoaderOptions()));
+    Location root = locationYaml.load(new ByteArrayInputStream(yamlBytes));
+    return new LocationOntologySource(root, ontologyVersion, count(root));
+  }
+
+  static String ontologyVersionOf(byte[] yamlBytes) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(yamlBytes);
+      return HexFormat.of().formatHex(digest).substring(0, 16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static int count(Location location) {
+    int count = 1;
+    if (location.getLocations() != null) {
+      for (Location subLocation : location.getLocations()) {
+        count += count(subLocation);
+      }
+    }
+    return count;
+  }
+
+  private static byte[] readResource(String name) {
+    try (InputStream inputStream =
+        LocationOntologySource.class.getClassLoader().getResourceAsStream(name)) {
+      if (inputStream == null) {
+        throw new IllegalStateException("Missing resource " + name);
+      }
+      return inputStream.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read " + name, e);
+    }
+  }
+}
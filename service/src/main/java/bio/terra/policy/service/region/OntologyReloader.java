@@ -0,0 +1,115 @@
+package bio.terra.policy.service.region;
+
+import bio.terra.policy.app.configuration.OntologyConfiguration;
+import bio.terra.policy.common.MetricsUtils;
+import bio.terra.policy.service.reevaluation.ReevaluationService;
+import bio.terra.policy.service.reevaluation.model.ReevaluationJob;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Background worker that reloads the location ontology from a configured file when the file
+ * changes, so a new cloud region does not need a redeploy. The file is read once at startup, before
+ * the service takes requests, and then checked on an interval. A file that fails to read or parse
+ * is logged and skipped; the current ontology stays in place.
+ *
+ * <p>Each instance reloads on its own, so instances can briefly disagree on the ontology. Stored
+ * effective attributes are not changed by a reload; when configured, a change queues a full-graph
+ * re-evaluation to bring them up to date. The job is keyed by the new ontology version, so all the
+ * instances that see the change share one job, and only instances that have loaded the version run
+ * it. The load at startup does not queue one.
+ */
+@Component
+public class OntologyReloader {
+  private static final Logger logger = LoggerFactory.getLogger(OntologyReloader.class);
+
+  private final OntologyConfiguration ontologyConfiguration;
+  private final RegionService regionService;
+  private final ReevaluationService reevaluationService;
+  private ScheduledExecutorService executor;
+
+  @Autowired
+  public OntologyReloader(
+      OntologyConfiguration ontologyConfiguration,
+      RegionService regionService,
+      ReevaluationService reevaluationService) {
+    this.ontologyConfiguration = ontologyConfiguration;
+    this.regionService = regionService;
+    this.reevaluationService = reevaluationService;
+  }
+
+  /** Load the configured file and start checking it for changes. */
+  public synchronized void start() {
+    if (StringUtils.isBlank(ontologyConfiguration.getFile()) || executor != null) {
+      return;
+    }
+    reload(false);
+    long intervalMillis = ontologyConfiguration.getReloadInterval().toMillis();
+    executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "tps-ontology-reloader");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.scheduleWithFixedDelay(
+        () -> reload(true), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    logger.info(
+        "Started reloading the location ontology from {} every {} ms",
+        ontologyConfiguration.getFile(),
+        intervalMillis);
+  }
+
+  @PreDestroy
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Read the configured file and replace the ontology if the file changed.
+   *
+   * @param queueReevaluation whether a change may queue a re-evaluation, if configured
+   * @return true if the ontology changed
+   */
+  public boolean reload(boolean queueReevaluation) {
+    Path path = Path.of(ontologyConfiguration.getFile());
+    boolean changed;
+    try {
+      changed = regionService.reload(Files.readAllBytes(path));
+    } catch (IOException | RuntimeException e) {
+      // Do not let an exception cancel the scheduled reloads
+      logger.error(
+          "Failed to reload the location ontology from {}; keeping ontology {}",
+          path,
+          regionService.getOntologyVersion(),
+          e);
+      MetricsUtils.incrementOntologyReload("failed");
+      return false;
+    }
+    MetricsUtils.incrementOntologyReload(changed ? "reloaded" : "unchanged");
+
+    if (changed && queueReevaluation && ontologyConfiguration.isReevaluateOnChange()) {
+      ReevaluationJob job =
+          reevaluationService.startOntologyJob(regionService.getOntologyVersion());
+      logger.info(
+          "Reevaluation job {} is {} for location ontology {}",
+          job.jobId(),
+          job.status(),
+          job.ontologyVersion());
+    }
+    return changed;
+  }
+}
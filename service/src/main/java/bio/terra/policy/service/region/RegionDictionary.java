@@ -0,0 +1,72 @@
+package bio.terra.policy.service.region;
+
+import bio.terra.policy.service.region.model.Location;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Dense numbering of the cloud regions of each platform in the location ontology, so that a set of
+ * regions of one platform can be stored as a bitmask. Regions are numbered in sorted order; the
+ * numbering only changes when the ontology does.
+ */
+class RegionDictionary {
+  private final Map<String, List<String>> regionsByPlatform = new TreeMap<>();
+  private final Map<String, Map<String, Integer>> indexByPlatform = new HashMap<>();
+
+  RegionDictionary(Collection<Location> locations) {
+    Map<String, Set<String>> sortedRegions = new TreeMap<>();
+    for (Location location : locations) {
+      if (location.getCloudPlatform() != null && location.getCloudRegion() != null) {
+        sortedRegions
+            .computeIfAbsent(location.getCloudPlatform(), p -> new TreeSet<>())
+            .add(location.getCloudRegion());
+      }
+    }
+    sortedRegions.forEach(
+        (platform, regions) -> {
+          List<String> regionList = new ArrayList<>(regions);
+          Map<String, Integer> index = new HashMap<>();
+          for (int i = 0; i < regionList.size(); i++) {
+            index.put(regionList.get(i), i);
+          }
+          regionsByPlatform.put(platform, regionList);
+          indexByPlatform.put(platform, index);
+        });
+  }
+
+  Set<String> getPlatforms() {
+    return regionsByPlatform.keySet();
+  }
+
+  /** Encode regions of a platform. Regions the dictionary does not know are dropped. */
+  byte[] toMask(String platform, Collection<String> regions) {
+    Map<String, Integer> index = indexByPlatform.getOrDefault(platform, Map.of());
+    BitSet mask = new BitSet();
+    for (String region : regions) {
+      Integer bit = index.get(region);
+      if (bit != null) {
+        mask.set(bit);
+      }
+    }
+    return mask.toByteArray();
+  }
+
+  List<String> fromMask(String platform, byte[] mask) {
+    List<String> regionList = regionsByPlatform.getOrDefault(platform, List.of());
+    BitSet bits = BitSet.valueOf(mask);
+    List<String> regions = new ArrayList<>(bits.cardinality());
+    for (int bit = bits.nextSetBit(0);
+        bit >= 0 && bit < regionList.size();
+        bit = bits.nextSetBit(bit + 1)) {
+      regions.add(regionList.get(bit));
+    }
+    return regions;
+  }
+}
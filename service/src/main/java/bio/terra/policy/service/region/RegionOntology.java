@@ -0,0 +1,236 @@
+package bio.terra.policy.service.region;
+
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.service.pao.model.Pao;
+import bio.terra.policy.service.region.model.Location;
+import com.google.common.base.Strings;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * One version of the location ontology and the lookups over it. It is not changed once built, so a
+ * new version can be built while this one is in use; see {@link RegionService}.
+ */
+public class RegionOntology {
+  private static final String TERRA_REGION_CONSTRAINT = "terra:region-constraint";
+  private static final String TERRA_REGION_ATTRIBUTE_NAME = "region-name";
+  private static final String GLOBAL_LOCATION = "global";
+
+  // Map from location name to a list of the names of all sub-locations.
+  private final Map<String, Set<Location>> subLocationsWithinLocation;
+  // Object map from the location name to the location object.
+  private final Map<String, Location> locationsByName;
+  // Hash of the locations resource; changes when the ontology changes.
+  private final String ontologyVersion;
+  // Numbering of the cloud regions of each platform, for region bitmasks.
+  private final RegionDictionary regionDictionary;
+  // Count of ontologies loaded by this process before this one
+  private final long generation;
+
+  RegionOntology(LocationOntologySource source, long generation) {
+    this.ontologyVersion = source.ontologyVersion();
+    this.generation = generation;
+    this.subLocationsWithinLocation = new HashMap<>();
+    this.locationsByName = new HashMap<>();
+
+    constructLocationMapsRecursively(source.root());
+    this.regionDictionary = new RegionDictionary(locationsByName.values());
+  }
+
+  /** A stamp of the location ontology; it changes whenever the ontology does. */
+  public String getOntologyVersion() {
+    return ontologyVersion;
+  }
+
+  /** The number of ontologies loaded by this process before this one. */
+  public long getGeneration() {
+    return generation;
+  }
+
+  /** The number of locations in the ontology. */
+  public int size() {
+    return locationsByName.size();
+  }
+
+  /** Lists locations filtered by platform including the given location and all subLocations. */
+  @Nullable
+  public Set<Location> getLocationsForPlatform(String locationName, String platform) {
+    String queryLocation = Strings.isNullOrEmpty(locationName) ? GLOBAL_LOCATION : locationName;
+    var subLocationsIncludingSelf = getSubLocationsIncludingSelf(queryLocation);
+    if (subLocationsIncludingSelf == null) {
+      return null;
+    }
+    return filterLocationsByCloudPlatform(subLocationsIncludingSelf, platform);
+  }
+
+  @Nullable
+  private Set<Location> getSubLocationsIncludingSelf(String locationName) {
+    Location startingLocation = locationsByName.get(locationName);
+    if (startingLocation == null) {
+      return null;
+    }
+    Set<Location> locations = new HashSet<>();
+    locations.add(startingLocation);
+    locations.addAll(
+        Optional.ofNullable(subLocationsWithinLocation.get(locationName)).orElse(Set.of()));
+    return locations;
+  }
+
+  /**
+   * Gets the ontology starting from the indicated location. Rather than just returning the
+   * ontology, this will filter locations by the indicated platform.
+   */
+  @Nullable
+  public Location getOntology(String locationName, String platform) {
+    String queryLocation = Strings.isNullOrEmpty(locationName) ? GLOBAL_LOCATION : locationName;
+    Location location = locationsByName.get(queryLocation);
+
+    if (location == null) {
+      return null;
+    }
+
+    Location result = new Location();
+    result.setName(location.getName());
+    result.setDescription(location.getDescription());
+    result.setCloudRegion(location.getCloudRegion());
+    result.setCloudPlatform(location.getCloudPlatform());
+
+    var subLocations =
+        Optional.ofNullable(location.getLocations()).orElse(List.of()).stream()
+            .filter(l -> l.getCloudPlatform() == null || l.getCloudPlatform().equals(platform))
+            .map(l -> getOntology(l.getName(), platform))
+            .collect(Collectors.toList());
+    result.setLocations(subLocations);
+
+    return result;
+  }
+
+  @Nullable
+  public Location getLocation(String name) {
+    return locationsByName.get(name);
+  }
+
+  public Set<Location> getPolicyInputLocationsForPlatform(PolicyInputs inputs, String platform) {
+    List<String> locationNames = extractPolicyInputLocations(inputs);
+
+    if (locationNames.isEmpty()) {
+      locationNames.add(GLOBAL_LOCATION);
+    }
+
+    return locationNames.stream()
+        .flatMap(
+            locationName ->
+                filterLocationsByCloudPlatform(getSubLocationsIncludingSelf(locationName), platform)
+                    .stream())
+        .collect(Collectors.toSet());
+  }
+
+  /**
+   * @return the cloud platforms of the ontology
+   */
+  public Set<String> getPlatforms() {
+    return regionDictionary.getPlatforms();
+  }
+
+  /**
+   * @return true if the inputs hold a region constraint
+   */
+  public boolean hasRegionConstraint(PolicyInputs inputs) {
+    return !extractPolicyInputLocations(inputs).isEmpty();
+  }
+
+  /**
+   * Encode the cloud regions of a platform allowed by a set of policy inputs as a bitmask over the
+   * region dictionary. The mask is only meaningful with the same {@link #getOntologyVersion()}.
+   */
+  public byte[] getAllowedRegionMask(PolicyInputs inputs, String platform) {
+    Set<Location> locations = getPolicyInputLocationsForPlatform(inputs, platform);
+    return regionDictionary.toMask(
+        platform, locations.stream().map(Location::getCloudRegion).toList());
+  }
+
+  /** Decode a mask from {@link #getAllowedRegionMask}; the regions are in sorted order. */
+  public List<String> getRegionsFromMask(String platform, byte[] mask) {
+    return regionDictionary.fromMask(platform, mask);
+  }
+
+  public boolean isCloudRegionAllowedByPao(Pao pao, String region, String platform) {
+    List<String> locationNames = extractPolicyInputLocations(pao.getEffectiveAttributes());
+
+    if (locationNames.isEmpty()) {
+      // pao doesn't have a region constraint
+      return true;
+    }
+
+    return locationNames.stream().anyMatch(n -> locationContainsCloudRegion(n, region, platform));
+  }
+
+  public boolean isSubLocation(String parentLocationName, String subLocationName) {
+    Set<Location> subLocations = subLocationsWithinLocation.get(parentLocationName);
+    return subLocations != null
+        && subLocations.stream().anyMatch(l -> l.getName().equals(subLocationName));
+  }
+
+  public boolean locationContainsCloudRegion(
+      String locationName, String regionId, String platform) {
+    final Set<Location> locations = getSubLocationsIncludingSelf(locationName);
+    return locations != null
+        && locations.stream()
+            .anyMatch(
+                l -> regionId.equals(l.getCloudRegion()) && platform.equals(l.getCloudPlatform()));
+  }
+
+  private void constructLocationMapsRecursively(Location current) {
+    if (current == null) return;
+
+    if (locationsByName.put(current.getName(), current) != null) {
+      throw new IllegalArgumentException("Duplicate location name " + current.getName());
+    }
+    HashSet<Location> currentSubLocations = new HashSet<>();
+
+    var subLocations = current.getLocations();
+    // Similarly, if there are no subLocations defined in the .yml file, then this
+    // field will be null rather than an empty array.
+    if (subLocations != null) {
+      for (Location subLocation : current.getLocations()) {
+        constructLocationMapsRecursively(subLocation);
+        currentSubLocations.add(subLocation);
+        currentSubLocations.addAll(subLocationsWithinLocation.get(subLocation.getName()));
+      }
+    }
+
+    subLocationsWithinLocation.put(current.getName(), currentSubLocations);
+  }
+
+  private List<String> extractPolicyInputLocations(PolicyInputs policyInputs) {
+    List<String> result = new ArrayList<>();
+
+    if (policyInputs != null && policyInputs.getInputs() != null) {
+      Map<String, PolicyInput> inputs = policyInputs.getInputs();
+
+      for (var key : inputs.keySet()) {
+        if (key.equals(TERRA_REGION_CONSTRAINT)) {
+          PolicyInput input = inputs.get(key);
+          result.addAll(input.getData(TERRA_REGION_ATTRIBUTE_NAME));
+        }
+      }
+    }
+
+    return result;
+  }
+
+  private Set<Location> filterLocationsByCloudPlatform(Set<Location> locations, String platform) {
+    if (locations == null) return Set.of();
+    return locations.stream()
+        .filter(l -> platform.equals(l.getCloudPlatform()))
+        .collect(Collectors.toSet());
+  }
+}
@@ -1,77 +1,92 @@
 package bio.terra.policy.service.region;
 
-import bio.terra.policy.common.model.PolicyInput;
 import bio.terra.policy.common.model.PolicyInputs;
 import bio.terra.policy.service.pao.model.Pao;
 import bio.terra.policy.service.region.model.Location;
-import com.google.common.base.Strings;
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
-import org.yaml.snakeyaml.LoaderOptions;
-import org.yaml.snakeyaml.Yaml;
-import org.yaml.snakeyaml.constructor.Constructor;
 
-@Component
+/**
+ * Lookups over the location ontology. The ontology is a {@link RegionOntology}, which is immutable;
+ * a reload builds a new one to the side and publishes it with a single volatile write, so lookups
+ * never wait on a reload. Each lookup here reads the current ontology once. Callers that make
+ * several lookups that must agree, such as encoding a region mask and recording its ontology
+ * version, should take {@link #getCurrentOntology()} once and use it throughout.
+ */
 public class RegionService {
-  private static final String TERRA_REGION_CONSTRAINT = "terra:region-constraint";
-  private static final String TERRA_REGION_ATTRIBUTE_NAME = "region-name";
-  private static final String GLOBAL_LOCATION = "global";
-
   private static final Logger logger = LoggerFactory.getLogger(RegionService.class);
 
-  // Map from location name to a list of the names of all sub-locations.
-  private final Map<String, Set<Location>> subLocationsWithinLocation;
-  // Object map from the location name to the location object.
-  private final Map<String, Location> locationsByName;
+  private volatile RegionOntology ontology;
 
-  @Autowired
-  public RegionService() {
-    logger.info("Loading locations from locations.yml resource.");
-    Yaml locationYaml = new Yaml(new Constructor(Location.class, new LoaderOptions()));
-    InputStream inputStream =
-        this.getClass().getClassLoader().getResourceAsStream("static/locations.yml");
-    Location rootLocation = locationYaml.load(inputStream);
+  /**
+   * The one instance of the service. It is shared by Spring, which injects it, and by the region
+   * constraint policy, which is created outside of Spring; so the ontology is loaded once.
+   */
+  public static RegionService getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
 
-    this.subLocationsWithinLocation = new HashMap<>();
-    this.locationsByName = new HashMap<>();
+  private static class InstanceHolder {
+    private static final RegionService INSTANCE = new RegionService(LocationOntologySource.load());
+  }
 
-    constructLocationMapsRecursively(rootLocation);
+  private RegionService(LocationOntologySource source) {
+    this.ontology = new RegionOntology(source, 0);
   }
 
-  /** Lists locations filtered by platform including the given location and all subLocations. */
-  @Nullable
-  public Set<Location> getLocationsForPlatform(String locationName, String platform) {
-    String queryLocation = Strings.isNullOrEmpty(locationName) ? GLOBAL_LOCATION : locationName;
-    var subLocationsIncludingSelf = getSubLocationsIncludingSelf(queryLocation);
-    if (subLocationsIncludingSelf == null) {
-      return null;
+  /** The current ontology. It does not change under the caller; a reload replaces it. */
+  public RegionOntology getCurrentOntology() {
+    return ontology;
+  }
+
+  /**
+   * Replace the ontology with one parsed from locations YAML, unless the YAML is the one already
+   * loaded. The new ontology is built before it is published, so an invalid file leaves the current
+   * ontology in place.
+   *
+   * @param yamlBytes contents of a locations file
+   * @return true if the ontology changed
+   * @throws RuntimeException if the YAML does not parse or is not a valid ontology
+   */
+  public synchronized boolean reload(byte[] yamlBytes) {
+    RegionOntology current = ontology;
+    String ontologyVersion = LocationOntologySource.ontologyVersionOf(yamlBytes);
+    if (ontologyVersion.equals(current.getOntologyVersion())) {
+      return false;
     }
-    return filterLocationsByCloudPlatform(subLocationsIncludingSelf, platform);
+    RegionOntology next =
+        new RegionOntology(
+            LocationOntologySource.fromYaml(yamlBytes, ontologyVersion),
+            current.getGeneration() + 1);
+    ontology = next;
+    logger.info(
+        "Reloaded location ontology {} with {} locations, generation {}",
+        next.getOntologyVersion(),
+        next.size(),
+        next.getGeneration());
+    return true;
   }
 
+  /** A stamp of the location ontology; it changes whenever the ontology does. */
+  public String getOntologyVersion() {
+    return ontology.getOntologyVersion();
+  }
+
+  /**
+   * A counter of the ontologies this process has loaded. Caches of values derived from the ontology
+   * can hold the generation they were built from, and rebuild when it moves.
+   */
+  public long getOntologyGeneration() {
+    return ontology.getGeneration();
+  }
+
+  /** Lists locations filtered by platform including the given location and all subLocations. */
   @Nullable
-  private Set<Location> getSubLocationsIncludingSelf(String locationName) {
-    Location startingLocation = locationsByName.get(locationName);
-    if (startingLocation == null) {
-      return null;
-    }
-    Set<Location> locations = new HashSet<>();
-    locations.add(startingLocation);
-    locations.addAll(
-        Optional.ofNullable(subLocationsWithinLocation.get(locationName)).orElse(Set.of()));
-    return locations;
+  public Set<Location> getLocationsForPlatform(String locationName, String platform) {
+    return ontology.getLocationsForPlatform(locationName, platform);
   }
 
   /**
@@ -80,116 +95,55 @@ public class RegionService {
    */
   @Nullable
   public Location getOntology(String locationName, String platform) {
-    String queryLocation = Strings.isNullOrEmpty(locationName) ? GLOBAL_LOCATION : locationName;
-    Location location = locationsByName.get(queryLocation);
-
-    if (location == null) {
-      return null;
-    }
-
-    Location result = new Location();
-    result.setName(location.getName());
-    result.setDescription(location.getDescription());
-    result.setCloudRegion(location.getCloudRegion());
-    result.setCloudPlatform(location.getCloudPlatform());
-
-    var subLocations =
-        Optional.ofNullable(location.getLocations()).orElse(List.of()).stream()
-            .filter(l -> l.getCloudPlatform() == null || l.getCloudPlatform().equals(platform))
-            .map(l -> getOntology(l.getName(), platform))
-            .collect(Collectors.toList());
-    result.setLocations(subLocations);
-
-    return result;
+    return ontology.getOntology(locationName, platform);
   }
 
   @Nullable
   public Location getLocation(String name) {
-    return locationsByName.get(name);
+    return ontology.getLocation(name);
   }
 
   public Set<Location> getPolicyInputLocationsForPlatform(PolicyInputs inputs, String platform) {
-    List<String> locationNames = extractPolicyInputLocations(inputs);
+    return ontology.getPolicyInputLocationsForPlatform(inputs, platform);
+  }
 
-    if (locationNames.isEmpty()) {
-      locationNames.add(GLOBAL_LOCATION);
-    }
+  /**
+   * @return the cloud platforms of the ontology
+   */
+  public Set<String> getPlatforms() {
+    return ontology.getPlatforms();
+  }
 
-    return locationNames.stream()
-        .flatMap(
-            locationName ->
-                filterLocationsByCloudPlatform(getSubLocationsIncludingSelf(locationName), platform)
-                    .stream())
-        .collect(Collectors.toSet());
+  /**
+   * @return true if the inputs hold a region constraint
+   */
+  public boolean hasRegionConstraint(PolicyInputs inputs) {
+    return ontology.hasRegionConstraint(inputs);
   }
 
-  public boolean isCloudRegionAllowedByPao(Pao pao, String region, String platform) {
-    List<String> locationNames = extractPolicyInputLocations(pao.getEffectiveAttributes());
+  /**
+   * Encode the cloud regions of a platform allowed by a set of policy inputs as a bitmask over the
+   * region dictionary. The mask is only meaningful with the same {@link #getOntologyVersion()}.
+   */
+  public byte[] getAllowedRegionMask(PolicyInputs inputs, String platform) {
+    return ontology.getAllowedRegionMask(inputs, platform);
+  }
 
-    if (locationNames.isEmpty()) {
-      // pao doesn't have a region constraint
-      return true;
-    }
+  /** Decode a mask from {@link #getAllowedRegionMask}; the regions are in sorted order. */
+  public List<String> getRegionsFromMask(String platform, byte[] mask) {
+    return ontology.getRegionsFromMask(platform, mask);
+  }
 
-    return locationNames.stream().anyMatch(n -> locationContainsCloudRegion(n, region, platform));
+  public boolean isCloudRegionAllowedByPao(Pao pao, String region, String platform) {
+    return ontology.isCloudRegionAllowedByPao(pao, region, platform);
   }
 
   public boolean isSubLocation(String parentLocationName, String subLocationName) {
-    Set<Location> subLocations = subLocationsWithinLocation.get(parentLocationName);
-    return subLocations != null
-        && subLocations.stream().anyMatch(l -> l.getName().equals(subLocationName));
+    return ontology.isSubLocation(parentLocationName, subLocationName);
   }
 
   public boolean locationContainsCloudRegion(
       String locationName, String regionId, String platform) {
-    final Set<Location> locations = getSubLocationsIncludingSelf(locationName);
-    return locations != null
-        && locations.stream()
-            .anyMatch(
-                l -> regionId.equals(l.getCloudRegion()) && platform.equals(l.getCloudPlatform()));
-  }
-
-  private void constructLocationMapsRecursively(Location current) {
-    if (current == null) return;
-
-    locationsByName.put(current.getName(), current);
-    HashSet<Location> currentSubLocations = new HashSet<>();
-
-    var subLocations = current.getLocations();
-    // Similarly, if there are no subLocations defined in the .yml file, then this
-    // field will be null rather than an empty array.
-    if (subLocations != null) {
-      for (Location subLocation : current.getLocations()) {
-        constructLocationMapsRecursively(subLocation);
-        currentSubLocations.add(subLocation);
-        currentSubLocations.addAll(subLocationsWithinLocation.get(subLocation.getName()));
-      }
-    }
-
-    subLocationsWithinLocation.put(current.getName(), currentSubLocations);
-  }
-
-  private List<String> extractPolicyInputLocations(PolicyInputs policyInputs) {
-    List<String> result = new ArrayList<>();
-
-    if (policyInputs != null && policyInputs.getInputs() != null) {
-      Map<String, PolicyInput> inputs = policyInputs.getInputs();
-
-      for (var key : inputs.keySet()) {
-        if (key.equals(TERRA_REGION_CONSTRAINT)) {
-          PolicyInput input = inputs.get(key);
-          result.addAll(input.getData(TERRA_REGION_ATTRIBUTE_NAME));
-        }
-      }
-    }
-
-    return result;
-  }
-
-  private Set<Location> filterLocationsByCloudPlatform(Set<Location> locations, String platform) {
-    if (locations == null) return Set.of();
-    return locations.stream()
-        .filter(l -> platform.equals(l.getCloudPlatform()))
-        .collect(Collectors.toSet());
+    return ontology.locationContainsCloudRegion(locationName, regionId, platform);
   }
 }
@@ -0,0 +1,17 @@
+package bio.terra.policy.service.region.model;
+
+import java.util.List;
+
+/**
+ * Cloud regions of one platform that a PAO allows, as of a version of the PAO.
+ *
+ * @param paoVersion version of the PAO the regions were read from
+ * @param constrained true if the PAO has a region constraint; if not, every region is allowed
+ * @param regions regions in the effective region constraint, or all regions of the platform if
+ *     there is no constraint
+ */
+public record AllowedRegions(long paoVersion, boolean constrained, List<String> regions) {
+  public boolean allows(String region) {
+    return !constrained || regions.contains(region);
+  }
+}
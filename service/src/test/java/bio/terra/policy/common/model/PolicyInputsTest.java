@@ -0,0 +1,81 @@
+package bio.terra.policy.common.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class PolicyInputsTest {
+  private static final String NAMESPACE = "test_namespace";
+
+  @Test
+  void builderCopiesOnWrite() {
+    PolicyInput flagA = makeInput("test_flag_a", "data1");
+    PolicyInput flagB = makeInput("test_flag_b", "data2");
+    PolicyInputs original = PolicyInputs.builder().addInput(flagA).build();
+
+    // An unchanged builder gives back the source
+    assertSame(original, original.toBuilder().build());
+
+    PolicyInputs changed = original.toBuilder().addInput(flagB).removeInput(flagA).build();
+    assertSame(flagA, original.lookupPolicy(flagA));
+    assertNull(original.lookupPolicy(flagB));
+    assertNull(changed.lookupPolicy(flagA));
+    // Inputs are shared, not copied
+    assertSame(flagB, changed.lookupPolicy(flagB));
+  }
+
+  @Test
+  void inputsAreNotModifiable() {
+    PolicyInput flagA = makeInput("test_flag_a", "data1");
+    PolicyInputs inputs = PolicyInputs.builder().addInput(flagA).build();
+    assertThrows(UnsupportedOperationException.class, () -> inputs.getInputs().clear());
+    assertThrows(
+        UnsupportedOperationException.class, () -> flagA.getAdditionalData().put("key", "x"));
+    assertThrows(
+        UnsupportedOperationException.class, () -> flagA.getConflicts().add(UUID.randomUUID()));
+  }
+
+  @Test
+  void inputCopiesItsArguments() {
+    Multimap<String, String> data = ArrayListMultimap.create();
+    data.put("key", "data1");
+    Set<UUID> conflicts = new HashSet<>();
+    PolicyInput input = new PolicyInput(PolicyName.of(NAMESPACE, "test_data_x"), data, conflicts);
+
+    data.put("key", "data2");
+    conflicts.add(UUID.randomUUID());
+    assertEquals(1, input.getAdditionalData().size());
+    assertTrue(input.getConflicts().isEmpty());
+
+    // Sharing the data with a new set of conflicts
+    UUID conflict = UUID.randomUUID();
+    PolicyInput conflicted = input.withConflicts(Set.of(conflict));
+    assertSame(input.getAdditionalData(), conflicted.getAdditionalData());
+    assertEquals(Set.of(conflict), conflicted.getConflicts());
+  }
+
+  @Test
+  void nullDataIsKept() {
+    Multimap<String, String> data = ArrayListMultimap.create();
+    data.put("key", null);
+    PolicyInput input = new PolicyInput(PolicyName.of(NAMESPACE, "test_data_x"), data);
+    assertTrue(input.getAdditionalData().containsEntry("key", null));
+    assertThrows(
+        UnsupportedOperationException.class, () -> input.getAdditionalData().put("key", "x"));
+  }
+
+  private PolicyInput makeInput(String name, String value) {
+    Multimap<String, String> data = ArrayListMultimap.create();
+    data.put("key", value);
+    return new PolicyInput(PolicyName.of(NAMESPACE, name), data);
+  }
+}
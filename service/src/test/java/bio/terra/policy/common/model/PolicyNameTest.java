@@ -0,0 +1,62 @@
+package bio.terra.policy.common.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.common.exception.InvalidInputException;
+import org.junit.jupiter.api.Test;
+
+public class PolicyNameTest {
+  @Test
+  void namesAreInterned() {
+    PolicyName interned = PolicyName.of("test_namespace", "test_interned");
+    assertSame(interned, PolicyName.of("test_namespace", "test_interned"));
+    assertSame(interned.getKey(), PolicyName.of("test_namespace", "test_interned").getKey());
+    assertEquals("test_namespace:test_interned", interned.getKey());
+    assertTrue(interned.getId() < PolicyName.idLimit());
+
+    // Constructed names share the id and the key with the interned name
+    PolicyName constructed = new PolicyName("test_namespace", "test_interned");
+    assertEquals(interned, constructed);
+    assertEquals(interned.hashCode(), constructed.hashCode());
+    assertEquals(interned.getId(), constructed.getId());
+    assertSame(interned.getKey(), constructed.getKey());
+  }
+
+  @Test
+  void distinctNamesHaveDistinctIds() {
+    PolicyName one = PolicyName.of("test_namespace", "test_one");
+    PolicyName two = PolicyName.of("test_namespace", "test_two");
+    PolicyName otherNamespace = PolicyName.of("test_other_namespace", "test_one");
+    assertNotEquals(one, two);
+    assertNotEquals(one, otherNamespace);
+    assertNotEquals(one.getId(), two.getId());
+    assertNotEquals(one.getId(), otherNamespace.getId());
+  }
+
+  @Test
+  void inputNamesAreNotInterned() {
+    PolicyName input = PolicyName.forInput("test_namespace", "test_input_only");
+    assertFalse(input.isInterned());
+    assertNull(PolicyName.find("test_namespace", "test_input_only"));
+
+    // Once interned, the input name equals the interned one, and input gets the interned name
+    PolicyName interned = PolicyName.of("test_namespace", "test_input_only");
+    assertEquals(interned, input);
+    assertEquals(input, interned);
+    assertEquals(interned.hashCode(), input.hashCode());
+    assertSame(interned, PolicyName.forInput("test_namespace", "test_input_only"));
+    assertNotEquals(input, PolicyName.forInput("test_namespace", "test_other_input"));
+  }
+
+  @Test
+  void missingPartsAreRejected() {
+    assertThrows(InvalidInputException.class, () -> PolicyName.of(null, "test_name"));
+    assertThrows(InvalidInputException.class, () -> PolicyName.of("test_namespace", null));
+  }
+}
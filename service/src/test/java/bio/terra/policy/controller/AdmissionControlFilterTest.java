@@ -0,0 +1,120 @@
+package bio.terra.policy.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import bio.terra.policy.app.configuration.AdmissionConfiguration;
+import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.app.controller.AdmissionControlFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class AdmissionControlFilterTest {
+  private static final String PAO_PATH = "/api/policy/v1alpha1/pao/";
+
+  private AdmissionControlFilter filter;
+
+  @BeforeEach
+  void setup() {
+    AdmissionConfiguration admissionConfiguration = new AdmissionConfiguration();
+    admissionConfiguration.setReadWait(Duration.ZERO);
+    admissionConfiguration.setWriteWait(Duration.ZERO);
+    TpsDatabaseConfiguration tpsDatabaseConfiguration = new TpsDatabaseConfiguration();
+    // One write permit and two read permits
+    tpsDatabaseConfiguration.setPoolMaxTotal(2);
+    filter =
+        new AdmissionControlFilter(
+            admissionConfiguration, tpsDatabaseConfiguration, new ObjectMapper());
+  }
+
+  @Test
+  void readsAreAdmittedDuringWrite() throws Exception {
+    MockHttpServletResponse[] inner = new MockHttpServletResponse[4];
+    // While a link holds the only write permit, another write is turned away, but reads run
+    MockHttpServletResponse outer =
+        run(
+            "POST",
+            PAO_PATH + "x/link",
+            () -> {
+              inner[0] = run("PUT", PAO_PATH + "y", null);
+              inner[1] = run("GET", PAO_PATH + "y", null);
+              inner[2] = run("POST", "/api/policy/v1alpha1/region/evaluate", null);
+              inner[3] = run("POST", PAO_PATH + "y/impact", null);
+            });
+
+    assertEquals(HttpStatus.OK.value(), outer.getStatus());
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), inner[0].getStatus());
+    assertNotNull(inner[0].getHeader(HttpHeaders.RETRY_AFTER));
+    assertEquals(HttpStatus.OK.value(), inner[1].getStatus());
+    assertEquals(HttpStatus.OK.value(), inner[2].getStatus());
+    assertEquals(HttpStatus.OK.value(), inner[3].getStatus());
+
+    // The permit is returned when the request finishes
+    assertEquals(HttpStatus.OK.value(), run("DELETE", PAO_PATH + "y", null).getStatus());
+  }
+
+  @Test
+  void readsAreBounded() throws Exception {
+    MockHttpServletResponse[] inner = new MockHttpServletResponse[2];
+    run(
+        "GET",
+        PAO_PATH + "x",
+        () -> {
+          inner[0] = run("GET", PAO_PATH + "y", () -> inner[1] = run("GET", PAO_PATH + "z", null));
+        });
+
+    assertEquals(HttpStatus.OK.value(), inner[0].getStatus());
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), inner[1].getStatus());
+
+    // Requests outside the API are not counted, nor are change feed reads, which can wait
+    run(
+        "GET",
+        PAO_PATH + "x",
+        () -> {
+          run("GET", PAO_PATH + "y", null);
+          inner[1] = run("GET", "/status", null);
+        });
+    assertEquals(HttpStatus.OK.value(), inner[1].getStatus());
+    run(
+        "GET",
+        PAO_PATH + "x",
+        () -> {
+          run("GET", PAO_PATH + "y", null);
+          inner[1] = run("GET", PAO_PATH + "changes", null);
+        });
+    assertEquals(HttpStatus.OK.value(), inner[1].getStatus());
+  }
+
+  private interface Body {
+    void run() throws Exception;
+  }
+
+  private MockHttpServletResponse run(String method, String path, Body body) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(
+        request,
+        response,
+        new MockFilterChain() {
+          @Override
+          public void doFilter(
+              jakarta.servlet.ServletRequest request, jakarta.servlet.ServletResponse response) {
+            if (body != null) {
+              try {
+                body.run();
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            }
+          }
+        });
+    return response;
+  }
+}
@@ -20,10 +20,15 @@ import bio.terra.policy.generated.model.ApiTpsPaoUpdateRequest;
 import bio.terra.policy.generated.model.ApiTpsPaoUpdateResult;
 import bio.terra.policy.generated.model.ApiTpsPolicyInput;
 import bio.terra.policy.generated.model.ApiTpsPolicyInputs;
+import bio.terra.policy.generated.model.ApiTpsRegionEvaluateRequest;
 import bio.terra.policy.generated.model.ApiTpsUpdateMode;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
 import java.util.UUID;
+import javax.annotation.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.stereotype.Component;
@@ -121,6 +126,46 @@ public class MvcUtils {
     return apiPao;
   }
 
+  /**
+   * Issue a GET, optionally conditional
+   *
+   * @param path request path
+   * @param ifNoneMatch If-None-Match header value; null for an unconditional request
+   * @return the response
+   */
+  public MockHttpServletResponse conditionalGet(String path, @Nullable String ifNoneMatch)
+      throws Exception {
+    var request = get(path);
+    if (ifNoneMatch != null) {
+      request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return mockMvc.perform(addAuth(addJsonContentType(request))).andReturn().getResponse();
+  }
+
+  public List<ApiTpsPaoGetResult> listPaos(List<UUID> objectIds) throws Exception {
+    String json = objectMapper.writeValueAsString(objectIds);
+    MvcResult result =
+        mockMvc
+            .perform(
+                addAuth(addJsonContentType(post("/api/policy/v1alpha1/pao/list").content(json))))
+            .andReturn();
+    MockHttpServletResponse response = result.getResponse();
+    HttpStatus status = HttpStatus.valueOf(response.getStatus());
+    assertEquals(HttpStatus.OK, status);
+    return objectMapper.readValue(
+        response.getContentAsString(), new TypeReference<List<ApiTpsPaoGetResult>>() {});
+  }
+
+  public MockHttpServletResponse evaluateRegions(ApiTpsRegionEvaluateRequest request)
+      throws Exception {
+    String json = objectMapper.writeValueAsString(request);
+    return mockMvc
+        .perform(
+            addAuth(addJsonContentType(post("/api/policy/v1alpha1/region/evaluate").content(json))))
+        .andReturn()
+        .getResponse();
+  }
+
   public ApiTpsPaoUpdateResult linkPao(UUID dependentId, UUID sourceId) throws Exception {
     return connectPao(dependentId, sourceId, "link", ApiTpsUpdateMode.FAIL_ON_CONFLICT);
   }
@@ -6,12 +6,14 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import bio.terra.policy.generated.model.ApiTpsPaoGetResult;
 import bio.terra.policy.generated.model.ApiTpsPolicyInput;
 import bio.terra.policy.generated.model.ApiTpsPolicyInputs;
 import bio.terra.policy.generated.model.ApiTpsPolicyPair;
 import bio.terra.policy.testutils.TestUnitBase;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -44,6 +46,26 @@ public class TpsBasicControllerTest extends TestUnitBase {
     Metrics.globalRegistry.clear();
   }
 
+  @Test
+  public void listPaosTest() throws Exception {
+    var regionPolicy =
+        new ApiTpsPolicyInput()
+            .namespace(TERRA)
+            .name(REGION_CONSTRAINT)
+            .addAdditionalDataItem(new ApiTpsPolicyPair().key(REGION).value(US_REGION));
+    UUID sourceId = mvcUtils.createPao(regionPolicy);
+    UUID dependentId = mvcUtils.createEmptyPao();
+    mvcUtils.linkPao(dependentId, sourceId);
+
+    // The list response is written directly from the PAOs; it must match the get response
+    List<ApiTpsPaoGetResult> paos = mvcUtils.listPaos(List.of(sourceId, dependentId));
+    assertEquals(2, paos.size());
+    for (ApiTpsPaoGetResult pao : paos) {
+      assertEquals(mvcUtils.getPao(pao.getObjectId()), pao);
+    }
+    assertTrue(mvcUtils.listPaos(List.of(UUID.randomUUID())).isEmpty());
+  }
+
   @Test
   public void basicPaoTest() throws Exception {
     var groupPolicy =
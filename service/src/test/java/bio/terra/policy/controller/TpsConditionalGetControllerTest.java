@@ -0,0 +1,104 @@
+package bio.terra.policy.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.generated.model.ApiTpsPolicyInput;
+import bio.terra.policy.generated.model.ApiTpsPolicyInputs;
+import bio.terra.policy.generated.model.ApiTpsPolicyPair;
+import bio.terra.policy.testutils.TestUnitBase;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class TpsConditionalGetControllerTest extends TestUnitBase {
+  private static final String TERRA = "terra";
+  private static final String REGION_CONSTRAINT = "region-constraint";
+  private static final String REGION = "region-name";
+  private static final String US_REGION = "usa";
+  private static final String IOWA_REGION = "iowa";
+
+  @Autowired private MvcUtils mvcUtils;
+
+  @Test
+  public void getPaoNotModified() throws Exception {
+    UUID paoId = mvcUtils.createPao(regionPolicy(US_REGION));
+    String path = "/api/policy/v1alpha1/pao/" + paoId;
+
+    String etag = checkOk(path, null);
+    checkNotModified(path, etag);
+    checkNotModified(path, "W/" + etag);
+    checkNotModified(path, "\"other\", " + etag);
+    checkNotModified(path, "*");
+    assertEquals(etag, checkOk(path, "\"other\""));
+
+    // A change gives a new tag
+    mvcUtils.replacePao(paoId, new ApiTpsPolicyInputs().addInputsItem(regionPolicy(IOWA_REGION)));
+    String newEtag = checkOk(path, etag);
+    assertNotEquals(etag, newEtag);
+    checkNotModified(path, newEtag);
+  }
+
+  @Test
+  public void getPaoNotFound() throws Exception {
+    MockHttpServletResponse response =
+        mvcUtils.conditionalGet("/api/policy/v1alpha1/pao/" + UUID.randomUUID(), "*");
+    assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+  }
+
+  @Test
+  public void explainNotModifiedUntilSourceChanges() throws Exception {
+    UUID sourceId = mvcUtils.createPao(regionPolicy(US_REGION));
+    UUID dependentId = mvcUtils.createEmptyPao();
+    mvcUtils.linkPao(dependentId, sourceId);
+    String path = "/api/policy/v1alpha1/pao/" + dependentId + "/explain";
+
+    String etag = checkOk(path, null);
+    checkNotModified(path, etag);
+
+    // The explanation depends on the source, so changing the source changes the tag
+    mvcUtils.replacePao(
+        sourceId, new ApiTpsPolicyInputs().addInputsItem(regionPolicy(IOWA_REGION)));
+    assertNotEquals(etag, checkOk(path, etag));
+  }
+
+  @Test
+  public void listValidRegionsNotModified() throws Exception {
+    UUID paoId = mvcUtils.createPao(regionPolicy(US_REGION));
+    String path = "/api/policy/v1alpha1/region/" + paoId + "/list-valid?platform=gcp";
+
+    String etag = checkOk(path, null);
+    checkNotModified(path, etag);
+
+    // Regions and the PAO itself are different representations
+    assertNotEquals(etag, checkOk("/api/policy/v1alpha1/pao/" + paoId, null));
+  }
+
+  private ApiTpsPolicyInput regionPolicy(String region) {
+    return new ApiTpsPolicyInput()
+        .namespace(TERRA)
+        .name(REGION_CONSTRAINT)
+        .addAdditionalDataItem(new ApiTpsPolicyPair().key(REGION).value(region));
+  }
+
+  private String checkOk(String path, String ifNoneMatch) throws Exception {
+    MockHttpServletResponse response = mvcUtils.conditionalGet(path, ifNoneMatch);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    String etag = response.getHeader(HttpHeaders.ETAG);
+    assertNotNull(etag);
+    assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+    return etag;
+  }
+
+  private void checkNotModified(String path, String ifNoneMatch) throws Exception {
+    MockHttpServletResponse response = mvcUtils.conditionalGet(path, ifNoneMatch);
+    assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+    assertEquals(0, response.getContentLength());
+    assertNotNull(response.getHeader(HttpHeaders.ETAG));
+  }
+}
@@ -0,0 +1,149 @@
+package bio.terra.policy.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.generated.model.ApiTpsPaoGetResult;
+import bio.terra.policy.generated.model.ApiTpsPaoListResult;
+import bio.terra.policy.generated.model.ApiTpsPolicyInput;
+import bio.terra.policy.generated.model.ApiTpsPolicyInputs;
+import bio.terra.policy.generated.model.ApiTpsPolicyPair;
+import bio.terra.policy.testutils.TestUnitBase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+
+public class TpsListControllerTest extends TestUnitBase {
+  @Autowired private MvcUtils mvcUtils;
+  @Autowired private ObjectMapper objectMapper;
+
+  @Test
+  void listPages() throws Exception {
+    List<UUID> objectIds = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      objectIds.add(mvcUtils.createEmptyPao());
+    }
+    String startTime = mvcUtils.getPao(objectIds.get(0)).getLastUpdatedDate();
+
+    // Updating an object moves it to the end of the listing
+    UUID updatedId = objectIds.remove(1);
+    mvcUtils.updatePao(updatedId, groupPolicy());
+    objectIds.add(updatedId);
+    UUID deletedId = objectIds.remove(2);
+    mvcUtils.deletePao(deletedId);
+
+    // Other tests' objects may be interleaved with ours; only check the order of our own
+    List<ApiTpsPaoGetResult> listed = listAll(startTime, null, false);
+    assertEquals(objectIds, ownIds(listed, objectIds));
+    assertOrdered(listed);
+    assertEquals(1, find(listed, updatedId).getAttributes().getInputs().size());
+
+    List<UUID> withDeleted = new ArrayList<>(objectIds);
+    withDeleted.add(deletedId);
+    assertEquals(withDeleted, ownIds(listAll(startTime, null, true), withDeleted));
+
+    // The update range excludes objects updated at or after its end
+    String updatedTime = mvcUtils.getPao(updatedId).getLastUpdatedDate();
+    assertEquals(
+        objectIds.subList(0, objectIds.size() - 1),
+        ownIds(listAll(startTime, updatedTime, false), objectIds));
+  }
+
+  @Test
+  void listBadRequest() throws Exception {
+    assertEquals(
+        HttpStatus.BAD_REQUEST.value(),
+        get(listUri(null, null, false, 10, "not-a-token")).getStatus());
+    assertEquals(
+        HttpStatus.BAD_REQUEST.value(),
+        get(listUri(null, null, false, 10, Instant.now() + "_not-a-uuid")).getStatus());
+    assertEquals(
+        HttpStatus.BAD_REQUEST.value(),
+        get(listUri("yesterday", null, false, 10, null)).getStatus());
+  }
+
+  /** Page through the listing two at a time. */
+  private List<ApiTpsPaoGetResult> listAll(
+      String updatedAfter, @Nullable String updatedBefore, boolean includeDeleted)
+      throws Exception {
+    List<ApiTpsPaoGetResult> listed = new ArrayList<>();
+    String pageToken = null;
+    do {
+      MockHttpServletResponse response =
+          get(listUri(updatedAfter, updatedBefore, includeDeleted, 2, pageToken));
+      assertEquals(HttpStatus.OK.value(), response.getStatus());
+      ApiTpsPaoListResult page =
+          objectMapper.readValue(response.getContentAsString(), ApiTpsPaoListResult.class);
+      assertTrue(page.getPaos().size() <= 2);
+      listed.addAll(page.getPaos());
+      pageToken = page.getNextPageToken();
+    } while (pageToken != null);
+    return listed;
+  }
+
+  private static List<UUID> ownIds(List<ApiTpsPaoGetResult> listed, List<UUID> ownIds) {
+    Set<UUID> own = new HashSet<>(ownIds);
+    return listed.stream().map(ApiTpsPaoGetResult::getObjectId).filter(own::contains).toList();
+  }
+
+  private static ApiTpsPaoGetResult find(List<ApiTpsPaoGetResult> listed, UUID objectId) {
+    return listed.stream().filter(pao -> pao.getObjectId().equals(objectId)).findFirst().get();
+  }
+
+  private static void assertOrdered(List<ApiTpsPaoGetResult> listed) {
+    for (int i = 1; i < listed.size(); i++) {
+      assertTrue(
+          Instant.parse(listed.get(i - 1).getLastUpdatedDate())
+                  .compareTo(Instant.parse(listed.get(i).getLastUpdatedDate()))
+              <= 0);
+    }
+  }
+
+  private MockHttpServletResponse get(String uri) throws Exception {
+    return mvcUtils.conditionalGet(uri, null);
+  }
+
+  private String listUri(
+      @Nullable String updatedAfter,
+      @Nullable String updatedBefore,
+      boolean includeDeleted,
+      int limit,
+      @Nullable String pageToken) {
+    UriComponentsBuilder builder =
+        UriComponentsBuilder.fromPath("/api/policy/v1alpha1/pao")
+            .queryParam("component", "WSM")
+            .queryParam("objectType", "workspace")
+            .queryParam("includeDeleted", includeDeleted)
+            .queryParam("limit", limit);
+    if (updatedAfter != null) {
+      builder.queryParam("updatedAfter", updatedAfter);
+    }
+    if (updatedBefore != null) {
+      builder.queryParam("updatedBefore", updatedBefore);
+    }
+    if (pageToken != null) {
+      builder.queryParam("pageToken", pageToken);
+    }
+    return builder.toUriString();
+  }
+
+  private ApiTpsPolicyInputs groupPolicy() {
+    return new ApiTpsPolicyInputs()
+        .addInputsItem(
+            new ApiTpsPolicyInput()
+                .namespace("terra")
+                .name("group-constraint")
+                .addAdditionalDataItem(
+                    new ApiTpsPolicyPair().key("group").value(UUID.randomUUID().toString())));
+  }
+}
@@ -0,0 +1,167 @@
+package bio.terra.policy.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import bio.terra.policy.common.model.PolicyName;
+import bio.terra.policy.generated.model.ApiTpsPaoQueryResult;
+import bio.terra.policy.generated.model.ApiTpsPolicyInput;
+import bio.terra.policy.generated.model.ApiTpsPolicyInputs;
+import bio.terra.policy.generated.model.ApiTpsPolicyPair;
+import bio.terra.policy.testutils.TestUnitBase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+
+public class TpsQueryControllerTest extends TestUnitBase {
+  private static final String TERRA = "terra";
+  private static final String GROUP_CONSTRAINT = "group-constraint";
+  private static final String GROUP = "group";
+  private static final String TEST_NAMESPACE = "test_namespace";
+
+  @Autowired private MvcUtils mvcUtils;
+  @Autowired private ObjectMapper objectMapper;
+
+  @Test
+  void querySetAndEffectiveAttributes() throws Exception {
+    // Unique names keep other tests' objects out of the results
+    String groupName = UUID.randomUUID().toString();
+    UUID sourceId = mvcUtils.createPao(groupPolicy(groupName));
+    UUID dependentId = mvcUtils.createEmptyPao();
+    mvcUtils.linkPao(dependentId, sourceId);
+
+    assertEquals(
+        sorted(sourceId, dependentId), query(TERRA, GROUP_CONSTRAINT, GROUP, groupName, true));
+    assertEquals(List.of(sourceId), query(TERRA, GROUP_CONSTRAINT, GROUP, groupName, false));
+    assertEquals(
+        List.of(), query(TERRA, GROUP_CONSTRAINT, GROUP, UUID.randomUUID().toString(), true));
+
+    // A policy without additional data is found by name
+    String flagName = UUID.randomUUID().toString();
+    UUID flagId =
+        mvcUtils.createPao(new ApiTpsPolicyInput().namespace(TEST_NAMESPACE).name(flagName));
+    assertEquals(List.of(flagId), query(TEST_NAMESPACE, flagName, null, null, true));
+
+    // Replacing the source's policy moves both objects out of the results
+    mvcUtils.replacePao(
+        sourceId,
+        new ApiTpsPolicyInputs().addInputsItem(groupPolicy(UUID.randomUUID().toString())));
+    assertEquals(List.of(), query(TERRA, GROUP_CONSTRAINT, GROUP, groupName, true));
+  }
+
+  @Test
+  void queryPages() throws Exception {
+    String groupName = UUID.randomUUID().toString();
+    List<UUID> objectIds = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      objectIds.add(mvcUtils.createPao(groupPolicy(groupName)));
+    }
+    mvcUtils.deletePao(objectIds.remove(2));
+
+    List<UUID> pagedIds = new ArrayList<>();
+    String pageToken = null;
+    int pages = 0;
+    do {
+      ApiTpsPaoQueryResult page = queryPage(groupName, 2, pageToken);
+      pagedIds.addAll(page.getObjectIds());
+      pageToken = page.getNextPageToken();
+      pages++;
+    } while (pageToken != null);
+
+    // Deleted objects are left out, and a full last page has no next page
+    assertEquals(sorted(objectIds.toArray(new UUID[0])), pagedIds);
+    assertEquals(2, pages);
+    assertNull(queryPage(groupName, 4, null).getNextPageToken());
+  }
+
+  @Test
+  void queryUnknownPolicy() throws Exception {
+    // A name no attribute set holds matches nothing, and is not interned by the query
+    String unknownName = UUID.randomUUID().toString();
+    assertEquals(List.of(), query(TEST_NAMESPACE, unknownName, null, null, true));
+    assertNull(PolicyName.find(TEST_NAMESPACE, unknownName));
+  }
+
+  @Test
+  void queryBadRequest() throws Exception {
+    assertEquals(
+        HttpStatus.BAD_REQUEST.value(),
+        get(queryUri(TERRA, GROUP_CONSTRAINT, null, "value", true, 10, null)).getStatus());
+    assertEquals(
+        HttpStatus.BAD_REQUEST.value(),
+        get(queryUri(TERRA, GROUP_CONSTRAINT, null, null, true, 10, "not-a-token")).getStatus());
+  }
+
+  private List<UUID> query(
+      String namespace,
+      String name,
+      @Nullable String key,
+      @Nullable String value,
+      boolean effective)
+      throws Exception {
+    MockHttpServletResponse response =
+        get(queryUri(namespace, name, key, value, effective, 100, null));
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    return objectMapper
+        .readValue(response.getContentAsString(), ApiTpsPaoQueryResult.class)
+        .getObjectIds();
+  }
+
+  private ApiTpsPaoQueryResult queryPage(String groupName, int limit, @Nullable String pageToken)
+      throws Exception {
+    MockHttpServletResponse response =
+        get(queryUri(TERRA, GROUP_CONSTRAINT, GROUP, groupName, true, limit, pageToken));
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    return objectMapper.readValue(response.getContentAsString(), ApiTpsPaoQueryResult.class);
+  }
+
+  private MockHttpServletResponse get(String uri) throws Exception {
+    return mvcUtils.conditionalGet(uri, null);
+  }
+
+  private String queryUri(
+      String namespace,
+      String name,
+      @Nullable String key,
+      @Nullable String value,
+      boolean effective,
+      int limit,
+      @Nullable String pageToken) {
+    UriComponentsBuilder builder =
+        UriComponentsBuilder.fromPath("/api/policy/v1alpha1/pao/query")
+            .queryParam("namespace", namespace)
+            .queryParam("name", name)
+            .queryParam("effective", effective)
+            .queryParam("limit", limit);
+    if (key != null) {
+      builder.queryParam("key", key);
+    }
+    if (value != null) {
+      builder.queryParam("value", value);
+    }
+    if (pageToken != null) {
+      builder.queryParam("pageToken", pageToken);
+    }
+    return builder.toUriString();
+  }
+
+  private ApiTpsPolicyInput groupPolicy(String groupName) {
+    return new ApiTpsPolicyInput()
+        .namespace(TERRA)
+        .name(GROUP_CONSTRAINT)
+        .addAdditionalDataItem(new ApiTpsPolicyPair().key(GROUP).value(groupName));
+  }
+
+  /** Database order: UUID.compareTo compares signed longs, the database compares bytes. */
+  private static List<UUID> sorted(UUID... objectIds) {
+    return List.of(objectIds).stream().sorted(Comparator.comparing(UUID::toString)).toList();
+  }
+}
@@ -0,0 +1,183 @@
+package bio.terra.policy.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.generated.model.ApiErrorReport;
+import bio.terra.policy.generated.model.ApiTpsPlatformRegions;
+import bio.terra.policy.generated.model.ApiTpsPolicyInput;
+import bio.terra.policy.generated.model.ApiTpsPolicyInputs;
+import bio.terra.policy.generated.model.ApiTpsPolicyPair;
+import bio.terra.policy.generated.model.ApiTpsRegionEvaluateRequest;
+import bio.terra.policy.generated.model.ApiTpsRegionEvaluateResult;
+import bio.terra.policy.generated.model.ApiTpsRegionEvaluation;
+import bio.terra.policy.generated.model.ApiTpsRegions;
+import bio.terra.policy.service.region.RegionService;
+import bio.terra.policy.service.region.model.Location;
+import bio.terra.policy.testutils.TestUnitBase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class TpsRegionControllerTest extends TestUnitBase {
+  private static final String TERRA = "terra";
+  private static final String REGION_CONSTRAINT = "region-constraint";
+  private static final String REGION = "region-name";
+  private static final String GCP = "gcp";
+  private static final String IOWA_REGION = "iowa";
+  private static final String EUROPE_REGION = "europe";
+  private static final String IOWA_CLOUD_REGION = "us-central1";
+  private static final String EUROPE_CLOUD_REGION = "europe-west1";
+
+  @Autowired private MvcUtils mvcUtils;
+  @Autowired private ObjectMapper objectMapper;
+  @Autowired private RegionService regionService;
+
+  @Test
+  void evaluateConstrainedPao() throws Exception {
+    UUID paoId = mvcUtils.createPao(regionPolicy(IOWA_REGION));
+
+    assertEquals(HttpStatus.NO_CONTENT.value(), evaluate(paoId, IOWA_CLOUD_REGION).getStatus());
+
+    // The conflict lists the regions that are allowed
+    MockHttpServletResponse response = evaluate(paoId, EUROPE_CLOUD_REGION);
+    assertEquals(HttpStatus.CONFLICT.value(), response.getStatus());
+    ApiErrorReport error =
+        objectMapper.readValue(response.getContentAsString(), ApiErrorReport.class);
+    assertEquals(cloudRegions(IOWA_REGION), new HashSet<>(error.getCauses()));
+
+    assertEquals(cloudRegions(IOWA_REGION), listValid(paoId));
+  }
+
+  @Test
+  void evaluateUnconstrainedPao() throws Exception {
+    UUID paoId = mvcUtils.createEmptyPao();
+
+    // Without a region constraint every region is allowed, even one we do not know
+    assertEquals(HttpStatus.NO_CONTENT.value(), evaluate(paoId, EUROPE_CLOUD_REGION).getStatus());
+    assertEquals(HttpStatus.NO_CONTENT.value(), evaluate(paoId, "nowhere").getStatus());
+    assertEquals(cloudRegions("global"), listValid(paoId));
+  }
+
+  @Test
+  void regionsFollowSourceChanges() throws Exception {
+    UUID sourceId = mvcUtils.createPao(regionPolicy(IOWA_REGION));
+    UUID dependentId = mvcUtils.createEmptyPao();
+    mvcUtils.linkPao(dependentId, sourceId);
+    assertEquals(cloudRegions(IOWA_REGION), listValid(dependentId));
+
+    mvcUtils.replacePao(
+        sourceId, new ApiTpsPolicyInputs().addInputsItem(regionPolicy(EUROPE_REGION)));
+    Set<String> europeRegions = listValid(dependentId);
+    assertEquals(cloudRegions(EUROPE_REGION), europeRegions);
+    assertFalse(europeRegions.contains(IOWA_CLOUD_REGION));
+    assertTrue(europeRegions.contains(EUROPE_CLOUD_REGION));
+  }
+
+  @Test
+  void evaluateMissingPao() throws Exception {
+    assertEquals(
+        HttpStatus.NOT_FOUND.value(), evaluate(UUID.randomUUID(), IOWA_CLOUD_REGION).getStatus());
+  }
+
+  @Test
+  void evaluateBatch() throws Exception {
+    UUID iowaId = mvcUtils.createPao(regionPolicy(IOWA_REGION));
+    UUID europeId = mvcUtils.createPao(regionPolicy(EUROPE_REGION));
+    UUID unconstrainedId = mvcUtils.createEmptyPao();
+    var gcpCandidates =
+        new ApiTpsPlatformRegions()
+            .platform(GCP)
+            .regions(regions(IOWA_CLOUD_REGION, EUROPE_CLOUD_REGION));
+    var azureCandidates = new ApiTpsPlatformRegions().platform("azure").regions(regions("eastus"));
+    var request =
+        new ApiTpsRegionEvaluateRequest()
+            .objectIds(List.of(iowaId, europeId, unconstrainedId))
+            .candidates(List.of(gcpCandidates, azureCandidates));
+
+    MockHttpServletResponse response = mvcUtils.evaluateRegions(request);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    List<ApiTpsRegionEvaluation> results =
+        objectMapper
+            .readValue(response.getContentAsString(), ApiTpsRegionEvaluateResult.class)
+            .getResults();
+
+    // One entry per object and platform, in request order
+    assertEquals(6, results.size());
+    checkEvaluation(results.get(0), iowaId, GCP, true, false);
+    checkEvaluation(results.get(1), iowaId, "azure", false);
+    checkEvaluation(results.get(2), europeId, GCP, false, true);
+    checkEvaluation(results.get(3), europeId, "azure", false);
+    checkEvaluation(results.get(4), unconstrainedId, GCP, true, true);
+    checkEvaluation(results.get(5), unconstrainedId, "azure", true);
+
+    // Each answer matches the single-object evaluation
+    assertEquals(HttpStatus.CONFLICT.value(), evaluate(iowaId, EUROPE_CLOUD_REGION).getStatus());
+  }
+
+  @Test
+  void evaluateBatchMissingPao() throws Exception {
+    UUID paoId = mvcUtils.createPao(regionPolicy(IOWA_REGION));
+    var request =
+        new ApiTpsRegionEvaluateRequest()
+            .objectIds(List.of(paoId, UUID.randomUUID()))
+            .candidates(
+                List.of(
+                    new ApiTpsPlatformRegions().platform(GCP).regions(regions(IOWA_CLOUD_REGION))));
+    assertEquals(HttpStatus.NOT_FOUND.value(), mvcUtils.evaluateRegions(request).getStatus());
+  }
+
+  private void checkEvaluation(
+      ApiTpsRegionEvaluation evaluation, UUID objectId, String platform, Boolean... allowed) {
+    assertEquals(objectId, evaluation.getObjectId());
+    assertEquals(platform, evaluation.getPlatform());
+    assertEquals(List.of(allowed), evaluation.getAllowed());
+  }
+
+  private ApiTpsRegions regions(String... regions) {
+    ApiTpsRegions result = new ApiTpsRegions();
+    result.addAll(List.of(regions));
+    return result;
+  }
+
+  private MockHttpServletResponse evaluate(UUID paoId, String region) throws Exception {
+    return mvcUtils.conditionalGet(
+        String.format(
+            "/api/policy/v1alpha1/region/%s/evaluate?platform=%s&region=%s", paoId, GCP, region),
+        null);
+  }
+
+  private Set<String> listValid(UUID paoId) throws Exception {
+    MockHttpServletResponse response =
+        mvcUtils.conditionalGet(
+            String.format("/api/policy/v1alpha1/region/%s/list-valid?platform=%s", paoId, GCP),
+            null);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    List<String> regions =
+        objectMapper.readValue(
+            response.getContentAsString(),
+            objectMapper.getTypeFactory().constructCollectionType(List.class, String.class));
+    return new HashSet<>(regions);
+  }
+
+  private Set<String> cloudRegions(String location) {
+    return regionService.getLocationsForPlatform(location, GCP).stream()
+        .map(Location::getCloudRegion)
+        .collect(Collectors.toSet());
+  }
+
+  private ApiTpsPolicyInput regionPolicy(String region) {
+    return new ApiTpsPolicyInput()
+        .namespace(TERRA)
+        .name(REGION_CONSTRAINT)
+        .addAdditionalDataItem(new ApiTpsPolicyPair().key(REGION).value(region));
+  }
+}
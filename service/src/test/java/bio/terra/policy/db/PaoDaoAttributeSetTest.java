@@ -0,0 +1,201 @@
+package bio.terra.policy.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.app.configuration.TracingConfiguration;
+import bio.terra.policy.common.PolicyTracer;
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.service.pao.PaoService;
+import bio.terra.policy.service.pao.model.PaoUpdateMode;
+import bio.terra.policy.service.region.RegionService;
+import bio.terra.policy.service.region.model.AllowedRegions;
+import bio.terra.policy.testutils.PaoTestUtil;
+import bio.terra.policy.testutils.TestUnitBase;
+import io.opentelemetry.api.OpenTelemetry;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+public class PaoDaoAttributeSetTest extends TestUnitBase {
+  @Autowired private PaoDao paoDao;
+  @Autowired private PaoService paoService;
+  @Autowired private TpsDatabaseConfiguration tpsDatabaseConfiguration;
+  @Autowired private RegionService regionService;
+  @Autowired private PaoChangeDao paoChangeDao;
+  @Autowired private ObjectProvider<OpenTelemetry> openTelemetry;
+  @Autowired private TracingConfiguration tracingConfiguration;
+
+  @Test
+  void identicalSetsAreShared() {
+    // A group name unique to this test keeps the set content unique
+    PolicyInput group = PaoTestUtil.makeGroupPolicyInput(UUID.randomUUID().toString());
+    PolicyInput region = PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_USA);
+    UUID paoIdA = PaoTestUtil.makePao(paoService, group, region);
+    UUID paoIdB = PaoTestUtil.makePao(paoService, region, group);
+
+    DbPao dbPaoA = paoDao.getDbPao(paoIdA, false);
+    DbPao dbPaoB = paoDao.getDbPao(paoIdB, false);
+    UUID setId = dbPaoA.attributeSetId();
+    assertEquals(setId, dbPaoA.effectiveSetId());
+    assertEquals(setId, dbPaoB.attributeSetId());
+    assertEquals(setId, dbPaoB.effectiveSetId());
+    assertEquals(setId, DbAttributeSetHash.setIdOf(PaoTestUtil.makePolicyInputs(region, group)));
+
+    assertEquals(4, getRefCount(setId));
+    assertEquals(2, getRowCount(setId));
+  }
+
+  @Test
+  void propagationPointsAtSourceSet() {
+    PolicyInput group = PaoTestUtil.makeGroupPolicyInput(UUID.randomUUID().toString());
+    UUID sourceId = PaoTestUtil.makePao(paoService, group);
+    UUID dependentId = PaoTestUtil.makePao(paoService);
+    UUID emptySetId = paoDao.getDbPao(dependentId, false).effectiveSetId();
+    int emptyRefCount = getRefCount(emptySetId);
+
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+
+    // The dependent's effective set is the same content as the source's, so it is the same set
+    UUID sourceSetId = paoDao.getDbPao(sourceId, false).effectiveSetId();
+    DbPao dependent = paoDao.getDbPao(dependentId, false);
+    assertEquals(sourceSetId, dependent.effectiveSetId());
+    assertEquals(emptySetId, dependent.attributeSetId());
+    assertEquals(3, getRefCount(sourceSetId));
+    assertEquals(1, getRowCount(sourceSetId));
+    assertEquals(emptyRefCount - 1, getRefCount(emptySetId));
+  }
+
+  @Test
+  void unreferencedSetIsDeleted() {
+    PolicyInput group = PaoTestUtil.makeGroupPolicyInput(UUID.randomUUID().toString());
+    UUID paoId = PaoTestUtil.makePao(paoService, group);
+    UUID oldSetId = paoDao.getDbPao(paoId, false).attributeSetId();
+
+    PolicyInputs replacement =
+        PaoTestUtil.makePolicyInputs(
+            PaoTestUtil.makeGroupPolicyInput(UUID.randomUUID().toString()));
+    paoService.replacePao(paoId, replacement, PaoUpdateMode.FAIL_ON_CONFLICT);
+
+    UUID newSetId = paoDao.getDbPao(paoId, false).attributeSetId();
+    assertNotEquals(oldSetId, newSetId);
+    assertEquals(0, getRefCount(oldSetId));
+    assertEquals(0, getRowCount(oldSetId));
+    assertEquals(2, getRefCount(newSetId));
+    assertEquals(1, getRowCount(newSetId));
+  }
+
+  @Test
+  void allowedRegionsAreMaterialized() {
+    PolicyInput group = PaoTestUtil.makeGroupPolicyInput(UUID.randomUUID().toString());
+    PolicyInput region = PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_IOWA);
+    UUID paoId = PaoTestUtil.makePao(paoService, group, region);
+    UUID setId = paoDao.getDbPao(paoId, false).effectiveSetId();
+    assertEquals(regionService.getPlatforms().size(), getRegionRowCount(setId));
+
+    AllowedRegions allowed = paoDao.getAllowedRegions(paoId, "gcp");
+    assertTrue(allowed.constrained());
+    assertEquals(List.of("us-central1"), allowed.regions());
+
+    // A set without regions, as stored before materialization, is filled in on read
+    jdbcTemplate()
+        .update(
+            "DELETE FROM attribute_set_region WHERE set_id = :set_id",
+            new MapSqlParameterSource().addValue("set_id", setId));
+    assertEquals(allowed, paoDao.getAllowedRegions(paoId, "gcp"));
+    assertEquals(1, getRegionRowCount(setId));
+  }
+
+  @Test
+  void allowedRegionsOfReleasedSetAreReadAgain() {
+    PolicyInput group = PaoTestUtil.makeGroupPolicyInput(UUID.randomUUID().toString());
+    PolicyInput iowa = PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_IOWA);
+    UUID paoId = PaoTestUtil.makePao(paoService, group, iowa);
+    UUID oldSetId = paoDao.getDbPao(paoId, false).effectiveSetId();
+    // Without stored regions, the set content has to be read in a second query
+    jdbcTemplate()
+        .update(
+            "DELETE FROM attribute_set_region WHERE set_id = :set_id",
+            new MapSqlParameterSource().addValue("set_id", oldSetId));
+
+    // Between the two reads, an update releases the set the first read found
+    PolicyInput usa = PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_USA);
+    AtomicBoolean replaced = new AtomicBoolean();
+    PaoDao racingDao =
+        daoBeforeQuery(
+            "PaoDao.getReferencedAttributeSets",
+            () -> {
+              if (!replaced.getAndSet(true)) {
+                paoService.replacePao(
+                    paoId,
+                    PaoTestUtil.makePolicyInputs(group, usa),
+                    PaoUpdateMode.FAIL_ON_CONFLICT);
+              }
+            });
+
+    AllowedRegions allowed = racingDao.getAllowedRegions(paoId, "gcp");
+    assertTrue(replaced.get());
+    assertEquals(0, getRefCount(oldSetId));
+    assertTrue(allowed.constrained());
+    assertEquals(paoDao.getAllowedRegions(paoId, "gcp"), allowed);
+  }
+
+  /** A DAO that runs an action before each query of the given name. */
+  private PaoDao daoBeforeQuery(String queryName, Runnable action) {
+    PolicyTracer tracer =
+        new PolicyTracer(openTelemetry, tracingConfiguration) {
+          @Override
+          public <T> T query(String name, Supplier<T> query, ToIntFunction<T> rowCount) {
+            if (name.equals(queryName)) {
+              action.run();
+            }
+            return super.query(name, query, rowCount);
+          }
+        };
+    return new PaoDao(tpsDatabaseConfiguration, regionService, paoChangeDao, tracer);
+  }
+
+  private int getRefCount(UUID setId) {
+    List<Integer> refCounts =
+        jdbcTemplate()
+            .queryForList(
+                "SELECT ref_count FROM attribute_set_ref WHERE set_id = :set_id",
+                new MapSqlParameterSource().addValue("set_id", setId),
+                Integer.class);
+    return refCounts.isEmpty() ? 0 : refCounts.get(0);
+  }
+
+  private int getRowCount(UUID setId) {
+    Integer count =
+        jdbcTemplate()
+            .queryForObject(
+                "SELECT count(*) FROM attribute_set WHERE set_id = :set_id",
+                new MapSqlParameterSource().addValue("set_id", setId),
+                Integer.class);
+    return count == null ? 0 : count;
+  }
+
+  private int getRegionRowCount(UUID setId) {
+    Integer count =
+        jdbcTemplate()
+            .queryForObject(
+                "SELECT count(*) FROM attribute_set_region WHERE set_id = :set_id",
+                new MapSqlParameterSource().addValue("set_id", setId),
+                Integer.class);
+    return count == null ? 0 : count;
+  }
+
+  private NamedParameterJdbcTemplate jdbcTemplate() {
+    return new NamedParameterJdbcTemplate(tpsDatabaseConfiguration.getDataSource());
+  }
+}
@@ -0,0 +1,144 @@
+package bio.terra.policy.service.changefeed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.common.exception.ChangeFeedPositionExpiredException;
+import bio.terra.policy.common.exception.InvalidInputException;
+import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.service.changefeed.model.PaoChange;
+import bio.terra.policy.service.changefeed.model.PaoChangePage;
+import bio.terra.policy.service.changefeed.model.PaoChangeType;
+import bio.terra.policy.service.pao.PaoService;
+import bio.terra.policy.service.pao.model.PaoComponent;
+import bio.terra.policy.service.pao.model.PaoObjectType;
+import bio.terra.policy.service.pao.model.PaoUpdateMode;
+import bio.terra.policy.testutils.TestUnitBase;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class ChangeFeedServiceTest extends TestUnitBase {
+  @Autowired private ChangeFeedService changeFeedService;
+  @Autowired private PaoService paoService;
+  @Autowired private TpsDatabaseConfiguration tpsDatabaseConfiguration;
+
+  @Test
+  void feedHoldsCommittedChanges() {
+    String position = readToEnd(null);
+    UUID sourceId = createPao();
+    UUID dependentId = createPao();
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+    paoService.deletePao(dependentId);
+
+    // Other tests' changes may be interleaved with ours; only check our own
+    List<PaoChange> changes = ownChanges(position, Set.of(sourceId, dependentId));
+    assertEquals(
+        List.of(sourceId, dependentId, dependentId, dependentId),
+        changes.stream().map(PaoChange::objectId).toList());
+    assertEquals(
+        List.of(
+            PaoChangeType.CREATED,
+            PaoChangeType.CREATED,
+            PaoChangeType.UPDATED,
+            PaoChangeType.DELETED),
+        changes.stream().map(PaoChange::changeType).toList());
+    assertTrue(changes.get(1).version() < changes.get(2).version());
+    assertTrue(changes.get(2).version() < changes.get(3).version());
+  }
+
+  @Test
+  void waitForChanges() {
+    String position = readToEnd(null);
+    PaoChangePage empty = changeFeedService.getChanges(position, 100, Duration.ZERO);
+    assertEquals(List.of(), empty.changes());
+    assertEquals(position, empty.position().toString());
+
+    // The poller wakes the waiting read when the change commits
+    CompletableFuture<PaoChangePage> waiting =
+        CompletableFuture.supplyAsync(
+            () -> changeFeedService.getChanges(position, 100, Duration.ofSeconds(30)));
+    UUID objectId = createPao();
+    PaoChangePage page = waiting.join();
+    assertTrue(page.changes().stream().anyMatch(change -> change.objectId().equals(objectId)));
+  }
+
+  @Test
+  void feedWaitsForOpenTransactions() throws Exception {
+    String position = readToEnd(null);
+    try (Connection connection = tpsDatabaseConfiguration.getDataSource().getConnection()) {
+      // An open transaction that has logged a change holds back the changes committed after it
+      connection.setAutoCommit(false);
+      try (PreparedStatement statement =
+          connection.prepareStatement(
+              """
+              INSERT INTO pao_change_log (object_id, component, object_type, change_type, version)
+              VALUES (?, 'wsm', 'workspace', 'updated', 0)
+              """)) {
+        statement.setObject(1, UUID.randomUUID());
+        statement.executeUpdate();
+      }
+      UUID objectId = createPao();
+      assertEquals(List.of(), changeFeedService.getChanges(position, 100, Duration.ZERO).changes());
+
+      connection.rollback();
+      assertEquals(
+          List.of(objectId),
+          ownChanges(position, Set.of(objectId)).stream().map(PaoChange::objectId).toList());
+    }
+  }
+
+  @Test
+  void badPositions() {
+    assertThrows(
+        InvalidInputException.class,
+        () -> changeFeedService.getChanges("not-a-position", 100, Duration.ZERO));
+    assertThrows(
+        ChangeFeedPositionExpiredException.class,
+        () -> changeFeedService.getChanges("1_" + Long.MAX_VALUE, 100, Duration.ZERO));
+  }
+
+  private UUID createPao() {
+    UUID objectId = UUID.randomUUID();
+    paoService.createPao(objectId, PaoComponent.WSM, PaoObjectType.WORKSPACE, new PolicyInputs());
+    return objectId;
+  }
+
+  private List<PaoChange> ownChanges(String position, Set<UUID> objectIds) {
+    List<PaoChange> changes = new ArrayList<>();
+    PaoChangePage page;
+    do {
+      page = changeFeedService.getChanges(position, 2, Duration.ZERO);
+      page.changes().stream()
+          .filter(change -> objectIds.contains(change.objectId()))
+          .forEach(changes::add);
+      position = page.position().toString();
+    } while (!page.changes().isEmpty());
+    return changes;
+  }
+
+  /** Read the feed to its end, and return the position there. */
+  private String readToEnd(@Nullable String position) {
+    PaoChangePage page;
+    do {
+      page = changeFeedService.getChanges(position, 1000, Duration.ZERO);
+      position = (page.position() == null) ? null : page.position().toString();
+    } while (!page.changes().isEmpty());
+    if (position == null) {
+      // An empty feed has no position yet
+      createPao();
+      return readToEnd(null);
+    }
+    return position;
+  }
+}
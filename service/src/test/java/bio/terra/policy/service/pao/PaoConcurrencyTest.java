@@ -0,0 +1,124 @@
+package bio.terra.policy.service.pao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.db.PaoDao;
+import bio.terra.policy.db.exception.PaoVersionConflictException;
+import bio.terra.policy.service.pao.graph.Walker;
+import bio.terra.policy.service.pao.model.Pao;
+import bio.terra.policy.service.pao.model.PaoUpdateMode;
+import bio.terra.policy.service.policy.model.PolicyUpdateResult;
+import bio.terra.policy.testutils.PaoTestUtil;
+import bio.terra.policy.testutils.TestUnitBase;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class PaoConcurrencyTest extends TestUnitBase {
+  @Autowired private PaoService paoService;
+  @Autowired private PaoDao paoDao;
+
+  @Test
+  void updateBumpsVersion() throws Exception {
+    UUID paoId = PaoTestUtil.makePao(paoService);
+    long initialVersion = paoService.getPao(paoId).getVersion();
+
+    PolicyUpdateResult result =
+        paoService.updatePao(
+            paoId,
+            PaoTestUtil.makePolicyInputs(PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A)),
+            PaoTestUtil.makePolicyInputs(),
+            PaoUpdateMode.FAIL_ON_CONFLICT);
+    assertTrue(result.updateApplied());
+    assertEquals(initialVersion + 1, paoService.getPao(paoId).getVersion());
+
+    paoService.deletePao(paoId);
+    assertEquals(initialVersion + 2, paoService.getPao(paoId, true).getVersion());
+  }
+
+  @Test
+  void staleWalkIsNotApplied() throws Exception {
+    UUID paoId = PaoTestUtil.makePao(paoService);
+
+    // Read the PAO and compute an update from it...
+    Pao stalePao = paoDao.getPao(paoId, false);
+    stalePao.setAttributes(
+        PaoTestUtil.makePolicyInputs(PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A)));
+    Walker walker = new Walker(paoDao, stalePao, paoId);
+
+    // ...while another update changes it
+    paoService.replacePao(
+        paoId,
+        PaoTestUtil.makePolicyInputs(PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_B)),
+        PaoUpdateMode.FAIL_ON_CONFLICT);
+
+    assertThrows(PaoVersionConflictException.class, walker::applyChanges);
+
+    // The concurrent update survives
+    Pao pao = paoService.getPao(paoId);
+    PaoTestUtil.checkForPolicies(pao, PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_B));
+    PaoTestUtil.checkForMissingPolicies(
+        pao, PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A));
+  }
+
+  @Test
+  void linkBumpsSourceVersion() throws Exception {
+    // A walk that read the source before the link did not see the new dependent,
+    // so linking must invalidate that read.
+    UUID sourceId =
+        PaoTestUtil.makePao(
+            paoService, PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_USA));
+    UUID dependentId = PaoTestUtil.makePao(paoService);
+
+    Pao staleSource = paoDao.getPao(sourceId, false);
+    staleSource.setAttributes(
+        PaoTestUtil.makePolicyInputs(
+            PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_IOWA)));
+    Walker walker = new Walker(paoDao, staleSource, sourceId);
+
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+    assertEquals(staleSource.getVersion() + 1, paoService.getPao(sourceId).getVersion());
+
+    assertThrows(PaoVersionConflictException.class, walker::applyChanges);
+  }
+
+  @Test
+  void concurrentUpdatesAreNotLost() throws Exception {
+    UUID paoId = PaoTestUtil.makePao(paoService);
+    List<String> flagNames = List.of("flag_1", "flag_2", "flag_3", "flag_4");
+
+    // Each task adds its own flag to the same PAO. Losers of the version race retry,
+    // so every flag must end up in the attribute set.
+    ExecutorService executor = Executors.newFixedThreadPool(flagNames.size());
+    try {
+      List<Callable<PolicyUpdateResult>> tasks = new ArrayList<>();
+      for (String flagName : flagNames) {
+        tasks.add(
+            () ->
+                paoService.updatePao(
+                    paoId,
+                    PaoTestUtil.makePolicyInputs(PaoTestUtil.makeFlagInput(flagName)),
+                    PaoTestUtil.makePolicyInputs(),
+                    PaoUpdateMode.FAIL_ON_CONFLICT));
+      }
+      for (Future<PolicyUpdateResult> future : executor.invokeAll(tasks)) {
+        assertTrue(future.get().updateApplied());
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    Pao pao = paoService.getPao(paoId);
+    PaoTestUtil.checkForPolicies(
+        pao, flagNames.stream().map(PaoTestUtil::makeFlagInput).toArray(PolicyInput[]::new));
+  }
+}
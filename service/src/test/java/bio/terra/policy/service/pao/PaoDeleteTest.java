@@ -95,9 +95,7 @@ public class PaoDeleteTest extends TestUnitBase {
         PolicyInput.createFromMap(
             TERRA, REGION_CONSTRAINT, Collections.singletonMap(REGION, US_REGION));
 
-    var inputs = new PolicyInputs();
-    inputs.addInput(groupPolicy);
-    inputs.addInput(regionPolicy);
+    var inputs = PolicyInputs.builder().addInput(groupPolicy).addInput(regionPolicy).build();
 
     // Create a PAO
     paoService.createPao(objectId, PaoComponent.WSM, PaoObjectType.WORKSPACE, inputs);
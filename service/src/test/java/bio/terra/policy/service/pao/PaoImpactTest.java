@@ -0,0 +1,109 @@
+package bio.terra.policy.service.pao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.common.model.PolicyName;
+import bio.terra.policy.service.pao.graph.model.ImpactAnalysis;
+import bio.terra.policy.service.pao.graph.model.ImpactedPao;
+import bio.terra.policy.service.pao.graph.model.PolicyConflict;
+import bio.terra.policy.service.pao.model.PaoUpdateMode;
+import bio.terra.policy.service.policy.model.PolicyUpdateResult;
+import bio.terra.policy.testutils.PaoTestUtil;
+import bio.terra.policy.testutils.TestUnitBase;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class PaoImpactTest extends TestUnitBase {
+  private static final PolicyName REGION_POLICY =
+      new PolicyName(PaoTestUtil.TERRA_NAMESPACE, PaoTestUtil.REGION_CONSTRAINT);
+
+  @Autowired private PaoService paoService;
+
+  /**
+   * Build S --> D1(usa), S --> D2 --> D3, and S --> D3. D3 is reached by paths of two lengths, so
+   * it must be evaluated after D2.
+   */
+  private record Graph(UUID source, UUID d1, UUID d2, UUID d3) {
+    static Graph make(PaoService paoService) {
+      UUID source = PaoTestUtil.makePao(paoService);
+      UUID d1 =
+          PaoTestUtil.makePao(
+              paoService, PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_USA));
+      UUID d2 = PaoTestUtil.makePao(paoService);
+      UUID d3 = PaoTestUtil.makePao(paoService);
+      paoService.linkSourcePao(d1, source, PaoUpdateMode.FAIL_ON_CONFLICT);
+      paoService.linkSourcePao(d2, source, PaoUpdateMode.FAIL_ON_CONFLICT);
+      paoService.linkSourcePao(d3, d2, PaoUpdateMode.FAIL_ON_CONFLICT);
+      paoService.linkSourcePao(d3, source, PaoUpdateMode.FAIL_ON_CONFLICT);
+      return new Graph(source, d1, d2, d3);
+    }
+  }
+
+  @Test
+  void impactMatchesDryRun() {
+    Graph graph = Graph.make(paoService);
+    PolicyInput europe = PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_EUROPE);
+    PolicyInputs add = PaoTestUtil.makePolicyInputs(europe);
+    PolicyInputs empty = PaoTestUtil.makePolicyInputs();
+
+    ImpactAnalysis analysis = paoService.analyzeImpact(graph.source(), add, empty, 100);
+    assertEquals(3, analysis.dependentCount());
+    assertTrue(analysis.complete());
+    Map<UUID, ImpactedPao> impacted =
+        analysis.impacted().stream()
+            .collect(Collectors.toMap(impact -> impact.pao().getObjectId(), impact -> impact));
+    assertEquals(Set.of(graph.d1(), graph.d2(), graph.d3()), impacted.keySet());
+    // Sources come before their dependents
+    List<UUID> order = analysis.impacted().stream().map(i -> i.pao().getObjectId()).toList();
+    assertTrue(order.indexOf(graph.d2()) < order.indexOf(graph.d3()));
+
+    // Only D1 holds a region that conflicts with europe
+    List<PolicyConflict> conflicts = impacted.get(graph.d1()).conflicts();
+    assertEquals(1, conflicts.size());
+    assertEquals(graph.source(), conflicts.get(0).conflictPao().getObjectId());
+    assertEquals(REGION_POLICY, conflicts.get(0).policyName());
+    assertTrue(impacted.get(graph.d2()).conflicts().isEmpty());
+    assertTrue(impacted.get(graph.d3()).conflicts().isEmpty());
+
+    // A DRY_RUN of the same update finds the same conflict
+    PolicyUpdateResult dryRun =
+        paoService.updatePao(graph.source(), add, empty, PaoUpdateMode.DRY_RUN);
+    PaoTestUtil.checkConflict(dryRun, graph.d1(), graph.source(), REGION_POLICY);
+
+    // Nothing was changed
+    assertTrue(paoService.getPao(graph.d2()).getEffectiveAttributes().getInputs().isEmpty());
+  }
+
+  @Test
+  void impactStopsAtLimit() {
+    Graph graph = Graph.make(paoService);
+    PolicyInputs add =
+        PaoTestUtil.makePolicyInputs(
+            PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_EUROPE));
+
+    ImpactAnalysis analysis =
+        paoService.analyzeImpact(graph.source(), add, PaoTestUtil.makePolicyInputs(), 2);
+    assertEquals(2, analysis.impacted().size());
+    assertFalse(analysis.complete());
+  }
+
+  @Test
+  void unchangedTargetHasNoImpact() {
+    Graph graph = Graph.make(paoService);
+    PolicyInputs empty = PaoTestUtil.makePolicyInputs();
+
+    ImpactAnalysis analysis = paoService.analyzeImpact(graph.source(), empty, empty, 100);
+    assertEquals(0, analysis.dependentCount());
+    assertTrue(analysis.impacted().isEmpty());
+    assertTrue(analysis.complete());
+  }
+}
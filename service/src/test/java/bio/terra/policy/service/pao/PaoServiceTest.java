@@ -42,9 +42,7 @@ public class PaoServiceTest extends TestUnitBase {
         PolicyInput.createFromMap(
             TERRA, REGION_CONSTRAINT, Collections.singletonMap(REGION, US_REGION));
 
-    var inputs = new PolicyInputs();
-    inputs.addInput(groupPolicy);
-    inputs.addInput(regionPolicy);
+    var inputs = PolicyInputs.builder().addInput(groupPolicy).addInput(regionPolicy).build();
 
     // Create a PAO
     paoService.createPao(objectId, PaoComponent.WSM, PaoObjectType.WORKSPACE, inputs);
@@ -89,15 +87,13 @@ public class PaoServiceTest extends TestUnitBase {
         PolicyInput.createFromMap(
             TERRA, REGION_CONSTRAINT, Collections.singletonMap(REGION, "badregion"));
 
-    var groupInputs = new PolicyInputs();
-    groupInputs.addInput(invalidGroupPolicy);
+    var groupInputs = PolicyInputs.builder().addInput(invalidGroupPolicy).build();
     assertThrows(
         InvalidInputException.class,
         () ->
             paoService.createPao(objectId, PaoComponent.WSM, PaoObjectType.WORKSPACE, groupInputs));
 
-    var regionInputs = new PolicyInputs();
-    regionInputs.addInput(invalidRegionPolicy);
+    var regionInputs = PolicyInputs.builder().addInput(invalidRegionPolicy).build();
     assertThrows(
         InvalidInputException.class,
         () ->
@@ -0,0 +1,129 @@
+package bio.terra.policy.service.pao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import bio.terra.policy.common.exception.PolicyObjectNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+public class SingleFlightTest {
+  private static final int FOLLOWERS = 4;
+
+  @Test
+  void concurrentLoadsShareOneResult() throws Exception {
+    SingleFlight<String, Object> singleFlight = new SingleFlight<>("test");
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    Object loaded = new Object();
+    Supplier<Object> loader =
+        () -> {
+          loads.incrementAndGet();
+          awaitQuietly(release);
+          return loaded;
+        };
+
+    List<Object> results = new ArrayList<>();
+    Thread leader = new Thread(() -> addResult(results, singleFlight.load("key", loader)));
+    leader.start();
+    awaitInFlight(singleFlight);
+    List<Thread> followers =
+        startFollowers(() -> addResult(results, singleFlight.load("key", loader)));
+
+    release.countDown();
+    leader.join();
+    for (Thread follower : followers) {
+      follower.join();
+    }
+    assertEquals(1, loads.get());
+    assertEquals(FOLLOWERS + 1, results.size());
+    results.forEach(result -> assertSame(loaded, result));
+
+    // The finished load is forgotten
+    assertEquals(0, singleFlight.inFlightCount());
+    assertNotSame(loaded, singleFlight.load("key", Object::new));
+  }
+
+  @Test
+  void concurrentLoadsShareOneException() throws Exception {
+    SingleFlight<String, Object> singleFlight = new SingleFlight<>("test");
+    CountDownLatch release = new CountDownLatch(1);
+    Supplier<Object> loader =
+        () -> {
+          awaitQuietly(release);
+          throw new PolicyObjectNotFoundException("not found");
+        };
+
+    List<Object> results = new ArrayList<>();
+    Runnable load =
+        () -> {
+          try {
+            singleFlight.load("key", loader);
+          } catch (PolicyObjectNotFoundException e) {
+            addResult(results, e);
+          }
+        };
+    Thread leader = new Thread(load);
+    leader.start();
+    awaitInFlight(singleFlight);
+    List<Thread> followers = startFollowers(load);
+
+    release.countDown();
+    leader.join();
+    for (Thread follower : followers) {
+      follower.join();
+    }
+    assertEquals(FOLLOWERS + 1, results.size());
+    results.forEach(result -> assertSame(results.get(0), result));
+
+    assertEquals(0, singleFlight.inFlightCount());
+    assertThrows(
+        PolicyObjectNotFoundException.class,
+        () ->
+            singleFlight.load(
+                "key",
+                () -> {
+                  throw new PolicyObjectNotFoundException("not found");
+                }));
+  }
+
+  /** Start the followers and wait until each is waiting on the load in flight. */
+  private List<Thread> startFollowers(Runnable load) throws InterruptedException {
+    List<Thread> followers = new ArrayList<>();
+    for (int i = 0; i < FOLLOWERS; i++) {
+      Thread follower = new Thread(load);
+      follower.start();
+      followers.add(follower);
+    }
+    for (Thread follower : followers) {
+      while (follower.getState() != Thread.State.WAITING) {
+        Thread.sleep(1);
+      }
+    }
+    return followers;
+  }
+
+  private static void awaitInFlight(SingleFlight<?, ?> singleFlight) throws InterruptedException {
+    while (singleFlight.inFlightCount() == 0) {
+      Thread.sleep(1);
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static synchronized void addResult(List<Object> results, Object result) {
+    results.add(result);
+  }
+}
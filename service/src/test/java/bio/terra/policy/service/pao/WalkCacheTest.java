@@ -0,0 +1,130 @@
+package bio.terra.policy.service.pao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.db.PaoDao;
+import bio.terra.policy.service.pao.graph.Walker;
+import bio.terra.policy.service.pao.model.Pao;
+import bio.terra.policy.service.pao.model.PaoUpdateMode;
+import bio.terra.policy.service.policy.model.PolicyUpdateResult;
+import bio.terra.policy.testutils.PaoTestUtil;
+import bio.terra.policy.testutils.TestUnitBase;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class WalkCacheTest extends TestUnitBase {
+  @Autowired private PaoService paoService;
+  @Autowired private PaoDao paoDao;
+  @Autowired private WalkCache walkCache;
+
+  @BeforeEach
+  void clearCache() {
+    walkCache.invalidateAll();
+  }
+
+  @Test
+  void dryRunWalkIsReused() throws Exception {
+    UUID paoId = PaoTestUtil.makePao(paoService);
+    PolicyInput flag = PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A);
+
+    Walker dryRun = walkCache.walk(proposeAttributes(paoId, flag), paoId, PaoUpdateMode.DRY_RUN);
+    assertSame(
+        dryRun, walkCache.walk(proposeAttributes(paoId, flag), paoId, PaoUpdateMode.DRY_RUN));
+
+    // A different proposal gets its own walk
+    PolicyInput otherFlag = PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_B);
+    assertNotSame(
+        dryRun, walkCache.walk(proposeAttributes(paoId, otherFlag), paoId, PaoUpdateMode.DRY_RUN));
+
+    // Applying consumes the cached walk
+    assertSame(
+        dryRun,
+        walkCache.walk(proposeAttributes(paoId, flag), paoId, PaoUpdateMode.FAIL_ON_CONFLICT));
+    assertNotSame(
+        dryRun,
+        walkCache.walk(proposeAttributes(paoId, flag), paoId, PaoUpdateMode.FAIL_ON_CONFLICT));
+  }
+
+  @Test
+  void changeInSubgraphInvalidatesWalk() throws Exception {
+    UUID sourceId = PaoTestUtil.makePao(paoService);
+    UUID dependentId = PaoTestUtil.makePao(paoService);
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+    PolicyInput region = PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_USA);
+
+    Walker dryRun =
+        walkCache.walk(proposeAttributes(sourceId, region), sourceId, PaoUpdateMode.DRY_RUN);
+
+    // Changing the dependent leaves the source alone, but the walk read the dependent
+    paoService.replacePao(
+        dependentId,
+        PaoTestUtil.makePolicyInputs(PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A)),
+        PaoUpdateMode.FAIL_ON_CONFLICT);
+
+    assertNotSame(
+        dryRun,
+        walkCache.walk(proposeAttributes(sourceId, region), sourceId, PaoUpdateMode.DRY_RUN));
+  }
+
+  @Test
+  void dryRunThenApply() throws Exception {
+    UUID sourceId = PaoTestUtil.makePao(paoService);
+    UUID dependentId = PaoTestUtil.makePao(paoService);
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+    PolicyInput region = PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_USA);
+
+    for (int i = 0; i < 2; i++) {
+      PolicyUpdateResult dryRun = updateSource(sourceId, region, PaoUpdateMode.DRY_RUN);
+      assertFalse(dryRun.updateApplied());
+      assertTrue(dryRun.conflicts().isEmpty());
+    }
+
+    PolicyUpdateResult result = updateSource(sourceId, region, PaoUpdateMode.FAIL_ON_CONFLICT);
+    assertTrue(result.updateApplied());
+    PaoTestUtil.checkForPolicies(result.computedPao(), region);
+    PaoTestUtil.checkForPolicies(paoService.getPao(sourceId), region);
+    PaoTestUtil.checkForPolicies(paoService.getPao(dependentId), region);
+  }
+
+  @Test
+  void staleDryRunIsNotApplied() throws Exception {
+    UUID sourceId = PaoTestUtil.makePao(paoService);
+    UUID dependentId = PaoTestUtil.makePao(paoService);
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+    PolicyInput data2 =
+        PaoTestUtil.makeDataInput(PaoTestUtil.TEST_DATA_POLICY_X, PaoTestUtil.DATA2);
+
+    PolicyUpdateResult dryRun = updateSource(sourceId, data2, PaoUpdateMode.DRY_RUN);
+    assertTrue(dryRun.conflicts().isEmpty());
+
+    // Meanwhile, the dependent gets a policy that conflicts with the proposed change
+    paoService.replacePao(
+        dependentId,
+        PaoTestUtil.makePolicyInputs(
+            PaoTestUtil.makeDataInput(PaoTestUtil.TEST_DATA_POLICY_X, PaoTestUtil.DATA1)),
+        PaoUpdateMode.FAIL_ON_CONFLICT);
+
+    PolicyUpdateResult result = updateSource(sourceId, data2, PaoUpdateMode.FAIL_ON_CONFLICT);
+    assertFalse(result.updateApplied());
+    assertEquals(1, result.conflicts().size());
+    PaoTestUtil.checkForMissingPolicies(paoService.getPao(sourceId), data2);
+  }
+
+  private Pao proposeAttributes(UUID paoId, PolicyInput input) {
+    Pao pao = paoDao.getPao(paoId, false);
+    pao.setAttributes(PaoTestUtil.makePolicyInputs(input));
+    return pao;
+  }
+
+  private PolicyUpdateResult updateSource(UUID sourceId, PolicyInput input, PaoUpdateMode mode) {
+    return paoService.updatePao(
+        sourceId, PaoTestUtil.makePolicyInputs(input), PaoTestUtil.makePolicyInputs(), mode);
+  }
+}
@@ -0,0 +1,57 @@
+package bio.terra.policy.service.pao.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class GraphLayersTest {
+
+  @Test
+  void layersFollowDeepestSource() {
+    UUID a = UUID.randomUUID();
+    UUID b = UUID.randomUUID();
+    UUID c = UUID.randomUUID();
+    UUID d = UUID.randomUUID();
+    // d depends on a directly and on c through b, so it waits for c
+    GraphLayers graphLayers =
+        GraphLayers.of(Map.of(a, List.of(), b, List.of(a), c, List.of(b), d, List.of(a, c)));
+
+    assertEquals(4, graphLayers.layers().size());
+    assertEquals(List.of(a), graphLayers.layers().get(0));
+    assertEquals(List.of(b), graphLayers.layers().get(1));
+    assertEquals(List.of(c), graphLayers.layers().get(2));
+    assertEquals(List.of(d), graphLayers.layers().get(3));
+    assertTrue(graphLayers.unreachable().isEmpty());
+  }
+
+  @Test
+  void missingSourcesAreIgnored() {
+    UUID a = UUID.randomUUID();
+    UUID b = UUID.randomUUID();
+    GraphLayers graphLayers =
+        GraphLayers.of(Map.of(a, List.of(UUID.randomUUID()), b, List.of(UUID.randomUUID())));
+
+    assertEquals(1, graphLayers.layers().size());
+    assertEquals(Set.of(a, b), new HashSet<>(graphLayers.layers().get(0)));
+  }
+
+  @Test
+  void cycleIsUnreachable() {
+    UUID root = UUID.randomUUID();
+    UUID x = UUID.randomUUID();
+    UUID y = UUID.randomUUID();
+    UUID behind = UUID.randomUUID();
+    GraphLayers graphLayers =
+        GraphLayers.of(
+            Map.of(root, List.of(), x, List.of(root, y), y, List.of(x), behind, List.of(y)));
+
+    assertEquals(List.of(List.of(root)), graphLayers.layers());
+    assertEquals(Set.of(x, y, behind), graphLayers.unreachable());
+  }
+}
@@ -0,0 +1,231 @@
+package bio.terra.policy.service.pao.graph.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.common.model.PolicyInputs;
+import bio.terra.policy.service.pao.model.Pao;
+import bio.terra.policy.service.pao.model.PaoComponent;
+import bio.terra.policy.service.pao.model.PaoObjectType;
+import bio.terra.policy.service.policy.PolicyMutator;
+import bio.terra.policy.testutils.PaoTestUtil;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential test of the evaluator against the original three-pass algorithm, kept here as the
+ * reference, on randomized inputs.
+ */
+public class AttributeEvaluatorTest {
+  private static final long SEED = 20261019L;
+  private static final int ITERATIONS = 5000;
+
+  @Test
+  void matchesReferenceEvaluator() {
+    Random random = new Random(SEED);
+    AttributeEvaluator.Scratch scratch = new AttributeEvaluator.Scratch();
+
+    for (int i = 0; i < ITERATIONS; i++) {
+      Pao containingPao = makePao(new PolicyInputs());
+      List<GraphAttributeSet> attributeSets = new ArrayList<>();
+      List<UUID> paoIds = new ArrayList<>();
+      int paoCount = 1 + random.nextInt(6);
+      for (int p = 0; p < paoCount; p++) {
+        Pao pao = makePao(new PolicyInputs());
+        paoIds.add(pao.getObjectId());
+        attributeSets.add(makeAttributeSet(random, pao, paoIds));
+      }
+      UUID changedPaoId =
+          random.nextInt(4) == 0 ? UUID.randomUUID() : paoIds.get(random.nextInt(paoIds.size()));
+
+      // The same scratch is reused for every evaluation, as the walker does
+      AttributeEvaluator evaluator = new AttributeEvaluator(containingPao, scratch);
+      ReferenceEvaluator reference = new ReferenceEvaluator(containingPao);
+      for (GraphAttributeSet attributeSet : attributeSets) {
+        evaluator.addAttributeSet(attributeSet);
+        reference.addAttributeSet(attributeSet);
+      }
+
+      checkSame(reference.evaluate(changedPaoId), evaluator.evaluate(changedPaoId));
+    }
+  }
+
+  private GraphAttributeSet makeAttributeSet(Random random, Pao pao, List<UUID> paoIds) {
+    GraphAttributeSet attributeSet = new GraphAttributeSet();
+    for (PolicyInput input : randomInputs(random)) {
+      // Existing conflicts; the containing PAO itself is a candidate, to exercise re-found
+      // conflicts
+      Set<UUID> conflicts = new HashSet<>();
+      for (UUID paoId : paoIds) {
+        if (random.nextInt(5) == 0) {
+          conflicts.add(paoId);
+        }
+      }
+      GraphAttribute attribute = new GraphAttribute(pao, input.withConflicts(conflicts));
+      if (random.nextInt(5) == 0) {
+        attribute.addNewConflict(paoIds.get(random.nextInt(paoIds.size())));
+      }
+      attributeSet.putAttribute(attribute);
+    }
+    return attributeSet;
+  }
+
+  private List<PolicyInput> randomInputs(Random random) {
+    List<PolicyInput> inputs = new ArrayList<>();
+    if (random.nextBoolean()) {
+      inputs.add(PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A));
+    }
+    if (random.nextBoolean()) {
+      inputs.add(
+          PaoTestUtil.makeDataInput(
+              PaoTestUtil.TEST_DATA_POLICY_X,
+              random.nextBoolean() ? PaoTestUtil.DATA1 : PaoTestUtil.DATA2));
+    }
+    if (random.nextBoolean()) {
+      String[] regions = {
+        PaoTestUtil.REGION_NAME_USA, PaoTestUtil.REGION_NAME_IOWA, PaoTestUtil.REGION_NAME_EUROPE
+      };
+      inputs.add(PaoTestUtil.makeRegionPolicyInput(regions[random.nextInt(regions.length)]));
+    }
+    if (random.nextBoolean()) {
+      inputs.add(
+          PaoTestUtil.makeGroupPolicyInput(
+              random.nextBoolean() ? PaoTestUtil.GROUP_NAME : PaoTestUtil.GROUP_NAME_ALT));
+    }
+    return inputs;
+  }
+
+  private void checkSame(GraphAttributeSet expected, GraphAttributeSet actual) {
+    Map<String, GraphAttribute> actualByKey = new HashMap<>();
+    for (GraphAttribute attribute : actual.getAttributes()) {
+      actualByKey.put(attribute.getPolicyInput().getKey(), attribute);
+    }
+    assertEquals(expected.getAttributes().size(), actualByKey.size());
+
+    for (GraphAttribute expectedAttribute : expected.getAttributes()) {
+      PolicyInput expectedInput = expectedAttribute.getPolicyInput();
+      GraphAttribute actualAttribute = actualByKey.get(expectedInput.getKey());
+      assertNotNull(actualAttribute);
+      PolicyInput actualInput = actualAttribute.getPolicyInput();
+      assertEquals(expectedInput.getPolicyName(), actualInput.getPolicyName());
+      assertEquals(expectedInput.getAdditionalData(), actualInput.getAdditionalData());
+      assertEquals(expectedInput.getConflicts(), actualInput.getConflicts());
+      assertEquals(expectedAttribute.getNewConflicts(), actualAttribute.getNewConflicts());
+      assertEquals(expectedAttribute.getReFoundConflicts(), actualAttribute.getReFoundConflicts());
+    }
+  }
+
+  private Pao makePao(PolicyInputs inputs) {
+    return new Pao.Builder()
+        .setObjectId(UUID.randomUUID())
+        .setComponent(PaoComponent.WSM)
+        .setObjectType(PaoObjectType.WORKSPACE)
+        .setAttributes(inputs)
+        .setEffectiveAttributes(inputs)
+        .setSourceObjectIds(new HashSet<>())
+        .setCreated(Instant.now())
+        .setLastUpdated(Instant.now())
+        .build();
+  }
+
+  /** The evaluator as it was before the single-pass rewrite */
+  private static class ReferenceEvaluator {
+    private final Map<String, List<GraphAttribute>> inputs = new HashMap<>();
+    private final Pao containingPao;
+
+    ReferenceEvaluator(Pao containingPao) {
+      this.containingPao = containingPao;
+    }
+
+    void addAttributeSet(GraphAttributeSet attributeSet) {
+      for (GraphAttribute attribute : attributeSet.getAttributes()) {
+        inputs
+            .computeIfAbsent(attribute.getPolicyInput().getKey(), k -> new ArrayList<>())
+            .add(attribute);
+      }
+    }
+
+    GraphAttributeSet evaluate(UUID changedPaoId) {
+      var effectiveAttributeSet = new GraphAttributeSet();
+      inputs.forEach(
+          (k, v) -> effectiveAttributeSet.putAttribute(evaluateOnePolicy(v, changedPaoId)));
+      return effectiveAttributeSet;
+    }
+
+    private GraphAttribute evaluateOnePolicy(
+        List<GraphAttribute> attributeList, UUID changedPaoId) {
+      GraphAttribute newAttribute = null;
+
+      List<GraphAttribute> remainingList1 = new ArrayList<>();
+      for (GraphAttribute attribute : attributeList) {
+        if (attribute.isChanged(changedPaoId)
+            || attribute.hasNewConflict()
+            || attribute.hasExistingConflict()) {
+          remainingList1.add(attribute);
+        } else {
+          newAttribute = combineAttribute(newAttribute, attribute);
+        }
+      }
+
+      List<GraphAttribute> remainingList2 = new ArrayList<>();
+      for (GraphAttribute attribute : remainingList1) {
+        if (attribute.isChanged(changedPaoId) || attribute.hasNewConflict()) {
+          remainingList2.add(attribute);
+        } else {
+          newAttribute = combineAttribute(newAttribute, attribute);
+        }
+      }
+
+      List<GraphAttribute> remainingList3 = new ArrayList<>();
+      for (GraphAttribute attribute : remainingList2) {
+        if (attribute.isChanged(changedPaoId) || attribute.hasNewConflict()) {
+          remainingList3.add(attribute);
+        } else {
+          newAttribute = combineAttribute(newAttribute, attribute);
+        }
+      }
+
+      for (GraphAttribute attribute : remainingList3) {
+        newAttribute = combineAttribute(newAttribute, attribute);
+      }
+      return newAttribute;
+    }
+
+    private GraphAttribute combineAttribute(GraphAttribute newAttribute, GraphAttribute attribute) {
+      PolicyInput input = attribute.getPolicyInput();
+      if (newAttribute == null) {
+        newAttribute = new GraphAttribute(containingPao, input);
+        if (attribute.hasNewConflict()) {
+          propagateConflict(newAttribute, attribute);
+        }
+      }
+
+      PolicyInput resultInput = PolicyMutator.combine(newAttribute.getPolicyInput(), input);
+      if (resultInput == null || attribute.hasNewConflict()) {
+        propagateConflict(newAttribute, attribute);
+      } else {
+        newAttribute.setPolicyInput(resultInput);
+      }
+      return newAttribute;
+    }
+
+    private void propagateConflict(GraphAttribute newAttribute, GraphAttribute attribute) {
+      UUID id = attribute.getContainingPao().getObjectId();
+      Set<UUID> conflicts = attribute.getPolicyInput().getConflicts();
+      if (conflicts.contains(id)) {
+        newAttribute.addReFoundConflict(id);
+      } else {
+        newAttribute.addNewConflict(id);
+      }
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package bio.terra.policy.service.policy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.common.model.PolicyName;
+import com.google.common.collect.ArrayListMultimap;
+import org.junit.jupiter.api.Test;
+
+public class PolicyRegistryTest {
+  @Test
+  void knownPoliciesAreRegistered() {
+    for (KnownPolicy knownPolicy : KnownPolicy.values()) {
+      PolicyName policyName = knownPolicy.getPolicy().getPolicyName();
+      assertSame(knownPolicy.getPolicy(), PolicyRegistry.getPolicy(policyName));
+      // Lookup is by value, not identity of the name
+      assertSame(
+          knownPolicy.getPolicy(),
+          PolicyRegistry.getPolicy(
+              new PolicyName(policyName.getNamespace(), policyName.getName())));
+    }
+  }
+
+  @Test
+  void providedPolicyIsRegistered() {
+    PolicyBase policy = PolicyRegistry.getPolicy(TestPolicyProvider.TEST_LABEL_POLICY_NAME);
+    assertTrue(policy instanceof PolicyLabel);
+    assertTrue(
+        KnownPolicy.findPolicyBaseByName(TestPolicyProvider.TEST_LABEL_POLICY_NAME).isPresent());
+
+    // The mutator dispatches to the provided label policy: the dependent wins
+    PolicyInput dependent = labelInput("a");
+    PolicyInput source = labelInput("b");
+    assertSame(dependent, PolicyMutator.combine(dependent, source));
+  }
+
+  @Test
+  void unknownPoliciesAreReused() {
+    PolicyName unknownName = new PolicyName("test_namespace", "test_unknown_registry");
+    assertTrue(PolicyRegistry.findRegisteredPolicy(unknownName).isEmpty());
+
+    PolicyBase unknown = PolicyRegistry.getPolicy(unknownName);
+    assertTrue(unknown instanceof PolicyUnknown);
+    assertEquals(unknownName, unknown.getPolicyName());
+    assertSame(
+        unknown,
+        PolicyRegistry.getPolicy(new PolicyName("test_namespace", "test_unknown_registry")));
+
+    PolicyBase otherUnknown =
+        PolicyRegistry.getPolicy(new PolicyName("test_namespace", "test_unknown_other"));
+    assertNotSame(unknown, otherUnknown);
+  }
+
+  private PolicyInput labelInput(String value) {
+    ArrayListMultimap<String, String> data = ArrayListMultimap.create();
+    data.put("key", value);
+    return new PolicyInput(TestPolicyProvider.TEST_LABEL_POLICY_NAME, data);
+  }
+}
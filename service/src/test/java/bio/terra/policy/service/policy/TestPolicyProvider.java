@@ -0,0 +1,16 @@
+package bio.terra.policy.service.policy;
+
+import bio.terra.policy.common.model.PolicyName;
+import java.util.Collection;
+import java.util.List;
+
+/** Provider registered in the test resources, to exercise the PolicyProvider SPI. */
+public class TestPolicyProvider implements PolicyProvider {
+  public static final PolicyName TEST_LABEL_POLICY_NAME =
+      new PolicyName("test_namespace", "test_provided_label");
+
+  @Override
+  public Collection<PolicyBase> getPolicies() {
+    return List.of(new PolicyLabel(TEST_LABEL_POLICY_NAME));
+  }
+}
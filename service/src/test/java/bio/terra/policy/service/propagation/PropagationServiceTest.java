@@ -0,0 +1,230 @@
+package bio.terra.policy.service.propagation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.app.configuration.PropagationConfiguration;
+import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.common.exception.InvalidInputException;
+import bio.terra.policy.common.exception.PropagationJobNotFoundException;
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.service.pao.PaoService;
+import bio.terra.policy.service.pao.graph.model.PolicyConflict;
+import bio.terra.policy.service.pao.model.PaoUpdateMode;
+import bio.terra.policy.service.policy.model.PolicyUpdateResult;
+import bio.terra.policy.service.propagation.model.PropagationJob;
+import bio.terra.policy.service.propagation.model.PropagationJobStatus;
+import bio.terra.policy.testutils.PaoTestUtil;
+import bio.terra.policy.testutils.TestUnitBase;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+public class PropagationServiceTest extends TestUnitBase {
+  @Autowired private PaoService paoService;
+  @Autowired private PropagationService propagationService;
+  @Autowired private PropagationWorker propagationWorker;
+  @Autowired private PropagationConfiguration propagationConfiguration;
+  @Autowired private TpsDatabaseConfiguration tpsDatabaseConfiguration;
+
+  @BeforeEach
+  void drainQueue() {
+    // Start each test with an empty queue
+    while (propagationWorker.processBatch() > 0) {}
+  }
+
+  @Test
+  void asyncRequiresEnforceConflicts() throws Exception {
+    UUID paoId = PaoTestUtil.makePao(paoService);
+    PolicyInput flag = PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A);
+
+    for (PaoUpdateMode mode :
+        new PaoUpdateMode[] {PaoUpdateMode.DRY_RUN, PaoUpdateMode.FAIL_ON_CONFLICT}) {
+      assertThrows(
+          InvalidInputException.class,
+          () ->
+              paoService.updatePao(
+                  paoId,
+                  PaoTestUtil.makePolicyInputs(flag),
+                  PaoTestUtil.makePolicyInputs(),
+                  mode,
+                  true));
+      assertThrows(
+          InvalidInputException.class,
+          () -> paoService.replacePao(paoId, PaoTestUtil.makePolicyInputs(flag), mode, true));
+    }
+  }
+
+  @Test
+  void asyncUpdateWithoutDependents() throws Exception {
+    UUID paoId = PaoTestUtil.makePao(paoService);
+    PolicyInput flag = PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A);
+
+    PolicyUpdateResult result =
+        paoService.replacePao(
+            paoId, PaoTestUtil.makePolicyInputs(flag), PaoUpdateMode.ENFORCE_CONFLICTS, true);
+
+    // The change is applied and there is nothing to propagate
+    assertTrue(result.updateApplied());
+    assertNull(result.propagationJobId());
+    PaoTestUtil.checkForPolicies(paoService.getPao(paoId), flag);
+  }
+
+  @Test
+  void asyncUpdatePropagatesInBackground() throws Exception {
+    UUID sourceId = PaoTestUtil.makePao(paoService);
+    UUID dependentId = PaoTestUtil.makePao(paoService);
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+
+    PolicyInput region = PaoTestUtil.makeRegionPolicyInput(PaoTestUtil.REGION_NAME_USA);
+    PolicyUpdateResult result =
+        paoService.updatePao(
+            sourceId,
+            PaoTestUtil.makePolicyInputs(region),
+            PaoTestUtil.makePolicyInputs(),
+            PaoUpdateMode.ENFORCE_CONFLICTS,
+            true);
+    assertTrue(result.updateApplied());
+    UUID jobId = result.propagationJobId();
+    assertNotNull(jobId);
+
+    // The source is committed; the dependent waits for the job
+    PaoTestUtil.checkForPolicies(paoService.getPao(sourceId), region);
+    PaoTestUtil.checkForMissingPolicies(paoService.getPao(dependentId), region);
+    assertEquals(PropagationJobStatus.QUEUED, propagationService.getJob(jobId).status());
+
+    assertEquals(1, propagationWorker.processBatch());
+
+    PropagationJob job = propagationService.getJob(jobId);
+    assertEquals(PropagationJobStatus.SUCCEEDED, job.status());
+    assertEquals(1, job.attempts());
+    assertTrue(job.conflicts().isEmpty());
+    PaoTestUtil.checkForPolicies(paoService.getPao(dependentId), region);
+  }
+
+  @Test
+  void asyncUpdateEnforcesConflicts() throws Exception {
+    UUID sourceId = PaoTestUtil.makePao(paoService);
+    UUID dependentId =
+        PaoTestUtil.makePao(
+            paoService,
+            PaoTestUtil.makeDataInput(PaoTestUtil.TEST_DATA_POLICY_X, PaoTestUtil.DATA1));
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+
+    PolicyUpdateResult result =
+        paoService.updatePao(
+            sourceId,
+            PaoTestUtil.makePolicyInputs(
+                PaoTestUtil.makeDataInput(PaoTestUtil.TEST_DATA_POLICY_X, PaoTestUtil.DATA2)),
+            PaoTestUtil.makePolicyInputs(),
+            PaoUpdateMode.ENFORCE_CONFLICTS,
+            true);
+    assertTrue(result.conflicts().isEmpty());
+    propagationWorker.processBatch();
+
+    PropagationJob job = propagationService.getJob(result.propagationJobId());
+    assertEquals(PropagationJobStatus.SUCCEEDED, job.status());
+    assertEquals(1, job.conflicts().size());
+    PolicyConflict conflict = job.conflicts().get(0);
+    assertEquals(dependentId, conflict.pao().getObjectId());
+    assertEquals(sourceId, conflict.conflictPao().getObjectId());
+    assertEquals(PaoTestUtil.TEST_DATA_POLICY_X, conflict.policyName().getName());
+
+    // The conflict is recorded on the dependent, as with a synchronous ENFORCE_CONFLICTS update
+    PolicyInput dependentPolicy =
+        paoService.getPao(dependentId).getEffectiveAttributes().lookupPolicy(conflict.policyName());
+    assertTrue(dependentPolicy.getConflicts().contains(sourceId));
+  }
+
+  @Test
+  void jobsForTheSameObjectShareOneWalk() throws Exception {
+    UUID sourceId = PaoTestUtil.makePao(paoService);
+    UUID dependentId = PaoTestUtil.makePao(paoService);
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+
+    PolicyInput flagA = PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A);
+    PolicyInput flagB = PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_B);
+    UUID jobA =
+        paoService
+            .replacePao(
+                sourceId,
+                PaoTestUtil.makePolicyInputs(flagA),
+                PaoUpdateMode.ENFORCE_CONFLICTS,
+                true)
+            .propagationJobId();
+    UUID jobB =
+        paoService
+            .replacePao(
+                sourceId,
+                PaoTestUtil.makePolicyInputs(flagB),
+                PaoUpdateMode.ENFORCE_CONFLICTS,
+                true)
+            .propagationJobId();
+
+    assertEquals(2, propagationWorker.processBatch());
+    assertEquals(PropagationJobStatus.SUCCEEDED, propagationService.getJob(jobA).status());
+    assertEquals(PropagationJobStatus.SUCCEEDED, propagationService.getJob(jobB).status());
+
+    // The dependent reflects the latest state of the source
+    PaoTestUtil.checkForPolicies(paoService.getPao(dependentId), flagB);
+    PaoTestUtil.checkForMissingPolicies(paoService.getPao(dependentId), flagA);
+  }
+
+  @Test
+  void expiredJobIsReclaimedUntilItsAttemptsAreUsedUp() throws Exception {
+    UUID sourceId = PaoTestUtil.makePao(paoService);
+    UUID dependentId = PaoTestUtil.makePao(paoService);
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+    PolicyInput flag = PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A);
+    UUID jobId =
+        paoService
+            .replacePao(
+                sourceId, PaoTestUtil.makePolicyInputs(flag), PaoUpdateMode.ENFORCE_CONFLICTS, true)
+            .propagationJobId();
+    int maxAttempts = propagationConfiguration.getMaxAttempts();
+
+    // A worker died during the last attempt; the job is failed rather than claimed again
+    expireJob(jobId, maxAttempts);
+    assertEquals(0, propagationWorker.processBatch());
+    PropagationJob job = propagationService.getJob(jobId);
+    assertEquals(PropagationJobStatus.FAILED, job.status());
+    assertEquals(maxAttempts, job.attempts());
+
+    // A worker died during an earlier attempt; the job is reclaimed
+    expireJob(jobId, maxAttempts - 1);
+    assertEquals(1, propagationWorker.processBatch());
+    job = propagationService.getJob(jobId);
+    assertEquals(PropagationJobStatus.SUCCEEDED, job.status());
+    assertEquals(maxAttempts, job.attempts());
+    PaoTestUtil.checkForPolicies(paoService.getPao(dependentId), flag);
+  }
+
+  private void expireJob(UUID jobId, int attempts) {
+    new NamedParameterJdbcTemplate(tpsDatabaseConfiguration.getDataSource())
+        .update(
+            """
+            UPDATE propagation_job
+            SET status = :running, attempts = :attempts,
+                last_updated = CURRENT_TIMESTAMP - make_interval(secs => :expired_seconds)
+            WHERE job_id = :job_id
+            """,
+            new MapSqlParameterSource()
+                .addValue("running", PropagationJobStatus.RUNNING.getDbStatus())
+                .addValue("attempts", attempts)
+                .addValue(
+                    "expired_seconds", propagationConfiguration.getLeaseTimeout().toSeconds() + 60)
+                .addValue("job_id", jobId.toString()));
+  }
+
+  @Test
+  void jobNotFound() throws Exception {
+    assertThrows(
+        PropagationJobNotFoundException.class, () -> propagationService.getJob(UUID.randomUUID()));
+  }
+}
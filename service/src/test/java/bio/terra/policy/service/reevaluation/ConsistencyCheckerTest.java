@@ -0,0 +1,95 @@
+package bio.terra.policy.service.reevaluation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.db.DbEffectiveUpdate;
+import bio.terra.policy.db.DbPao;
+import bio.terra.policy.db.PaoDao;
+import bio.terra.policy.service.pao.PaoService;
+import bio.terra.policy.service.pao.model.PaoUpdateMode;
+import bio.terra.policy.service.reevaluation.model.ConsistencyReport;
+import bio.terra.policy.testutils.PaoTestUtil;
+import bio.terra.policy.testutils.TestUnitBase;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+public class ConsistencyCheckerTest extends TestUnitBase {
+  @Autowired private ConsistencyChecker consistencyChecker;
+  @Autowired private PaoDao paoDao;
+  @Autowired private PaoService paoService;
+  @Autowired private TpsDatabaseConfiguration tpsDatabaseConfiguration;
+
+  @Test
+  void mismatchIsReported() throws Exception {
+    PolicyInput group = PaoTestUtil.makeGroupPolicyInput(UUID.randomUUID().toString());
+    UUID sourceId = PaoTestUtil.makePao(paoService, group);
+    UUID dependentId = PaoTestUtil.makePao(paoService);
+    UUID grandDependentId = PaoTestUtil.makePao(paoService);
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+    paoService.linkSourcePao(grandDependentId, dependentId, PaoUpdateMode.FAIL_ON_CONFLICT);
+
+    ConsistencyReport report = consistencyChecker.check();
+    assertFalse(report.mismatches().contains(dependentId));
+    assertTrue(report.checked() >= 3);
+
+    // Drop the inherited group from the dependent's stored effective attributes
+    DbPao dependent = paoDao.getDbPao(dependentId, false);
+    paoDao.updateEffectiveAttributes(
+        List.of(
+            new DbEffectiveUpdate(
+                dependentId,
+                dependent.version(),
+                Map.of(),
+                dependent.effectiveSetId(),
+                PaoTestUtil.makePolicyInputs())));
+
+    // The dependent no longer matches its source; the grand dependent, which still holds the
+    // group, no longer matches the dependent
+    report = consistencyChecker.check();
+    assertTrue(report.mismatches().contains(dependentId));
+    assertTrue(report.mismatches().contains(grandDependentId));
+    assertFalse(report.mismatches().contains(sourceId));
+    assertEquals(report, consistencyChecker.getLastReport());
+  }
+
+  @Test
+  void cyclesAndDanglingSourcesAreReported() throws Exception {
+    UUID firstId = PaoTestUtil.makePao(paoService);
+    UUID secondId = PaoTestUtil.makePao(paoService);
+    UUID danglingId = PaoTestUtil.makePao(paoService);
+    paoService.linkSourcePao(secondId, firstId, PaoUpdateMode.FAIL_ON_CONFLICT);
+
+    // The service refuses to make either of these, so write them directly
+    setSources(firstId, secondId);
+    setSources(danglingId, UUID.randomUUID());
+    try {
+      ConsistencyReport report = consistencyChecker.check();
+      assertTrue(report.cycles().containsAll(List.of(firstId, secondId)));
+      assertTrue(report.dangling().contains(danglingId));
+      assertFalse(report.dangling().contains(firstId));
+      assertFalse(report.mismatches().contains(danglingId));
+      assertFalse(report.isConsistent());
+    } finally {
+      setSources(firstId);
+      setSources(danglingId);
+    }
+  }
+
+  private void setSources(UUID objectId, UUID... sources) {
+    new NamedParameterJdbcTemplate(tpsDatabaseConfiguration.getDataSource())
+        .update(
+            "UPDATE policy_object SET sources = :sources WHERE object_id = :object_id",
+            new MapSqlParameterSource()
+                .addValue("sources", sources)
+                .addValue("object_id", objectId));
+  }
+}
@@ -0,0 +1,202 @@
+package bio.terra.policy.service.reevaluation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.app.configuration.ReevaluationConfiguration;
+import bio.terra.policy.app.configuration.TpsDatabaseConfiguration;
+import bio.terra.policy.common.exception.ReevaluationJobNotFoundException;
+import bio.terra.policy.common.model.PolicyInput;
+import bio.terra.policy.db.DbEffectiveUpdate;
+import bio.terra.policy.db.DbPao;
+import bio.terra.policy.db.PaoDao;
+import bio.terra.policy.service.pao.PaoService;
+import bio.terra.policy.service.pao.model.PaoUpdateMode;
+import bio.terra.policy.service.propagation.model.PropagationJobStatus;
+import bio.terra.policy.service.reevaluation.model.ReevaluationJob;
+import bio.terra.policy.service.region.RegionService;
+import bio.terra.policy.testutils.PaoTestUtil;
+import bio.terra.policy.testutils.TestUnitBase;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+public class ReevaluationServiceTest extends TestUnitBase {
+  @Autowired private PaoDao paoDao;
+  @Autowired private PaoService paoService;
+  @Autowired private ReevaluationService reevaluationService;
+  @Autowired private ReevaluationWorker reevaluationWorker;
+  @Autowired private RegionService regionService;
+  @Autowired private ReevaluationConfiguration reevaluationConfiguration;
+  @Autowired private TpsDatabaseConfiguration tpsDatabaseConfiguration;
+
+  @BeforeEach
+  void drainQueue() {
+    // Start each test with an empty queue
+    while (reevaluationWorker.processJob()) {}
+  }
+
+  @Test
+  void reevaluationRepairsEffectiveAttributes() throws Exception {
+    PolicyInput group = PaoTestUtil.makeGroupPolicyInput(UUID.randomUUID().toString());
+    UUID sourceId = PaoTestUtil.makePao(paoService, group);
+    UUID dependentId = PaoTestUtil.makePao(paoService);
+    UUID grandDependentId = PaoTestUtil.makePao(paoService);
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+    paoService.linkSourcePao(grandDependentId, dependentId, PaoUpdateMode.FAIL_ON_CONFLICT);
+    UUID groupSetId = paoDao.getDbPao(sourceId, false).effectiveSetId();
+
+    // Stand in for a policy change that leaves stored effective attributes stale
+    DbPao dependent = paoDao.getDbPao(dependentId, false);
+    assertEquals(
+        List.of(dependentId),
+        paoDao.updateEffectiveAttributes(
+            List.of(
+                new DbEffectiveUpdate(
+                    dependentId,
+                    dependent.version(),
+                    Map.of(),
+                    dependent.effectiveSetId(),
+                    PaoTestUtil.makePolicyInputs()))));
+    DbPao staleDependent = paoDao.getDbPao(dependentId, false);
+    assertNotEquals(groupSetId, staleDependent.effectiveSetId());
+    DbPao source = paoDao.getDbPao(sourceId, false);
+    DbPao grandDependent = paoDao.getDbPao(grandDependentId, false);
+
+    ReevaluationJob job = reevaluationService.startJob();
+    assertEquals(PropagationJobStatus.QUEUED, job.status());
+    assertTrue(reevaluationWorker.processJob());
+
+    job = reevaluationService.getJob(job.jobId());
+    assertEquals(PropagationJobStatus.SUCCEEDED, job.status());
+    assertEquals(1, job.attempts());
+    assertEquals(job.progress().layerCount(), job.progress().completedLayers());
+    assertTrue(job.progress().changed() >= 1);
+    assertTrue(job.progress().evaluated() >= 3);
+
+    // The stale PAO is rewritten; PAOs that were right are left alone
+    DbPao repaired = paoDao.getDbPao(dependentId, false);
+    assertEquals(groupSetId, repaired.effectiveSetId());
+    assertEquals(staleDependent.version() + 1, repaired.version());
+    assertEquals(source.version(), paoDao.getDbPao(sourceId, false).version());
+    assertEquals(grandDependent, paoDao.getDbPao(grandDependentId, false));
+    PaoTestUtil.checkForPolicies(paoService.getPao(dependentId), group);
+  }
+
+  @Test
+  void staleVersionIsSkipped() throws Exception {
+    UUID paoId = PaoTestUtil.makePao(paoService);
+    DbPao dbPao = paoDao.getDbPao(paoId, false);
+    PolicyInput flag = PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A);
+
+    // An update computed from an older version is not written
+    assertEquals(
+        List.of(),
+        paoDao.updateEffectiveAttributes(
+            List.of(
+                new DbEffectiveUpdate(
+                    paoId,
+                    dbPao.version() - 1,
+                    Map.of(),
+                    dbPao.effectiveSetId(),
+                    PaoTestUtil.makePolicyInputs(flag)))));
+    assertEquals(dbPao, paoDao.getDbPao(paoId, false));
+  }
+
+  @Test
+  void movedSourceIsSkipped() throws Exception {
+    UUID sourceId = PaoTestUtil.makePao(paoService);
+    UUID dependentId = PaoTestUtil.makePao(paoService);
+    paoService.linkSourcePao(dependentId, sourceId, PaoUpdateMode.FAIL_ON_CONFLICT);
+    DbPao source = paoDao.getDbPao(sourceId, false);
+    DbPao dependent = paoDao.getDbPao(dependentId, false);
+    PolicyInput flag = PaoTestUtil.makeFlagInput(PaoTestUtil.TEST_FLAG_POLICY_A);
+
+    // An update computed from an older version of a source is not written
+    assertEquals(
+        List.of(),
+        paoDao.updateEffectiveAttributes(
+            List.of(
+                new DbEffectiveUpdate(
+                    dependentId,
+                    dependent.version(),
+                    Map.of(sourceId, source.version() - 1),
+                    dependent.effectiveSetId(),
+                    PaoTestUtil.makePolicyInputs(flag)))));
+    assertEquals(dependent, paoDao.getDbPao(dependentId, false));
+
+    assertEquals(
+        List.of(dependentId),
+        paoDao.updateEffectiveAttributes(
+            List.of(
+                new DbEffectiveUpdate(
+                    dependentId,
+                    dependent.version(),
+                    Map.of(sourceId, source.version()),
+                    dependent.effectiveSetId(),
+                    PaoTestUtil.makePolicyInputs(flag)))));
+    assertEquals(dependent.version() + 1, paoDao.getDbPao(dependentId, false).version());
+  }
+
+  @Test
+  void expiredJobOnItsLastAttemptIsFailed() {
+    ReevaluationJob job = reevaluationService.startJob();
+    int maxAttempts = reevaluationConfiguration.getMaxAttempts();
+    new NamedParameterJdbcTemplate(tpsDatabaseConfiguration.getDataSource())
+        .update(
+            """
+            UPDATE reevaluation_job
+            SET status = :running, attempts = :attempts,
+                last_updated = CURRENT_TIMESTAMP - make_interval(secs => :expired_seconds)
+            WHERE job_id = :job_id
+            """,
+            new MapSqlParameterSource()
+                .addValue("running", PropagationJobStatus.RUNNING.getDbStatus())
+                .addValue("attempts", maxAttempts)
+                .addValue(
+                    "expired_seconds", reevaluationConfiguration.getLeaseTimeout().toSeconds() + 60)
+                .addValue("job_id", job.jobId()));
+
+    // The worker died during the last attempt; the job is failed rather than claimed again
+    assertFalse(reevaluationWorker.processJob());
+    job = reevaluationService.getJob(job.jobId());
+    assertEquals(PropagationJobStatus.FAILED, job.status());
+    assertEquals(maxAttempts, job.attempts());
+  }
+
+  @Test
+  void ontologyJobIsQueuedOnceAndWaitsForItsOntology() {
+    // Every instance that reloads the same ontology gets the same job
+    String otherVersion = UUID.randomUUID().toString();
+    ReevaluationJob otherJob = reevaluationService.startOntologyJob(otherVersion);
+    assertEquals(otherVersion, otherJob.ontologyVersion());
+    assertEquals(otherJob.jobId(), reevaluationService.startOntologyJob(otherVersion).jobId());
+
+    // This instance has not loaded the other ontology, so it leaves the job queued
+    assertFalse(reevaluationWorker.processJob());
+    assertEquals(
+        PropagationJobStatus.QUEUED, reevaluationService.getJob(otherJob.jobId()).status());
+
+    ReevaluationJob currentJob =
+        reevaluationService.startOntologyJob(regionService.getOntologyVersion());
+    assertTrue(reevaluationWorker.processJob());
+    assertEquals(
+        PropagationJobStatus.SUCCEEDED, reevaluationService.getJob(currentJob.jobId()).status());
+  }
+
+  @Test
+  void noJobToClaim() {
+    assertFalse(reevaluationWorker.processJob());
+    assertThrows(
+        ReevaluationJobNotFoundException.class,
+        () -> reevaluationService.getJob(UUID.randomUUID()));
+  }
+}
@@ -0,0 +1,113 @@
+package bio.terra.policy.service.region;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import bio.terra.policy.app.configuration.OntologyConfiguration;
+import bio.terra.policy.testutils.TestUnitBase;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class OntologyReloaderTest extends TestUnitBase {
+  private static final String NEW_REGION = "gcp.europe-north2";
+  // The new region is added next to this one, in finland
+  private static final String FINLAND_REGION =
+      """
+          - name: gcp.europe-north1
+            description: Europe North 1 (GCP)
+            cloudRegion: europe-north1
+            cloudPlatform: gcp
+      """;
+  private static final String NEW_REGION_YAML =
+      """
+          - name: gcp.europe-north2
+            description: Europe North 2 (GCP)
+            cloudRegion: europe-north2
+            cloudPlatform: gcp
+      """;
+
+  @Autowired private OntologyConfiguration ontologyConfiguration;
+  @Autowired private OntologyReloader ontologyReloader;
+  @Autowired private RegionService regionService;
+  @TempDir private Path tempDir;
+
+  private byte[] builtInYaml;
+  private Path ontologyFile;
+
+  @BeforeEach
+  void setup() throws IOException {
+    try (InputStream inputStream =
+        getClass().getClassLoader().getResourceAsStream("static/locations.yml")) {
+      builtInYaml = inputStream.readAllBytes();
+    }
+    ontologyFile = tempDir.resolve("locations.yml");
+    ontologyConfiguration.setFile(ontologyFile.toString());
+  }
+
+  @AfterEach
+  void cleanup() {
+    // The region service is shared by the whole test run
+    regionService.reload(builtInYaml);
+    ontologyConfiguration.setFile(null);
+  }
+
+  @Test
+  void reloadPublishesNewOntology() throws IOException {
+    RegionOntology before = regionService.getCurrentOntology();
+    writeOntology(withNewRegion());
+
+    assertTrue(ontologyReloader.reload(false));
+    RegionOntology after = regionService.getCurrentOntology();
+    assertNotEquals(before.getOntologyVersion(), after.getOntologyVersion());
+    assertEquals(before.getGeneration() + 1, after.getGeneration());
+    assertNotNull(regionService.getLocation(NEW_REGION));
+    assertTrue(regionService.isSubLocation("finland", NEW_REGION));
+    // The old ontology is unchanged for anyone still holding it
+    assertNull(before.getLocation(NEW_REGION));
+
+    // Reading the same file again changes nothing
+    assertFalse(ontologyReloader.reload(false));
+    assertSame(after, regionService.getCurrentOntology());
+  }
+
+  @Test
+  void invalidFileKeepsOntology() throws IOException {
+    RegionOntology before = regionService.getCurrentOntology();
+
+    // Two locations with the same name
+    writeOntology(withNewRegion().replace(NEW_REGION, "gcp.europe-north1"));
+    assertFalse(ontologyReloader.reload(false));
+    assertSame(before, regionService.getCurrentOntology());
+
+    writeOntology("name: [global");
+    assertFalse(ontologyReloader.reload(false));
+    assertSame(before, regionService.getCurrentOntology());
+
+    Files.delete(ontologyFile);
+    assertFalse(ontologyReloader.reload(false));
+    assertSame(before, regionService.getCurrentOntology());
+  }
+
+  private String withNewRegion() {
+    String yaml = new String(builtInYaml, StandardCharsets.UTF_8);
+    assertTrue(yaml.contains(FINLAND_REGION));
+    return yaml.replace(FINLAND_REGION, FINLAND_REGION + NEW_REGION_YAML);
+  }
+
+  private void writeOntology(String yaml) throws IOException {
+    Files.writeString(ontologyFile, yaml);
+  }
+}
@@ -58,8 +58,7 @@ public class RegionEvaluateTest extends TestUnitBase {
         PolicyInput.createFromMap(
             TERRA, REGION_CONSTRAINT, Collections.singletonMap(REGION, region));
 
-    var inputs = new PolicyInputs();
-    inputs.addInput(regionPolicy);
+    var inputs = PolicyInputs.builder().addInput(regionPolicy).build();
 
     // Create a PAO
     paoService.createPao(objectId, PaoComponent.WSM, PaoObjectType.WORKSPACE, inputs);
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import bio.terra.policy.common.model.PolicyInput;
@@ -27,6 +28,11 @@ public class RegionServiceTest extends TestUnitBase {
   @Autowired private RegionService regionService;
   @Autowired private PaoService paoService;
 
+  @Test
+  void oneSharedInstance() {
+    assertSame(RegionService.getInstance(), regionService);
+  }
+
   @Test
   void getLocation() {
     String searchLocation = "europe";
@@ -213,8 +219,7 @@ public class RegionServiceTest extends TestUnitBase {
         PolicyInput.createFromMap(
             "terra", "region-constraint", Collections.singletonMap("region-name", region));
 
-    var inputs = new PolicyInputs();
-    inputs.addInput(regionPolicy);
+    var inputs = PolicyInputs.builder().addInput(regionPolicy).build();
 
     // Create a PAO
     paoService.createPao(objectId, PaoComponent.WSM, PaoObjectType.WORKSPACE, inputs);
@@ -41,11 +41,11 @@ public class PaoTestUtil {
   public static final String DATA2 = "data2";
 
   public static PolicyInputs makePolicyInputs(PolicyInput... inputList) {
-    var inputs = new PolicyInputs();
+    var inputs = PolicyInputs.builder();
     for (PolicyInput input : inputList) {
       inputs.addInput(input);
     }
-    return inputs;
+    return inputs.build();
   }
 
   public static UUID makePao(PaoService paoService, PolicyInput... inputList) {